@@ -38,6 +38,11 @@
     *;
 }
 
+# 保留由native层构造的扫描结果类
+-keep class com.manager.ssb.util.NativeFileOperation$ScanResult {
+    *;
+}
+
 # 保留JNI接口方法
 -keepclassmembers class * {
     @androidx.annotation.Keep public void onProgress(java.lang.String, long, long);
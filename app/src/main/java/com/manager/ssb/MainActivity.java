@@ -44,7 +44,6 @@ import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.PopupMenu;
 import androidx.core.content.ContextCompat;
-import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
@@ -54,24 +53,37 @@ import com.google.android.material.textfield.TextInputEditText;
 import com.google.android.material.textfield.TextInputLayout;
 
 import com.manager.ssb.Application;
+import com.manager.ssb.adapter.DisplayRows;
 import com.manager.ssb.adapter.FileAdapter;
 import com.manager.ssb.enums.ActivePanel;
+import com.manager.ssb.enums.SortMode;
 import com.manager.ssb.core.FileOpener;
+import com.manager.ssb.core.copy.CopyJournal;
+import com.manager.ssb.core.loader.DirectoryCache;
+import com.manager.ssb.core.loader.DirectoryLoader;
+import com.manager.ssb.core.loader.DirectoryPrefetcher;
+import com.manager.ssb.core.loader.DirectoryWatcher;
 import com.manager.ssb.core.task.NotifyingExecutorService;
+import com.manager.ssb.core.task.OperationQueue;
 import com.manager.ssb.core.task.TaskNotificationManager;
 import com.manager.ssb.core.task.TaskTypes;
 import com.manager.ssb.core.config.Config;
 import com.manager.ssb.core.function.FileLongClickHandler;
 import com.manager.ssb.core.function.BottomMenuClickListener;
 import com.manager.ssb.databinding.ActivityMainBinding;
+import com.manager.ssb.model.DirectorySnapshot;
 import com.manager.ssb.model.FileItem;
+import com.manager.ssb.model.SortOrder;
 import com.manager.ssb.core.dialog.SettingsDialogFragment;
+import com.manager.ssb.dialog.CopyDialog;
+import com.manager.ssb.dialog.DeleteDialog;
+import com.manager.ssb.dialog.MoveDialog;
+import com.manager.ssb.dialog.OperationQueueDialog;
 import com.manager.ssb.core.term.TerminalInstaller;
 
 import java.io.File;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
@@ -79,7 +91,9 @@ import java.util.TimeZone;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Pattern;
 import java.util.regex.Matcher;
 
@@ -89,8 +103,6 @@ public class MainActivity extends AppCompatActivity {
     public ActivePanel activePanel = ActivePanel.LEFT;
     private File currentDirectoryLeft;
     private File currentDirectoryRight;
-    private final List<FileItem> fileListLeft = new ArrayList<>();
-    private final List<FileItem> fileListRight = new ArrayList<>();
     public FileAdapter adapterLeft;
     public FileAdapter adapterRight;
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
@@ -98,6 +110,30 @@ public class MainActivity extends AppCompatActivity {
     private boolean storageInfoLoaded = false;
     public boolean canSwichActivePanel = true;
     private TaskNotificationManager notificationManager;
+    private int loadTokenLeft = 0;
+    private int loadTokenRight = 0;
+    // 各面板正在进行的加载，新的加载开始时取消旧的
+    private DirectoryLoader activeLoaderLeft;
+    private DirectoryLoader activeLoaderRight;
+    
+    // 最近访问目录的快照与显示数据，返回上级、两侧面板同路径时直接显示
+    // 每行显示数据约为稳定 ID、图标与两个字符串引用
+    private final DirectoryCache<DisplayRows> directoryCache =
+            new DirectoryCache<>(Runtime.getRuntime().maxMemory() / 16, 48, 24);
+    
+    // 监听各面板正在显示的目录，文件变化时增量更新列表
+    private DirectoryWatcher watcherLeft;
+    private DirectoryWatcher watcherRight;
+    
+    // 空闲时预读可能进入的目录，放入 directoryCache
+    private DirectoryPrefetcher<DisplayRows> prefetcher;
+    // 每个面板最多取多少个子目录作为预读候选
+    private static final int PREFETCH_CHILDREN = 16;
+    
+    // 两侧面板共用的排序方式
+    private static final String KEY_SORT_MODE = "sort.mode";
+    private static final String KEY_SORT_DESCENDING = "sort.descending";
+    private SortOrder sortOrder = SortOrder.DEFAULT;
     
     public final Handler disableHandler = new Handler();
     public final Runnable enableClicksRunnable = () -> {
@@ -131,6 +167,7 @@ public class MainActivity extends AppCompatActivity {
             notificationManager,
             TaskTypes.MONITORED_TASKS
         );
+        OperationQueue.initialize(this, executorService);
 
         if (checkPermissions()) {
             initApp();
@@ -355,8 +392,11 @@ public class MainActivity extends AppCompatActivity {
         
         currentDirectoryLeft = Environment.getExternalStorageDirectory();
         currentDirectoryRight = Environment.getExternalStorageDirectory();
+        sortOrder = loadSortOrder();
+        prefetcher = new DirectoryPrefetcher<>(directoryCache, executorService);
         
         setupRecyclerViews();
+        setupDirectoryWatchers();
         loadBothPanels();
         
         if (!storageInfoLoaded) {
@@ -365,6 +405,7 @@ public class MainActivity extends AppCompatActivity {
         }
         
         initMenuActions();
+        checkInterruptedCopies();
         
         boolean isFirst = Config.get("isFirst", true);
         int lastBuildNumber = Config.get("lastBuildNumber", 0);
@@ -382,6 +423,111 @@ public class MainActivity extends AppCompatActivity {
         }
     }
     
+    // 上次被中断（进程被杀）或取消的复制任务，逐个询问是否续传；
+    // 队列中未完成的其他操作（有日志的复制除外，由续传处理）一起询问是否重新执行
+    private void checkInterruptedCopies() {
+        executorService.execute(() -> {
+            List<CopyJournal> pending = CopyJournal.loadPending(this);
+            Set<String> journaled = new HashSet<>();
+            for (CopyJournal journal : pending) {
+                // 多选复制在队列中按第一项记录
+                File source = journal.getItems() != null ? journal.getItems()[0] : journal.getSource();
+                journaled.add(source.getAbsolutePath() + "\n" + journal.getDestination().getAbsolutePath());
+            }
+            List<OperationQueue.Pending> operations = new ArrayList<>();
+            for (OperationQueue.Pending operation : OperationQueue.loadPending(this)) {
+                if (operation.sources != null) {
+                    // 多选移动或删除时已处理的各项不在原处了，只要还有一项存在就恢复
+                    boolean anyExists = false;
+                    for (File source : operation.sources) anyExists |= source.exists();
+                    if (!anyExists) continue;
+                } else if (!operation.source.exists()) {
+                    continue;
+                }
+                if (operation.target != null && journaled.contains(
+                        operation.source.getAbsolutePath() + "\n" + operation.target.getAbsolutePath())) continue;
+                operations.add(operation);
+            }
+            runOnUiThread(() -> {
+                if (!operations.isEmpty()) showRestoreOperationsDialog(operations);
+                if (!pending.isEmpty()) showResumeCopyDialog(pending, 0);
+            });
+        });
+    }
+    
+    private void showRestoreOperationsDialog(List<OperationQueue.Pending> operations) {
+        if (isFinishing()) return;
+        StringBuilder list = new StringBuilder();
+        for (OperationQueue.Pending operation : operations) {
+            int kind = TaskTypes.MOVE_FILE.equals(operation.taskName) ? R.string.move_file
+                : TaskTypes.DELETE_FILE.equals(operation.taskName) ? R.string.delete : R.string.copy_file;
+            list.append(getString(kind)).append(": ").append(operation.sources != null
+                ? operation.source.getParent() + " (" + getString(R.string.selection_items, operation.sources.length) + ")"
+                : operation.source.getAbsolutePath());
+            if (operation.target != null) list.append(" → ").append(operation.target.getAbsolutePath());
+            list.append('\n');
+        }
+        new MaterialAlertDialogBuilder(this)
+            .setTitle(R.string.queue_restore_title)
+            .setMessage(getString(R.string.queue_restore_message, list))
+            .setCancelable(false)
+            .setPositiveButton(R.string.queue_restore, (dialog, which) -> {
+                for (OperationQueue.Pending operation : operations) {
+                    if (operation.sources != null) {
+                        restartSelection(operation);
+                    } else if (TaskTypes.MOVE_FILE.equals(operation.taskName)) {
+                        MoveDialog.restart(this, operation.source, operation.target, executorService,
+                            moved -> refreshAllPanels());
+                    } else if (TaskTypes.DELETE_FILE.equals(operation.taskName)) {
+                        DeleteDialog.start(this, operation.source, deleted -> refreshAllPanels());
+                    } else {
+                        CopyDialog.restart(this, operation.source, operation.target, executorService,
+                            copied -> refreshAllPanels());
+                    }
+                }
+            })
+            .setNegativeButton(R.string.cancel, null)
+            .show();
+    }
+    
+    // 多选的操作只恢复仍在原处的各项
+    private void restartSelection(OperationQueue.Pending operation) {
+        List<File> remaining = new ArrayList<>();
+        for (File source : operation.sources) {
+            if (source.exists()) remaining.add(source);
+        }
+        File[] items = remaining.toArray(new File[0]);
+        if (TaskTypes.MOVE_FILE.equals(operation.taskName)) {
+            MoveDialog.restart(this, items, operation.target, executorService, moved -> refreshAllPanels());
+        } else if (TaskTypes.DELETE_FILE.equals(operation.taskName)) {
+            DeleteDialog.start(this, items, deleted -> refreshAllPanels());
+        } else {
+            CopyDialog.restart(this, items, operation.target, executorService, copied -> refreshAllPanels());
+        }
+    }
+    
+    private void showResumeCopyDialog(List<CopyJournal> pending, int index) {
+        if (index >= pending.size() || isFinishing()) return;
+        CopyJournal journal = pending.get(index);
+        new MaterialAlertDialogBuilder(this)
+            .setTitle(R.string.copy_resume_title)
+            .setMessage(getString(R.string.copy_resume_message,
+                journal.getSource().getAbsolutePath(),
+                journal.getDestination().getAbsolutePath(),
+                journal.getDoneCount()))
+            .setCancelable(false)
+            // 续传时不再询问其余任务（同时只进行一个），下次启动时再询问
+            .setPositiveButton(R.string.copy_resume, (dialog, which) ->
+                CopyDialog.resume(this, journal, executorService, copied -> refreshAllPanels()))
+            .setNegativeButton(R.string.copy_discard, (dialog, which) -> {
+                CopyDialog.discard(journal, executorService);
+                showResumeCopyDialog(pending, index + 1);
+            })
+            .setNeutralButton(R.string.copy_resume_later, (dialog, which) ->
+                showResumeCopyDialog(pending, index + 1))
+            .show();
+    }
+    
     // 提取构建号的核心方法
     private int extractBuildNumber(String version) {
         // 使用正则提取末尾的数字
@@ -434,8 +580,10 @@ public class MainActivity extends AppCompatActivity {
     
     private void initMenuActions() {
         menuActionMap.put(R.id.action_refresh, this::refreshCurrentDirectory);
+        menuActionMap.put(R.id.action_sort, this::showSortDialog);
         menuActionMap.put(R.id.action_settings, this::openSettings);
         menuActionMap.put(R.id.action_storage_info, this::showStorageDetails);
+        menuActionMap.put(R.id.action_operations, () -> OperationQueueDialog.show(this));
         menuActionMap.put(R.id.action_about, this::showAboutDialog);
         menuActionMap.put(R.id.action_terminal, this::startTerminal);
         menuActionMap.put(R.id.action_exit, this::finish);
@@ -447,7 +595,7 @@ public class MainActivity extends AppCompatActivity {
 
         // 左侧适配器
         adapterLeft = new FileAdapter(
-            fileListLeft,
+            DirectorySnapshot.empty(currentDirectoryLeft),
             item -> handleItemClick(item, ActivePanel.LEFT),
             (item, view) -> longClickHandler.handle(item, view, ActivePanel.LEFT),
             "left",
@@ -460,7 +608,7 @@ public class MainActivity extends AppCompatActivity {
 
         // 右侧适配器
         adapterRight = new FileAdapter(
-            fileListRight,
+            DirectorySnapshot.empty(currentDirectoryRight),
             item -> handleItemClick(item, ActivePanel.RIGHT),
             (item, view) -> longClickHandler.handle(item, view, ActivePanel.RIGHT),
             "right",
@@ -538,24 +686,94 @@ public class MainActivity extends AppCompatActivity {
                 break;
         }
         if (panel == activePanel) updatePathDisplay();
+        getWatcher(panel).watch(directory);
     }
+    
+    private DirectoryWatcher getWatcher(ActivePanel panel) {
+        return panel == ActivePanel.LEFT ? watcherLeft : watcherRight;
+    }
+    
+    private void setupDirectoryWatchers() {
+        DirectoryWatcher.Listener listener = new DirectoryWatcher.Listener() {
+            @Override
+            public void onChanged(DirectoryWatcher watcher, File directory, Set<String> names) {
+                applyDirectoryChanges(watcher, directory, names);
+            }
 
-    private void updateFileList(List<FileItem> newItems, ActivePanel panel) {
-        switch (panel) {
-            case LEFT:
-                updateSingleList(fileListLeft, newItems, adapterLeft);
-                break;
-            case RIGHT:
-                updateSingleList(fileListRight, newItems, adapterRight);
-                break;
+            @Override
+            public void onInvalidated(DirectoryWatcher watcher, File directory) {
+                // 目录自身变化或事件丢失，只能整体重新读取
+                directoryCache.invalidate(directory);
+                loadDirectory(directory, watcher == watcherLeft ? ActivePanel.LEFT : ActivePanel.RIGHT);
+            }
+        };
+        watcherLeft = new DirectoryWatcher(listener);
+        watcherRight = new DirectoryWatcher(listener);
+    }
+    
+    // 只重新读取发生变化的条目，与当前快照合并后按变化区间通知列表
+    private void applyDirectoryChanges(DirectoryWatcher watcher, File directory, Set<String> names) {
+        final ActivePanel panel = watcher == watcherLeft ? ActivePanel.LEFT : ActivePanel.RIGHT;
+        final FileAdapter adapter = getAdapter(panel);
+        final DirectorySnapshot current = adapter.getSnapshot();
+        final DisplayRows currentRows = adapter.getRows();
+        if (!current.getDirectory().equals(directory) || currentRows.size() != current.size()) {
+            // 该目录仍在加载中，交给加载结果
+            watcher.finishBatch();
+            return;
         }
+        
+        final DisplayRows.Formatter formatter = new DisplayRows.Formatter(this);
+        executorService.submit(() -> {
+            DirectorySnapshot patched = null;
+            DisplayRows rows = null;
+            int[] source = null;
+            try {
+                DirectorySnapshot.Builder upserts =
+                        new DirectorySnapshot.Builder(directory, false, names.size(), current.getSortOrder());
+                for (String name : names) {
+                    File file = new File(directory, name);
+                    if (!file.exists()) continue; // 已删除，合并时移除
+                    upserts.add(name, file.isDirectory(), file.length(), file.lastModified());
+                }
+                DirectorySnapshot changes = upserts.build();
+                source = new int[current.size() + changes.size()];
+                patched = current.merge(changes.sorted(), names, changes.getDirectoryModified(), source);
+                rows = formatter.remap(patched, currentRows, source);
+                directoryCache.put(patched, rows);
+            } finally {
+                final DirectorySnapshot result = patched;
+                final DisplayRows resultRows = rows;
+                final int[] resultSource = source;
+                mainHandler.post(() -> {
+                    if (watcher.isWatching(directory)) watcher.finishBatch();
+                    if (result == null) return;
+                    if (result.getSortOrder() == sortOrder) {
+                        adapter.patchSnapshot(current, result, resultRows, resultSource);
+                    } else if (adapter.getSnapshot().isSameDirectory(result)) {
+                        // 合并期间切换了排序方式，交给 loadDirectory 按新方式重新排序缓存结果
+                        loadDirectory(directory, panel);
+                    }
+                });
+            }
+        });
+    }
+
+    private FileAdapter getAdapter(ActivePanel panel) {
+        return panel == ActivePanel.LEFT ? adapterLeft : adapterRight;
     }
     
-    private void updateSingleList(List<FileItem> targetList, List<FileItem> newItems, FileAdapter adapter) {
-        DiffUtil.DiffResult result = DiffUtil.calculateDiff(new FileDiffCallback(targetList, newItems));
-        targetList.clear();
-        targetList.addAll(newItems);
-        result.dispatchUpdatesTo(adapter);
+    // 差异在后台计算，过期结果由适配器丢弃
+    private void updateFileList(DirectorySnapshot snapshot, DisplayRows rows, ActivePanel panel) {
+        getAdapter(panel).submitSnapshot(snapshot, rows);
+    }
+    
+    private void replaceFileList(DirectorySnapshot snapshot, DisplayRows rows, ActivePanel panel) {
+        getAdapter(panel).replaceSnapshot(snapshot, rows);
+    }
+    
+    private void appendFileList(DirectorySnapshot snapshot, DisplayRows rows, int pageStart, ActivePanel panel) {
+        getAdapter(panel).appendSnapshot(snapshot, rows, pageStart);
     }
     
     private void handleItemClick(FileItem item, ActivePanel panel) {
@@ -570,20 +788,6 @@ public class MainActivity extends AppCompatActivity {
     }
 
 
-    private FileItem createParentDirectoryItem(File currentDir) {
-        return new FileItem(currentDir.getParentFile()) {
-            @Override
-            public String getName() {
-                return "..";
-            }
-
-            @Override
-            public boolean isDirectory() {
-                return true;
-            }
-        };
-    }
-
     // 兼容低版本的存储信息获取
     private void updateStorageInfo() {
         executorService.submit(() -> {
@@ -617,41 +821,6 @@ public class MainActivity extends AppCompatActivity {
         Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
     }
 
-    static class FileDiffCallback extends DiffUtil.Callback {
-        private final List<FileItem> oldList;
-        private final List<FileItem> newList;
-
-        FileDiffCallback(List<FileItem> oldList, List<FileItem> newList) {
-            this.oldList = new ArrayList<>(oldList);
-            this.newList = new ArrayList<>(newList);
-        }
-
-        @Override
-        public int getOldListSize() {
-            return oldList.size();
-        }
-
-        @Override
-        public int getNewListSize() {
-            return newList.size();
-        }
-
-        @Override
-        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
-            return oldList.get(oldItemPosition).getPath().equals(newList.get(newItemPosition).getPath());
-        }
-
-        @Override
-        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
-            FileItem oldItem = oldList.get(oldItemPosition);
-            FileItem newItem = newList.get(newItemPosition);
-            return oldItem.getName().equals(newItem.getName())
-                    && oldItem.getSize() == newItem.getSize()
-                    && oldItem.getLastModified() == newItem.getLastModified()
-                    && oldItem.isDirectory() == newItem.isDirectory();
-        }
-    }
-
     // 添加弹出菜单实现
     private void showPopupMenu() {
         PopupMenu popupMenu = new PopupMenu(this, binding.btnMenu);
@@ -671,10 +840,74 @@ public class MainActivity extends AppCompatActivity {
     
     // 相关功能方法
     private void refreshCurrentDirectory() {
+        // 手动刷新时不信任缓存，强制重新读取
+        directoryCache.invalidate(currentDirectoryLeft);
+        directoryCache.invalidate(currentDirectoryRight);
         loadBothPanels();
         showToast(getString(R.string.refresh));
     }
     
+    private SortOrder loadSortOrder() {
+        try {
+            SortMode mode = SortMode.valueOf(Config.get(KEY_SORT_MODE, SortMode.NAME.name()));
+            return SortOrder.of(mode, Config.get(KEY_SORT_DESCENDING, false));
+        } catch (IllegalArgumentException e) {
+            return SortOrder.DEFAULT; // 配置值无效
+        }
+    }
+    
+    private void showSortDialog() {
+        // 与 SortOrder.values() 的顺序一致：每种依据先升序后降序
+        String[] labels = getResources().getStringArray(R.array.sort_orders);
+        new MaterialAlertDialogBuilder(this)
+            .setTitle(R.string.sort)
+            .setSingleChoiceItems(labels, sortOrder.ordinal(), (dialog, which) -> {
+                setSortOrder(SortOrder.values()[which]);
+                dialog.dismiss();
+            })
+            .setNegativeButton(R.string.cancel, null)
+            .show();
+    }
+    
+    private void setSortOrder(SortOrder order) {
+        if (order == sortOrder) return;
+        sortOrder = order;
+        Config.set(KEY_SORT_MODE, order.getMode().name());
+        Config.set(KEY_SORT_DESCENDING, order.isDescending());
+        resortPanel(currentDirectoryLeft, ActivePanel.LEFT);
+        resortPanel(currentDirectoryRight, ActivePanel.RIGHT);
+    }
+    
+    // 已完整加载的面板直接对当前快照重新排序，不重新读取目录
+    private void resortPanel(File directory, ActivePanel panel) {
+        final FileAdapter adapter = getAdapter(panel);
+        final DirectorySnapshot current = adapter.getSnapshot();
+        final DisplayRows currentRows = adapter.getRows();
+        if (!current.getDirectory().equals(directory) || currentRows.size() != current.size()) {
+            // 仍在加载中，按新的排序方式重新开始
+            loadDirectory(directory, panel);
+            return;
+        }
+        
+        // 使正在进行的加载和尚未提交的差异结果失效
+        final int token = nextLoadToken(panel);
+        adapter.discardPendingUpdates();
+        DirectoryLoader previous = setActiveLoader(panel, null);
+        if (previous != null) previous.cancel();
+        
+        final SortOrder order = sortOrder;
+        final DisplayRows.Formatter formatter = new DisplayRows.Formatter(this);
+        executorService.submit(() -> {
+            int[] source = new int[current.size()];
+            final DirectorySnapshot snapshot = current.sorted(order, source);
+            final DisplayRows rows = formatter.remap(snapshot, currentRows, source);
+            directoryCache.put(snapshot, rows);
+            mainHandler.post(() -> {
+                if (isCurrentLoad(panel, token)) replaceFileList(snapshot, rows, panel);
+            });
+        });
+    }
+    
     private void openSettings() {
         SettingsDialogFragment settingsDialog = new SettingsDialogFragment();
         settingsDialog.show(getSupportFragmentManager(), "SettingsDialog");
@@ -836,8 +1069,14 @@ public class MainActivity extends AppCompatActivity {
     }
     
     // 一些公共方法
+    // 正在监听的面板由目录监听增量更新，这里只需立即处理已累积的变化
     public void refreshAllPanels() {
-        loadBothPanels();
+        if (!watcherLeft.flush(currentDirectoryLeft)) {
+            loadDirectory(currentDirectoryLeft, ActivePanel.LEFT);
+        }
+        if (!watcherRight.flush(currentDirectoryRight)) {
+            loadDirectory(currentDirectoryRight, ActivePanel.RIGHT);
+        }
     }
 
     public boolean getActivePanel() {
@@ -865,42 +1104,155 @@ public class MainActivity extends AppCompatActivity {
     }
     
     public void loadDirectory(File directory, ActivePanel panel) {
-        executorService.submit(() -> {
-            List<FileItem> newItems = new ArrayList<>();
+        final int token = nextLoadToken(panel);
+        // 旧目录尚未提交的差异结果已无意义
+        getAdapter(panel).discardPendingUpdates();
+        // 跳转时停止预读，加载完成后按新目录重新预读
+        prefetcher.cancel();
+        
+        // 缓存命中时立即显示，随后在后台确认是否需要重新读取
+        // 排序方式不同的缓存先不显示，确认有效后直接重新排序
+        final DirectoryCache.Entry<DisplayRows> entry = directoryCache.get(directory);
+        final boolean reorder = entry != null && entry.getSnapshot().getSortOrder() != sortOrder;
+        final DirectoryCache.Entry<DisplayRows> cached = reorder ? null : entry;
+        if (cached != null) {
+            updateFileList(cached.getSnapshot(), cached.getRows(), panel);
+            updatePanelDirectory(directory, panel);
+        }
+        
+        // 显示文本和图标随每页在加载线程生成，列表绑定时不再计算
+        final DisplayRows.Formatter formatter = new DisplayRows.Formatter(this);
+        final DirectoryLoader loader = new DirectoryLoader(directory, sortOrder, new DirectoryLoader.PageListener() {
+            private DisplayRows pageRows;
 
-            if (!isRootDirectory(directory)) {
-                newItems.add(createParentDirectoryItem(directory));
+            @Override
+            public void onPage(DirectorySnapshot snapshot, int pageStart) {
+                // 已显示缓存内容时不分页，读取完成后只按差异更新
+                if (cached != null) return;
+                final DisplayRows rows = formatter.format(snapshot, pageRows, pageStart);
+                pageRows = rows;
+                mainHandler.post(() -> {
+                    if (!isCurrentLoad(panel, token)) return;
+                    if (pageStart == 0) {
+                        // 首屏直接替换，不等待整个目录读取完成
+                        replaceFileList(snapshot, rows, panel);
+                        updatePanelDirectory(directory, panel);
+                    } else {
+                        appendFileList(snapshot, rows, pageStart, panel);
+                    }
+                });
             }
 
-            File[] files = directory.listFiles();
-            if (files != null) {
-                for (File file : files) {
-                    newItems.add(new FileItem(file));
-                }
+            @Override
+            public void onComplete(DirectorySnapshot snapshot, boolean paged) {
+                final DisplayRows rows = formatter.format(snapshot);
+                directoryCache.put(snapshot, rows);
+                mainHandler.post(() -> {
+                    if (!isCurrentLoad(panel, token)) return;
+                    if (paged && cached == null) {
+                        // 分页期间只保证页内有序，这里换成整体排序后的结果
+                        replaceFileList(snapshot, rows, panel);
+                    } else {
+                        updateFileList(snapshot, rows, panel);
+                        updatePanelDirectory(directory, panel);
+                    }
+                });
             }
-
-            Collections.sort(newItems, (a, b) -> {
-                // 优先处理".."目录
-                boolean aIsParent = "..".equals(a.getName());
-                boolean bIsParent = "..".equals(b.getName());
-            
-                if (aIsParent && bIsParent) return 0;
-                if (aIsParent) return -1;  // a是".."则排在前面
-                if (bIsParent) return 1;   // b是".."则a排在后面
-            
-                // 原始排序规则
-                if (a.isDirectory() && !b.isDirectory()) return -1;
-                if (!a.isDirectory() && b.isDirectory()) return 1;
-                return a.getName().compareToIgnoreCase(b.getName());
-            });
-
-            mainHandler.post(() -> {
-                updateFileList(newItems, panel);
-                updatePanelDirectory(directory, panel);
-            });
+        });
+        
+        // 同一面板只保留最新的加载，旧加载在下一批读取前停止
+        DirectoryLoader previous = setActiveLoader(panel, loader);
+        if (previous != null) previous.cancel();
+        
+        final SortOrder order = sortOrder;
+        executorService.submit(() -> {
+            // 缓存仍然有效时无需重新读取
+            if (cached != null && directoryCache.isFresh(cached)) {
+                postPrefetch(panel, token);
+                return;
+            }
+            if (reorder && directoryCache.isFresh(entry)) {
+                // 沿用缓存中的条目和排序键，只重新排序，显示数据按行号复用
+                int[] source = new int[entry.getSnapshot().size()];
+                final DirectorySnapshot snapshot = entry.getSnapshot().sorted(order, source);
+                final DisplayRows rows = formatter.remap(snapshot, entry.getRows(), source);
+                directoryCache.put(snapshot, rows);
+                mainHandler.post(() -> {
+                    if (!isCurrentLoad(panel, token)) return;
+                    replaceFileList(snapshot, rows, panel);
+                    updatePanelDirectory(directory, panel);
+                });
+                postPrefetch(panel, token);
+                return;
+            }
+            loader.load(!isRootDirectory(directory));
+            postPrefetch(panel, token);
         }, TaskTypes.LOAD_FILES);
     }
     
+    // 加载结束后在主线程收集预读候选；期间又有新的加载时由新加载负责
+    private void postPrefetch(ActivePanel panel, int token) {
+        mainHandler.post(() -> {
+            if (isCurrentLoad(panel, token)) schedulePrefetch();
+        });
+    }
+    
+    // 预读顺序：当前面板的子目录、另一面板的子目录、最近的历史记录、书签
+    private void schedulePrefetch() {
+        ArrayList<File> candidates = new ArrayList<>();
+        HashSet<String> seen = new HashSet<>();
+        ActivePanel other = activePanel == ActivePanel.LEFT ? ActivePanel.RIGHT : ActivePanel.LEFT;
+        addChildCandidates(getAdapter(activePanel).getSnapshot(), candidates, seen);
+        addChildCandidates(getAdapter(other).getSnapshot(), candidates, seen);
+        
+        BottomMenuClickListener menu = new BottomMenuClickListener(this);
+        List<String> history = menu.getHistory();
+        for (int i = history.size() - 1; i >= 0; i--) {
+            addCandidate(new File(history.get(i)), candidates, seen);
+        }
+        for (String path : menu.getBookmark()) {
+            addCandidate(new File(path), candidates, seen);
+        }
+        
+        DisplayRows.Formatter formatter = new DisplayRows.Formatter(this);
+        prefetcher.prefetch(candidates, sortOrder, formatter::format);
+    }
+    
+    private void addChildCandidates(DirectorySnapshot snapshot, List<File> candidates, Set<String> seen) {
+        int added = 0;
+        for (int i = 0; i < snapshot.size() && added < PREFETCH_CHILDREN; i++) {
+            if (snapshot.isParent(i) || !snapshot.isDirectory(i)) continue;
+            if (addCandidate(new File(snapshot.getPath(i)), candidates, seen)) added++;
+        }
+    }
+    
+    private boolean addCandidate(File directory, List<File> candidates, Set<String> seen) {
+        if (!seen.add(directory.getPath())) return false;
+        candidates.add(directory);
+        return true;
+    }
+    
+    private DirectoryLoader setActiveLoader(ActivePanel panel, DirectoryLoader loader) {
+        DirectoryLoader previous;
+        if (panel == ActivePanel.LEFT) {
+            previous = activeLoaderLeft;
+            activeLoaderLeft = loader;
+        } else {
+            previous = activeLoaderRight;
+            activeLoaderRight = loader;
+        }
+        return previous;
+    }
+    
+    private int nextLoadToken(ActivePanel panel) {
+        return panel == ActivePanel.LEFT ? ++loadTokenLeft : ++loadTokenRight;
+    }
+    
+    // 同一面板有更新的加载请求时，丢弃旧请求的结果
+    private boolean isCurrentLoad(ActivePanel panel, int token) {
+        return token == (panel == ActivePanel.LEFT ? loadTokenLeft : loadTokenRight);
+    }
+    
     public void onBackPressedCall() {
         File willLoad;
 
@@ -938,6 +1290,10 @@ public class MainActivity extends AppCompatActivity {
         super.onDestroy();
         binding = null;
         executorService.shutdownNow(); // 关闭线程池
+        if (prefetcher != null) prefetcher.shutdown();
+        directoryCache.clear(); // 停止所有目录监听
+        if (watcherLeft != null) watcherLeft.stop();
+        if (watcherRight != null) watcherRight.stop();
     }
     
     @Override
@@ -0,0 +1,218 @@
+/*
+ * System Shell Box
+ * Copyright (C) 2025 kgultrt
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+// DisplayRows.java
+package com.manager.ssb.adapter;
+
+import android.content.Context;
+
+import com.manager.ssb.R;
+import com.manager.ssb.core.FileType;
+import com.manager.ssb.model.DirectorySnapshot;
+
+import java.text.DecimalFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+
+/**
+ * 与 DirectorySnapshot 逐行对应的显示数据（稳定 ID、图标、大小文本、时间文本）
+ * 在后台线程一次性算好，列表绑定时只做字段赋值
+ */
+public final class DisplayRows {
+
+    private static final DisplayRows EMPTY = new DisplayRows(0, new long[0], new int[0], new String[0], new String[0]);
+
+    final int count;
+    final long[] itemIds;  // 路径哈希，作为 RecyclerView 的稳定 ID
+    final int[] iconRes;
+    final String[] sizeText;
+    final String[] timeText;
+
+    private DisplayRows(int count, long[] itemIds, int[] iconRes, String[] sizeText, String[] timeText) {
+        this.count = count;
+        this.itemIds = itemIds;
+        this.iconRes = iconRes;
+        this.sizeText = sizeText;
+        this.timeText = timeText;
+    }
+
+    public static DisplayRows empty() {
+        return EMPTY;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public long getItemId(int index) {
+        return itemIds[index];
+    }
+
+    static int iconFor(FileType fileType) {
+        switch (fileType) {
+            case AUDIO:
+                return R.drawable.ic_music;
+            case TEXT:
+                return R.drawable.ic_text;
+            case COMPRESS:
+                return R.drawable.ic_zip;
+            case HTML:
+                return R.drawable.ic_web;
+            case DIRECTORY:
+                return R.drawable.ic_folder;
+            default:
+                return R.drawable.ic_file;
+        }
+    }
+
+    static String formatSize(long size, String[] units, DecimalFormat format) {
+        if (size <= 0) return "0" + units[0] + " ";
+        // 逐级除以 1024，避免 Math.log / Math.pow
+        int digitGroups = 0;
+        double value = size;
+        while (value >= 1024 && digitGroups < units.length - 1) {
+            value /= 1024;
+            digitGroups++;
+        }
+        return format.format(value) + units[digitGroups] + " ";
+    }
+
+    /**
+     * 显示数据生成器，每次目录加载创建一个（非线程安全）
+     * 同一分钟的时间文本、相同的大小文本在本次加载内共用同一个 String
+     */
+    public static final class Formatter {
+
+        // 缓存上限，防止超大目录中时间分布过散时无限增长
+        private static final int CACHE_LIMIT = 4096;
+
+        private final String[] sizeUnits;
+        private final DecimalFormat sizeFormat = new DecimalFormat("#,##0.#");
+        private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.getDefault());
+        private final Date date = new Date();
+        private final HashMap<Long, String> timeCache = new HashMap<>();
+        private final HashMap<Long, String> sizeCache = new HashMap<>();
+
+        public Formatter(Context context) {
+            this.sizeUnits = context.getResources().getStringArray(R.array.size_units);
+        }
+
+        /**
+         * 为快照生成显示数据
+         * @param previous 上一页的结果，若其覆盖的行与 snapshot 的 [0, from) 相同则直接复用
+         * @param from 需要新生成的第一行
+         */
+        public DisplayRows format(DirectorySnapshot snapshot, DisplayRows previous, int from) {
+            int count = snapshot.size();
+            if (previous == null || previous.count != from || from > count) from = 0;
+
+            long[] itemIds;
+            int[] iconRes;
+            String[] sizeText;
+            String[] timeText;
+            if (from > 0 && previous.iconRes.length >= count) {
+                // 已发布的结果只读取 [0, previous.count)，可以继续写入其后的空位
+                itemIds = previous.itemIds;
+                iconRes = previous.iconRes;
+                sizeText = previous.sizeText;
+                timeText = previous.timeText;
+            } else {
+                int capacity = from > 0 ? Math.max(count, previous.iconRes.length * 2) : count;
+                itemIds = new long[capacity];
+                iconRes = new int[capacity];
+                sizeText = new String[capacity];
+                timeText = new String[capacity];
+                if (from > 0) {
+                    System.arraycopy(previous.itemIds, 0, itemIds, 0, from);
+                    System.arraycopy(previous.iconRes, 0, iconRes, 0, from);
+                    System.arraycopy(previous.sizeText, 0, sizeText, 0, from);
+                    System.arraycopy(previous.timeText, 0, timeText, 0, from);
+                }
+            }
+
+            for (int i = from; i < count; i++) {
+                itemIds[i] = snapshot.getPathHash(i);
+                iconRes[i] = iconFor(snapshot.getFileType(i));
+                sizeText[i] = snapshot.isDirectory(i) ? "" : sizeOf(snapshot.getSize(i));
+                timeText[i] = timeOf(snapshot.getLastModified(i));
+            }
+            return new DisplayRows(count, itemIds, iconRes, sizeText, timeText);
+        }
+
+        public DisplayRows format(DirectorySnapshot snapshot) {
+            return format(snapshot, null, 0);
+        }
+
+        /**
+         * 为增量合并后的快照生成显示数据，沿用旧行的结果，只为新插入的行重新生成
+         * @param source 见 DirectorySnapshot.merge
+         */
+        public DisplayRows remap(DirectorySnapshot snapshot, DisplayRows previous, int[] source) {
+            int count = snapshot.size();
+            long[] itemIds = new long[count];
+            int[] iconRes = new int[count];
+            String[] sizeText = new String[count];
+            String[] timeText = new String[count];
+
+            for (int i = 0; i < count; i++) {
+                int from = source[i];
+                if (from >= 0) {
+                    itemIds[i] = previous.itemIds[from];
+                    iconRes[i] = previous.iconRes[from];
+                    sizeText[i] = previous.sizeText[from];
+                    timeText[i] = previous.timeText[from];
+                } else {
+                    itemIds[i] = snapshot.getPathHash(i);
+                    iconRes[i] = iconFor(snapshot.getFileType(i));
+                    sizeText[i] = snapshot.isDirectory(i) ? "" : sizeOf(snapshot.getSize(i));
+                    timeText[i] = timeOf(snapshot.getLastModified(i));
+                }
+            }
+            return new DisplayRows(count, itemIds, iconRes, sizeText, timeText);
+        }
+
+        private String sizeOf(long size) {
+            String text = sizeCache.get(size);
+            if (text == null) {
+                if (sizeCache.size() >= CACHE_LIMIT) sizeCache.clear();
+                text = formatSize(size, sizeUnits, sizeFormat);
+                sizeCache.put(size, text);
+            }
+            return text;
+        }
+
+        private String timeOf(long timestamp) {
+            // 显示精度为分钟，按分钟去重
+            long minute = Math.floorDiv(timestamp, 60_000L);
+            String text = timeCache.get(minute);
+            if (text == null) {
+                if (timeCache.size() >= CACHE_LIMIT) timeCache.clear();
+                try {
+                    date.setTime(timestamp);
+                    text = dateFormat.format(date);
+                } catch (Exception e) {
+                    text = "(Unknown Date)";
+                }
+                timeCache.put(minute, text);
+            }
+            return text;
+        }
+    }
+}
@@ -19,14 +19,10 @@
 package com.manager.ssb.adapter;
 
 import android.content.Context;
-import android.content.res.ColorStateList;
-import android.content.res.TypedArray;
-import android.graphics.Color;
-import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.RippleDrawable;
 import android.os.Handler;
-import android.util.TypedValue;
+import android.util.SparseArray;
 import android.view.LayoutInflater;
 import android.view.MotionEvent;
 import android.view.View;
@@ -38,29 +34,32 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.manager.ssb.R;
+import com.manager.ssb.model.DirectorySnapshot;
 import com.manager.ssb.model.FileItem;
-import com.manager.ssb.core.FileType;
 import com.manager.ssb.MainActivity;
 
 import java.text.DecimalFormat;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.BitSet;
 import java.util.HashSet;
-import java.util.List;
-import java.util.Locale;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 
 public class FileAdapter extends RecyclerView.Adapter<FileAdapter.ViewHolder> {
 
-    private final List<FileItem> fileList;
+    private DirectorySnapshot snapshot;
+    private DisplayRows rows;
     private final OnItemClickListener listener;
     private final OnItemLongClickListener longClickListener;
     private final String panel;
     private final ExecutorService executorService;
     private final Handler mainHandler;
-    private static final ThreadLocal<SimpleDateFormat> dateFormat =
-            ThreadLocal.withInitial(() -> new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.getDefault()));
+    private final SnapshotDiffer differ;
+    
+    // 清除波纹效果时使用的空状态
+    private static final int[] EMPTY_STATE = new int[0];
+    
+    // 图标 Drawable 的共享状态，按资源 ID 缓存，避免每次绑定重新解析资源
+    private final SparseArray<Drawable.ConstantState> iconCache = new SparseArray<>();
     
     // 新增防抖控制
     private long lastClickTime = 0;
@@ -72,6 +71,8 @@ public class FileAdapter extends RecyclerView.Adapter<FileAdapter.ViewHolder> {
     // 多选状态相关变量
     private boolean isMultiSelectMode = false;
     private final Set<String> selectedItems = new HashSet<>();
+    // 当前快照中被选中的行，绑定时直接按位置查询
+    private final BitSet selectedRows = new BitSet();
     
     // 滑动相关变量
     private float startX = 0;
@@ -113,6 +114,7 @@ public class FileAdapter extends RecyclerView.Adapter<FileAdapter.ViewHolder> {
         if (!multiSelectMode) {
             // 清除所有选中状态
             selectedItems.clear();
+            selectedRows.clear();
         }
         
         // 只有在模式真正改变时才通知更新
@@ -121,25 +123,28 @@ public class FileAdapter extends RecyclerView.Adapter<FileAdapter.ViewHolder> {
         }
     }
     
-    public void toggleSelection(FileItem item) {
-        String path = item.getPath();
+    public void toggleSelection(int position) {
+        if (snapshot.isParent(position)) return; // 屏蔽返回项
+        String path = snapshot.getPath(position);
         
         if (selectedItems.contains(path)) {
             selectedItems.remove(path);
+            selectedRows.clear(position);
             if (getSelectedCount() == 0) {
                 setMultiSelectMode(false);
             } else {
-                notifyItemChanged(fileList.indexOf(item));
+                notifyItemChanged(position);
             }
         } else {
-            if ("..".equals(item.getName())) return; // 屏蔽返回项
             selectedItems.add(path);
-            notifyItemChanged(fileList.indexOf(item));
+            selectedRows.set(position);
+            notifyItemChanged(position);
         }
     }
     
     public void clearSelection() {
         selectedItems.clear();
+        selectedRows.clear();
         setMultiSelectMode(false);
     }
     
@@ -151,18 +156,78 @@ public class FileAdapter extends RecyclerView.Adapter<FileAdapter.ViewHolder> {
         return selectedItems.size();
     }
 
-    public FileAdapter(List<FileItem> fileList, 
+    public DirectorySnapshot getSnapshot() {
+        return snapshot;
+    }
+    
+    public DisplayRows getRows() {
+        return rows;
+    }
+    
+    /**
+     * 提交新快照，后台计算差异后局部刷新；同一目录以外的快照直接整体替换
+     * rows 须与 snapshot 逐行对应，一般由 DisplayRows.Formatter 在后台线程生成
+     */
+    public void submitSnapshot(DirectorySnapshot snapshot, DisplayRows rows) {
+        differ.submit(snapshot, rows);
+    }
+    
+    /**
+     * 提交增量合并的结果（目录监听产生），只通知变化的行
+     * @param source 见 DirectorySnapshot.merge
+     */
+    public void patchSnapshot(DirectorySnapshot oldSnapshot, DirectorySnapshot snapshot, DisplayRows rows, int[] source) {
+        differ.patch(oldSnapshot, snapshot, rows, source);
+    }
+    
+    // 丢弃尚未提交的后台差异结果
+    public void discardPendingUpdates() {
+        differ.invalidate();
+    }
+    
+    // 整体替换当前快照
+    public void replaceSnapshot(DirectorySnapshot snapshot, DisplayRows rows) {
+        differ.replace(snapshot, rows);
+    }
+    
+    // 追加分页：新快照与当前快照共享 [0, pageStart) 的行
+    public void appendSnapshot(DirectorySnapshot snapshot, DisplayRows rows, int pageStart) {
+        differ.append(snapshot, rows, pageStart);
+    }
+    
+    // 仅替换数据，由调用方负责通知刷新
+    void setSnapshot(DirectorySnapshot snapshot, DisplayRows rows) {
+        this.snapshot = snapshot;
+        this.rows = rows;
+        
+        // 行位置可能变化，按路径重新对应选中行
+        selectedRows.clear();
+        if (!selectedItems.isEmpty()) {
+            for (int i = 0; i < snapshot.size(); i++) {
+                if (!snapshot.isParent(i) && selectedItems.contains(snapshot.getPath(i))) {
+                    selectedRows.set(i);
+                }
+            }
+        }
+    }
+
+    public FileAdapter(DirectorySnapshot snapshot, 
                        OnItemClickListener listener,
                        OnItemLongClickListener longClickListener,
                        String panel,
                        ExecutorService executorService, 
                        Handler mainHandler) {
-        this.fileList = fileList;
+        this.snapshot = snapshot;
+        this.rows = DisplayRows.empty();
         this.listener = listener;
         this.longClickListener = longClickListener;
         this.panel = panel;
         this.executorService = executorService;
         this.mainHandler = mainHandler;
+        this.differ = new SnapshotDiffer(this, executorService, mainHandler);
+        
+        // 以路径哈希作为稳定 ID，刷新时已有行的视图可直接复用
+        setHasStableIds(true);
         
         // 初始化长按检测
         longPressRunnable = new Runnable() {
@@ -171,15 +236,12 @@ public class FileAdapter extends RecyclerView.Adapter<FileAdapter.ViewHolder> {
                 if (swipingViewHolder != null && !isSwiping && !isLongPressTriggered) {
                     isLongPressTriggered = true;
                     int position = swipingViewHolder.getAdapterPosition();
-                    if (position != RecyclerView.NO_POSITION) {
-                        FileItem item = fileList.get(position);
-                        if (longClickListener != null && !"..".equals(item.getName())) {
-                            if (!isMultiSelectMode) {
-                                longClickListener.onItemLongClick(item, swipingViewHolder.itemView);
-                            } else {
-                                // 多选模式下的长按
-                                // do nothing (WIP)
-                            }
+                    // 读取字段中的当前快照，而不是构造时传入的（通常为空的）初始快照
+                    DirectorySnapshot current = FileAdapter.this.snapshot;
+                    if (position != RecyclerView.NO_POSITION && position < current.size()) {
+                        if (longClickListener != null && !current.isParent(position)) {
+                            // 多选模式下的长按对全部选中项操作，由监听器通过 isMultiSelectMode() 区分
+                            longClickListener.onItemLongClick(current.getItem(position), swipingViewHolder.itemView);
                         }
                     }
                 }
@@ -197,8 +259,8 @@ public class FileAdapter extends RecyclerView.Adapter<FileAdapter.ViewHolder> {
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        FileItem item = fileList.get(position);
-        Context context = holder.itemView.getContext();
+        // 显示数据已预先生成，这里只做赋值，不分配对象
+        final DirectorySnapshot current = snapshot;
 
         // 重置视图状态
         holder.itemView.setTranslationX(0);
@@ -206,110 +268,63 @@ public class FileAdapter extends RecyclerView.Adapter<FileAdapter.ViewHolder> {
         
         // 清除可能存在的波纹效果
         if (holder.itemView.getBackground() instanceof RippleDrawable) {
-            holder.itemView.getBackground().setState(new int[0]);
+            holder.itemView.getBackground().setState(EMPTY_STATE);
         }
 
-        // 设置背景色（多选状态）
-        if (isMultiSelectMode && selectedItems.contains(item.getPath())) {
-            // 创建波纹效果的选择背景
-            ColorStateList colorStateList = ColorStateList.valueOf(Color.parseColor("#88888888"));
-            Drawable selectDrawable = new RippleDrawable(colorStateList, 
-                    new ColorDrawable(Color.parseColor("#ADD8E6")), null);
-            holder.itemView.setBackground(selectDrawable);
+        // 多选状态由背景的 activated 状态显示
+        holder.itemView.setActivated(isMultiSelectMode && selectedRows.get(position));
+
+        holder.tvName.setText(current.getNamePool(), current.getNameStart(position), current.getNameLength(position));
+        if (position < rows.count) {
+            setIcon(holder, rows.iconRes[position]);
+            holder.tvSize.setText(rows.sizeText[position]);
+            holder.tvTime.setText(rows.timeText[position]);
         } else {
-            // 恢复默认选择效果（波纹）
-            int[] attrs = new int[]{android.R.attr.selectableItemBackground};
-            TypedArray ta = context.obtainStyledAttributes(attrs);
-            Drawable defaultBackground = ta.getDrawable(0);
-            ta.recycle();
-            holder.itemView.setBackground(defaultBackground);
+            // 显示数据尚未就绪（不应出现），仅按目录/文件显示图标
+            setIcon(holder, DisplayRows.iconFor(current.getFileType(position)));
+            holder.tvSize.setText(null);
+            holder.tvTime.setText(null);
         }
+    }
 
-        holder.ivIcon.setImageResource(item.isDirectory() ?
-                R.drawable.ic_folder : R.drawable.ic_file);
-
-        executorService.submit(() -> {
-            // 一次性获取文件类型枚举，避免多次调用判断方法
-            FileType fileType = item.resolveFileType();
-    
-            final int iconResId;
-            switch (fileType) {
-                case AUDIO:
-                    iconResId = R.drawable.ic_music;
-                    break;
-                case TEXT:
-                    iconResId = R.drawable.ic_text;
-                    break;
-                case COMPRESS:
-                    iconResId = R.drawable.ic_zip;
-                    break;
-                case HTML:
-                    iconResId = R.drawable.ic_web;
-                    break;
-                case DIRECTORY:
-                    iconResId = R.drawable.ic_folder;
-                    break;
-                default:
-                    iconResId = R.drawable.ic_file;
-            }
-
-            final String sizeText = item.isDirectory() ? "" : formatSize(context, item.getSize());
-            final String timeText = formatDate(item.getLastModified());
-
-            mainHandler.post(() -> {
-                holder.ivIcon.setImageResource(iconResId);
-                holder.tvName.setText(item.getName());
-                holder.tvSize.setText(sizeText);
-                holder.tvTime.setText(timeText);
-            });
-        });
+    private void setIcon(ViewHolder holder, int iconRes) {
+        if (holder.boundIconRes == iconRes) return;
+        holder.boundIconRes = iconRes;
 
-        // 修改后的点击监听器
-        holder.itemView.setOnClickListener(v -> {
-            if (isMultiSelectMode) {
-                // 多选模式下的点击：切换选中状态
-                toggleSelection(item);
-                return;
-            }
-            
-            // 禁用切换
-            ((MainActivity) context).canSwichActivePanel = false;
-            
-            if (!clickEnabled) return;
-            
-            // 防抖检查
-            long currentTime = System.currentTimeMillis();
-            if (currentTime - lastClickTime < CLICK_DEBOUNCE_INTERVAL) {
-                ((MainActivity) context).canSwichActivePanel = false;
+        Drawable.ConstantState state = iconCache.get(iconRes);
+        if (state == null) {
+            Drawable drawable = holder.ivIcon.getContext().getDrawable(iconRes);
+            state = drawable.getConstantState();
+            if (state == null) {
+                holder.ivIcon.setImageDrawable(drawable);
                 return;
             }
-            lastClickTime = currentTime;
-            
-            if (listener != null) {
-                listener.onItemClick(item);
-            }
-            
-            // 启用切换
-            ((MainActivity) context).canSwichActivePanel = true;
-        });
+            iconCache.put(iconRes, state);
+        }
+        holder.ivIcon.setImageDrawable(state.newDrawable(holder.ivIcon.getResources()));
     }
 
     @Override
     public int getItemCount() {
-        return fileList.size();
+        return snapshot.size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return position < rows.count ? rows.itemIds[position] : RecyclerView.NO_ID;
     }
 
     @Override
     public void onViewRecycled(@NonNull ViewHolder holder) {
         super.onViewRecycled(holder);
-        holder.ivIcon.setImageDrawable(null);
-        holder.itemView.setBackgroundColor(Color.TRANSPARENT);
+        // 保留图标与背景，复用时若类型相同可直接跳过设置
+        holder.itemView.setActivated(false);
         holder.itemView.setTranslationX(0);
         holder.itemView.setAlpha(1f);
         
         // 清除波纹效果
         if (holder.itemView.getBackground() instanceof RippleDrawable) {
-            holder.itemView.getBackground().setState(new int[0]);
+            holder.itemView.getBackground().setState(EMPTY_STATE);
         }
     }
 
@@ -318,6 +333,8 @@ public class FileAdapter extends RecyclerView.Adapter<FileAdapter.ViewHolder> {
         TextView tvName;
         TextView tvSize;
         TextView tvTime;
+        // 当前显示的图标资源，相同时跳过设置
+        int boundIconRes;
 
         ViewHolder(View itemView) {
             super(itemView);
@@ -326,6 +343,41 @@ public class FileAdapter extends RecyclerView.Adapter<FileAdapter.ViewHolder> {
             tvSize = itemView.findViewById(R.id.tv_size);
             tvTime = itemView.findViewById(R.id.tv_time);
             
+            // 点击监听器只在创建时设置一次，绑定时不再创建
+            itemView.setOnClickListener(v -> {
+                int clickedPosition = getAdapterPosition();
+                if (clickedPosition == RecyclerView.NO_POSITION) return;
+                
+                if (isMultiSelectMode) {
+                    // 多选模式下的点击：切换选中状态
+                    toggleSelection(clickedPosition);
+                    return;
+                }
+                
+                Context context = v.getContext();
+                
+                // 禁用切换
+                ((MainActivity) context).canSwichActivePanel = false;
+                
+                if (!clickEnabled) return;
+                
+                // 防抖检查
+                long currentTime = System.currentTimeMillis();
+                if (currentTime - lastClickTime < CLICK_DEBOUNCE_INTERVAL) {
+                    ((MainActivity) context).canSwichActivePanel = false;
+                    return;
+                }
+                lastClickTime = currentTime;
+                
+                if (listener != null) {
+                    // 点击时才为该行创建 FileItem
+                    listener.onItemClick(snapshot.getItem(clickedPosition));
+                }
+                
+                // 启用切换
+                ((MainActivity) context).canSwichActivePanel = true;
+            });
+            
             // 设置触摸监听器来处理滑动
             itemView.setOnTouchListener(new View.OnTouchListener() {
                 @Override
@@ -333,8 +385,6 @@ public class FileAdapter extends RecyclerView.Adapter<FileAdapter.ViewHolder> {
                     int position = getAdapterPosition();
                     if (position == RecyclerView.NO_POSITION) return false;
                     
-                    FileItem item = fileList.get(position);
-                    
                     switch (event.getAction()) {
                         case MotionEvent.ACTION_DOWN:
                             startX = event.getX();
@@ -345,7 +395,7 @@ public class FileAdapter extends RecyclerView.Adapter<FileAdapter.ViewHolder> {
                             
                             // 清除可能存在的波纹效果
                             if (v.getBackground() instanceof RippleDrawable) {
-                                v.getBackground().setState(new int[0]);
+                                v.getBackground().setState(EMPTY_STATE);
                             }
                             
                             // 开始长按检测
@@ -392,14 +442,15 @@ public class FileAdapter extends RecyclerView.Adapter<FileAdapter.ViewHolder> {
                                 float delta = endX - startX;
                                 
                                 // 如果滑动距离足够大，触发多选模式
-                                if (Math.abs(delta) > v.getWidth() * 0.3f && !"..".equals(item.getName())) {
+                                if (Math.abs(delta) > v.getWidth() * 0.3f && !snapshot.isParent(position)) {
                                     if (!isMultiSelectMode) {
                                         setMultiSelectMode(true);
                                         // 直接选中当前项目
-                                        selectedItems.add(item.getPath());
+                                        selectedItems.add(snapshot.getPath(position));
+                                        selectedRows.set(position);
                                         notifyItemChanged(position);
                                     } else {
-                                        toggleSelection(item);
+                                        toggleSelection(position);
                                     }
                                 }
                                 
@@ -413,7 +464,7 @@ public class FileAdapter extends RecyclerView.Adapter<FileAdapter.ViewHolder> {
                                             public void run() {
                                                 // 确保波纹效果被清除
                                                 if (v.getBackground() instanceof RippleDrawable) {
-                                                    v.getBackground().setState(new int[0]);
+                                                    v.getBackground().setState(EMPTY_STATE);
                                                 }
                                             }
                                         })
@@ -429,14 +480,14 @@ public class FileAdapter extends RecyclerView.Adapter<FileAdapter.ViewHolder> {
                                 isLongPressTriggered = false;
                                 // 清除波纹效果
                                 if (v.getBackground() instanceof RippleDrawable) {
-                                    v.getBackground().setState(new int[0]);
+                                    v.getBackground().setState(EMPTY_STATE);
                                 }
                                 return true;
                             }
                             
                             // 清除可能存在的波纹效果
                             if (v.getBackground() instanceof RippleDrawable) {
-                                v.getBackground().setState(new int[0]);
+                                v.getBackground().setState(EMPTY_STATE);
                             }
                             
                             return false;
@@ -448,18 +499,7 @@ public class FileAdapter extends RecyclerView.Adapter<FileAdapter.ViewHolder> {
     }
 
     public static String formatSize(Context context, long size) {
-        if (size <= 0) return "0B ";
         String[] units = context.getResources().getStringArray(R.array.size_units);
-        int digitGroups = (int) (Math.log(size) / Math.log(1024));
-        if (digitGroups >= units.length) digitGroups = units.length - 1;
-        return new DecimalFormat("#,##0.#").format(size / Math.pow(1024, digitGroups)) + units[digitGroups] + " ";
-    }
-
-    static String formatDate(long timestamp) {
-        try {
-            return dateFormat.get().format(new Date(timestamp));
-        } catch (Exception e) {
-            return "(Unknown Date)";
-        }
+        return DisplayRows.formatSize(size, units, new DecimalFormat("#,##0.#"));
     }
-}
\ No newline at end of file
+}
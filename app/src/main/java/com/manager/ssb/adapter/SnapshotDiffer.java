@@ -0,0 +1,187 @@
+/*
+ * System Shell Box
+ * Copyright (C) 2025 kgultrt
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+// SnapshotDiffer.java
+package com.manager.ssb.adapter;
+
+import android.os.Handler;
+
+import androidx.recyclerview.widget.DiffUtil;
+
+import com.manager.ssb.model.DirectorySnapshot;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 类似 AsyncListDiffer：在后台线程计算新旧快照的差异，回到主线程后再提交
+ * 每次提交都会使之前尚未完成的差异计算失效，旧结果直接丢弃
+ * 所有公开方法都必须在主线程调用
+ */
+class SnapshotDiffer {
+
+    private final FileAdapter adapter;
+    private final ExecutorService executorService;
+    private final Handler mainHandler;
+
+    // 最近一次提交的序号，后台结果返回时序号不同即为过期
+    private int generation = 0;
+
+    SnapshotDiffer(FileAdapter adapter, ExecutorService executorService, Handler mainHandler) {
+        this.adapter = adapter;
+        this.executorService = executorService;
+        this.mainHandler = mainHandler;
+    }
+
+    /**
+     * 提交新快照，差异在后台计算
+     * 新旧快照不属于同一目录（没有可复用的行）或任一为空时直接整体替换，不做差异计算
+     */
+    void submit(DirectorySnapshot newSnapshot, DisplayRows newRows) {
+        final int submitted = ++generation;
+        final DirectorySnapshot oldSnapshot = adapter.getSnapshot();
+        final DisplayRows oldRows = adapter.getRows();
+
+        if (oldSnapshot == newSnapshot) return;
+
+        if (oldSnapshot.size() == 0 || newSnapshot.size() == 0
+                || !oldSnapshot.isSameDirectory(newSnapshot)
+                || oldRows.size() != oldSnapshot.size()) {
+            adapter.setSnapshot(newSnapshot, newRows);
+            adapter.notifyDataSetChanged();
+            return;
+        }
+
+        executorService.submit(() -> {
+            final DiffUtil.DiffResult result = DiffUtil.calculateDiff(
+                    new FileDiffCallback(oldSnapshot, oldRows, newSnapshot, newRows));
+            mainHandler.post(() -> {
+                if (submitted != generation) return; // 已有更新的数据提交
+                adapter.setSnapshot(newSnapshot, newRows);
+                result.dispatchUpdatesTo(adapter);
+            });
+        });
+    }
+
+    /**
+     * 提交增量合并的结果，直接按变化区间通知，不做差异计算
+     * 当前快照已不是 oldSnapshot（期间有其他更新）时退回 submit
+     * @param source 见 DirectorySnapshot.merge
+     */
+    void patch(DirectorySnapshot oldSnapshot, DirectorySnapshot newSnapshot, DisplayRows newRows, int[] source) {
+        if (adapter.getSnapshot() != oldSnapshot) {
+            submit(newSnapshot, newRows);
+            return;
+        }
+        ++generation;
+        adapter.setSnapshot(newSnapshot, newRows);
+
+        int oldCount = oldSnapshot.size();
+        int newCount = newSnapshot.size();
+        boolean[] kept = new boolean[oldCount];
+        for (int j = 0; j < newCount; j++) {
+            if (source[j] >= 0) kept[source[j]] = true;
+        }
+
+        // 保留的行在新旧快照中顺序一致，把它们之间的每段空隙作为一处变化通知
+        int i = 0, j = 0, offset = 0;
+        while (i < oldCount || j < newCount) {
+            int oldStart = i, newStart = j;
+            while (i < oldCount && !kept[i]) i++;
+            while (j < newCount && source[j] < 0) j++;
+
+            int removed = i - oldStart;
+            int inserted = j - newStart;
+            int position = oldStart + offset;
+
+            // 同名的行原位更新，其余删除或插入
+            int changed = 0;
+            while (changed < removed && changed < inserted
+                    && oldSnapshot.nameEquals(oldStart + changed, newSnapshot, newStart + changed)) {
+                changed++;
+            }
+            if (changed > 0) adapter.notifyItemRangeChanged(position, changed);
+            if (removed > changed) adapter.notifyItemRangeRemoved(position + changed, removed - changed);
+            if (inserted > changed) adapter.notifyItemRangeInserted(position + changed, inserted - changed);
+            offset += inserted - removed;
+
+            // 跳过双方共同保留的一行
+            if (i < oldCount) {
+                i++;
+                j++;
+            }
+        }
+    }
+
+    // 丢弃尚未提交的差异结果（例如同一面板开始了新的加载）
+    void invalidate() {
+        ++generation;
+    }
+
+    // 整体替换，不做差异计算
+    void replace(DirectorySnapshot newSnapshot, DisplayRows newRows) {
+        ++generation;
+        adapter.setSnapshot(newSnapshot, newRows);
+        adapter.notifyDataSetChanged();
+    }
+
+    // 新快照与当前快照共享 [0, pageStart) 的行，只需通知新增区间
+    void append(DirectorySnapshot newSnapshot, DisplayRows newRows, int pageStart) {
+        ++generation;
+        adapter.setSnapshot(newSnapshot, newRows);
+        adapter.notifyItemRangeInserted(pageStart, newSnapshot.size() - pageStart);
+    }
+
+    static class FileDiffCallback extends DiffUtil.Callback {
+        private final DirectorySnapshot oldSnapshot;
+        private final DisplayRows oldRows;
+        private final DirectorySnapshot newSnapshot;
+        private final DisplayRows newRows;
+
+        // 快照不可变，无需再复制列表
+        FileDiffCallback(DirectorySnapshot oldSnapshot, DisplayRows oldRows,
+                         DirectorySnapshot newSnapshot, DisplayRows newRows) {
+            this.oldSnapshot = oldSnapshot;
+            this.oldRows = oldRows;
+            this.newSnapshot = newSnapshot;
+            this.newRows = newRows;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldSnapshot.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newSnapshot.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            // 先比较路径哈希，相同时再比较名称排除哈希碰撞
+            return oldRows.getItemId(oldItemPosition) == newRows.getItemId(newItemPosition)
+                    && oldSnapshot.isParent(oldItemPosition) == newSnapshot.isParent(newItemPosition)
+                    && oldSnapshot.nameEquals(oldItemPosition, newSnapshot, newItemPosition);
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return oldSnapshot.contentEquals(oldItemPosition, newSnapshot, newItemPosition);
+        }
+    }
+}
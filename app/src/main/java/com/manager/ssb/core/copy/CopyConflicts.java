@@ -0,0 +1,213 @@
+/*
+ * System Shell Box
+ * Copyright (C) 2025 kgultrt
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+// CopyConflicts.java
+package com.manager.ssb.core.copy;
+
+import com.manager.ssb.util.NativeFileOperation;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 复制前一次性找出目标中已存在的文件，供用户在批量冲突界面中统一处理
+ * 只进入目标中也存在的目录，目标目录不存在的子树不可能有冲突，不会被遍历
+ * 复制引擎按这里记录的处理方式直接处理冲突文件，不再逐个暂停询问
+ */
+public final class CopyConflicts {
+
+    private static final int SCAN_BATCH = 256;
+    // 比较修改时间时的容差：FAT/exFAT 存储卡上修改时间的精度为 2 秒
+    private static final long MODIFY_WINDOW_MS = 2000;
+
+    // 单个冲突文件及其处理方式
+    public static final class Conflict {
+        public final String path; // 相对复制起点的路径，复制单个文件时为空
+        public final String name;
+        public final long sourceSize;
+        public final long sourceModified;
+        public final long targetSize;
+        public final long targetModified;
+        public final boolean targetIsDirectory;
+        public int action;
+
+        Conflict(String path, String name, long sourceSize, long sourceModified,
+                 long targetSize, long targetModified, boolean targetIsDirectory, int action) {
+            this.path = path;
+            this.name = name;
+            this.sourceSize = sourceSize;
+            this.sourceModified = sourceModified;
+            this.targetSize = targetSize;
+            this.targetModified = targetModified;
+            this.targetIsDirectory = targetIsDirectory;
+            this.action = action;
+        }
+
+        /**
+         * 实际的处理方式：NEWER_WINS 在源文件明显更新时覆盖，否则跳过
+         * 目标是目录时不会为一个文件删除整个目录，覆盖一律改为跳过
+         */
+        public int resolve() {
+            int resolved = action;
+            if (resolved == NativeFileOperation.ConflictAction.NEWER_WINS) {
+                resolved = sourceModified > targetModified + MODIFY_WINDOW_MS
+                        ? NativeFileOperation.ConflictAction.OVERWRITE : NativeFileOperation.ConflictAction.SKIP;
+            }
+            if (resolved == NativeFileOperation.ConflictAction.OVERWRITE && targetIsDirectory) {
+                return NativeFileOperation.ConflictAction.SKIP;
+            }
+            return resolved;
+        }
+    }
+
+    private final List<Conflict> list = new ArrayList<>();
+    private final Map<String, Conflict> byPath = new HashMap<>();
+
+    private CopyConflicts() {
+    }
+
+    /**
+     * 查找将 src 复制到 dest 时的所有冲突（阻塞，需在后台线程调用）
+     * @param journal 续传时传入，日志中已记录的文件是本应用写入的，不算冲突；可为 null
+     */
+    public static CopyConflicts find(File src, File dest, CopyJournal journal) {
+        CopyConflicts conflicts = new CopyConflicts();
+        if (!src.isDirectory()) {
+            if (dest.exists() && !isJournaled(journal, "")) {
+                conflicts.add(new Conflict("", src.getName(), src.length(), src.lastModified(),
+                        dest.length(), dest.lastModified(), dest.isDirectory(),
+                        NativeFileOperation.ConflictAction.SKIP));
+            }
+            return conflicts;
+        }
+        if (!dest.isDirectory()) return conflicts;
+
+        ArrayDeque<String[]> pending = new ArrayDeque<>();
+        pending.push(new String[]{src.getAbsolutePath(), dest.getAbsolutePath(), ""});
+        conflicts.drain(pending, journal);
+        return conflicts;
+    }
+
+    /**
+     * 查找将多选的各项复制到 destDir 下时的所有冲突（阻塞，需在后台线程调用）
+     * 相对路径以各项的名称开头，与 CopyEngine.copyAll 一致
+     */
+    public static CopyConflicts findAll(File[] sources, File destDir, CopyJournal journal) {
+        CopyConflicts conflicts = new CopyConflicts();
+        if (!destDir.isDirectory()) return conflicts;
+
+        ArrayDeque<String[]> pending = new ArrayDeque<>();
+        for (File src : sources) {
+            String name = src.getName();
+            File dest = new File(destDir, name);
+            if (src.isDirectory()) {
+                if (dest.isDirectory()) {
+                    pending.push(new String[]{src.getAbsolutePath(), dest.getAbsolutePath(), name + File.separator});
+                }
+            } else if (dest.exists() && !isJournaled(journal, name)) {
+                conflicts.add(new Conflict(name, name, src.length(), src.lastModified(),
+                        dest.length(), dest.lastModified(), dest.isDirectory(),
+                        NativeFileOperation.ConflictAction.SKIP));
+            }
+        }
+        conflicts.drain(pending, journal);
+        return conflicts;
+    }
+
+    private void drain(ArrayDeque<String[]> pending, CopyJournal journal) {
+        while (!pending.isEmpty()) {
+            String[] pair = pending.pop();
+            scanDirectory(pair[0], pair[1], pair[2], journal, pending);
+        }
+    }
+
+    // 对比一层目录：目标一次扫描建立名称索引，源目录分批读取
+    private void scanDirectory(String srcDir, String destDir, String pathPrefix,
+                               CopyJournal journal, ArrayDeque<String[]> pending) {
+        NativeFileOperation.ScanResult existing = NativeFileOperation.scanDirectory(destDir);
+        if (existing == null || existing.count == 0) return;
+        Map<String, Integer> index = new HashMap<>(existing.count * 2);
+        for (int i = 0; i < existing.count; i++) index.put(existing.getName(i), i);
+
+        long handle = NativeFileOperation.scanOpen(srcDir);
+        if (handle == 0) return;
+        try {
+            NativeFileOperation.ScanResult batch;
+            while ((batch = NativeFileOperation.scanNext(handle, SCAN_BATCH)) != null) {
+                for (int i = 0; i < batch.count; i++) {
+                    String name = batch.getName(i);
+                    Integer target = index.get(name);
+                    if (target == null) continue;
+
+                    String path = pathPrefix + name;
+                    boolean targetIsDirectory = existing.isDirectory(target) && !existing.isSymlink(target);
+                    // 与复制引擎一致：指向目录的符号链接按文件处理
+                    if (batch.isDirectory(i) && !batch.isSymlink(i)) {
+                        // 两边都是目录时合并，目标是文件时由复制引擎报错
+                        if (targetIsDirectory) {
+                            pending.push(new String[]{srcDir + File.separator + name,
+                                    destDir + File.separator + name, path + File.separator});
+                        }
+                        continue;
+                    }
+                    if (isJournaled(journal, path)) continue;
+                    add(new Conflict(path, name, batch.isSymlink(i) ? 0 : batch.sizes[i], batch.lastModified[i],
+                            existing.sizes[target], existing.lastModified[target], targetIsDirectory,
+                            NativeFileOperation.ConflictAction.SKIP));
+                }
+            }
+        } finally {
+            NativeFileOperation.scanClose(handle);
+        }
+    }
+
+    private static boolean isJournaled(CopyJournal journal, String path) {
+        return journal != null && (journal.getStarted(path) != null || journal.isDone(path)
+                || journal.isSkipped(path));
+    }
+
+    private void add(Conflict conflict) {
+        list.add(conflict);
+        byPath.put(conflict.path, conflict);
+    }
+
+    public boolean isEmpty() {
+        return list.isEmpty();
+    }
+
+    public int size() {
+        return list.size();
+    }
+
+    public Conflict get(int index) {
+        return list.get(index);
+    }
+
+    // 按相对路径查找，没有冲突时返回 null
+    public Conflict get(String path) {
+        return byPath.get(path);
+    }
+
+    // 所有冲突使用同一处理方式
+    public void setAll(int action) {
+        for (Conflict conflict : list) conflict.action = action;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * System Shell Box
+ * Copyright (C) 2025 kgultrt
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+// CopyCounters.java
+package com.manager.ssb.core.copy;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 复制进度的共享计数器
+ * native 层在每块数据写入后原子累加已复制字节数，文件完成后累加文件数，
+ * 读取方按需取值，复制过程中不需要任何 JNI 回调或线程间消息
+ * 同一缓冲区也是取消令牌：置位后 native 层在下一块数据之前停止，返回 STATUS_CANCELLED
+ */
+public final class CopyCounters {
+
+    // 槽位布局，与 main.c 中的 COPY_SLOT_* 一致
+    private static final int SLOT_BYTES = 0;
+    private static final int SLOT_FILES = 1;
+    private static final int SLOT_CANCEL = 2;
+    private static final int SLOT_METHODS = 3;
+    private static final int SLOT_COUNT = 4;
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(SLOT_COUNT * Long.BYTES)
+            .order(ByteOrder.nativeOrder());
+
+    // 传给 NativeFileOperation.copy / copyFile
+    public ByteBuffer buffer() {
+        return buffer;
+    }
+
+    public long getBytes() {
+        return buffer.getLong(SLOT_BYTES * Long.BYTES);
+    }
+
+    public long getFiles() {
+        return buffer.getLong(SLOT_FILES * Long.BYTES);
+    }
+
+    // 已用过的复制方式，NativeFileOperation.COPY_METHOD_* 按位或
+    public int getMethods() {
+        return (int) buffer.getLong(SLOT_METHODS * Long.BYTES);
+    }
+
+    // 请求取消所有使用该计数器的复制（可在任意线程调用）
+    public void cancel() {
+        buffer.putLong(SLOT_CANCEL * Long.BYTES, 1);
+    }
+
+    public boolean isCancelled() {
+        return buffer.getLong(SLOT_CANCEL * Long.BYTES) != 0;
+    }
+}
@@ -0,0 +1,708 @@
+/*
+ * System Shell Box
+ * Copyright (C) 2025 kgultrt
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+// CopyEngine.java
+package com.manager.ssb.core.copy;
+
+import android.os.Environment;
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
+import android.system.StructStat;
+import android.util.Log;
+
+import com.manager.ssb.core.config.Config;
+import com.manager.ssb.dialog.CopyDialog;
+import com.manager.ssb.util.FileUtils;
+import com.manager.ssb.util.NativeFileOperation;
+import com.manager.ssb.util.StepFileCopier;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 并行复制引擎
+ * 扫描线程（调用 copy() 的线程）遍历源目录、创建目标目录，把文件放入有界队列；
+ * 固定数量的工作线程从队列取文件复制。小文件并发复制，以掩盖逐文件的打开/创建延迟；
+ * 大文件同一时间只复制一个，避免多个大文件互相抢占带宽
+ * 复制开始时另起线程在 native 层统计总文件数和总字节数，统计结果边扫描边可用，
+ * 因此开始后即可给出整体百分比
+ * 进度不回调：native 层把已复制字节数累加到共享计数器，界面按固定频率调用 sample() 读取
+ * 设置了 CopyJournal 时逐个文件记录开始和完成，续传时跳过已完成的文件，未完成的文件从中断处继续
+ * 设置了 CopyConflicts 时按预先选定的方式处理冲突文件，复制过程中不再等待用户；
+ * 其余冲突（例如复制期间新出现的文件）仍按 ConflictPolicy 逐个询问
+ * 用于跨设备移动时（setDeleteSource），每个文件复制并校验后立即删除源文件
+ * 设置了校验模式（setVerify）时边复制边计算源文件的校验和并回读目标核对，校验和写入 CopyReport
+ * 文件属性在 native 层复制完成后、关闭目标前按 fd 设置，保留哪些属性由 setPreserve 决定
+ * 多选复制（copyAll）的各项共用一次统计、一个队列和一组工作线程，进度和结果是一个整体
+ * 内核支持 io_uring 时，工作线程把队列中相邻的新小文件凑成一批一次提交（copy.uring 可关闭），
+ * 批量路径不能处理的文件（冲突、续传、校验等）仍逐个复制
+ */
+public class CopyEngine {
+
+    private static final String TAG = "CopyEngine";
+
+    // 达到该大小的文件按大文件处理
+    public static final long LARGE_FILE_THRESHOLD = 8L << 20;
+    // 扫描线程最多领先工作线程的文件数
+    private static final int QUEUE_CAPACITY = 256;
+    // 每次扫描读取的目录条目数
+    private static final int SCAN_BATCH = 256;
+    // 吞吐量采样窗口和指数平滑系数（越大越跟随最新速度）
+    private static final long SPEED_WINDOW_MS = 500;
+    private static final double SPEED_SMOOTHING = 0.3;
+
+    // 并发数配置：copy.concurrency.default 为默认值，copy.concurrency.dev<设备号> 针对单个存储设备
+    private static final String KEY_CONCURRENCY = "copy.concurrency.";
+    private static final int DEFAULT_CONCURRENCY = 4;
+    // 可移除存储（SD 卡、U 盘）随机写入慢，并发过高反而更慢
+    private static final int REMOVABLE_CONCURRENCY = 2;
+    private static final int MAX_CONCURRENCY = 16;
+    // 续传位置向下对齐到该大小，丢弃中断时可能只写了一部分的最后一块
+    private static final long RESUME_ALIGNMENT = 1L << 20;
+    // 是否用 io_uring 批量复制小文件
+    private static final String KEY_URING = "copy.uring";
+
+    private static final Job POISON = new Job(null, null, null, 0, 0, false, -1, -1);
+
+    private static final class Job {
+        final String src;
+        final String dest;
+        final String path; // 相对复制起点的路径，用于日志
+        final long size;
+        final long lastModified;
+        final boolean symlink;
+        final long resumeFrom; // 续传位置，-1 表示新文件
+        final int conflictAction; // 预先选定的冲突处理方式，-1 表示没有冲突
+
+        Job(String src, String dest, String path, long size, long lastModified, boolean symlink,
+            long resumeFrom, int conflictAction) {
+            this.src = src;
+            this.dest = dest;
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.symlink = symlink;
+            this.resumeFrom = resumeFrom;
+            this.conflictAction = conflictAction;
+        }
+    }
+
+    private final int concurrency;
+    private final boolean uring = Config.get(KEY_URING, true);
+    private final CopyDialog.ConflictPolicy policy;
+    private final NativeFileOperation.ProgressCallback statusCallback;
+    private final CopyTotals totals = new CopyTotals();
+    private final CopyCounters counters = new CopyCounters();
+
+    private final BlockingQueue<Job> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Semaphore largeFileLane = new Semaphore(1);
+    private final AtomicLong bytesFound = new AtomicLong();
+    private final AtomicLong filesFound = new AtomicLong();
+    // 被跳过的文件和续传前已完成的部分也计入进度，使完成时进度为 100%
+    private final AtomicLong bytesSettled = new AtomicLong();
+    private final AtomicLong filesSettled = new AtomicLong();
+    private CopyJournal journal;
+    private CopyConflicts conflicts;
+    private boolean deleteSource;
+    private int verify = NativeFileOperation.VERIFY_NONE;
+    private int preserve = NativeFileOperation.PRESERVE_ALL;
+    private CopyReport report;
+    // 扫描过的源目录（仅扫描线程访问），移动结束时从深到浅删除已清空的目录
+    private final List<String> sourceDirs = new ArrayList<>();
+    private volatile boolean cancelled = false;
+    private volatile boolean failed = false;
+    private volatile boolean skipped = false;
+    private volatile boolean verifyFailed = false;
+    private volatile String currentFile = ""; // 最近开始复制的源文件
+
+    // 吞吐量平滑状态，由 sample() 加锁访问
+    private volatile long startTime;
+    private long speedSampleTime;
+    private long speedSampleBytes;
+    private double smoothedSpeed;
+
+    /**
+     * @param concurrency 工作线程数，通常取 concurrencyFor(目标目录)
+     * @param statusCallback 冲突、重试等单个文件的状态（STATUS_CONFLICT / STATUS_RETRYING）
+     */
+    public CopyEngine(int concurrency, CopyDialog.ConflictPolicy policy,
+                      NativeFileOperation.ProgressCallback statusCallback) {
+        this.concurrency = Math.max(1, Math.min(MAX_CONCURRENCY, concurrency));
+        this.policy = policy;
+        this.statusCallback = statusCallback;
+    }
+
+    /**
+     * 设置任务日志，在 copy() 之前调用
+     * 日志中已有记录时按续传处理：已完成且源文件未变的文件不再复制
+     */
+    public void setJournal(CopyJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * 设置预先找出的冲突及其处理方式（见 CopyConflicts.find），在 copy() 之前调用
+     */
+    public void setConflicts(CopyConflicts conflicts) {
+        this.conflicts = conflicts;
+    }
+
+    /**
+     * 移动而不是复制：目标复制成功（设置了校验时即校验和一致）且大小与源文件一致后删除源文件，
+     * 结束时删除已清空的源目录
+     * 被跳过或校验不通过的文件保留在原处，所在目录也随之保留
+     */
+    public void setDeleteSource(boolean deleteSource) {
+        this.deleteSource = deleteSource;
+    }
+
+    /**
+     * 复制并校验每个文件（NativeFileOperation.VERIFY_*），在 copy() 之前调用
+     * 校验模式下不能使用内核内复制，源文件的数据需经过用户态计算校验和
+     * @param report 记录每个文件的校验和，可为 null
+     */
+    public void setVerify(int verify, CopyReport report) {
+        this.verify = verify;
+        this.report = report;
+    }
+
+    /**
+     * 复制后保留的源文件属性（NativeFileOperation.PRESERVE_*，默认全部），在 copy() 之前调用
+     * 例如只保留时间戳时，目标的权限和所有者按新建文件处理
+     */
+    public void setPreserve(int preserve) {
+        this.preserve = preserve;
+    }
+
+    /**
+     * 目标所在存储设备的并发数
+     * 需要读取文件属性，应在后台线程调用
+     */
+    public static int concurrencyFor(File target) {
+        File existing = target;
+        while (existing != null && !existing.exists()) existing = existing.getParentFile();
+
+        int fallback = DEFAULT_CONCURRENCY;
+        if (existing != null) {
+            try {
+                if (Environment.isExternalStorageRemovable(existing)) fallback = REMOVABLE_CONCURRENCY;
+            } catch (IllegalArgumentException e) {
+                // 不在任何存储卷上（例如 /data），使用默认值
+            }
+        }
+        fallback = Config.get(KEY_CONCURRENCY + "default", fallback);
+        if (existing == null) return fallback;
+
+        try {
+            long device = Os.stat(existing.getPath()).st_dev;
+            return Config.get(KEY_CONCURRENCY + "dev" + device, fallback);
+        } catch (Exception e) {
+            return fallback;
+        }
+    }
+
+    // 停止复制：不再开始新的文件，正在复制的文件在下一块数据前中止并删除（可在任意线程调用）
+    public void cancel() {
+        cancelled = true;
+        counters.cancel();
+        totals.cancel();
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * 复制文件或整个目录（阻塞，需在后台线程调用）
+     * @return STATUS_SUCCESS、STATUS_SKIPPED（部分文件被跳过）、STATUS_CANCELLED 或 STATUS_ERROR
+     */
+    public int copy(File src, File dest) {
+        start();
+        if (!src.isDirectory()) {
+            totals.set(1, src.length());
+            Job job = plan(src.getAbsolutePath(), dest.getAbsolutePath(), "", src.length(), src.lastModified(),
+                    isSymlink(src));
+            if (job != null) copyOne(job);
+            return finish();
+        }
+        return run(new String[]{src.getAbsolutePath()}, () -> scan(src, dest, ""));
+    }
+
+    /**
+     * 把多选的各项复制到 destDir 下的同名文件或目录（阻塞，需在后台线程调用）
+     * 日志和冲突中的相对路径以各项的名称开头（见 CopyConflicts.findAll）
+     * 调用方应先用 FileUtils.removeNested 去掉已被其他项包含的路径
+     * @return 与 copy() 相同
+     */
+    public int copyAll(File[] sources, File destDir) {
+        start();
+        String[] paths = new String[sources.length];
+        for (int i = 0; i < sources.length; i++) paths[i] = sources[i].getAbsolutePath();
+        return run(paths, () -> {
+            if (!destDir.isDirectory() && !destDir.mkdirs()) {
+                Log.e(TAG, "Failed to create directory: " + destDir);
+                fail();
+                return;
+            }
+            for (File src : sources) {
+                if (cancelled) break;
+                String name = src.getName();
+                File dest = new File(destDir, name);
+                boolean symlink = isSymlink(src);
+                if (src.isDirectory() && !symlink) {
+                    scan(src, dest, name + File.separator);
+                    continue;
+                }
+                long size = symlink ? 0 : src.length();
+                bytesFound.addAndGet(size);
+                filesFound.incrementAndGet();
+                Job job = plan(src.getAbsolutePath(), dest.getAbsolutePath(), name, size, src.lastModified(), symlink);
+                if (job != null) putUninterruptibly(job);
+            }
+        });
+    }
+
+    private synchronized void start() {
+        startTime = System.currentTimeMillis();
+        speedSampleTime = startTime;
+    }
+
+    // 在当前线程运行 scanner 把文件入队，同时统计 roots 的总量，工作线程复制
+    private int run(String[] roots, Runnable scanner) {
+        // 统计与复制同时进行，统计通常远快于复制
+        Thread prescan = new Thread(() -> totals.measure(roots), "CopyPrescan");
+        prescan.setDaemon(true);
+        prescan.start();
+
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            workers.execute(this::drain);
+        }
+        try {
+            scanner.run();
+        } finally {
+            // 每个工作线程取到一个结束标记后退出
+            for (int i = 0; i < concurrency; i++) {
+                putUninterruptibly(POISON);
+            }
+            workers.shutdown();
+            awaitUninterruptibly(workers);
+        }
+        if (deleteSource) {
+            // 非空目录删除失败，正好保留仍有文件的目录
+            for (int i = sourceDirs.size() - 1; i >= 0; i--) new File(sourceDirs.get(i)).delete();
+        }
+        return finish();
+    }
+
+    private int finish() {
+        totals.cancel();
+        Log.i(TAG, "Copied " + counters.getFiles() + " files, " + counters.getBytes() + " bytes via "
+                + describeMethods(counters.getMethods()));
+        if (verifyFailed) return NativeFileOperation.STATUS_VERIFY_FAILED;
+        if (failed) return NativeFileOperation.STATUS_ERROR;
+        if (cancelled) return NativeFileOperation.STATUS_CANCELLED;
+        return skipped ? NativeFileOperation.STATUS_SKIPPED : NativeFileOperation.STATUS_SUCCESS;
+    }
+
+    // 扫描阶段：按目录逐层展开，目录在其中的文件入队之前创建
+    private void scan(File srcRoot, File destRoot, String rootPath) {
+        ArrayDeque<String[]> pending = new ArrayDeque<>();
+        pending.push(new String[]{srcRoot.getAbsolutePath(), destRoot.getAbsolutePath(), rootPath});
+
+        while (!pending.isEmpty() && !cancelled) {
+            String[] pair = pending.pop();
+            String srcDir = pair[0];
+            String destDir = pair[1];
+            String pathPrefix = pair[2];
+            if (deleteSource) sourceDirs.add(srcDir);
+
+            File destDirFile = new File(destDir);
+            if (!destDirFile.isDirectory() && !destDirFile.mkdirs()) {
+                Log.e(TAG, "Failed to create directory: " + destDir);
+                fail();
+                return;
+            }
+
+            long handle = NativeFileOperation.scanOpen(srcDir);
+            if (handle == 0) {
+                Log.w(TAG, "Skipping unreadable directory: " + srcDir);
+                skipped = true;
+                continue;
+            }
+            try {
+                NativeFileOperation.ScanResult batch;
+                while (!cancelled && (batch = NativeFileOperation.scanNext(handle, SCAN_BATCH)) != null) {
+                    for (int i = 0; i < batch.count && !cancelled; i++) {
+                        String name = batch.getName(i);
+                        String childSrc = srcDir + File.separator + name;
+                        String childDest = destDir + File.separator + name;
+                        String childPath = pathPrefix + name;
+                        // 指向目录的符号链接按链接本身复制，不进入
+                        if (batch.isDirectory(i) && !batch.isSymlink(i)) {
+                            pending.push(new String[]{childSrc, childDest, childPath + File.separator});
+                        } else {
+                            boolean symlink = batch.isSymlink(i);
+                            long size = symlink ? 0 : batch.sizes[i];
+                            bytesFound.addAndGet(size);
+                            filesFound.incrementAndGet();
+                            Job job = plan(childSrc, childDest, childPath, size, batch.lastModified[i], symlink);
+                            if (job != null) putUninterruptibly(job);
+                        }
+                    }
+                }
+            } finally {
+                NativeFileOperation.scanClose(handle);
+            }
+        }
+    }
+
+    /**
+     * 按日志和预先选定的冲突处理方式决定文件如何复制
+     * @return 要复制的任务；已完成且源文件未变或冲突选择跳过时返回 null（直接计入进度）
+     */
+    private Job plan(String src, String dest, String path, long size, long lastModified, boolean symlink) {
+        long resumeFrom = -1;
+        CopyJournal.Started started = journal != null ? journal.getStarted(path) : null;
+        if (journal != null && journal.isSkipped(path)) {
+            settleSkipped(size);
+            return null;
+        }
+        if (journal != null && (started != null || journal.isDone(path))) {
+            boolean unchanged = started != null && started.size == size && started.lastModified == lastModified;
+            // 保留两者时写入的是另一个文件名
+            if (started != null && started.target != null) dest = started.target;
+            File destFile = new File(dest);
+            if (journal.isDone(path)) {
+                boolean intact = symlink ? destFile.exists() || isSymlink(destFile)
+                                         : destFile.isFile() && destFile.length() == size;
+                if (unchanged && intact) {
+                    bytesSettled.addAndGet(size);
+                    filesSettled.incrementAndGet();
+                    return null;
+                }
+                // 源文件已修改或目标被改动，重新复制本应用写入的目标
+                resumeFrom = 0;
+            } else if (started != null) {
+                // 上次复制到一半：源文件未变时从目标现有长度继续，否则重新复制
+                long existing = Math.min(destFile.length(), size);
+                resumeFrom = unchanged && !symlink ? existing - existing % RESUME_ALIGNMENT : 0;
+            }
+            return new Job(src, dest, path, size, lastModified, symlink, resumeFrom, -1);
+        }
+
+        CopyConflicts.Conflict conflict = conflicts != null ? conflicts.get(path) : null;
+        if (conflict == null) return new Job(src, dest, path, size, lastModified, symlink, -1, -1);
+        int action = conflict.resolve();
+        if (action == NativeFileOperation.ConflictAction.SKIP) {
+            if (journal != null) journal.markSkipped(path);
+            settleSkipped(size);
+            return null;
+        }
+        return new Job(src, dest, path, size, lastModified, symlink, -1, action);
+    }
+
+    private void settleSkipped(long size) {
+        skipped = true;
+        bytesSettled.addAndGet(size);
+        filesSettled.incrementAndGet();
+    }
+
+    private static boolean isSymlink(File file) {
+        try {
+            return OsConstants.S_ISLNK(Os.lstat(file.getPath()).st_mode);
+        } catch (ErrnoException e) {
+            return false;
+        }
+    }
+
+    // 工作线程：取到结束标记前持续处理，取消后只出队不复制，保证扫描线程不会阻塞在队列上
+    // 取到可批量复制的小文件时，把队列中紧随其后的小文件一起取出，遇到其他文件为止
+    private void drain() {
+        long handle = 0; // io_uring 句柄，第一次遇到小文件时打开
+        boolean opened = false;
+        List<Job> batch = new ArrayList<>();
+        try {
+            while (true) {
+                Job job;
+                try {
+                    job = queue.take();
+                } catch (InterruptedException e) {
+                    cancel();
+                    return;
+                }
+                if (job == POISON) return;
+                if (cancelled) continue;
+                if (!isBatchable(job)) {
+                    copyOne(job);
+                    continue;
+                }
+                if (!opened) {
+                    opened = true;
+                    handle = NativeFileOperation.uringOpen();
+                }
+                if (handle == 0) {
+                    copyOne(job);
+                    continue;
+                }
+
+                batch.add(job);
+                Job next = null;
+                while (batch.size() < NativeFileOperation.URING_MAX_BATCH && (next = queue.poll()) != null
+                        && isBatchable(next)) {
+                    batch.add(next);
+                    next = null;
+                }
+                if (!copyBatch(handle, batch)) {
+                    // 句柄已停用，本任务余下的文件逐个复制
+                    NativeFileOperation.uringClose(handle);
+                    handle = 0;
+                }
+                batch.clear();
+                if (next == POISON) return;
+                if (next != null && !cancelled) copyOne(next);
+            }
+        } finally {
+            if (handle != 0) NativeFileOperation.uringClose(handle);
+        }
+    }
+
+    // 新的小文件，无冲突、无需续传或校验
+    private boolean isBatchable(Job job) {
+        return uring && job != POISON && verify == NativeFileOperation.VERIFY_NONE && !job.symlink
+                && job.resumeFrom < 0 && job.conflictAction < 0
+                && job.size <= NativeFileOperation.URING_MAX_FILE_SIZE;
+    }
+
+    // 一次提交一批小文件，批量路径未完成的文件（目标已存在、复制期间变大等）改为逐个复制
+    // 返回 false 表示句柄已不可用
+    private boolean copyBatch(long handle, List<Job> batch) {
+        if (batch.size() == 1) {
+            copyOne(batch.get(0));
+            return true;
+        }
+        String[] sources = new String[batch.size()];
+        String[] targets = new String[batch.size()];
+        for (int i = 0; i < sources.length; i++) {
+            Job job = batch.get(i);
+            sources[i] = job.src;
+            targets[i] = job.dest;
+            if (journal != null) journal.markStarted(job.path, job.size, job.lastModified, null);
+        }
+        currentFile = sources[0];
+        int[] results = NativeFileOperation.uringCopy(handle, sources, targets, counters.buffer(), preserve);
+        for (int i = 0; i < sources.length; i++) {
+            Job job = batch.get(i);
+            if (results != null && results[i] == NativeFileOperation.STATUS_SUCCESS) {
+                complete(job, job.dest, NativeFileOperation.STATUS_SUCCESS, 0);
+            } else if (!cancelled) {
+                copyOne(job);
+            }
+        }
+        return results != null;
+    }
+
+    private void copyOne(Job job) {
+        boolean large = job.size >= LARGE_FILE_THRESHOLD;
+        if (large) largeFileLane.acquireUninterruptibly();
+        int result;
+        String dest = job.dest;
+        long[] checksum = new long[1];
+        try {
+            if (cancelled) return;
+            currentFile = job.src;
+            String renamed = null;
+            boolean sameFile = false;
+            if (job.conflictAction == NativeFileOperation.ConflictAction.KEEP_BOTH) {
+                dest = renamed = FileUtils.generateUniqueFileName(new File(dest)).getAbsolutePath();
+            } else if (job.conflictAction == NativeFileOperation.ConflictAction.OVERWRITE) {
+                File target = new File(dest);
+                // 目标就是源文件本身（复制或移动到所在目录）时删除目标会丢失源文件，改为跳过
+                sameFile = FileUtils.isSameFile(new File(job.src), target);
+                // 只替换文件或符号链接；扫描之后目标变成了目录时保留它，复制按冲突失败
+                if (!sameFile && (!target.isDirectory() || isSymlink(target))) NativeFileOperation.delete(dest);
+            }
+            if (journal != null && !sameFile) journal.markStarted(job.path, job.size, job.lastModified, renamed);
+            if (sameFile) {
+                result = NativeFileOperation.STATUS_SKIPPED;
+            } else if (job.resumeFrom >= 0) {
+                // 目标是本应用上次写入的文件，不按冲突处理
+                bytesSettled.addAndGet(job.resumeFrom);
+                result = NativeFileOperation.copyFile(job.src, job.dest, job.resumeFrom, counters.buffer(),
+                        verify, preserve, checksum);
+                if (result != NativeFileOperation.STATUS_SUCCESS) bytesSettled.addAndGet(-job.resumeFrom);
+            } else {
+                result = StepFileCopier.copyFileWithRetry(job.src, dest, policy, statusCallback,
+                        counters.buffer(), verify, preserve, checksum);
+            }
+        } finally {
+            if (large) largeFileLane.release();
+        }
+        complete(job, dest, result, checksum[0]);
+    }
+
+    // 按单个文件的复制结果记录日志、报告，移动时删除源文件
+    private void complete(Job job, String dest, int result, long checksum) {
+        if (journal != null && result == NativeFileOperation.STATUS_SUCCESS) {
+            journal.markDone(job.path);
+        }
+        if (report != null && result == NativeFileOperation.STATUS_SUCCESS && !job.symlink) {
+            // 报告中的路径相对目标，保留两者时使用新文件名
+            int slash = job.path.lastIndexOf(File.separatorChar);
+            String name = new File(dest).getName();
+            report.add(slash >= 0 ? job.path.substring(0, slash + 1) + name : name, checksum);
+        }
+        if (deleteSource && result == NativeFileOperation.STATUS_SUCCESS && !removeSource(job, dest)) {
+            // 源文件保留，按跳过处理（进度已计入复制的字节）
+            Log.w(TAG, "Keeping source after unverified copy: " + job.src);
+            skipped = true;
+        }
+        if (result == NativeFileOperation.STATUS_SKIPPED) {
+            // 目标是用户原有的文件，续传时不能当作本应用写入的文件处理
+            if (journal != null) journal.markSkipped(job.path);
+            settleSkipped(job.size);
+        } else if (result == NativeFileOperation.STATUS_CANCELLED) {
+            cancel();
+        } else if (result == NativeFileOperation.STATUS_VERIFY_FAILED) {
+            Log.e(TAG, "Verification failed: " + job.src);
+            verifyFailed = true;
+            fail();
+        } else if (result != NativeFileOperation.STATUS_SUCCESS) {
+            Log.e(TAG, "Failed to copy: " + job.src);
+            fail();
+        }
+    }
+
+    // 目标存在且大小与扫描时的源文件一致（符号链接只检查类型）才删除源文件
+    private static boolean removeSource(Job job, String dest) {
+        try {
+            StructStat copied = Os.lstat(dest);
+            if (!OsConstants.S_ISLNK(copied.st_mode) && copied.st_size != job.size) return false;
+            Os.remove(job.src);
+            return true;
+        } catch (ErrnoException e) {
+            return false;
+        }
+    }
+
+    // 任一文件失败即停止整个复制
+    private void fail() {
+        failed = true;
+        cancel();
+    }
+
+    /**
+     * 读取当前进度（可在任意线程调用，开销很小，适合界面定时读取）
+     * 吞吐量在每个采样窗口计算一次瞬时速度并做指数平滑；第一个窗口内用平均速度，使开始后立即有估算
+     */
+    public synchronized CopyProgress sample() {
+        long now = System.currentTimeMillis();
+        long copied = counters.getBytes() + bytesSettled.get();
+        long files = counters.getFiles() + filesSettled.get();
+        // 统计完成后用准确总量，之前取统计值和复制扫描已发现量中较大者
+        boolean exact = totals.isComplete();
+        long bytesTotal = exact ? totals.getBytes() : Math.max(totals.getBytes(), bytesFound.get());
+        long filesTotal = exact ? totals.getFiles() : Math.max(totals.getFiles(), filesFound.get());
+
+        long speed = 0;
+        if (startTime > 0) {
+            long window = now - speedSampleTime;
+            if (window >= SPEED_WINDOW_MS) {
+                double rate = (copied - speedSampleBytes) * 1000.0 / window;
+                smoothedSpeed = smoothedSpeed == 0 ? rate : smoothedSpeed + SPEED_SMOOTHING * (rate - smoothedSpeed);
+                speedSampleTime = now;
+                speedSampleBytes = copied;
+                speed = (long) smoothedSpeed;
+            } else if (smoothedSpeed == 0) {
+                long elapsed = now - startTime;
+                speed = elapsed > 0 ? copied * 1000 / elapsed : 0;
+            } else {
+                speed = (long) smoothedSpeed;
+            }
+        }
+        return new CopyProgress(new File(currentFile).getName(), copied, bytesTotal, files, filesTotal,
+                exact, speed, startTime > 0 ? now - startTime : 0);
+    }
+
+    // 例如 "copy_file_range+sparse"，用于日志
+    static String describeMethods(int methods) {
+        StringBuilder sb = new StringBuilder();
+        if ((methods & NativeFileOperation.COPY_METHOD_CLONE) != 0) sb.append("+clone");
+        if ((methods & NativeFileOperation.COPY_METHOD_RANGE) != 0) sb.append("+copy_file_range");
+        if ((methods & NativeFileOperation.COPY_METHOD_SENDFILE) != 0) sb.append("+sendfile");
+        if ((methods & NativeFileOperation.COPY_METHOD_READ_WRITE) != 0) sb.append("+read/write");
+        if ((methods & NativeFileOperation.COPY_METHOD_SPARSE) != 0) sb.append("+sparse");
+        if ((methods & NativeFileOperation.COPY_METHOD_URING) != 0) sb.append("+io_uring");
+        return sb.length() > 0 ? sb.substring(1) : "none";
+    }
+
+    // 已用过的复制方式，NativeFileOperation.COPY_METHOD_* 按位或
+    public int getMethods() {
+        return counters.getMethods();
+    }
+
+    // 复制前统计结果（总量），统计仍在进行时数值会继续增长
+    public CopyTotals getTotals() {
+        return totals;
+    }
+
+    // 已复制的文件数（不含跳过的文件）
+    public long getFilesDone() {
+        return counters.getFiles();
+    }
+
+    // 本次实际复制的字节数（不含跳过和续传前已完成的部分），用于统计吞吐量
+    public long getBytesDone() {
+        return counters.getBytes();
+    }
+
+    private void putUninterruptibly(Job job) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(job);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+                cancel();
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    private static void awaitUninterruptibly(ExecutorService workers) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (workers.awaitTermination(1, TimeUnit.SECONDS)) break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+}
@@ -0,0 +1,373 @@
+/*
+ * System Shell Box
+ * Copyright (C) 2025 kgultrt
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+// CopyJournal.java
+package com.manager.ssb.core.copy;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 复制任务日志，保存在应用私有目录，用于进程被杀或取消后续传
+ * <id>.json 记录任务本身（源、目标），<id>.log 逐行追加 JSON 记录：
+ * {"s":相对路径,"n":大小,"m":修改时间} 表示开始复制，{"d":相对路径} 表示复制完成，{"k":相对路径} 表示因冲突跳过
+ * 开始记录中可带 "t":实际目标路径，用于保留两者时写入了另一个文件名的情况
+ * 正在复制的文件续传位置取目标文件当前大小，仅在源文件大小和修改时间都未变时使用
+ * 多选复制的 <id>.json 另有 "items":[{"s":源路径,"e":目标原本是否存在}]，destination 为目标目录，
+ * 日志中的相对路径以各项的名称开头
+ */
+public final class CopyJournal {
+
+    private static final String TAG = "CopyJournal";
+    private static final String DIRECTORY = "copy-journal";
+    private static final String HEADER_SUFFIX = ".json";
+    private static final String LOG_SUFFIX = ".log";
+
+    private static final Gson gson = new Gson();
+    private static final AtomicInteger ID_GEN = new AtomicInteger();
+    // 本进程中正在使用的日志，不作为待续传任务返回
+    private static final Set<String> active = Collections.synchronizedSet(new HashSet<>());
+
+    // 开始复制时记录的源文件状态
+    public static final class Started {
+        public final long size;
+        public final long lastModified;
+        public final String target; // 实际写入的目标，与默认目标相同时为 null
+
+        Started(long size, long lastModified, String target) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.target = target;
+        }
+    }
+
+    private final File headerFile;
+    private final File logFile;
+    private final String id;
+    private final File source;
+    private final File destination;
+    private final boolean destinationExisted;
+    // 多选复制的各项及其目标原本是否存在，单项复制时为 null
+    private File[] items;
+    private boolean[] itemsExisted;
+    private final Map<String, Started> started = new HashMap<>();
+    private final Set<String> done = new HashSet<>();
+    private final Set<String> skipped = new HashSet<>();
+    private Writer writer;
+
+    private CopyJournal(File directory, String id, File source, File destination, boolean destinationExisted) {
+        this.id = id;
+        this.headerFile = new File(directory, id + HEADER_SUFFIX);
+        this.logFile = new File(directory, id + LOG_SUFFIX);
+        this.source = source;
+        this.destination = destination;
+        this.destinationExisted = destinationExisted;
+    }
+
+    private static File directory(Context context) {
+        return new File(context.getFilesDir(), DIRECTORY);
+    }
+
+    /**
+     * 为新的复制任务创建日志（在后台线程调用）
+     * @return 创建失败时返回 null，复制照常进行但不能续传
+     */
+    public static CopyJournal create(Context context, File source, File destination, boolean destinationExisted) {
+        File dir = directory(context);
+        String id = System.currentTimeMillis() + "-" + ID_GEN.incrementAndGet();
+        CopyJournal journal = new CopyJournal(dir, id, source, destination, destinationExisted);
+
+        JsonObject header = new JsonObject();
+        header.addProperty("source", source.getAbsolutePath());
+        header.addProperty("destination", destination.getAbsolutePath());
+        header.addProperty("destinationExisted", destinationExisted);
+        try {
+            if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+            try (Writer out = new OutputStreamWriter(new FileOutputStream(journal.headerFile), StandardCharsets.UTF_8)) {
+                out.write(gson.toJson(header));
+            }
+            journal.open();
+            return journal;
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to create copy journal", e);
+            journal.delete();
+            return null;
+        }
+    }
+
+    /**
+     * 为多选复制创建日志（在后台线程调用），各项复制到 destination 下的同名文件或目录
+     * @param itemsExisted 各项的目标原本是否存在
+     * @return 创建失败时返回 null，复制照常进行但不能续传
+     */
+    public static CopyJournal createBatch(Context context, File[] items, File destination,
+                                          boolean destinationExisted, boolean[] itemsExisted) {
+        File dir = directory(context);
+        String id = System.currentTimeMillis() + "-" + ID_GEN.incrementAndGet();
+        // 源记为第一项所在目录，仅用于显示
+        CopyJournal journal = new CopyJournal(dir, id, items[0].getAbsoluteFile().getParentFile(), destination,
+                destinationExisted);
+        journal.items = items;
+        journal.itemsExisted = itemsExisted;
+
+        JsonObject header = new JsonObject();
+        header.addProperty("source", journal.source.getAbsolutePath());
+        header.addProperty("destination", destination.getAbsolutePath());
+        header.addProperty("destinationExisted", destinationExisted);
+        JsonArray array = new JsonArray();
+        for (int i = 0; i < items.length; i++) {
+            JsonObject item = new JsonObject();
+            item.addProperty("s", items[i].getAbsolutePath());
+            item.addProperty("e", itemsExisted[i]);
+            array.add(item);
+        }
+        header.add("items", array);
+        try {
+            if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+            try (Writer out = new OutputStreamWriter(new FileOutputStream(journal.headerFile), StandardCharsets.UTF_8)) {
+                out.write(gson.toJson(header));
+            }
+            journal.open();
+            return journal;
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to create copy journal", e);
+            journal.delete();
+            return null;
+        }
+    }
+
+    /**
+     * 读取上次未完成的任务（在后台线程调用），不包括本进程中正在进行的任务
+     */
+    public static List<CopyJournal> loadPending(Context context) {
+        List<CopyJournal> result = new ArrayList<>();
+        File[] headers = directory(context).listFiles((d, name) -> name.endsWith(HEADER_SUFFIX));
+        if (headers == null) return result;
+
+        for (File header : headers) {
+            String name = header.getName();
+            String id = name.substring(0, name.length() - HEADER_SUFFIX.length());
+            if (active.contains(id)) continue;
+            try {
+                JsonObject json = gson.fromJson(readText(header), JsonObject.class);
+                CopyJournal journal = new CopyJournal(header.getParentFile(), id,
+                        new File(json.get("source").getAsString()),
+                        new File(json.get("destination").getAsString()),
+                        json.get("destinationExisted").getAsBoolean());
+                if (json.has("items")) {
+                    JsonArray array = json.getAsJsonArray("items");
+                    journal.items = new File[array.size()];
+                    journal.itemsExisted = new boolean[array.size()];
+                    for (int i = 0; i < array.size(); i++) {
+                        JsonObject item = array.get(i).getAsJsonObject();
+                        journal.items[i] = new File(item.get("s").getAsString());
+                        journal.itemsExisted[i] = item.get("e").getAsBoolean();
+                    }
+                }
+                journal.readLog();
+                result.add(journal);
+            } catch (IOException | RuntimeException e) {
+                Log.w(TAG, "Dropping unreadable copy journal " + name, e);
+                header.delete();
+                new File(header.getParentFile(), id + LOG_SUFFIX).delete();
+            }
+        }
+        return result;
+    }
+
+    private static String readText(File file) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) sb.append(line).append('\n');
+        }
+        return sb.toString();
+    }
+
+    // 进程在写入中途被杀时最后一行可能不完整，读到无法解析的行即停止
+    private void readLog() throws IOException {
+        if (!logFile.exists()) return;
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(new FileInputStream(logFile), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                JsonObject entry;
+                try {
+                    entry = gson.fromJson(line, JsonObject.class);
+                } catch (JsonParseException e) {
+                    break;
+                }
+                if (entry == null) continue;
+                if (entry.has("d")) {
+                    done.add(entry.get("d").getAsString());
+                } else if (entry.has("k")) {
+                    skipped.add(entry.get("k").getAsString());
+                } else if (entry.has("s")) {
+                    started.put(entry.get("s").getAsString(),
+                            new Started(entry.get("n").getAsLong(), entry.get("m").getAsLong(),
+                                    entry.has("t") ? entry.get("t").getAsString() : null));
+                }
+            }
+        }
+    }
+
+    /**
+     * 开始（或继续）写入日志，续传前调用
+     */
+    public synchronized void open() throws IOException {
+        if (writer == null) {
+            writer = new OutputStreamWriter(new FileOutputStream(logFile, true), StandardCharsets.UTF_8);
+        }
+        active.add(id);
+    }
+
+    public File getSource() {
+        return source;
+    }
+
+    public File getDestination() {
+        return destination;
+    }
+
+    public boolean destinationExisted() {
+        return destinationExisted;
+    }
+
+    // 多选复制的各项，单项复制时返回 null
+    public File[] getItems() {
+        return items;
+    }
+
+    // 多选复制的各项的目标原本是否存在，单项复制时返回 null
+    public boolean[] getItemsExisted() {
+        return itemsExisted != null ? itemsExisted.clone() : null;
+    }
+
+    public synchronized boolean isDone(String path) {
+        return done.contains(path);
+    }
+
+    // 目标已存在且用户选择了跳过，续传时不再处理
+    public synchronized boolean isSkipped(String path) {
+        return skipped.contains(path);
+    }
+
+    // 上次开始复制该文件时的源文件状态，未记录时返回 null
+    public synchronized Started getStarted(String path) {
+        return started.get(path);
+    }
+
+    public synchronized int getDoneCount() {
+        return done.size();
+    }
+
+    public void markStarted(String path, long size, long lastModified) {
+        markStarted(path, size, lastModified, null);
+    }
+
+    /**
+     * @param target 实际写入的目标路径，与默认目标不同时（保留两者）传入，否则为 null
+     */
+    public void markStarted(String path, long size, long lastModified, String target) {
+        JsonObject entry = new JsonObject();
+        entry.addProperty("s", path);
+        entry.addProperty("n", size);
+        entry.addProperty("m", lastModified);
+        if (target != null) entry.addProperty("t", target);
+        synchronized (this) {
+            started.put(path, new Started(size, lastModified, target));
+            append(entry);
+        }
+    }
+
+    public void markSkipped(String path) {
+        JsonObject entry = new JsonObject();
+        entry.addProperty("k", path);
+        synchronized (this) {
+            skipped.add(path);
+            append(entry);
+        }
+    }
+
+    public void markDone(String path) {
+        JsonObject entry = new JsonObject();
+        entry.addProperty("d", path);
+        synchronized (this) {
+            done.add(path);
+            append(entry);
+        }
+    }
+
+    // 每条记录立即写入内核，进程被杀时不丢失（不 fsync，断电时可能丢失最后几条）
+    private void append(JsonObject entry) {
+        if (writer == null) return;
+        try {
+            writer.write(gson.toJson(entry));
+            writer.write('\n');
+            writer.flush();
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write copy journal, resume disabled", e);
+            closeQuietly();
+        }
+    }
+
+    // 停止写入，日志保留以便续传
+    public synchronized void close() {
+        closeQuietly();
+        active.remove(id);
+    }
+
+    // 任务完成或放弃续传时删除日志
+    public synchronized void delete() {
+        close();
+        headerFile.delete();
+        logFile.delete();
+    }
+
+    private void closeQuietly() {
+        if (writer == null) return;
+        try {
+            writer.close();
+        } catch (IOException ignored) {
+        }
+        writer = null;
+    }
+}
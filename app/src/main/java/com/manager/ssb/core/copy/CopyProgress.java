@@ -0,0 +1,94 @@
+/*
+ * System Shell Box
+ * Copyright (C) 2025 kgultrt
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+// CopyProgress.java
+package com.manager.ssb.core.copy;
+
+/**
+ * 复制进度快照（不可变），由 CopyEngine 生成
+ * 总量来自复制前统计：统计完成前 isTotalExact() 为 false，总量只增不减
+ */
+public final class CopyProgress {
+
+    private final String currentFile;
+    private final long bytesDone;
+    private final long bytesTotal;
+    private final long filesDone;
+    private final long filesTotal;
+    private final boolean totalExact;
+    private final long bytesPerSecond;
+    private final long elapsedMillis;
+
+    CopyProgress(String currentFile, long bytesDone, long bytesTotal, long filesDone, long filesTotal,
+                 boolean totalExact, long bytesPerSecond, long elapsedMillis) {
+        this.currentFile = currentFile;
+        this.bytesDone = bytesDone;
+        this.bytesTotal = Math.max(bytesDone, bytesTotal);
+        this.filesDone = filesDone;
+        this.filesTotal = Math.max(filesDone, filesTotal);
+        this.totalExact = totalExact;
+        this.bytesPerSecond = bytesPerSecond;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public String getCurrentFile() {
+        return currentFile;
+    }
+
+    public long getBytesDone() {
+        return bytesDone;
+    }
+
+    public long getBytesTotal() {
+        return bytesTotal;
+    }
+
+    public long getFilesDone() {
+        return filesDone;
+    }
+
+    public long getFilesTotal() {
+        return filesTotal;
+    }
+
+    public boolean isTotalExact() {
+        return totalExact;
+    }
+
+    // 平滑后的吞吐量（字节/秒），尚无数据时为 0
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    // 0-100
+    public int getPercent() {
+        return bytesTotal > 0 ? (int) (bytesDone * 100 / bytesTotal) : 0;
+    }
+
+    /**
+     * 剩余时间（秒），按平滑吞吐量估算
+     * @return 无法估算时返回 -1
+     */
+    public long getEtaSeconds() {
+        if (bytesPerSecond <= 0) return -1;
+        return (bytesTotal - bytesDone + bytesPerSecond - 1) / bytesPerSecond;
+    }
+}
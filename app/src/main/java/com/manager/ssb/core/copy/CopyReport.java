@@ -0,0 +1,100 @@
+/*
+ * System Shell Box
+ * Copyright (C) 2025 kgultrt
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+// CopyReport.java
+package com.manager.ssb.core.copy;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * 校验复制的报告：每个文件一行 "<xxHash64 十六进制>  <相对路径>"，与 xxhsum -H1 的输出格式相同，
+ * 可在其他设备上用 xxhsum -c 重新核对
+ * 保存在应用的外部文件目录（不可用时为内部目录）下的 copy-reports 中
+ */
+public final class CopyReport {
+
+    private static final String TAG = "CopyReport";
+    private static final String DIRECTORY = "copy-reports";
+
+    private final File file;
+    private Writer writer;
+    private int count;
+
+    private CopyReport(File file, Writer writer) {
+        this.file = file;
+        this.writer = writer;
+    }
+
+    /**
+     * 为复制任务创建报告（在后台线程调用），文件名取目标名称和开始时间
+     * @return 创建失败时返回 null，复制照常校验但不保存校验和
+     */
+    public static CopyReport create(Context context, File destination) {
+        File base = context.getExternalFilesDir(null);
+        File dir = new File(base != null ? base : context.getFilesDir(), DIRECTORY);
+        File file = new File(dir, destination.getName() + "-" + System.currentTimeMillis() + ".xxh64");
+        try {
+            if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+            return new CopyReport(file, new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to create copy report", e);
+            return null;
+        }
+    }
+
+    public synchronized void add(String path, long checksum) {
+        if (writer == null) return;
+        try {
+            writer.write(String.format(Locale.US, "%016x  %s\n", checksum, path));
+            count++;
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write copy report", e);
+            closeQuietly();
+        }
+    }
+
+    // 已记录的文件数
+    public synchronized int getCount() {
+        return count;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public synchronized void close() {
+        closeQuietly();
+    }
+
+    private void closeQuietly() {
+        if (writer == null) return;
+        try {
+            writer.close();
+        } catch (IOException ignored) {
+        }
+        writer = null;
+    }
+}
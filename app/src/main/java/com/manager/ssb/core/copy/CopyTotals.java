@@ -0,0 +1,90 @@
+/*
+ * System Shell Box
+ * Copyright (C) 2025 kgultrt
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+// CopyTotals.java
+package com.manager.ssb.core.copy;
+
+import com.manager.ssb.util.NativeFileOperation;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 复制前统计的结果
+ * native 层把计数直接累加到共享的直接缓冲区中，读取方随时取值即可，统计过程中数值只增不减
+ */
+public final class CopyTotals {
+
+    // 槽位布局，与 main.c 中的 MEASURE_SLOT_* 一致
+    private static final int SLOT_FILES = 0;
+    private static final int SLOT_BYTES = 1;
+    private static final int SLOT_DIRS = 2;
+    private static final int SLOT_CANCEL = 3;
+    private static final int SLOT_COUNT = 4;
+
+    private final ByteBuffer counters = ByteBuffer.allocateDirect(SLOT_COUNT * Long.BYTES)
+            .order(ByteOrder.nativeOrder());
+    private volatile boolean complete = false;
+
+    /**
+     * 统计各路径下的文件，结果累加（阻塞，通常在单独的线程中调用）
+     * 返回后 isComplete() 为 true，被取消时数值不完整
+     */
+    public void measure(String... paths) {
+        try {
+            for (String path : paths) {
+                if (isCancelled()) break;
+                NativeFileOperation.measure(path, counters);
+            }
+        } finally {
+            complete = !isCancelled();
+        }
+    }
+
+    // 总数已知时（例如单个文件）直接设置
+    public void set(long files, long bytes) {
+        counters.putLong(SLOT_FILES * Long.BYTES, files);
+        counters.putLong(SLOT_BYTES * Long.BYTES, bytes);
+        complete = true;
+    }
+
+    // 请求停止统计，native 层在下一个目录项处返回
+    public void cancel() {
+        counters.putLong(SLOT_CANCEL * Long.BYTES, 1);
+    }
+
+    public boolean isCancelled() {
+        return counters.getLong(SLOT_CANCEL * Long.BYTES) != 0;
+    }
+
+    // 统计已结束且数值准确
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public long getFiles() {
+        return counters.getLong(SLOT_FILES * Long.BYTES);
+    }
+
+    public long getBytes() {
+        return counters.getLong(SLOT_BYTES * Long.BYTES);
+    }
+
+    public long getDirectories() {
+        return counters.getLong(SLOT_DIRS * Long.BYTES);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * System Shell Box
+ * Copyright (C) 2025 kgultrt
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+// DeleteEngine.java
+package com.manager.ssb.core.copy;
+
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
+
+import com.manager.ssb.core.config.Config;
+import com.manager.ssb.util.NativeFileOperation;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 并行删除引擎
+ * native 层多个线程基于目录 fd 删除，已删除的文件数和目录数累加到共享计数器，界面按固定频率读取
+ * 删除前先统计总数：统计只读目录，通常远快于删除；与删除同时进行时，
+ * 统计尚未到达就已被删除的条目不会计入总数，百分比会偏离实际
+ */
+public class DeleteEngine {
+
+    // 槽位布局，与 main.c 中的 DELETE_SLOT_* 一致
+    private static final int SLOT_FILES = 0;
+    private static final int SLOT_DIRS = 1;
+    private static final int SLOT_CANCEL = 2;
+    private static final int SLOT_ERRORS = 3;
+    private static final int SLOT_COUNT = 4;
+
+    // 删除线程数配置
+    private static final String KEY_THREADS = "delete.threads";
+    private static final int DEFAULT_THREADS = 4;
+
+    private final ByteBuffer counters = ByteBuffer.allocateDirect(SLOT_COUNT * Long.BYTES)
+            .order(ByteOrder.nativeOrder());
+    private final CopyTotals totals = new CopyTotals();
+    private final int threads;
+
+    public DeleteEngine() {
+        this(threadCount());
+    }
+
+    public DeleteEngine(int threads) {
+        this.threads = threads;
+    }
+
+    // 配置的删除线程数
+    public static int threadCount() {
+        return Config.get(KEY_THREADS, DEFAULT_THREADS);
+    }
+
+    /**
+     * 删除文件或整个目录（阻塞，需在后台线程调用），符号链接只删除链接本身
+     * @return STATUS_SUCCESS、STATUS_CANCELLED 或 STATUS_ERROR（部分条目无法删除）
+     */
+    public int delete(File target) {
+        String path = target.getAbsolutePath();
+        if (!isDirectory(path)) {
+            totals.set(1, 0);
+        } else {
+            totals.measure(path);
+        }
+        if (isCancelled()) return NativeFileOperation.STATUS_CANCELLED;
+        return NativeFileOperation.deleteTree(path, counters, threads);
+    }
+
+    /**
+     * 删除多选的各项（阻塞，需在后台线程调用），统计和计数器覆盖所有项，进度是一个整体
+     * 调用方应先用 FileUtils.removeNested 去掉已被其他项包含的路径
+     * @return 任一项失败时为 STATUS_ERROR（其余项照常删除），被取消时为 STATUS_CANCELLED
+     */
+    public int deleteAll(File[] targets) {
+        String[] paths = new String[targets.length];
+        for (int i = 0; i < targets.length; i++) paths[i] = targets[i].getAbsolutePath();
+        totals.measure(paths);
+
+        int result = NativeFileOperation.STATUS_SUCCESS;
+        for (String path : paths) {
+            if (isCancelled()) return NativeFileOperation.STATUS_CANCELLED;
+            int status = NativeFileOperation.deleteTree(path, counters, threads);
+            if (status == NativeFileOperation.STATUS_CANCELLED) return status;
+            if (status != NativeFileOperation.STATUS_SUCCESS) result = status;
+        }
+        return result;
+    }
+
+    private boolean isCancelled() {
+        return counters.getLong(SLOT_CANCEL * Long.BYTES) != 0;
+    }
+
+    private static boolean isDirectory(String path) {
+        try {
+            return OsConstants.S_ISDIR(Os.lstat(path).st_mode);
+        } catch (ErrnoException e) {
+            return false;
+        }
+    }
+
+    // 停止删除：已删除的条目无法恢复，其余保留（可在任意线程调用）
+    public void cancel() {
+        counters.putLong(SLOT_CANCEL * Long.BYTES, 1);
+        totals.cancel();
+    }
+
+    // 已删除的文件和目录数
+    public long getDeleted() {
+        return counters.getLong(SLOT_FILES * Long.BYTES) + counters.getLong(SLOT_DIRS * Long.BYTES);
+    }
+
+    // 文件和目录总数，删除前的统计仍在进行时数值会继续增长
+    public long getTotal() {
+        return Math.max(totals.getFiles() + totals.getDirectories(), getDeleted());
+    }
+
+    public boolean isTotalExact() {
+        return totals.isComplete();
+    }
+
+    // 无法删除的条目数
+    public long getErrors() {
+        return counters.getLong(SLOT_ERRORS * Long.BYTES);
+    }
+
+    public int getPercent() {
+        long total = getTotal();
+        return total > 0 ? (int) (getDeleted() * 100 / total) : 0;
+    }
+}
@@ -0,0 +1,354 @@
+/*
+ * System Shell Box
+ * Copyright (C) 2025 kgultrt
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+// MoveEngine.java
+package com.manager.ssb.core.copy;
+
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
+import android.system.StructStat;
+import android.util.Log;
+
+import com.manager.ssb.core.config.Config;
+import com.manager.ssb.dialog.CopyDialog;
+import com.manager.ssb.util.FileUtils;
+import com.manager.ssb.util.NativeFileOperation;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 移动引擎
+ * 按存储设备分组：源和目标父目录在同一设备上的条目整批 rename，一次 JNI 调用完成；
+ * 同一设备上目标已存在的条目（例如与已有的同名目录合并）逐层 rename 各子项，目录合并、文件按冲突处理方式处理，
+ * 不复制数据；只有跨设备的条目交给 CopyEngine 复制，每个文件复制并校验后立即删除源文件，进度和取消与复制相同
+ */
+public class MoveEngine {
+
+    // 复制后删除源文件前的校验方式（NativeFileOperation.VERIFY_*），默认回读目标比较校验和
+    private static final String KEY_VERIFY = "move.verify.mode";
+
+    private static final String TAG = "MoveEngine";
+    private static final int SCAN_BATCH = 256;
+
+    private final int concurrency;
+    private final CopyDialog.ConflictPolicy policy;
+    private final NativeFileOperation.ProgressCallback statusCallback;
+    private final int verify = Config.get(KEY_VERIFY, NativeFileOperation.VERIFY_CACHED);
+    private volatile CopyEngine current;
+    private volatile boolean cancelled = false;
+    // 逐项 rename 的结果，move()/moveAll() 开始时清零
+    private boolean skipped, failed, verifyFailed;
+
+    public MoveEngine(int concurrency, CopyDialog.ConflictPolicy policy,
+                      NativeFileOperation.ProgressCallback statusCallback) {
+        this.concurrency = concurrency;
+        this.policy = policy;
+        this.statusCallback = statusCallback;
+    }
+
+    /**
+     * 对同一设备上的条目执行 rename（阻塞，需在后台线程调用）
+     * 源和目标是同一个文件（移动到所在目录）时不做任何操作，按已移动处理
+     * @return 每一项的结果：STATUS_SUCCESS 表示已移动；STATUS_CROSS_DEVICE 或 STATUS_CONFLICT
+     *         表示需要调用 move() 处理；STATUS_ERROR 表示失败
+     */
+    public static int[] renameSameDevice(File[] sources, File[] targets) {
+        int[] results = new int[sources.length];
+        int[] batchIndex = new int[sources.length];
+        String[] batchSources = new String[sources.length];
+        String[] batchTargets = new String[sources.length];
+        int batchSize = 0;
+
+        for (int i = 0; i < sources.length; i++) {
+            long sourceDevice = deviceOf(sources[i], false);
+            long targetDevice = deviceOf(targets[i].getParentFile(), true);
+            if (sourceDevice < 0) {
+                results[i] = NativeFileOperation.STATUS_ERROR;
+            } else if (FileUtils.isSameFile(sources[i], targets[i])) {
+                // 同名目标就是源本身，rename 会因目标已存在而失败，按冲突处理又会删掉源文件
+                results[i] = NativeFileOperation.STATUS_SUCCESS;
+            } else if (sourceDevice != targetDevice) {
+                results[i] = NativeFileOperation.STATUS_CROSS_DEVICE;
+            } else {
+                batchIndex[batchSize] = i;
+                batchSources[batchSize] = sources[i].getAbsolutePath();
+                batchTargets[batchSize] = targets[i].getAbsolutePath();
+                batchSize++;
+            }
+        }
+        if (batchSize == 0) return results;
+
+        String[] src = new String[batchSize];
+        String[] dest = new String[batchSize];
+        System.arraycopy(batchSources, 0, src, 0, batchSize);
+        System.arraycopy(batchTargets, 0, dest, 0, batchSize);
+        int[] renamed = NativeFileOperation.renameBatch(src, dest);
+        for (int i = 0; i < batchSize; i++) {
+            // 同一设备号也可能是不同挂载点（例如绑定挂载），rename 返回 EXDEV 时同样改为复制
+            results[batchIndex[i]] = renamed != null ? renamed[i] : NativeFileOperation.STATUS_ERROR;
+        }
+        return results;
+    }
+
+    /**
+     * 文件所在设备号；existingParent 为 true 时向上取第一个存在的目录（目标可能尚未创建）
+     * @return 无法读取时返回 -1
+     */
+    public static long deviceOf(File file, boolean existingParent) {
+        if (existingParent) {
+            while (file != null && !file.exists()) file = file.getParentFile();
+        }
+        if (file == null) return -1;
+        try {
+            return existingParent ? Os.stat(file.getPath()).st_dev : Os.lstat(file.getPath()).st_dev;
+        } catch (ErrnoException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 移动 renameSameDevice 无法处理的条目（阻塞，需在后台线程调用）：
+     * 同一设备上逐项 rename 合并到已有目标中，跨设备时复制后删除源文件
+     * @param conflicts 预先选定的冲突处理方式，可为 null
+     * @return 与 CopyEngine.copy 相同；STATUS_SKIPPED 表示部分文件留在了原处
+     */
+    public int move(File src, File dest, CopyConflicts conflicts) {
+        skipped = failed = verifyFailed = false;
+        if (isSameDevice(src, dest)) {
+            merge(src, dest, "", conflicts);
+        } else {
+            record(newEngine(conflicts).copy(src, dest));
+        }
+        return finish();
+    }
+
+    /**
+     * 把多选的各项移动到 destDir 下：同一设备的逐项 rename 合并，
+     * 跨设备的各项复制后删除源文件，共用一次统计和一组工作线程
+     * @see CopyEngine#copyAll
+     */
+    public int moveAll(File[] sources, File destDir, CopyConflicts conflicts) {
+        skipped = failed = verifyFailed = false;
+        List<File> crossDevice = new ArrayList<>();
+        for (File src : sources) {
+            if (cancelled) break;
+            File dest = new File(destDir, src.getName());
+            if (isSameDevice(src, dest)) {
+                // 与 CopyConflicts.findAll 一致，相对路径以各项的名称开头
+                merge(src, dest, src.getName(), conflicts);
+            } else {
+                crossDevice.add(src);
+            }
+        }
+        if (!crossDevice.isEmpty() && !cancelled) {
+            record(newEngine(conflicts).copyAll(crossDevice.toArray(new File[0]), destDir));
+        }
+        return finish();
+    }
+
+    private static boolean isSameDevice(File src, File dest) {
+        long device = deviceOf(src, false);
+        return device >= 0 && device == deviceOf(dest.getParentFile(), true);
+    }
+
+    /**
+     * 在同一设备上把 src 合并到 dest：目标不存在的子项直接 rename（整个子树一次完成），
+     * 两边都是目录时进入下一层，目标中已有的文件按 conflicts 处理；不复制数据
+     * rename 返回 EXDEV（例如子目录是另一个挂载点）或选定冲突处理方式之后才出现冲突的子项，最后交给 CopyEngine 复制后删除
+     * @param path src 相对移动起点的路径（CopyConflicts 中的键），移动单项时为空
+     */
+    private void merge(File src, File dest, String path, CopyConflicts conflicts) {
+        // 移动到所在目录：什么都不用做
+        if (FileUtils.isSameFile(src, dest)) return;
+        List<String[]> fallback = new ArrayList<>();
+        List<String> mergedDirs = new ArrayList<>();
+        ArrayDeque<String[]> pending = new ArrayDeque<>();
+
+        // 先按普通条目处理起点本身：调用方 rename 之后目标可能已被删除
+        mergeEntries(new String[]{src.getAbsolutePath()}, new String[]{dest.getAbsolutePath()},
+                new String[]{path}, new boolean[]{isDirectory(src.getAbsolutePath())}, conflicts,
+                pending, fallback);
+
+        while (!pending.isEmpty() && !cancelled) {
+            String[] dirs = pending.pop();
+            mergedDirs.add(dirs[0]);
+            String prefix = dirs[2].isEmpty() ? "" : dirs[2] + File.separator;
+
+            long handle = NativeFileOperation.scanOpen(dirs[0]);
+            if (handle == 0) {
+                Log.w(TAG, "Skipping unreadable directory: " + dirs[0]);
+                skipped = true;
+                continue;
+            }
+            try {
+                NativeFileOperation.ScanResult batch;
+                while (!cancelled && (batch = NativeFileOperation.scanNext(handle, SCAN_BATCH)) != null) {
+                    String[] sources = new String[batch.count];
+                    String[] targets = new String[batch.count];
+                    String[] paths = new String[batch.count];
+                    boolean[] directories = new boolean[batch.count];
+                    for (int i = 0; i < batch.count; i++) {
+                        String name = batch.getName(i);
+                        sources[i] = dirs[0] + File.separator + name;
+                        targets[i] = dirs[1] + File.separator + name;
+                        paths[i] = prefix + name;
+                        // 与复制引擎一致：指向目录的符号链接按文件处理
+                        directories[i] = batch.isDirectory(i) && !batch.isSymlink(i);
+                    }
+                    mergeEntries(sources, targets, paths, directories, conflicts, pending, fallback);
+                }
+            } finally {
+                NativeFileOperation.scanClose(handle);
+            }
+        }
+
+        for (String[] entry : fallback) {
+            if (cancelled) break;
+            record(newEngine(null).copy(new File(entry[0]), new File(entry[1])));
+        }
+        // 子项全部移走的目录才能删除，非空目录删除失败正好保留仍有文件的目录
+        for (int i = mergedDirs.size() - 1; i >= 0; i--) new File(mergedDirs.get(i)).delete();
+    }
+
+    // 一次 JNI 调用 rename 同一层的一批子项（不覆盖），目标已存在的再按类型合并或处理冲突
+    private void mergeEntries(String[] sources, String[] targets, String[] paths, boolean[] directories,
+                              CopyConflicts conflicts, ArrayDeque<String[]> pending, List<String[]> fallback) {
+        int[] results = NativeFileOperation.renameBatch(sources, targets);
+        for (int i = 0; i < sources.length && !cancelled; i++) {
+            int result = results != null ? results[i] : NativeFileOperation.STATUS_ERROR;
+            if (result == NativeFileOperation.STATUS_SUCCESS) continue;
+            if (result == NativeFileOperation.STATUS_CROSS_DEVICE) {
+                fallback.add(new String[]{sources[i], targets[i]});
+            } else if (result != NativeFileOperation.STATUS_CONFLICT) {
+                failed = true;
+            } else if (directories[i]) {
+                if (isDirectory(targets[i])) {
+                    pending.push(new String[]{sources[i], targets[i], paths[i]});
+                } else {
+                    // 与复制引擎一致：目录的目标位置已有同名文件时报错
+                    Log.e(TAG, "Target is not a directory: " + targets[i]);
+                    failed = true;
+                }
+            } else {
+                CopyConflicts.Conflict conflict = conflicts != null ? conflicts.get(paths[i]) : null;
+                if (conflict == null) {
+                    // 选择冲突处理方式之后才出现的目标，由复制引擎逐个询问
+                    fallback.add(new String[]{sources[i], targets[i]});
+                } else {
+                    resolve(sources[i], targets[i], conflict.resolve());
+                }
+            }
+        }
+    }
+
+    // 按冲突处理方式移动单个文件：覆盖时 rename 直接替换目标，保留两者时 rename 到新文件名
+    private void resolve(String src, String dest, int action) {
+        if (action == NativeFileOperation.ConflictAction.OVERWRITE) {
+            // 目标是目录（扫描之后才变成目录）或就是源文件本身时不覆盖
+            if (isDirectory(dest) || FileUtils.isSameFile(new File(src), new File(dest))) {
+                skipped = true;
+                return;
+            }
+            try {
+                Os.rename(src, dest);
+            } catch (ErrnoException e) {
+                Log.e(TAG, "Failed to replace " + dest, e);
+                failed = true;
+            }
+        } else if (action == NativeFileOperation.ConflictAction.KEEP_BOTH) {
+            String renamed = FileUtils.generateUniqueFileName(new File(dest)).getAbsolutePath();
+            int[] result = NativeFileOperation.renameBatch(new String[]{src}, new String[]{renamed});
+            if (result == null || result[0] != NativeFileOperation.STATUS_SUCCESS) {
+                // 新文件名刚好被占用时源文件保留
+                if (result != null && result[0] == NativeFileOperation.STATUS_CONFLICT) {
+                    skipped = true;
+                } else {
+                    failed = true;
+                }
+            }
+        } else {
+            skipped = true;
+        }
+    }
+
+    // 不跟随符号链接
+    private static boolean isDirectory(String path) {
+        try {
+            StructStat stat = Os.lstat(path);
+            return OsConstants.S_ISDIR(stat.st_mode);
+        } catch (ErrnoException e) {
+            return false;
+        }
+    }
+
+    // 合并一次 CopyEngine 复制的结果
+    private void record(int result) {
+        if (result == NativeFileOperation.STATUS_SKIPPED) {
+            skipped = true;
+        } else if (result == NativeFileOperation.STATUS_VERIFY_FAILED) {
+            verifyFailed = true;
+        } else if (result == NativeFileOperation.STATUS_CANCELLED) {
+            cancelled = true;
+        } else if (result != NativeFileOperation.STATUS_SUCCESS) {
+            failed = true;
+        }
+    }
+
+    // 结果的优先级与 CopyEngine 相同
+    private int finish() {
+        if (verifyFailed) return NativeFileOperation.STATUS_VERIFY_FAILED;
+        if (failed) return NativeFileOperation.STATUS_ERROR;
+        if (cancelled) return NativeFileOperation.STATUS_CANCELLED;
+        return skipped ? NativeFileOperation.STATUS_SKIPPED : NativeFileOperation.STATUS_SUCCESS;
+    }
+
+    // 源文件只在目标校验通过（校验和一致）后删除；校验不通过时目标被删除，源文件保留
+    private CopyEngine newEngine(CopyConflicts conflicts) {
+        CopyEngine engine = new CopyEngine(concurrency, policy, statusCallback);
+        engine.setDeleteSource(true);
+        engine.setVerify(verify, null);
+        engine.setConflicts(conflicts);
+        current = engine;
+        if (cancelled) engine.cancel();
+        return engine;
+    }
+
+    // 停止移动：已移动的文件保留在目标中，其余文件仍在原处（可在任意线程调用）
+    public void cancel() {
+        cancelled = true;
+        CopyEngine engine = current;
+        if (engine != null) engine.cancel();
+    }
+
+    // 已复制的字节数，尚未开始复制时为 0
+    public long getBytesDone() {
+        CopyEngine engine = current;
+        return engine != null ? engine.getBytesDone() : 0;
+    }
+
+    /**
+     * 当前条目的进度，尚未开始复制时返回 null
+     */
+    public CopyProgress sample() {
+        CopyEngine engine = current;
+        return engine != null ? engine.sample() : null;
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * System Shell Box
+ * Copyright (C) 2025 kgultrt
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+// BatchConflictDialog.java
+package com.manager.ssb.dialog;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
+import android.widget.BaseAdapter;
+import android.widget.ListView;
+import android.widget.Spinner;
+import android.widget.TextView;
+
+import com.google.android.material.dialog.MaterialAlertDialogBuilder;
+import com.manager.ssb.R;
+import com.manager.ssb.core.copy.CopyConflicts;
+import com.manager.ssb.util.FileUtils;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * 复制（或跨设备移动）前的批量冲突界面：列出所有已存在的目标文件，可统一或逐个选择处理方式
+ * 选择结果直接写入 CopyConflicts，确认后才开始复制
+ */
+public class BatchConflictDialog {
+
+    public interface OnResolvedListener {
+        void onResolved(CopyConflicts conflicts);
+    }
+
+    /**
+     * @param actionLabel 确认按钮的文字资源，与调用方的操作一致（复制、移动）
+     */
+    public static void show(Context context, CopyConflicts conflicts, int actionLabel,
+                            OnResolvedListener listener) {
+        // 按 ConflictAction 的取值排列
+        String[] actions = {
+            context.getString(R.string.overwrite),
+            context.getString(R.string.skip),
+            context.getString(R.string.keep_both),
+            context.getString(R.string.newer_wins)
+        };
+
+        View view = LayoutInflater.from(context).inflate(R.layout.dialog_batch_conflict, null);
+        TextView summary = view.findViewById(R.id.conflictSummaryText);
+        Spinner applyAll = view.findViewById(R.id.applyToAllSpinner);
+        ListView list = view.findViewById(R.id.conflictList);
+
+        summary.setText(context.getString(R.string.batch_conflict_summary, conflicts.size()));
+
+        ConflictAdapter adapter = new ConflictAdapter(context, conflicts, actions);
+        list.setAdapter(adapter);
+        list.setOnItemClickListener((parent, item, position, id) -> {
+            CopyConflicts.Conflict conflict = conflicts.get(position);
+            new MaterialAlertDialogBuilder(context)
+                    .setTitle(conflict.name)
+                    .setSingleChoiceItems(actions, conflict.action, (dialog, which) -> {
+                        conflict.action = which;
+                        adapter.notifyDataSetChanged();
+                        dialog.dismiss();
+                    })
+                    .show();
+        });
+
+        ArrayAdapter<String> spinnerAdapter = new ArrayAdapter<>(context,
+                android.R.layout.simple_spinner_item, actions);
+        spinnerAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        applyAll.setAdapter(spinnerAdapter);
+        applyAll.setSelection(conflicts.get(0).action, false);
+        applyAll.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View item, int position, long id) {
+                conflicts.setAll(position);
+                adapter.notifyDataSetChanged();
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+
+        new MaterialAlertDialogBuilder(context)
+                .setTitle(R.string.batch_conflict_title)
+                .setView(view)
+                .setPositiveButton(actionLabel, (dialog, which) -> listener.onResolved(conflicts))
+                .setNegativeButton(R.string.cancel, null)
+                .show();
+    }
+
+    private static class ConflictAdapter extends BaseAdapter {
+        private final Context context;
+        private final CopyConflicts conflicts;
+        private final String[] actions;
+        private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.getDefault());
+
+        ConflictAdapter(Context context, CopyConflicts conflicts, String[] actions) {
+            this.context = context;
+            this.conflicts = conflicts;
+            this.actions = actions;
+        }
+
+        @Override
+        public int getCount() {
+            return conflicts.size();
+        }
+
+        @Override
+        public Object getItem(int position) {
+            return conflicts.get(position);
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return position;
+        }
+
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent) {
+            View view = convertView != null ? convertView
+                    : LayoutInflater.from(context).inflate(R.layout.item_conflict, parent, false);
+            CopyConflicts.Conflict conflict = conflicts.get(position);
+
+            TextView name = view.findViewById(R.id.conflictNameText);
+            TextView detail = view.findViewById(R.id.conflictDetailText);
+            TextView action = view.findViewById(R.id.conflictActionText);
+
+            name.setText(conflict.path.isEmpty() ? conflict.name : conflict.path);
+            String sourceSize = FileUtils.formatFileSize(conflict.sourceSize);
+            String sourceDate = dateFormat.format(new Date(conflict.sourceModified));
+            if (conflict.targetIsDirectory) {
+                detail.setText(context.getString(R.string.conflict_detail_directory, sourceSize, sourceDate));
+            } else {
+                detail.setText(context.getString(R.string.conflict_detail, sourceSize, sourceDate,
+                        FileUtils.formatFileSize(conflict.targetSize),
+                        dateFormat.format(new Date(conflict.targetModified))));
+            }
+            // 目标是目录时显示实际的处理方式（覆盖会改为跳过）
+            action.setText(actions[conflict.targetIsDirectory ? conflict.resolve() : conflict.action]);
+            return view;
+        }
+    }
+}
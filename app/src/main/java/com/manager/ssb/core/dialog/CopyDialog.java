@@ -4,21 +4,31 @@ import android.content.Context;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.widget.CheckBox;
 import android.widget.EditText;
 import android.widget.Toast;
 import androidx.annotation.NonNull;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.manager.ssb.R;
+import com.manager.ssb.core.config.Config;
+import com.manager.ssb.core.copy.CopyConflicts;
+import com.manager.ssb.core.copy.CopyEngine;
+import com.manager.ssb.core.copy.CopyJournal;
+import com.manager.ssb.core.copy.CopyProgress;
+import com.manager.ssb.core.copy.CopyReport;
 import com.manager.ssb.core.task.NotifyingExecutorService;
+import com.manager.ssb.core.task.OperationQueue;
+import com.manager.ssb.core.task.TaskStatus;
 import com.manager.ssb.core.task.TaskTypes;
 import com.manager.ssb.enums.ActivePanel;
 import com.manager.ssb.MainActivity;
 import com.manager.ssb.model.FileItem;
 import com.manager.ssb.util.FileUtils;
 import com.manager.ssb.util.NativeFileOperation;
-import com.manager.ssb.util.StepFileCopier;
 import java.io.File;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.io.IOException;
 
 public class CopyDialog {
 
@@ -29,6 +39,12 @@ public class CopyDialog {
     
     public static ConflictPolicy policy = new ConflictPolicy();
     
+    // 是否校验复制（记住上次的选择）及校验方式（NativeFileOperation.VERIFY_*）
+    private static final String KEY_VERIFY = "copy.verify.enabled";
+    private static final String KEY_VERIFY_MODE = "copy.verify.mode";
+    // 是否保留权限和所有者（记住上次的选择），不保留时只保留时间戳
+    private static final String KEY_PRESERVE_ALL = "copy.preserve.all";
+    
     public static void show(@NonNull Context context,
                            @NonNull FileItem fileItem,
                            @NonNull NotifyingExecutorService executorService,
@@ -40,15 +56,18 @@ public class CopyDialog {
                       activity.getRightDir().getAbsolutePath() : 
                       activity.getLeftDir().getAbsolutePath();
 
-        EditText input = new EditText(context);
-        input.setHint(R.string.enter_new_path);
+        View view = LayoutInflater.from(context).inflate(R.layout.dialog_copy_target, null);
+        EditText input = view.findViewById(R.id.targetPathInput);
+        CheckBox verifyCheck = view.findViewById(R.id.verifyCheck);
+        CheckBox preserveCheck = view.findViewById(R.id.preserveCheck);
         input.setText(target);
-        
+        verifyCheck.setChecked(Config.get(KEY_VERIFY, false));
+        preserveCheck.setChecked(Config.get(KEY_PRESERVE_ALL, true));
 
         new MaterialAlertDialogBuilder(context)
                 .setTitle(R.string.copy_file)
                 .setMessage(context.getString(R.string.enter_target_directory))
-                .setView(input)
+                .setView(view)
                 .setPositiveButton(R.string.copy, (dialog, which) -> {
                     String targetDir = input.getText().toString().trim();
                     if (targetDir.isEmpty()) {
@@ -77,132 +96,357 @@ public class CopyDialog {
                         }
                     }
                     
-                    CopyProgressDialog progressDialog = new CopyProgressDialog(context);
-                    progressDialog.show(srcFile.getAbsolutePath(), destFile.getAbsolutePath(), 
-                                      srcFile.getName());
-                    
-                    executorService.execute(() -> {
-                        try {
-                            copyWithConflictHandling(srcFile, destFile, progressDialog, policy, callback);
-                        } catch (Exception e) {
-                            Log.e("CopyDialog", "Copy failed", e);
-                            new Handler(Looper.getMainLooper()).post(() -> {
-                                progressDialog.dismiss();
-                                showError(context, context.getString(R.string.copy_failed) + 
-                                          ": " + e.getMessage());
-                            });
+                    Config.set(KEY_VERIFY, verifyCheck.isChecked());
+                    int verify = verifyCheck.isChecked()
+                            ? Config.get(KEY_VERIFY_MODE, NativeFileOperation.VERIFY_DEVICE)
+                            : NativeFileOperation.VERIFY_NONE;
+                    Config.set(KEY_PRESERVE_ALL, preserveCheck.isChecked());
+                    startCopy(context, srcFile, null, destFile, null, verify, lastPreserve(), executorService,
+                            callback);
+                })
+                .setNegativeButton(R.string.cancel, null)
+                .show();
+    }
+    
+    /**
+     * 复制多选的各项到同一目标目录：作为一个任务统计、复制，进度和结果是一个整体
+     * @param items 已用 FileUtils.removeNested 去重的各项
+     */
+    public static void showSelection(@NonNull Context context,
+                                     @NonNull File[] items,
+                                     @NonNull NotifyingExecutorService executorService,
+                                     @NonNull ActivePanel activePanel,
+                                     @NonNull OnCopyCallback callback) {
+        MainActivity activity = (MainActivity) context;
+        String target = activePanel == ActivePanel.LEFT ? 
+                      activity.getRightDir().getAbsolutePath() : 
+                      activity.getLeftDir().getAbsolutePath();
+
+        View view = LayoutInflater.from(context).inflate(R.layout.dialog_copy_target, null);
+        EditText input = view.findViewById(R.id.targetPathInput);
+        CheckBox verifyCheck = view.findViewById(R.id.verifyCheck);
+        CheckBox preserveCheck = view.findViewById(R.id.preserveCheck);
+        input.setText(target);
+        verifyCheck.setChecked(Config.get(KEY_VERIFY, false));
+        preserveCheck.setChecked(Config.get(KEY_PRESERVE_ALL, true));
+
+        new MaterialAlertDialogBuilder(context)
+                .setTitle(context.getString(R.string.selection_items, items.length))
+                .setMessage(context.getString(R.string.enter_target_directory))
+                .setView(view)
+                .setPositiveButton(R.string.copy, (dialog, which) -> {
+                    String targetDir = input.getText().toString().trim();
+                    if (targetDir.isEmpty()) {
+                        showError(context, context.getString(R.string.invalid_path));
+                        return;
+                    }
+
+                    File destDir = new File(targetDir);
+                    // 目标目录不能是任一选中目录本身或其子目录
+                    for (File item : items) {
+                        if (item.isDirectory() && FileUtils.isSameOrInside(new File(destDir, item.getName()), item)) {
+                            Toast.makeText(context, R.string.copy_into_self_error, Toast.LENGTH_LONG).show();
+                            return;
                         }
-                    }, TaskTypes.COPY_FILE);
+                    }
+                    
+                    Config.set(KEY_VERIFY, verifyCheck.isChecked());
+                    int verify = verifyCheck.isChecked()
+                            ? Config.get(KEY_VERIFY_MODE, NativeFileOperation.VERIFY_DEVICE)
+                            : NativeFileOperation.VERIFY_NONE;
+                    Config.set(KEY_PRESERVE_ALL, preserveCheck.isChecked());
+                    startCopy(context, items[0].getAbsoluteFile().getParentFile(), items, destDir, null, verify,
+                            lastPreserve(), executorService, callback);
                 })
                 .setNegativeButton(R.string.cancel, null)
                 .show();
     }
     
-    private static void copyWithConflictHandling(File srcFile, File destFile,
-                                             CopyProgressDialog progressDialog,
-                                             ConflictPolicy policy,
-                                             OnCopyCallback callback) {
-        final Handler mainHandler = new Handler(Looper.getMainLooper());
-        final AtomicBoolean canceled = new AtomicBoolean(false);
+    /**
+     * 续传上次被中断或取消的复制任务（见 CopyJournal.loadPending），续传部分不校验，属性按上次的选择保留
+     */
+    public static void resume(@NonNull Context context,
+                              @NonNull CopyJournal journal,
+                              @NonNull NotifyingExecutorService executorService,
+                              @NonNull OnCopyCallback callback) {
+        startCopy(context, journal.getSource(), journal.getItems(), journal.getDestination(), journal,
+                NativeFileOperation.VERIFY_NONE, lastPreserve(), executorService, callback);
+    }
+    
+    /**
+     * 重新开始上次排队但没有日志（尚未开始）的复制（见 OperationQueue.loadPending），不校验
+     */
+    public static void restart(@NonNull Context context,
+                               @NonNull File srcFile,
+                               @NonNull File destFile,
+                               @NonNull NotifyingExecutorService executorService,
+                               @NonNull OnCopyCallback callback) {
+        startCopy(context, srcFile, null, destFile, null, NativeFileOperation.VERIFY_NONE, lastPreserve(),
+                executorService, callback);
+    }
+    
+    /**
+     * 同上，用于多选的复制，destDir 为目标目录
+     */
+    public static void restart(@NonNull Context context,
+                               @NonNull File[] items,
+                               @NonNull File destDir,
+                               @NonNull NotifyingExecutorService executorService,
+                               @NonNull OnCopyCallback callback) {
+        startCopy(context, items[0].getAbsoluteFile().getParentFile(), items, destDir, null,
+                NativeFileOperation.VERIFY_NONE, lastPreserve(), executorService, callback);
+    }
+    
+    // 上次在复制对话框中选择的属性保留方式（NativeFileOperation.PRESERVE_*）
+    private static int lastPreserve() {
+        return Config.get(KEY_PRESERVE_ALL, true) ? NativeFileOperation.PRESERVE_ALL
+                                                  : NativeFileOperation.PRESERVE_TIMES;
+    }
+    
+    /**
+     * 放弃续传：删除日志，目标原本不存在时一并删除已复制的部分
+     */
+    public static void discard(@NonNull CopyJournal journal, @NonNull NotifyingExecutorService executorService) {
+        executorService.execute(() -> {
+            deleteCreated(journal.getDestination(), journal.destinationExisted(), journal.getItems(),
+                    journal.getItemsExisted());
+            journal.delete();
+        });
+    }
+    
+    // 删除复制新建的目标；多选时目标目录原本存在则只删除原本不存在的各项
+    private static void deleteCreated(File destFile, boolean destExisted, File[] items, boolean[] itemsExisted) {
+        if (!destExisted) {
+            FileUtils.deleteRecursive(destFile);
+        } else if (items != null) {
+            for (int i = 0; i < items.length; i++) {
+                if (!itemsExisted[i]) FileUtils.deleteRecursive(new File(destFile, items[i].getName()));
+            }
+        }
+    }
+    
+    // 先在后台找出全部冲突，有冲突时一次性让用户选择处理方式，再开始复制
+    // items 不为 null 时为多选复制，destFile 是目标目录，srcFile 仅用于显示
+    private static void startCopy(Context context, File srcFile, File[] items, File destFile, CopyJournal journal,
+                                  int verify, int preserve, NotifyingExecutorService executorService,
+                                  OnCopyCallback callback) {
+        executorService.execute(() -> {
+            CopyConflicts conflicts = items != null ? CopyConflicts.findAll(items, destFile, journal)
+                                                    : CopyConflicts.find(srcFile, destFile, journal);
+            new Handler(Looper.getMainLooper()).post(() -> {
+                if (conflicts.isEmpty()) {
+                    runCopy(context, srcFile, items, destFile, journal, conflicts, verify, preserve,
+                            executorService, callback);
+                } else {
+                    BatchConflictDialog.show(context, conflicts, R.string.copy, resolved -> runCopy(context, srcFile,
+                            items, destFile, journal, resolved, verify, preserve, executorService, callback));
+                }
+            });
+        }, TaskTypes.COPY_FILE);
+    }
+    
+    private static void runCopy(Context context, File srcFile, File[] items, File destFile, CopyJournal journal,
+                                CopyConflicts conflicts, int verify, int preserve,
+                                NotifyingExecutorService executorService,
+                                OnCopyCallback callback) {
+        CopyProgressDialog progressDialog = new CopyProgressDialog(context);
+        CopyOperation operation = new CopyOperation(srcFile, items, destFile, progressDialog, journal, conflicts,
+                verify, preserve);
+        
+        // 复制线程只更新共享计数器，对话框在主线程定时读取，并顺带刷新任务通知
+        final OperationQueue queue = OperationQueue.get();
+        final OperationQueue.Job[] job = new OperationQueue.Job[1];
+        progressDialog.setOnCancelListener(() -> queue.cancel(job[0]));
+        progressDialog.setOnPauseListener(paused -> {
+            if (paused) {
+                queue.pause(job[0]);
+            } else {
+                queue.resume(job[0]);
+            }
+        });
+        progressDialog.show(srcFile.getAbsolutePath(), destFile.getAbsolutePath(), 
+                          items != null ? context.getString(R.string.selection_items, items.length)
+                                        : srcFile.getName());
+        progressDialog.startSampling(() -> {
+            CopyEngine engine = operation.engine;
+            if (engine == null || job[0].getStatus() != TaskStatus.RUNNING) return null;
+            CopyProgress progress = engine.sample();
+            executorService.reportProgress(operation.taskId, progress.getPercent(),
+                    CopyProgressDialog.formatSpeedAndEta(context, progress));
+            return progress;
+        });
         
-        progressDialog.setOnCancelListener(() -> canceled.set(true));
+        OperationQueue.Listener listener = new OperationQueue.Listener() {
+            @Override
+            public void onStateChanged(OperationQueue.Job job) {
+                progressDialog.showQueueState(job.getStatus());
+            }
+            
+            @Override
+            public void onFinished(OperationQueue.Job job, int status) {
+                operation.finish(status, callback);
+            }
+        };
+        job[0] = items != null
+                ? queue.enqueueAll(TaskTypes.COPY_FILE, items, destFile, operation, listener)
+                : queue.enqueue(TaskTypes.COPY_FILE, srcFile, destFile, operation, listener);
+    }
+    
+    /**
+     * 队列中的一次复制（或续传）
+     * 暂停时按取消处理，保留已复制的部分和日志；继续时借助日志从中断处开始
+     */
+    private static final class CopyOperation implements OperationQueue.Operation {
+        final File srcFile, destFile;
+        // 多选复制的各项，单项复制时为 null
+        final File[] items;
+        final CopyProgressDialog progressDialog;
+        final CopyConflicts conflicts;
+        final int verify;
+        final int preserve;
+        CopyJournal journal;
+        CopyReport report;
+        // 失败时只清理本次新建的目标，不删除原本就存在的目录；续传时以首次复制前的状态为准
+        boolean destExisted;
+        boolean[] itemsExisted;
+        boolean started = false;
+        volatile boolean cancelled = false;
+        volatile CopyEngine engine;
+        volatile String taskId;
         
-        // 为后台线程保存进度对话框上下文
-        CopyProgressDialog.setLastContext(progressDialog.getContext());
+        CopyOperation(File srcFile, File[] items, File destFile, CopyProgressDialog progressDialog,
+                      CopyJournal journal, CopyConflicts conflicts, int verify, int preserve) {
+            this.srcFile = srcFile;
+            this.items = items;
+            this.destFile = destFile;
+            this.progressDialog = progressDialog;
+            this.journal = journal;
+            this.conflicts = conflicts;
+            this.verify = verify;
+            this.preserve = preserve;
+        }
         
-        new Thread(() -> {
-            int finalResult = NativeFileOperation.STATUS_SUCCESS;
-            final int[] resultHolder = new int[]{NativeFileOperation.STATUS_SUCCESS};
-            final File[] destHolder = new File[]{destFile};
+        @Override
+        public int run() {
+            // 为后台线程保存进度对话框上下文
+            CopyProgressDialog.setLastContext(progressDialog.getContext());
+            final Context context = progressDialog.getContext();
+            taskId = NotifyingExecutorService.currentTaskId();
             
-            // 创建进度回调适配器
-            NativeFileOperation.ProgressCallback progressCallback = 
-                (currentFile, copied, total, status) -> 
-                    mainHandler.post(() -> 
-                        progressDialog.updateProgress(currentFile, copied, total, status)
-                    );
+            if (!started) {
+                started = true;
+                if (journal == null) {
+                    destExisted = destFile.exists();
+                    if (items == null) {
+                        journal = CopyJournal.create(context, srcFile, destFile, destExisted);
+                    } else {
+                        itemsExisted = new boolean[items.length];
+                        for (int i = 0; i < items.length; i++) {
+                            itemsExisted[i] = new File(destFile, items[i].getName()).exists();
+                        }
+                        journal = CopyJournal.createBatch(context, items, destFile, destExisted, itemsExisted);
+                    }
+                } else {
+                    destExisted = journal.destinationExisted();
+                    itemsExisted = journal.getItemsExisted();
+                }
+                if (verify != NativeFileOperation.VERIFY_NONE) report = CopyReport.create(context, destFile);
+            }
+            if (journal != null) {
+                try {
+                    journal.open();
+                } catch (IOException e) {
+                    Log.w("CopyDialog", "Failed to reopen copy journal", e);
+                }
+            }
+            
+            CopyEngine engine = new CopyEngine(CopyEngine.concurrencyFor(destFile), policy,
+                    (currentFile, copied, total, status) -> progressDialog.updateStatus(currentFile, status));
+            engine.setJournal(journal);
+            engine.setConflicts(conflicts);
+            engine.setVerify(verify, report);
+            engine.setPreserve(preserve);
+            this.engine = engine;
+            if (cancelled) engine.cancel();
             
+            int result;
             try {
-                if (srcFile.isFile()) {
-                    finalResult = StepFileCopier.copyFileWithRetry(
-                        srcFile.getAbsolutePath(),
-                        destFile.getAbsolutePath(),
-                        policy,
-                        progressCallback
-                    );
-                } else if (srcFile.isDirectory()) {
-                    finalResult = copyDirectoryWithConflict(
-                        srcFile, 
-                        destFile, 
-                        policy,
-                        progressCallback
-                    );
-                }
+                result = items != null ? engine.copyAll(items, destFile) : engine.copy(srcFile, destFile);
             } catch (Exception e) {
-                finalResult = NativeFileOperation.STATUS_ERROR;
+                result = NativeFileOperation.STATUS_ERROR;
                 Log.e("CopyDialog", "Error during copy", e);
             }
+            cancelled = false;
             
-            // 最终结果处理
-            mainHandler.post(() -> {
-                progressDialog.dismiss();
-                
-                if (resultHolder[0] == NativeFileOperation.STATUS_SUCCESS) {
-                    showToast(progressDialog.getContext(), 
-                             progressDialog.getContext().getString(R.string.copy_success));
-                    callback.onCopySuccess(destHolder[0]);
-                } else if (resultHolder[0] == NativeFileOperation.STATUS_SKIPPED) {
-                    // 部分文件被跳过
-                    showToast(progressDialog.getContext(), 
-                             progressDialog.getContext().getString(R.string.copy_partially_completed));
-                    callback.onCopySuccess(destHolder[0]);
-                } else {
-                    // 失败时清理目标文件
-                    FileUtils.deleteRecursive(destHolder[0]);
-                    showError(progressDialog.getContext(), 
-                             progressDialog.getContext().getString(R.string.copy_failed));
-                }
-            });
-        }).start();
-    }
-    
-    private static int copyDirectoryWithConflict(File srcDir, File destDir,
-                                             ConflictPolicy policy,
-                                             NativeFileOperation.ProgressCallback callback) {
-        // 创建目标目录（如果不存在）
-        if (!destDir.exists()) {
-            if (!destDir.mkdirs()) {
-                callback.onProgress(srcDir.getName(), 0, 0, NativeFileOperation.STATUS_ERROR);
-                return NativeFileOperation.STATUS_ERROR;
-            }
+            // 取消或暂停时保留已复制的部分和日志
+            if (result == NativeFileOperation.STATUS_CANCELLED && journal != null) journal.close();
+            return result;
         }
         
-        File[] children = srcDir.listFiles();
-        if (children == null) return NativeFileOperation.STATUS_SUCCESS;
+        @Override
+        public void cancel() {
+            cancelled = true;
+            CopyEngine engine = this.engine;
+            if (engine != null) engine.cancel();
+        }
+        
+        @Override
+        public long getBytesDone() {
+            CopyEngine engine = this.engine;
+            return engine != null ? engine.getBytesDone() : 0;
+        }
         
-        for (File child : children) {
-            File childDest = new File(destDir, child.getName());
+        // 复制结束（含开始前被取消）后的清理和结果提示，在后台线程调用
+        // 失败后在队列中重试时重新开始复制
+        void finish(int result, OnCopyCallback callback) {
+            final CopyReport report = this.report;
             
-            if (child.isDirectory()) {
-                int childResult = copyDirectoryWithConflict(child, childDest, policy, callback);
-                if (childResult == NativeFileOperation.STATUS_ERROR) {
-                    return NativeFileOperation.STATUS_ERROR;
+            // 只保留完整复制的校验报告
+            if (report != null) {
+                report.close();
+                if (result != NativeFileOperation.STATUS_SUCCESS && result != NativeFileOperation.STATUS_SKIPPED) {
+                    report.getFile().delete();
                 }
-            } else {
-                int result = StepFileCopier.copyFileWithRetry(
-                    child.getAbsolutePath(),
-                    childDest.getAbsolutePath(),
-                    policy,
-                    callback
-                );
-                
-                if (result == NativeFileOperation.STATUS_ERROR) {
-                    return result;
+            }
+            
+            // 取消时保留已复制的部分和日志，可在下次启动时续传；
+            // 失败时清理本次新建的目标（在后台线程中删除，目录可能很大）
+            final boolean resumable = result == NativeFileOperation.STATUS_CANCELLED && journal != null;
+            if (started && !resumable) {
+                if (journal != null) journal.delete();
+                if (result != NativeFileOperation.STATUS_SUCCESS && result != NativeFileOperation.STATUS_SKIPPED) {
+                    deleteCreated(destFile, destExisted, items, itemsExisted);
                 }
+                journal = null;
+                this.report = null;
+                started = false;
             }
+            
+            // 最终结果处理
+            final Context context = progressDialog.getContext();
+            new Handler(Looper.getMainLooper()).post(() -> {
+                progressDialog.dismiss();
+                
+                if (result == NativeFileOperation.STATUS_SUCCESS) {
+                    showToast(context, report != null
+                             ? context.getString(R.string.copy_verified, report.getFile().getPath())
+                             : items != null ? context.getString(R.string.copy_batch_success, items.length)
+                             : context.getString(R.string.copy_success));
+                    callback.onCopySuccess(destFile);
+                } else if (result == NativeFileOperation.STATUS_SKIPPED) {
+                    // 部分文件被跳过
+                    showToast(context, context.getString(R.string.copy_partially_completed));
+                    callback.onCopySuccess(destFile);
+                } else if (result == NativeFileOperation.STATUS_CANCELLED) {
+                    showToast(context, context.getString(
+                             resumable ? R.string.copy_cancelled_resumable : R.string.copy_cancelled));
+                } else if (result == NativeFileOperation.STATUS_VERIFY_FAILED) {
+                    showError(context, context.getString(R.string.copy_verify_failed));
+                } else {
+                    showError(context, context.getString(R.string.copy_failed));
+                }
+            });
         }
-        
-        return NativeFileOperation.STATUS_SUCCESS;
     }
     
     private static void showToast(Context context, String message) {
@@ -11,6 +11,8 @@ import android.widget.TextView;
 import androidx.appcompat.app.AlertDialog;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.manager.ssb.R;
+import com.manager.ssb.core.copy.CopyProgress;
+import com.manager.ssb.core.task.TaskStatus;
 import com.manager.ssb.util.FileUtils;
 import com.manager.ssb.util.NativeFileOperation;
 import java.io.File;
@@ -18,6 +20,9 @@ import java.util.Locale;
 
 public class CopyProgressDialog {
     
+    // 进度刷新间隔
+    private static final long SAMPLE_INTERVAL_MS = 250;
+    
     private static Context sLastContext;
 
     private final Context context;
@@ -25,11 +30,21 @@ public class CopyProgressDialog {
     private ProgressBar progressBar;
     private TextView sourceText, targetText, fileText, progressText, etaText;
     private OnCancelListener cancelListener;
+    private OnPauseListener pauseListener;
+    private boolean paused = false;
+    private int titleRes = R.string.copy_progress_title;
     
-    private long startTime;
-    private long lastCopied;
-    private long lastTotal;
-    private String currentFileName;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private ProgressSource progressSource;
+    private final Runnable sampler = new Runnable() {
+        @Override
+        public void run() {
+            if (progressSource == null || dialog == null || !dialog.isShowing()) return;
+            CopyProgress progress = progressSource.sample();
+            if (progress != null) showProgress(progress);
+            mainHandler.postDelayed(this, SAMPLE_INTERVAL_MS);
+        }
+    };
 
     public CopyProgressDialog(Context context) {
         this.context = context;
@@ -51,6 +66,26 @@ public class CopyProgressDialog {
     public interface OnCancelListener {
         void onCancel();
     }
+    
+    // 暂停/继续按钮，paused 为点击后的状态
+    public interface OnPauseListener {
+        void onPauseChanged(boolean paused);
+    }
+    
+    // 设置后显示暂停按钮，在 show() 之前调用
+    public void setOnPauseListener(OnPauseListener listener) {
+        this.pauseListener = listener;
+    }
+    
+    // 进度来源，在主线程调用，应只读取共享计数器；尚无进度时返回 null
+    public interface ProgressSource {
+        CopyProgress sample();
+    }
+
+    // 对话框标题，默认为复制，在 show() 之前调用
+    public void setTitle(int titleRes) {
+        this.titleRes = titleRes;
+    }
 
     public void show(String sourcePath, String targetPath, String fileName) {
         View view = LayoutInflater.from(context).inflate(R.layout.dialog_copy_progress, null);
@@ -73,27 +108,78 @@ public class CopyProgressDialog {
         progressBar.setProgress(0);
         progressBar.setIndeterminate(false);
         progressText.setText(context.getString(R.string.copy_progress_message) + ": 0%");
-        etaText.setText(context.getString(R.string.eta) + ": 计算中...");
+        etaText.setText(context.getString(R.string.eta) + ": " + context.getString(R.string.eta_calculating));
 
-        dialog = new MaterialAlertDialogBuilder(context)
-                .setTitle(R.string.copy_progress_title)
+        MaterialAlertDialogBuilder builder = new MaterialAlertDialogBuilder(context)
+                .setTitle(titleRes)
                 .setCancelable(false)
                 .setView(view)
-                .show();
-
-        startTime = System.currentTimeMillis();
-        lastCopied = 0;
-        lastTotal = 0;
-        currentFileName = fileName;
+                .setNegativeButton(R.string.cancel, null);
+        if (pauseListener != null) builder.setNeutralButton(R.string.pause, null);
+        dialog = builder.show();
+        
+        // 暂停同样不关闭对话框，状态变化由调用方通过 showQueueState() 显示
+        if (pauseListener != null) {
+            Button pauseButton = dialog.getButton(AlertDialog.BUTTON_NEUTRAL);
+            pauseButton.setOnClickListener(v -> {
+                pauseButton.setEnabled(false);
+                pauseListener.onPauseChanged(!paused);
+            });
+        }
+        
+        // 点击取消后不立即关闭对话框，等复制线程中止并清理完成后由调用方关闭
+        Button cancelButton = dialog.getButton(AlertDialog.BUTTON_NEGATIVE);
+        cancelButton.setOnClickListener(v -> {
+            cancelButton.setEnabled(false);
+            progressSource = null;
+            mainHandler.removeCallbacks(sampler);
+            progressText.setText(context.getString(R.string.copy_cancelling));
+            etaText.setText("");
+            if (cancelListener != null) cancelListener.onCancel();
+        });
     }
     
     public Context getContext() {
         return context;
     }
     
-    public void updateProgress(String currentFile, long bytesCopied, long totalBytes, int status) {
-        // 确保在主线程执行UI更新
-        new Handler(Looper.getMainLooper()).post(() -> {
+    /**
+     * 在主线程按固定间隔读取进度并刷新，直到 dismiss()（可在任意线程调用）
+     * 复制线程只更新计数器，不向主线程发送消息，刷新频率与复制速度无关
+     */
+    public void startSampling(ProgressSource source) {
+        mainHandler.post(() -> {
+            progressSource = source;
+            mainHandler.removeCallbacks(sampler);
+            sampler.run();
+        });
+    }
+    
+    /**
+     * 在队列中的状态（见 OperationQueue）：排队、暂停时显示说明，开始后恢复显示进度（可在任意线程调用）
+     */
+    public void showQueueState(TaskStatus status) {
+        mainHandler.post(() -> {
+            if (dialog == null || !dialog.isShowing()) return;
+            paused = status == TaskStatus.PAUSED;
+            Button pauseButton = dialog.getButton(AlertDialog.BUTTON_NEUTRAL);
+            if (pauseButton != null) {
+                pauseButton.setText(paused ? R.string.resume : R.string.pause);
+                pauseButton.setEnabled(true);
+            }
+            if (status == TaskStatus.CREATED) {
+                progressText.setText(context.getString(R.string.queue_waiting));
+                etaText.setText("");
+            } else if (paused) {
+                progressText.setText(context.getString(R.string.queue_paused));
+                etaText.setText("");
+            }
+        });
+    }
+    
+    // 单个文件的冲突、重试状态（可在任意线程调用）
+    public void updateStatus(String currentFile, int status) {
+        mainHandler.post(() -> {
             switch (status) {
                 case NativeFileOperation.STATUS_CONFLICT:
                     showConflictState();
@@ -102,10 +188,6 @@ public class CopyProgressDialog {
                 case NativeFileOperation.STATUS_RETRYING:
                     showRetryState();
                     break;
-                    
-                default:
-                    showNormalProgress(currentFile, bytesCopied, totalBytes);
-                    break;
             }
         });
     }
@@ -122,46 +204,41 @@ public class CopyProgressDialog {
         etaText.setText(""); // 清除ETA
     }
     
-    private void showNormalProgress(String currentFile, long bytesCopied, long totalBytes) {
+    private void showProgress(CopyProgress progress) {
         progressBar.setIndeterminate(false);
+        progressBar.setProgress(progress.getPercent());
         
-        // 记录当前值用于ETA计算
-        lastCopied = bytesCopied;
-        lastTotal = totalBytes;
-        
-        // 更新当前文件进度
-        int fileProgress = totalBytes > 0 ? (int) (bytesCopied * 100 / totalBytes) : 0;
-        
-        // 更新UI
-        progressBar.setProgress(fileProgress);
-        
-        String progressStr = String.format(Locale.US, "%s: %d%% (%s/%s)",
-            FileUtils.getShortName(currentFile),
-            fileProgress,
-            FileUtils.formatFileSize(bytesCopied),
-            FileUtils.formatFileSize(totalBytes));
+        // 当前文件、整体百分比、字节数和文件数；统计未完成时总量后标注“统计中”
+        String progressStr = String.format(Locale.US, "%s: %d%% (%s/%s) %s",
+            FileUtils.getShortName(progress.getCurrentFile()),
+            progress.getPercent(),
+            FileUtils.formatFileSize(progress.getBytesDone()),
+            FileUtils.formatFileSize(progress.getBytesTotal()),
+            context.getString(R.string.copy_files_progress, progress.getFilesDone(), progress.getFilesTotal()));
+        if (!progress.isTotalExact()) {
+            progressStr += " " + context.getString(R.string.copy_counting);
+        }
         progressText.setText(progressStr);
         
-        // 计算ETA（基于当前文件）
-        if (etaText != null && bytesCopied > 0) {
-            long elapsed = System.currentTimeMillis() - startTime;
-            if (elapsed > 0) {
-                // 计算平均速度（字节/秒）
-                long speed = bytesCopied * 1000 / elapsed;
-                if (speed > 0) {
-                    long remainingBytes = totalBytes - bytesCopied;
-                    long remainingSeconds = remainingBytes / speed;
-                    
-                    String etaStr = String.format(Locale.US, "%s: %s",
-                        context.getString(R.string.eta),
-                        FileUtils.formatTime(remainingSeconds));
-                    etaText.setText(etaStr);
-                }
-            }
-        }
+        etaText.setText(formatSpeedAndEta(context, progress));
+    }
+    
+    /**
+     * 吞吐量和剩余时间，例如 "12.5 MB/s  ETA: 1M05S"
+     * 对话框和通知共用
+     */
+    public static String formatSpeedAndEta(Context context, CopyProgress progress) {
+        long eta = progress.getEtaSeconds();
+        String etaStr = context.getString(R.string.eta) + ": " +
+            (eta >= 0 ? FileUtils.formatTime(eta) : context.getString(R.string.eta_calculating));
+        if (progress.getBytesPerSecond() <= 0) return etaStr;
+        return context.getString(R.string.copy_speed, FileUtils.formatFileSize(progress.getBytesPerSecond()))
+            + "  " + etaStr;
     }
 
     public void dismiss() {
+        mainHandler.removeCallbacks(sampler);
+        progressSource = null;
         if (dialog != null && dialog.isShowing()) {
             dialog.dismiss();
         }
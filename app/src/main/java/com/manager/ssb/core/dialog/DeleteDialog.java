@@ -23,9 +23,12 @@ import android.widget.Toast;
 import androidx.appcompat.app.AlertDialog;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.manager.ssb.R;
+import com.manager.ssb.core.copy.DeleteEngine;
 import com.manager.ssb.core.task.NotifyingExecutorService;
+import com.manager.ssb.core.task.OperationQueue;
 import com.manager.ssb.model.FileItem;
 import com.manager.ssb.core.task.TaskTypes;
+import com.manager.ssb.util.NativeFileOperation;
 import java.io.File;
 
 public class DeleteDialog {
@@ -41,37 +44,91 @@ public class DeleteDialog {
         new MaterialAlertDialogBuilder(context)
             .setTitle(R.string.confirm_delete)
             .setMessage(context.getString(R.string.delete_confirmation, fileItem.getName()))
-            .setPositiveButton(R.string.delete, (dialog, which) -> {
-                SimpleProcessingDialog progressDialog = new SimpleProcessingDialog(context);
-                progressDialog.show();
-
-                executorService.execute(() -> {
-                    boolean success = deleteRecursive(fileItem.getFile());
+            .setPositiveButton(R.string.delete, (dialog, which) ->
+                start(context, fileItem.getFile(), callback))
+            .setNegativeButton(R.string.cancel, null)
+            .show();
+    }
 
-                    ((android.app.Activity) context).runOnUiThread(() -> {
-                        progressDialog.dismiss();
-                        if (success) {
-                            callback.onDeleteSuccess(fileItem.getFile());
-                            Toast.makeText(context, R.string.delete_success, Toast.LENGTH_SHORT).show();
-                        } else {
-                            Toast.makeText(context, R.string.delete_failed, Toast.LENGTH_SHORT).show();
-                        }
-                    });
-                }, TaskTypes.DELETE_FILE);
-            })
+    /**
+     * 删除多选的各项，确认后作为一个任务删除
+     * @param items 已用 FileUtils.removeNested 去重的各项
+     */
+    public static void showSelection(Context context, File[] items, OnDeleteCallback callback) {
+        new MaterialAlertDialogBuilder(context)
+            .setTitle(R.string.confirm_delete)
+            .setMessage(context.getString(R.string.delete_batch_confirmation, items.length))
+            .setPositiveButton(R.string.delete, (dialog, which) -> start(context, items, callback))
             .setNegativeButton(R.string.cancel, null)
             .show();
     }
 
-    private static boolean deleteRecursive(File file) {
-        if (file.isDirectory()) {
-            File[] files = file.listFiles();
-            if (files != null) {
-                for (File child : files) {
-                    if (!deleteRecursive(child)) return false;
+    /**
+     * 在操作队列中删除（不再确认），也用于恢复上次未完成的删除（见 OperationQueue.loadPending）
+     */
+    public static void start(Context context, File file, OnDeleteCallback callback) {
+        start(context, file, null, callback);
+    }
+
+    /**
+     * 同上，删除多选的各项，统计和进度是一个整体
+     */
+    public static void start(Context context, File[] items, OnDeleteCallback callback) {
+        start(context, items[0], items, callback);
+    }
+
+    private static void start(Context context, File file, File[] items, OnDeleteCallback callback) {
+        DeleteEngine engine = new DeleteEngine();
+        DeleteProgressDialog progressDialog = new DeleteProgressDialog(context);
+        final OperationQueue queue = OperationQueue.get();
+        final OperationQueue.Job[] job = new OperationQueue.Job[1];
+        progressDialog.show(engine, () -> queue.cancel(job[0]));
+
+        // 删除中途不能暂停：native 删除的计数和统计不能在下次执行时接续
+        OperationQueue.Operation operation = new OperationQueue.Operation() {
+            @Override
+            public int run() {
+                return items != null ? engine.deleteAll(items) : engine.delete(file);
+            }
+
+            @Override
+            public void cancel() {
+                engine.cancel();
+            }
+
+            @Override
+            public long getBytesDone() {
+                return 0;
+            }
+
+            @Override
+            public boolean canPause() {
+                return false;
+            }
+        };
+        OperationQueue.Listener listener = (queuedJob, result) ->
+                ((android.app.Activity) context).runOnUiThread(() -> {
+            progressDialog.dismiss();
+            if (result == NativeFileOperation.STATUS_SUCCESS) {
+                callback.onDeleteSuccess(file);
+                if (items != null) {
+                    Toast.makeText(context, context.getString(R.string.delete_batch_success, items.length),
+                            Toast.LENGTH_SHORT).show();
+                } else {
+                    Toast.makeText(context, R.string.delete_success, Toast.LENGTH_SHORT).show();
                 }
+            } else if (result == NativeFileOperation.STATUS_CANCELLED) {
+                // 部分内容已删除，同样刷新列表
+                callback.onDeleteSuccess(file);
+                Toast.makeText(context, R.string.delete_cancelled, Toast.LENGTH_LONG).show();
+            } else {
+                // 多选时其余各项可能已删除
+                if (items != null) callback.onDeleteSuccess(file);
+                Toast.makeText(context, R.string.delete_failed, Toast.LENGTH_SHORT).show();
             }
-        }
-        return file.delete();
+        });
+        job[0] = items != null
+                ? queue.enqueueAll(TaskTypes.DELETE_FILE, items, null, operation, listener)
+                : queue.enqueue(TaskTypes.DELETE_FILE, file, null, operation, listener);
     }
-}
\ No newline at end of file
+}
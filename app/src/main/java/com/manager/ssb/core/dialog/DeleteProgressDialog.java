@@ -0,0 +1,120 @@
+/*
+ * System Shell Box
+ * Copyright (C) 2025 kgultrt
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+// DeleteProgressDialog.java
+package com.manager.ssb.dialog;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.widget.Button;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AlertDialog;
+import com.google.android.material.dialog.MaterialAlertDialogBuilder;
+import com.manager.ssb.R;
+import com.manager.ssb.core.copy.DeleteEngine;
+
+/**
+ * 删除进度：按固定间隔读取 DeleteEngine 的计数，显示已删除/总条目数，可取消
+ */
+public class DeleteProgressDialog extends BaseProgressDialog {
+
+    // 进度刷新间隔
+    private static final long SAMPLE_INTERVAL_MS = 250;
+
+    // createDialog() 在父类构造函数中调用，这些字段不能有初始值
+    private ProgressBar progressBar;
+    private TextView messageText;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private DeleteEngine engine;
+    private final Runnable sampler = new Runnable() {
+        @Override
+        public void run() {
+            if (engine == null || !isShowing()) return;
+            showProgress(engine);
+            mainHandler.postDelayed(this, SAMPLE_INTERVAL_MS);
+        }
+    };
+
+    public DeleteProgressDialog(@NonNull Context context) {
+        super(context);
+    }
+
+    @Override
+    protected void createDialog() {
+        View view = LayoutInflater.from(context).inflate(R.layout.dialog_progress, null);
+        TextView titleText = view.findViewById(R.id.tvTitle);
+        progressBar = view.findViewById(R.id.progressBar);
+        messageText = view.findViewById(R.id.tvMessage);
+        titleText.setText(R.string.deleting);
+        messageText.setVisibility(View.VISIBLE);
+
+        dialog = new MaterialAlertDialogBuilder(context)
+                .setView(view)
+                .setCancelable(false)
+                .setNegativeButton(R.string.cancel, null)
+                .create();
+    }
+
+    /**
+     * 显示对话框并开始刷新进度，点击取消时调用 engine.cancel()
+     * 对话框由调用方在删除结束后关闭
+     */
+    public void show(DeleteEngine engine) {
+        show(engine, engine::cancel);
+    }
+
+    /**
+     * 同上，点击取消时调用 onCancel（例如取消队列中尚未开始的删除）
+     */
+    public void show(DeleteEngine engine, Runnable onCancel) {
+        this.engine = engine;
+        show();
+
+        Button cancelButton = ((AlertDialog) dialog).getButton(AlertDialog.BUTTON_NEGATIVE);
+        cancelButton.setOnClickListener(v -> {
+            cancelButton.setEnabled(false);
+            messageText.setText(R.string.copy_cancelling);
+            mainHandler.removeCallbacks(sampler);
+            onCancel.run();
+        });
+        sampler.run();
+    }
+
+    private void showProgress(DeleteEngine engine) {
+        // 统计完成前总数还在增长，进度条保持不确定状态
+        boolean exact = engine.isTotalExact();
+        progressBar.setIndeterminate(!exact);
+        if (exact) progressBar.setProgress(engine.getPercent());
+
+        String text = context.getString(R.string.delete_progress, engine.getDeleted(), engine.getTotal());
+        if (!exact) text += " " + context.getString(R.string.copy_counting);
+        messageText.setText(text);
+    }
+
+    @Override
+    public void dismiss() {
+        mainHandler.removeCallbacks(sampler);
+        engine = null;
+        super.dismiss();
+    }
+}
@@ -1,18 +1,30 @@
 package com.manager.ssb.dialog;
 
+import android.app.Activity;
 import android.content.Context;
+import android.util.Log;
 import android.widget.EditText;
 import android.widget.Toast;
 import androidx.annotation.NonNull;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.manager.ssb.R;
+import com.manager.ssb.core.copy.CopyConflicts;
+import com.manager.ssb.core.copy.CopyEngine;
+import com.manager.ssb.core.copy.CopyProgress;
+import com.manager.ssb.core.copy.MoveEngine;
 import com.manager.ssb.core.task.NotifyingExecutorService;
+import com.manager.ssb.core.task.OperationQueue;
+import com.manager.ssb.core.task.TaskStatus;
 import com.manager.ssb.model.FileItem;
 import com.manager.ssb.core.task.TaskTypes;
 import com.manager.ssb.enums.ActivePanel;
 import com.manager.ssb.MainActivity;
+import com.manager.ssb.util.FileUtils;
+import com.manager.ssb.util.NativeFileOperation;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 public class MoveDialog {
 
@@ -74,26 +86,291 @@ public class MoveDialog {
                         }
                     }
 
-                    SimpleProcessingDialog progressDialog = new SimpleProcessingDialog(context);
-                    progressDialog.show();
+                    startMove(context, srcFile, targetFile, executorService, callback);
+                })
+                .setNegativeButton(R.string.cancel, null)
+                .show();
+    }
 
-                    executorService.execute(() -> {
-                        boolean success = srcFile.renameTo(targetFile);
+    /**
+     * 移动多选的各项到同一目标目录：同一设备的各项整批 rename，
+     * 其余各项作为一个任务移动（见 MoveEngine.moveAll），进度和结果是一个整体
+     * @param items 已用 FileUtils.removeNested 去重的各项
+     */
+    public static void showSelection(@NonNull Context context,
+                                     @NonNull File[] items,
+                                     @NonNull NotifyingExecutorService executorService,
+                                     @NonNull ActivePanel activePanel,
+                                     @NonNull OnMoveCallback callback) {
+        MainActivity activity = (MainActivity) context;
+        String target = activePanel == ActivePanel.LEFT
+                ? activity.getRightDir().getAbsolutePath()
+                : activity.getLeftDir().getAbsolutePath();
 
-                        ((android.app.Activity) context).runOnUiThread(() -> {
-                            progressDialog.dismiss();
-                            if (success) {
-                                callback.onMoveSuccess(targetFile);
-                                Toast.makeText(context, R.string.move_success, Toast.LENGTH_SHORT).show();
-                            } else {
-                                Toast.makeText(context, R.string.move_failed, Toast.LENGTH_SHORT).show();
-                            }
-                        });
-                    }, TaskTypes.MOVE_FILE);
+        EditText input = new EditText(context);
+        input.setHint(context.getString(R.string.enter_new_path));
+        input.setText(target);
+
+        new MaterialAlertDialogBuilder(context)
+                .setTitle(context.getString(R.string.selection_items, items.length))
+                .setMessage(context.getString(R.string.enter_target_directory))
+                .setView(input)
+                .setPositiveButton(R.string.move, (dialog, which) -> {
+                    String targetDirPath = input.getText().toString().trim();
+                    if (targetDirPath.isEmpty()) {
+                        Toast.makeText(context, R.string.invalid_path, Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+
+                    File targetDir = new File(targetDirPath);
+                    // 目标目录不能是任一选中目录本身或其子目录
+                    for (File item : items) {
+                        if (item.isDirectory() && FileUtils.isSameOrInside(new File(targetDir, item.getName()), item)) {
+                            Toast.makeText(context, R.string.move_into_self_error, Toast.LENGTH_LONG).show();
+                            return;
+                        }
+                    }
+
+                    startMoveAll(context, items, targetDir, executorService, callback);
                 })
                 .setNegativeButton(R.string.cancel, null)
                 .show();
     }
 
+    /**
+     * 重新开始上次未完成的移动（见 OperationQueue.loadPending）
+     */
+    public static void restart(@NonNull Context context,
+                               @NonNull File srcFile,
+                               @NonNull File targetFile,
+                               @NonNull NotifyingExecutorService executorService,
+                               @NonNull OnMoveCallback callback) {
+        startMove(context, srcFile, targetFile, executorService, callback);
+    }
+
+    /**
+     * 同上，用于多选的移动，targetDir 为目标目录
+     */
+    public static void restart(@NonNull Context context,
+                               @NonNull File[] items,
+                               @NonNull File targetDir,
+                               @NonNull NotifyingExecutorService executorService,
+                               @NonNull OnMoveCallback callback) {
+        startMoveAll(context, items, targetDir, executorService, callback);
+    }
+
+    // 同一设备直接 rename（移动到所在目录时什么都不做）；目标已存在或跨设备时先统一处理冲突，
+    // 再由 MoveEngine 在同一设备上逐项 rename 合并，跨设备时复制后删除源文件
+    private static void startMove(Context context, File srcFile, File targetFile,
+                                  NotifyingExecutorService executorService, OnMoveCallback callback) {
+        SimpleProcessingDialog processingDialog = new SimpleProcessingDialog(context);
+        processingDialog.show();
+
+        executorService.execute(() -> {
+            int status = MoveEngine.renameSameDevice(new File[]{srcFile}, new File[]{targetFile})[0];
+            CopyConflicts conflicts = null;
+            if (status == NativeFileOperation.STATUS_CROSS_DEVICE || status == NativeFileOperation.STATUS_CONFLICT) {
+                conflicts = CopyConflicts.find(srcFile, targetFile, null);
+            }
+
+            final CopyConflicts finalConflicts = conflicts;
+            ((Activity) context).runOnUiThread(() -> {
+                processingDialog.dismiss();
+                if (finalConflicts == null) {
+                    showResult(context, status, null, targetFile, callback);
+                } else if (finalConflicts.isEmpty()) {
+                    enqueueMove(context, srcFile, null, targetFile, finalConflicts, false, executorService, callback);
+                } else {
+                    BatchConflictDialog.show(context, finalConflicts, R.string.move, resolved -> enqueueMove(context,
+                            srcFile, null, targetFile, resolved, false, executorService, callback));
+                }
+            });
+        }, TaskTypes.MOVE_FILE);
+    }
+
+    // 多选：一次 renameSameDevice 处理全部各项，剩下的各项（需要合并或跨设备）合并为一个移动任务
+    private static void startMoveAll(Context context, File[] items, File targetDir,
+                                     NotifyingExecutorService executorService, OnMoveCallback callback) {
+        SimpleProcessingDialog processingDialog = new SimpleProcessingDialog(context);
+        processingDialog.show();
+
+        executorService.execute(() -> {
+            File[] targets = new File[items.length];
+            for (int i = 0; i < items.length; i++) targets[i] = new File(targetDir, items[i].getName());
+            // 目标目录不存在时先创建，否则 rename 全部失败
+            if (!targetDir.isDirectory()) targetDir.mkdirs();
+            int[] results = MoveEngine.renameSameDevice(items, targets);
+
+            List<File> remaining = new ArrayList<>();
+            boolean renameFailed = false;
+            for (int i = 0; i < items.length; i++) {
+                if (results[i] == NativeFileOperation.STATUS_CROSS_DEVICE
+                        || results[i] == NativeFileOperation.STATUS_CONFLICT) {
+                    remaining.add(items[i]);
+                } else if (results[i] != NativeFileOperation.STATUS_SUCCESS) {
+                    renameFailed = true;
+                }
+            }
+            File[] copyItems = remaining.toArray(new File[0]);
+            CopyConflicts conflicts = copyItems.length > 0 ? CopyConflicts.findAll(copyItems, targetDir, null) : null;
+
+            final boolean failed = renameFailed;
+            ((Activity) context).runOnUiThread(() -> {
+                processingDialog.dismiss();
+                if (conflicts == null) {
+                    showResult(context, failed ? NativeFileOperation.STATUS_ERROR : NativeFileOperation.STATUS_SUCCESS,
+                            items, targetDir, callback);
+                } else if (conflicts.isEmpty()) {
+                    enqueueMove(context, items[0].getAbsoluteFile().getParentFile(), copyItems, targetDir, conflicts,
+                            failed, executorService, callback);
+                } else {
+                    BatchConflictDialog.show(context, conflicts, R.string.move, resolved -> enqueueMove(context,
+                            items[0].getAbsoluteFile().getParentFile(), copyItems, targetDir, resolved, failed,
+                            executorService, callback));
+                }
+            });
+        }, TaskTypes.MOVE_FILE);
+    }
+
+    // items 不为 null 时为多选移动，targetFile 是目标目录，srcFile 仅用于显示；
+    // renameFailed 表示之前 rename 的部分有失败的，计入最终结果
+    private static void enqueueMove(Context context, File srcFile, File[] items, File targetFile,
+                                   CopyConflicts conflicts, boolean renameFailed,
+                                   NotifyingExecutorService executorService, OnMoveCallback callback) {
+        CopyProgressDialog progressDialog = new CopyProgressDialog(context);
+        MoveOperation operation = new MoveOperation(srcFile, items, targetFile, conflicts, progressDialog);
+
+        final OperationQueue queue = OperationQueue.get();
+        final OperationQueue.Job[] job = new OperationQueue.Job[1];
+        progressDialog.setTitle(R.string.move_progress_title);
+        progressDialog.setOnCancelListener(() -> queue.cancel(job[0]));
+        progressDialog.setOnPauseListener(paused -> {
+            if (paused) {
+                queue.pause(job[0]);
+            } else {
+                queue.resume(job[0]);
+            }
+        });
+        progressDialog.show(srcFile.getAbsolutePath(), targetFile.getAbsolutePath(),
+                items != null ? context.getString(R.string.selection_items, items.length) : srcFile.getName());
+        progressDialog.startSampling(() -> {
+            MoveEngine engine = operation.engine;
+            if (engine == null || job[0].getStatus() != TaskStatus.RUNNING) return null;
+            CopyProgress progress = engine.sample();
+            if (progress != null) {
+                executorService.reportProgress(operation.taskId, progress.getPercent(),
+                        CopyProgressDialog.formatSpeedAndEta(context, progress));
+            }
+            return progress;
+        });
+
+        OperationQueue.Listener listener = new OperationQueue.Listener() {
+            @Override
+            public void onStateChanged(OperationQueue.Job job) {
+                progressDialog.showQueueState(job.getStatus());
+            }
+
+            @Override
+            public void onFinished(OperationQueue.Job job, int status) {
+                // 已移动的文件不回滚：源文件已删除，目标中的文件是唯一副本
+                int result = renameFailed && (status == NativeFileOperation.STATUS_SUCCESS
+                        || status == NativeFileOperation.STATUS_SKIPPED) ? NativeFileOperation.STATUS_ERROR : status;
+                ((Activity) context).runOnUiThread(() -> {
+                    progressDialog.dismiss();
+                    showResult(context, result, items, targetFile, callback);
+                });
+            }
+        };
+        job[0] = items != null
+                ? queue.enqueueAll(TaskTypes.MOVE_FILE, items, targetFile, operation, listener)
+                : queue.enqueue(TaskTypes.MOVE_FILE, srcFile, targetFile, operation, listener);
+    }
+
+    /**
+     * 队列中的一次移动（合并到已有目标或跨设备）
+     * 暂停时按取消处理；已移动的文件不在源中了，继续时只处理其余文件
+     */
+    private static final class MoveOperation implements OperationQueue.Operation {
+        final File srcFile, targetFile;
+        // 多选移动中需要复制的各项，单项移动时为 null
+        final File[] items;
+        final CopyConflicts conflicts;
+        final CopyProgressDialog progressDialog;
+        volatile boolean cancelled = false;
+        volatile MoveEngine engine;
+        volatile String taskId;
+
+        MoveOperation(File srcFile, File[] items, File targetFile, CopyConflicts conflicts,
+                      CopyProgressDialog progressDialog) {
+            this.srcFile = srcFile;
+            this.items = items;
+            this.targetFile = targetFile;
+            this.conflicts = conflicts;
+            this.progressDialog = progressDialog;
+        }
+
+        @Override
+        public int run() {
+            CopyProgressDialog.setLastContext(progressDialog.getContext());
+            taskId = NotifyingExecutorService.currentTaskId();
+            MoveEngine engine = new MoveEngine(CopyEngine.concurrencyFor(targetFile), CopyDialog.policy,
+                    (currentFile, copied, total, status) -> progressDialog.updateStatus(currentFile, status));
+            this.engine = engine;
+            if (cancelled) engine.cancel();
+
+            int result;
+            try {
+                result = items != null ? engine.moveAll(items, targetFile, conflicts)
+                                       : engine.move(srcFile, targetFile, conflicts);
+            } catch (Exception e) {
+                Log.e("MoveDialog", "Error during move", e);
+                result = NativeFileOperation.STATUS_ERROR;
+            }
+            cancelled = false;
+            return result;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            MoveEngine engine = this.engine;
+            if (engine != null) engine.cancel();
+        }
+
+        @Override
+        public long getBytesDone() {
+            MoveEngine engine = this.engine;
+            return engine != null ? engine.getBytesDone() : 0;
+        }
+    }
+
+    // items 不为 null 时为多选移动，失败时其余各项可能已经移动，同样刷新列表
+    private static void showResult(Context context, int status, File[] items, File targetFile,
+                                   OnMoveCallback callback) {
+        switch (status) {
+            case NativeFileOperation.STATUS_SUCCESS:
+                callback.onMoveSuccess(targetFile);
+                if (items != null) {
+                    Toast.makeText(context, context.getString(R.string.move_batch_success, items.length),
+                            Toast.LENGTH_SHORT).show();
+                } else {
+                    Toast.makeText(context, R.string.move_success, Toast.LENGTH_SHORT).show();
+                }
+                break;
+            case NativeFileOperation.STATUS_SKIPPED:
+                callback.onMoveSuccess(targetFile);
+                Toast.makeText(context, R.string.move_partially_completed, Toast.LENGTH_LONG).show();
+                break;
+            case NativeFileOperation.STATUS_CANCELLED:
+                // 部分文件已经移动，同样刷新列表
+                callback.onMoveSuccess(targetFile);
+                Toast.makeText(context, R.string.move_cancelled, Toast.LENGTH_LONG).show();
+                break;
+            default:
+                if (items != null) callback.onMoveSuccess(targetFile);
+                Toast.makeText(context, R.string.move_failed, Toast.LENGTH_SHORT).show();
+        }
+    }
+
 }
 
@@ -0,0 +1,171 @@
+/*
+ * System Shell Box
+ * Copyright (C) 2025 kgultrt
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+// OperationQueueDialog.java
+package com.manager.ssb.dialog;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.widget.ArrayAdapter;
+import android.widget.ListView;
+import androidx.appcompat.app.AlertDialog;
+import com.google.android.material.dialog.MaterialAlertDialogBuilder;
+import com.manager.ssb.R;
+import com.manager.ssb.core.task.OperationQueue;
+import com.manager.ssb.core.task.TaskStatus;
+import com.manager.ssb.core.task.TaskTypes;
+import com.manager.ssb.util.FileUtils;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 文件操作队列：按执行顺序列出进行中、排队、暂停和失败的操作，每秒刷新
+ * 点击一项可调整顺序、暂停/继续、重试或取消
+ */
+public class OperationQueueDialog {
+
+    private static final long REFRESH_INTERVAL_MS = 1000;
+
+    public static void show(Context context) {
+        OperationQueue queue = OperationQueue.get();
+        List<OperationQueue.Job> jobs = new ArrayList<>();
+        ArrayAdapter<String> adapter = new ArrayAdapter<>(context, android.R.layout.simple_list_item_1);
+        ListView listView = new ListView(context);
+        listView.setAdapter(adapter);
+
+        AlertDialog dialog = new MaterialAlertDialogBuilder(context)
+                .setTitle(R.string.queue_title)
+                .setView(listView)
+                .setPositiveButton(android.R.string.ok, null)
+                .show();
+
+        Handler handler = new Handler(Looper.getMainLooper());
+        Runnable refresh = new Runnable() {
+            @Override
+            public void run() {
+                if (!dialog.isShowing()) return;
+                jobs.clear();
+                jobs.addAll(queue.getJobs());
+                adapter.clear();
+                for (OperationQueue.Job job : jobs) adapter.add(describe(context, job));
+                if (jobs.isEmpty()) adapter.add(context.getString(R.string.queue_empty));
+
+                long speed = queue.getBytesPerSecond();
+                dialog.setTitle(speed > 0
+                        ? context.getString(R.string.queue_title) + "  "
+                          + context.getString(R.string.copy_speed, FileUtils.formatFileSize(speed))
+                        : context.getString(R.string.queue_title));
+                handler.postDelayed(this, REFRESH_INTERVAL_MS);
+            }
+        };
+        refresh.run();
+
+        // 操作后立即刷新，不等下一次定时刷新
+        Runnable refreshNow = () -> {
+            handler.removeCallbacks(refresh);
+            refresh.run();
+        };
+        listView.setOnItemClickListener((parent, view, position, id) -> {
+            if (position < jobs.size()) showActions(context, jobs.get(position), refreshNow);
+        });
+    }
+
+    // 例如 "复制文件: photos\n进行中 → /sdcard/Backup"，多选时显示项数
+    private static String describe(Context context, OperationQueue.Job job) {
+        File[] sources = job.getSources();
+        StringBuilder sb = new StringBuilder();
+        sb.append(context.getString(kindOf(job))).append(": ")
+          .append(sources != null ? context.getString(R.string.selection_items, sources.length)
+                                  : job.getSource().getName())
+          .append('\n');
+        sb.append(context.getString(stateOf(job.getStatus())));
+        if (job.getTarget() != null) {
+            // 多选时目标就是目标目录
+            sb.append(" → ").append(FileUtils.getShortPath(sources != null ? job.getTarget().getPath()
+                                                                          : job.getTarget().getParent()));
+        }
+        return sb.toString();
+    }
+
+    private static int kindOf(OperationQueue.Job job) {
+        switch (job.getTaskName()) {
+            case TaskTypes.MOVE_FILE:
+                return R.string.move_file;
+            case TaskTypes.DELETE_FILE:
+                return R.string.delete;
+            default:
+                return R.string.copy_file;
+        }
+    }
+
+    private static int stateOf(TaskStatus status) {
+        switch (status) {
+            case RUNNING:
+                return R.string.queue_state_running;
+            case PAUSED:
+                return R.string.queue_state_paused;
+            case FAILED:
+                return R.string.queue_state_failed;
+            default:
+                return R.string.queue_state_waiting;
+        }
+    }
+
+    // 可用的操作取决于当前状态
+    private static void showActions(Context context, OperationQueue.Job job, Runnable refresh) {
+        OperationQueue queue = OperationQueue.get();
+        List<String> labels = new ArrayList<>();
+        List<Runnable> actions = new ArrayList<>();
+        TaskStatus status = job.getStatus();
+
+        if (status == TaskStatus.CREATED || status == TaskStatus.PAUSED) {
+            labels.add(context.getString(R.string.queue_run_next));
+            actions.add(() -> queue.moveToFront(job));
+            labels.add(context.getString(R.string.queue_run_last));
+            actions.add(() -> queue.moveToBack(job));
+        }
+        if (job.canPause()) {
+            labels.add(context.getString(R.string.pause));
+            actions.add(() -> queue.pause(job));
+        }
+        if (status == TaskStatus.PAUSED) {
+            labels.add(context.getString(R.string.resume));
+            actions.add(() -> queue.resume(job));
+        }
+        if (status == TaskStatus.FAILED) {
+            labels.add(context.getString(R.string.queue_retry));
+            actions.add(() -> queue.resume(job));
+            labels.add(context.getString(R.string.queue_dismiss));
+            actions.add(() -> queue.dismiss(job));
+        } else {
+            labels.add(context.getString(R.string.cancel));
+            actions.add(() -> queue.cancel(job));
+        }
+
+        new MaterialAlertDialogBuilder(context)
+                .setTitle(describe(context, job))
+                .setItems(labels.toArray(new CharSequence[0]), (dialog, which) -> {
+                    actions.get(which).run();
+                    refresh.run();
+                })
+                .show();
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * System Shell Box
+ * Copyright (C) 2025 kgultrt
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+// SelectionActionDialog.java
+package com.manager.ssb.dialog;
+
+import android.content.Context;
+import androidx.annotation.NonNull;
+
+import com.google.android.material.dialog.MaterialAlertDialogBuilder;
+
+import com.manager.ssb.R;
+import com.manager.ssb.core.task.NotifyingExecutorService;
+import com.manager.ssb.enums.ActivePanel;
+import com.manager.ssb.util.FileUtils;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 多选后的操作：移动、复制、删除
+ * 已被其他选中目录包含的路径先去掉，其余各项作为一个任务处理（一次统计、一个进度、一个结果）
+ */
+public class SelectionActionDialog {
+
+    public interface OnActionCallback {
+        // 操作开始后调用，例如退出多选模式
+        void onActionStarted();
+
+        // 操作结束后调用，用于刷新列表
+        void onActionFinished();
+    }
+
+    public static void show(@NonNull Context context,
+                            @NonNull Collection<String> selectedPaths,
+                            @NonNull NotifyingExecutorService executorService,
+                            @NonNull ActivePanel activePanel,
+                            @NonNull OnActionCallback callback) {
+        List<File> list = FileUtils.removeNested(selectedPaths);
+        if (list.isEmpty()) return;
+        File[] items = list.toArray(new File[0]);
+
+        new MaterialAlertDialogBuilder(context)
+            .setTitle(context.getString(R.string.selection_items, items.length))
+            .setItems(new String[]{
+                    context.getString(R.string.move),
+                    context.getString(R.string.copy),
+                    context.getString(R.string.delete)
+            }, (dialog, which) -> {
+                switch (which) {
+                    case 0: // Move
+                        MoveDialog.showSelection(context, items, executorService, activePanel,
+                                                 moved -> callback.onActionFinished());
+                        break;
+                    case 1: // Copy
+                        CopyDialog.showSelection(context, items, executorService, activePanel,
+                                                 copied -> callback.onActionFinished());
+                        break;
+                    case 2: // Delete
+                        DeleteDialog.showSelection(context, items, deleted -> callback.onActionFinished());
+                        break;
+                }
+                callback.onActionStarted();
+            })
+            .show();
+    }
+}
@@ -143,7 +143,8 @@ public class BottomMenuClickListener implements View.OnClickListener {
         Config.set("bookmark.length.num", bookmark.size());
     }
 
-    private List<String> getHistory() {
+    // 历史记录，最近访问的在最后
+    public List<String> getHistory() {
         // 从 Config 获取历史记录的 JSON 数据
         JsonElement historyElement = Config.get("his.item", new JsonArray());
 
@@ -164,7 +165,7 @@ public class BottomMenuClickListener implements View.OnClickListener {
         return history;
     }
     
-    private List<String> getBookmark() {
+    public List<String> getBookmark() {
         // 从 Config 获取历史记录的 JSON 数据
         JsonElement bookmarkElement = Config.get("bookmark.item", new JsonArray());
 
@@ -23,7 +23,9 @@ import android.content.Context;
 import android.view.View;
 
 import com.manager.ssb.MainActivity;
+import com.manager.ssb.adapter.FileAdapter;
 import com.manager.ssb.dialog.FileActionDialog;
+import com.manager.ssb.dialog.SelectionActionDialog;
 import com.manager.ssb.model.FileItem;
 import com.manager.ssb.core.task.NotifyingExecutorService;
 import com.manager.ssb.enums.ActivePanel;
@@ -63,6 +65,24 @@ public class FileLongClickHandler {
         // 350ms后恢复所有面板
         activity.disableHandler.postDelayed(activity.enableClicksRunnable, 300);
         
+        // 多选模式下对全部选中项操作
+        FileAdapter adapter = activePanel == ActivePanel.LEFT ? activity.adapterLeft : activity.adapterRight;
+        if (adapter.isMultiSelectMode() && adapter.getSelectedCount() > 0) {
+            SelectionActionDialog.show(context, adapter.getSelectedItems(), executorService, activePanel,
+                new SelectionActionDialog.OnActionCallback() {
+                    @Override
+                    public void onActionStarted() {
+                        adapter.clearSelection();
+                    }
+
+                    @Override
+                    public void onActionFinished() {
+                        activity.refreshAllPanels();
+                    }
+                });
+            return;
+        }
+        
         // 创建回调处理
         FileActionDialog.OnActionCallback callback = new FileActionDialog.OnActionCallback() {
             @Override
@@ -0,0 +1,248 @@
+/*
+ * System Shell Box
+ * Copyright (C) 2025 kgultrt
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+// DirectoryCache.java
+package com.manager.ssb.core.loader;
+
+import com.manager.ssb.model.DirectorySnapshot;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 目录快照缓存（LRU，按内存上限淘汰）
+ * 以规范路径为键，同一目录的不同路径（符号链接等）共用一条缓存
+ * 每条缓存都监听目录（经 DirectoryObservers 与面板共用 FileObserver），发生任何变化立即失效；
+ * 命中后仍需在后台用 isFresh() 按目录修改时间确认一次
+ *
+ * @param <R> 与快照一起缓存的派生数据（例如显示数据）
+ */
+public class DirectoryCache<R> {
+
+    public static final class Entry<R> {
+        private final String key;
+        private final DirectorySnapshot snapshot;
+        private final R rows;
+
+        Entry(String key, DirectorySnapshot snapshot, R rows) {
+            this.key = key;
+            this.snapshot = snapshot;
+            this.rows = rows;
+        }
+
+        public DirectorySnapshot getSnapshot() { return snapshot; }
+        public R getRows() { return rows; }
+    }
+
+    private final class Node {
+        final Entry<R> entry;
+        final long weight;
+        final InvalidatingSubscriber subscriber;
+        // 指向该节点的所有别名，淘汰时一并移除
+        final ArrayList<String> aliasPaths = new ArrayList<>(2);
+
+        Node(Entry<R> entry, long weight) {
+            this.entry = entry;
+            this.weight = weight;
+            this.subscriber = new InvalidatingSubscriber(entry.key);
+        }
+    }
+
+    // 任意变化都使该目录的缓存失效，之后不再需要继续监听
+    private final class InvalidatingSubscriber implements DirectoryObservers.Subscriber {
+        private final String key;
+
+        InvalidatingSubscriber(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public void onEvent(int event, String path) {
+            invalidateNode(key, this);
+        }
+    }
+
+    private final long maxBytes;
+    private final int maxEntries;
+    private final long extraBytesPerRow;
+
+    // accessOrder = true，迭代顺序即最近最少使用顺序
+    private final LinkedHashMap<String, Node> nodes = new LinkedHashMap<>(16, 0.75f, true);
+    // 绝对路径 -> 规范路径，主线程查询时不必解析符号链接
+    private final HashMap<String, String> aliases = new HashMap<>();
+    private long totalBytes = 0;
+
+    /**
+     * @param maxBytes 缓存快照的内存上限
+     * @param maxEntries 缓存目录数上限（每条占用一个 inotify 监听）
+     * @param extraBytesPerRow 派生数据每行的大致内存占用
+     */
+    public DirectoryCache(long maxBytes, int maxEntries, long extraBytesPerRow) {
+        this.maxBytes = maxBytes;
+        this.maxEntries = maxEntries;
+        this.extraBytesPerRow = extraBytesPerRow;
+    }
+
+    /**
+     * 查询缓存（不做任何 I/O，可在主线程调用）
+     * 通过别名命中时返回以所查路径呈现的快照
+     */
+    public synchronized Entry<R> get(File directory) {
+        String key = aliases.get(directory.getAbsolutePath());
+        if (key == null) return null;
+
+        Node node = nodes.get(key);
+        if (node == null) return null;
+
+        Entry<R> entry = node.entry;
+        if (entry.snapshot.getDirectory().equals(directory)) return entry;
+        return new Entry<>(entry.key, entry.snapshot.relocate(directory), entry.rows);
+    }
+
+    /**
+     * 确认命中的缓存仍然有效：未被监听器判定失效，且目录修改时间与读取时一致
+     * 需要读取目录属性，应在后台线程调用
+     */
+    public boolean isFresh(Entry<R> entry) {
+        long modified = new File(entry.key).lastModified();
+        synchronized (this) {
+            Node node = nodes.get(entry.key);
+            return node != null
+                    && node.entry.snapshot.getDirectoryModified() == entry.snapshot.getDirectoryModified()
+                    && modified == entry.snapshot.getDirectoryModified();
+        }
+    }
+
+    /**
+     * 放入完整读取的快照（需要解析规范路径，应在后台线程调用）
+     */
+    public void put(DirectorySnapshot snapshot, R rows) {
+        File directory = snapshot.getDirectory();
+        String key = canonicalPathOf(directory);
+        long weight = snapshot.estimatedBytes() + snapshot.size() * extraBytesPerRow;
+        if (weight > maxBytes) {
+            invalidate(directory);
+            return;
+        }
+
+        Node node = new Node(new Entry<>(key, snapshot, rows), weight);
+        synchronized (this) {
+            // 此后的变化由监听器捕获；读取结束到开始监听之间的增删由修改时间校验兜底
+            // 先订阅再释放旧条目，同一目录的监听不会中断
+            DirectoryObservers.subscribe(key, node.subscriber);
+            Node old = nodes.put(key, node);
+            if (old != null) {
+                node.aliasPaths.addAll(old.aliasPaths);
+                old.aliasPaths.clear();
+                release(old);
+            }
+            totalBytes += weight;
+            addAlias(node, key);
+            addAlias(node, directory.getAbsolutePath());
+            trim();
+        }
+    }
+
+    /**
+     * 仅在无需淘汰其他条目时放入（预读使用），不会挤掉用户实际访问过的目录
+     * 需要解析规范路径，应在后台线程调用
+     * @return 是否已放入；缓存已满时返回 false
+     */
+    public boolean offer(DirectorySnapshot snapshot, R rows) {
+        File directory = snapshot.getDirectory();
+        String key = canonicalPathOf(directory);
+        long weight = snapshot.estimatedBytes() + snapshot.size() * extraBytesPerRow;
+
+        Node node = new Node(new Entry<>(key, snapshot, rows), weight);
+        synchronized (this) {
+            if (nodes.containsKey(key)) return true; // 已有更新的结果
+            if (totalBytes + weight > maxBytes || nodes.size() >= maxEntries) return false;
+            nodes.put(key, node);
+            totalBytes += weight;
+            addAlias(node, key);
+            addAlias(node, directory.getAbsolutePath());
+            DirectoryObservers.subscribe(key, node.subscriber);
+        }
+        return true;
+    }
+
+    // 是否已缓存（不做任何 I/O）
+    public synchronized boolean contains(File directory) {
+        String key = aliases.get(directory.getAbsolutePath());
+        return key != null && nodes.containsKey(key);
+    }
+
+    // 使某个目录的缓存失效，已知别名时不必解析规范路径
+    public void invalidate(File directory) {
+        String key;
+        synchronized (this) {
+            key = aliases.get(directory.getAbsolutePath());
+        }
+        invalidateKey(key != null ? key : canonicalPathOf(directory));
+    }
+
+    public synchronized void clear() {
+        for (Node node : nodes.values()) {
+            DirectoryObservers.unsubscribe(node.entry.key, node.subscriber);
+        }
+        nodes.clear();
+        aliases.clear();
+        totalBytes = 0;
+    }
+
+    private synchronized void invalidateKey(String key) {
+        Node node = nodes.remove(key);
+        if (node != null) release(node);
+    }
+
+    // 监听回调：只在该条目仍是当前缓存时失效，迟到的事件不影响之后放入的新条目
+    private synchronized void invalidateNode(String key, InvalidatingSubscriber subscriber) {
+        Node node = nodes.get(key);
+        if (node != null && node.subscriber == subscriber) invalidateKey(key);
+    }
+
+    private void trim() {
+        Iterator<Map.Entry<String, Node>> it = nodes.entrySet().iterator();
+        while ((totalBytes > maxBytes || nodes.size() > maxEntries) && it.hasNext()) {
+            Node eldest = it.next().getValue();
+            it.remove();
+            release(eldest);
+        }
+    }
+
+    private void addAlias(Node node, String path) {
+        if (!node.aliasPaths.contains(path)) node.aliasPaths.add(path);
+        aliases.put(path, node.entry.key);
+    }
+
+    private void release(Node node) {
+        DirectoryObservers.unsubscribe(node.entry.key, node.subscriber);
+        totalBytes -= node.weight;
+        for (String path : node.aliasPaths) {
+            aliases.remove(path);
+        }
+    }
+
+    private static String canonicalPathOf(File directory) {
+        return DirectoryObservers.keyOf(directory);
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * System Shell Box
+ * Copyright (C) 2025 kgultrt
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+// DirectoryLoader.java
+package com.manager.ssb.core.loader;
+
+import com.manager.ssb.model.DirectorySnapshot;
+import com.manager.ssb.model.SortOrder;
+import com.manager.ssb.util.NativeFileOperation;
+
+import java.io.File;
+import java.util.concurrent.CancellationException;
+
+/**
+ * 流式目录加载器
+ * 边读取目录边按页回调，首屏条目无需等待整个目录枚举完成
+ * 可随时从其他线程取消，加载线程会在下一批读取前停止
+ */
+public class DirectoryLoader {
+
+    // 首屏条目数，足够填满一屏即可
+    public static final int FIRST_PAGE_SIZE = 64;
+    // 后续每页条目数
+    public static final int PAGE_SIZE = 512;
+
+    public interface PageListener {
+        /**
+         * 一页数据就绪（在加载线程回调）
+         * @param snapshot 截至本页的全部条目，之前已发布的行保持不变，本页在 [pageStart, size()) 内有序
+         * @param pageStart 本页第一行的位置
+         */
+        void onPage(DirectorySnapshot snapshot, int pageStart);
+
+        /**
+         * 加载完成（在加载线程回调）
+         * @param snapshot 全部条目，已整体排序
+         * @param paged 之前是否已经通过 onPage 分页回调过
+         */
+        void onComplete(DirectorySnapshot snapshot, boolean paged);
+    }
+
+    private final File directory;
+    private final SortOrder order;
+    private final PageListener listener;
+
+    private DirectorySnapshot.Builder builder;
+    private int published = 0;
+    private int pageLimit = FIRST_PAGE_SIZE;
+    private volatile boolean cancelled = false;
+
+    public DirectoryLoader(File directory, SortOrder order, PageListener listener) {
+        this.directory = directory;
+        this.order = order;
+        this.listener = listener;
+    }
+
+    // 取消加载，之后不会再有任何回调（可在任意线程调用）
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * 执行加载（阻塞，需在后台线程调用）
+     * @param withParent 是否在首行添加 ".." 条目
+     * @throws CancellationException 加载被取消时抛出，已读取的结果全部丢弃
+     */
+    public void load(boolean withParent) {
+        // 排队期间已被更新的加载取代，直接放弃
+        checkCancelled();
+        builder = new DirectorySnapshot.Builder(directory, withParent, FIRST_PAGE_SIZE, order);
+
+        try {
+            scanEntries();
+
+            // 剩余不足一页的条目直接由 onComplete 统一交付
+            DirectorySnapshot snapshot = builder.build().sorted();
+            checkCancelled();
+            listener.onComplete(snapshot, published > 0);
+        } finally {
+            builder = null;
+        }
+    }
+
+    private void checkCancelled() {
+        if (cancelled || Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Directory load cancelled: " + directory);
+        }
+    }
+
+    // 通过 native 分批扫描：每页只有一次 JNI 调用，名称、类型、大小、时间一并取得
+    private void scanEntries() {
+        long handle = NativeFileOperation.scanOpen(directory.getPath());
+        if (handle == 0) return; // 无权限或目录已消失时按空目录处理
+
+        try {
+            while (true) {
+                // 每批读取前检查，被取消时中途停止，不再产生 I/O
+                checkCancelled();
+                int wanted = pageLimit - (builder.size() - published);
+                NativeFileOperation.ScanResult batch = NativeFileOperation.scanNext(handle, wanted);
+                if (batch == null) break;
+
+                for (int i = 0; i < batch.count; i++) {
+                    builder.add(batch.getName(i), batch.isDirectory(i), batch.sizes[i], batch.lastModified[i]);
+                }
+
+                // 不足一批说明目录已读完，剩余条目交给 onComplete
+                if (batch.count < wanted) break;
+                checkCancelled();
+                flushPage();
+            }
+        } finally {
+            NativeFileOperation.scanClose(handle);
+        }
+    }
+
+    private void flushPage() {
+        int pageStart = published;
+        builder.sortFrom(pageStart);
+        published = builder.size();
+        listener.onPage(builder.build(), pageStart);
+        pageLimit = PAGE_SIZE;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * System Shell Box
+ * Copyright (C) 2025 kgultrt
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+// DirectoryObservers.java
+package com.manager.ssb.core.loader;
+
+import android.os.FileObserver;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+
+/**
+ * 按目录共享的 FileObserver（引用计数）
+ * 进程内所有 FileObserver 共用一个 inotify 实例并按 watch descriptor 分发事件：
+ * 对同一目录再次 startWatching 得到的是同一个 wd，会顶替之前的 FileObserver，
+ * 而任意一方 stopWatching 都会移除这个 wd。因此同一目录只创建一个 FileObserver，
+ * 面板监听（DirectoryWatcher）和缓存失效（DirectoryCache）都在这里订阅，最后一个订阅者退出时才停止监听
+ */
+final class DirectoryObservers {
+
+    // 目录内容或目录自身发生变化的事件
+    static final int WATCH_MASK = FileObserver.CREATE | FileObserver.DELETE
+            | FileObserver.MOVED_FROM | FileObserver.MOVED_TO | FileObserver.MODIFY
+            | FileObserver.ATTRIB | FileObserver.CLOSE_WRITE
+            | FileObserver.DELETE_SELF | FileObserver.MOVE_SELF;
+
+    // 目录自身被删除或移走，内核随即移除该 wd
+    static final int SELF_EVENTS = FileObserver.DELETE_SELF | FileObserver.MOVE_SELF;
+
+    interface Subscriber {
+        // 在 FileObserver 的线程回调；path 为空表示目录自身的事件或事件溢出
+        void onEvent(int event, String path);
+    }
+
+    // 规范路径 -> 正在监听的观察者，启停都在锁内进行，避免新旧观察者的 startWatching/stopWatching 交错
+    private static final HashMap<String, SharedObserver> observers = new HashMap<>();
+
+    private DirectoryObservers() {
+    }
+
+    /**
+     * 监听的键：同一目录的不同路径（符号链接等）对应同一个 inode，必须共用一个观察者
+     * 需要解析符号链接
+     */
+    static String keyOf(File directory) {
+        try {
+            return directory.getCanonicalPath();
+        } catch (IOException e) {
+            return directory.getAbsolutePath();
+        }
+    }
+
+    static void subscribe(String key, Subscriber subscriber) {
+        synchronized (observers) {
+            SharedObserver observer = observers.get(key);
+            if (observer == null) {
+                observer = new SharedObserver(key);
+                observers.put(key, observer);
+                observer.add(subscriber);
+                observer.startWatching();
+            } else {
+                observer.add(subscriber);
+            }
+        }
+    }
+
+    static void unsubscribe(String key, Subscriber subscriber) {
+        synchronized (observers) {
+            SharedObserver observer = observers.get(key);
+            if (observer == null || !observer.remove(subscriber)) return;
+            if (observer.isEmpty()) {
+                observers.remove(key);
+                observer.stopWatching();
+            }
+        }
+    }
+
+    // 目录自身已不存在，之后的订阅需要重新建立监听；现有订阅者会收到该事件并自行处理
+    private static void retire(String key, SharedObserver observer) {
+        synchronized (observers) {
+            if (observers.get(key) == observer) observers.remove(key);
+        }
+    }
+
+    private static final class SharedObserver extends FileObserver {
+        private final String key;
+        // 写时复制，回调线程不需要加锁
+        private volatile Subscriber[] subscribers = new Subscriber[0];
+
+        @SuppressWarnings("deprecation") // FileObserver(File) 需要 API 29
+        SharedObserver(String key) {
+            super(key, WATCH_MASK);
+            this.key = key;
+        }
+
+        // 以下三个方法只在持有 observers 锁时调用
+        void add(Subscriber subscriber) {
+            Subscriber[] old = subscribers;
+            Subscriber[] grown = new Subscriber[old.length + 1];
+            System.arraycopy(old, 0, grown, 0, old.length);
+            grown[old.length] = subscriber;
+            subscribers = grown;
+        }
+
+        boolean remove(Subscriber subscriber) {
+            Subscriber[] old = subscribers;
+            for (int i = 0; i < old.length; i++) {
+                if (old[i] != subscriber) continue;
+                Subscriber[] shrunk = new Subscriber[old.length - 1];
+                System.arraycopy(old, 0, shrunk, 0, i);
+                System.arraycopy(old, i + 1, shrunk, i, old.length - i - 1);
+                subscribers = shrunk;
+                return true;
+            }
+            return false;
+        }
+
+        boolean isEmpty() {
+            return subscribers.length == 0;
+        }
+
+        @Override
+        public void onEvent(int event, String path) {
+            if ((event & SELF_EVENTS) != 0) retire(key, this);
+            for (Subscriber subscriber : subscribers) {
+                subscriber.onEvent(event, path);
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * System Shell Box
+ * Copyright (C) 2025 kgultrt
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+// DirectoryPrefetcher.java
+package com.manager.ssb.core.loader;
+
+import android.os.Process;
+
+import com.manager.ssb.core.task.NotifyingExecutorService;
+import com.manager.ssb.core.task.TaskTypes;
+import com.manager.ssb.model.DirectorySnapshot;
+import com.manager.ssb.model.SortOrder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 目录预读：在后台低优先级线程中提前读取用户可能进入的目录（子目录、历史、书签），
+ * 结果放入 DirectoryCache，点击时即可直接显示
+ * 每轮预读有条目数和目录数上限，只占用缓存的空闲空间；
+ * 有前台加载（LOAD_FILES）时暂停，新的一轮或 cancel() 会立即停止当前一轮
+ *
+ * @param <R> 与快照一起缓存的派生数据，与 DirectoryCache 一致
+ */
+public class DirectoryPrefetcher<R> {
+
+    // 每轮最多预读的目录数
+    private static final int MAX_DIRECTORIES = 16;
+    // 单个目录的条目上限，超过时放弃该目录（大目录留给前台分页加载）
+    private static final int MAX_ENTRIES_PER_DIRECTORY = 2048;
+    // 每轮读取的条目总数上限
+    private static final int MAX_ENTRIES_PER_ROUND = 8192;
+    // 有前台加载时的轮询间隔
+    private static final long BACK_OFF_MILLIS = 100;
+
+    public interface RowFormatter<R> {
+        // 在预读线程调用
+        R format(DirectorySnapshot snapshot);
+    }
+
+    private final DirectoryCache<R> cache;
+    private final NotifyingExecutorService foreground;
+    private final ExecutorService worker;
+
+    private final Object lock = new Object();
+    private int generation = 0;           // 受 lock 保护，每轮递增，旧的一轮据此退出
+    private DirectoryLoader activeLoader;  // 受 lock 保护
+
+    public DirectoryPrefetcher(DirectoryCache<R> cache, NotifyingExecutorService foreground) {
+        this.cache = cache;
+        this.foreground = foreground;
+        this.worker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND + Process.THREAD_PRIORITY_LESS_FAVORABLE);
+                runnable.run();
+            }, "DirectoryPrefetcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 开始新的一轮预读，取代尚未完成的上一轮
+     * @param candidates 按优先级排列的目录，已缓存的会被跳过
+     * @param order 预读结果的排序方式，应与面板当前一致
+     */
+    public void prefetch(List<File> candidates, SortOrder order, RowFormatter<R> formatter) {
+        final int round;
+        synchronized (lock) {
+            round = ++generation;
+            if (activeLoader != null) activeLoader.cancel();
+        }
+        final List<File> targets = new ArrayList<>(candidates);
+        worker.execute(() -> runRound(round, targets, order, formatter));
+    }
+
+    // 停止当前一轮（例如用户开始跳转目录）
+    public void cancel() {
+        synchronized (lock) {
+            ++generation;
+            if (activeLoader != null) activeLoader.cancel();
+        }
+    }
+
+    public void shutdown() {
+        cancel();
+        worker.shutdownNow();
+    }
+
+    private void runRound(int round, List<File> targets, SortOrder order, RowFormatter<R> formatter) {
+        int directories = 0;
+        int entries = 0;
+        for (File directory : targets) {
+            if (directories >= MAX_DIRECTORIES || entries >= MAX_ENTRIES_PER_ROUND) return;
+            if (cache.contains(directory)) continue;
+            // 历史、书签中的目录可能已被删除或无权限读取
+            if (!directory.isDirectory() || !directory.canRead()) continue;
+
+            int budget = Math.min(MAX_ENTRIES_PER_DIRECTORY, MAX_ENTRIES_PER_ROUND - entries);
+            directories++;
+            try {
+                waitForForeground(round);
+                DirectorySnapshot snapshot = load(round, directory, order, budget);
+                entries += snapshot.size();
+                // 缓存已满时结束本轮，不挤占已有条目
+                if (!cache.offer(snapshot, formatter.format(snapshot))) return;
+            } catch (CancellationException e) {
+                if (!isCurrent(round)) return;
+                // 超出条目上限，放弃该目录，已读取的条目仍计入本轮预算
+                entries += budget;
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private DirectorySnapshot load(int round, File directory, SortOrder order, int budget) {
+        final DirectorySnapshot[] result = new DirectorySnapshot[1];
+        final DirectoryLoader[] self = new DirectoryLoader[1];
+        DirectoryLoader loader = new DirectoryLoader(directory, order, new DirectoryLoader.PageListener() {
+            @Override
+            public void onPage(DirectorySnapshot snapshot, int pageStart) {
+                // 分页之间检查预算和前台负载，超出预算时由下一批读取前的检查抛出 CancellationException
+                if (snapshot.size() > budget) {
+                    self[0].cancel();
+                    return;
+                }
+                try {
+                    waitForForeground(round);
+                } catch (InterruptedException e) {
+                    self[0].cancel();
+                }
+            }
+
+            @Override
+            public void onComplete(DirectorySnapshot snapshot, boolean paged) {
+                result[0] = snapshot;
+            }
+        });
+        self[0] = loader;
+
+        synchronized (lock) {
+            if (round != generation) throw new CancellationException();
+            activeLoader = loader;
+        }
+        try {
+            loader.load(directory.getParentFile() != null);
+        } finally {
+            synchronized (lock) {
+                if (activeLoader == loader) activeLoader = null;
+            }
+        }
+        if (result[0] == null || result[0].size() > budget) throw new CancellationException();
+        return result[0];
+    }
+
+    // 前台有加载任务时让路，直到空闲或本轮被取代
+    private void waitForForeground(int round) throws InterruptedException {
+        while (foreground.isRunning(TaskTypes.LOAD_FILES)) {
+            if (!isCurrent(round)) throw new CancellationException();
+            Thread.sleep(BACK_OFF_MILLIS);
+        }
+        if (!isCurrent(round)) throw new CancellationException();
+    }
+
+    private boolean isCurrent(int round) {
+        synchronized (lock) {
+            return round == generation;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * System Shell Box
+ * Copyright (C) 2025 kgultrt
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+// DirectoryWatcher.java
+package com.manager.ssb.core.loader;
+
+import android.os.FileObserver;
+import android.view.Choreographer;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 面板当前目录的监听器
+ * 把 FileObserver 事件按名称合并，每帧最多向主线程投递一次，
+ * 由调用方据此对列表做增量更新，而不是整体重新加载
+ * 与 DirectoryCache 通过 DirectoryObservers 共用同一目录的 FileObserver
+ * 除 FileObserver 回调外，所有方法都在主线程调用
+ */
+public class DirectoryWatcher implements Choreographer.FrameCallback {
+
+    public interface Listener {
+        /**
+         * 一帧内累积的变化（主线程回调）
+         * 处理完成后必须调用 finishBatch()，在此之前不会投递下一批
+         * @param names 发生变化的条目名称，可能已被删除
+         */
+        void onChanged(DirectoryWatcher watcher, File directory, Set<String> names);
+
+        /**
+         * 无法增量更新（目录自身被删除/移动、事件队列溢出），需要整体重新加载（主线程回调）
+         */
+        void onInvalidated(DirectoryWatcher watcher, File directory);
+    }
+
+    private final Listener listener;
+    private final Choreographer choreographer;
+
+    private final Object lock = new Object();
+    private File directory;
+    private PanelSubscriber subscriber;
+    private Set<String> pending = new HashSet<>();
+    private boolean invalidated = false;
+    private boolean frameScheduled = false; // 受 lock 保护，FileObserver 线程也会设置
+    private boolean batchInFlight = false;
+
+    public DirectoryWatcher(Listener listener) {
+        this.listener = listener;
+        this.choreographer = Choreographer.getInstance();
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public boolean isWatching(File directory) {
+        return subscriber != null && directory.equals(this.directory);
+    }
+
+    /**
+     * 开始监听目录，替换之前的监听；已在监听同一目录时不做任何事
+     */
+    public void watch(File directory) {
+        if (isWatching(directory)) return;
+        stop();
+
+        PanelSubscriber newSubscriber = new PanelSubscriber(DirectoryObservers.keyOf(directory));
+        synchronized (lock) {
+            this.directory = directory;
+            this.subscriber = newSubscriber;
+        }
+        DirectoryObservers.subscribe(newSubscriber.key, newSubscriber);
+    }
+
+    public void stop() {
+        PanelSubscriber oldSubscriber;
+        synchronized (lock) {
+            oldSubscriber = subscriber;
+            subscriber = null;
+            directory = null;
+            pending = new HashSet<>();
+            invalidated = false;
+            frameScheduled = false;
+        }
+        if (oldSubscriber != null) DirectoryObservers.unsubscribe(oldSubscriber.key, oldSubscriber);
+        choreographer.removeFrameCallback(this);
+        // 已投递的批次由调用方按目录自行丢弃
+        batchInFlight = false;
+    }
+
+    /**
+     * 不等下一帧，立即投递累积的变化
+     * @return 当前是否在监听该目录（否则调用方需自行重新加载）
+     */
+    public boolean flush(File directory) {
+        if (!isWatching(directory)) return false;
+        synchronized (lock) {
+            frameScheduled = false;
+        }
+        choreographer.removeFrameCallback(this);
+        deliver();
+        return true;
+    }
+
+    // 调用方处理完一批变化后调用，期间累积的变化在下一帧投递
+    public void finishBatch() {
+        batchInFlight = false;
+        synchronized (lock) {
+            if (!invalidated && pending.isEmpty()) return;
+        }
+        scheduleFrame();
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        synchronized (lock) {
+            frameScheduled = false;
+        }
+        deliver();
+    }
+
+    private void deliver() {
+        if (batchInFlight) return;
+
+        File target;
+        Set<String> names;
+        boolean full;
+        synchronized (lock) {
+            target = directory;
+            names = pending;
+            full = invalidated;
+            pending = new HashSet<>();
+            invalidated = false;
+        }
+        if (target == null) return;
+
+        if (full) {
+            listener.onInvalidated(this, target);
+        } else if (!names.isEmpty()) {
+            batchInFlight = true;
+            listener.onChanged(this, target, names);
+        }
+    }
+
+    // 可在任意线程调用：同一帧内只登记一次回调
+    private void scheduleFrame() {
+        synchronized (lock) {
+            if (frameScheduled) return;
+            frameScheduled = true;
+        }
+        choreographer.postFrameCallback(this);
+    }
+
+    private final class PanelSubscriber implements DirectoryObservers.Subscriber {
+        final String key;
+
+        PanelSubscriber(String key) {
+            this.key = key;
+        }
+
+        // 在 FileObserver 的线程回调
+        @Override
+        public void onEvent(int event, String path) {
+            synchronized (lock) {
+                if (subscriber != this) return; // 已切换到其他目录
+
+                if (path == null || (event & DirectoryObservers.SELF_EVENTS) != 0) {
+                    // path 为空的事件来自目录自身或事件溢出，无法定位到条目
+                    invalidated = true;
+                } else if ((event & FileObserver.ALL_EVENTS) != 0) {
+                    pending.add(path);
+                } else {
+                    return;
+                }
+            }
+            // 回调总在创建 Choreographer 的主线程执行；正在处理的批次结束后由 finishBatch 重新排期
+            scheduleFrame();
+        }
+    }
+}
@@ -27,6 +27,8 @@ import java.util.stream.Collectors;
 public class NotifyingExecutorService extends AbstractExecutorService {
     private static final AtomicLong TASK_ID_GEN = new AtomicLong(0);
     private static final String UNNAMED_PREFIX = "Unnamed-";
+    // 当前线程正在执行的跟踪任务ID
+    private static final ThreadLocal<String> CURRENT_TASK_ID = new ThreadLocal<>();
 
     private final ExecutorService delegate;
     private final TaskListener taskListener;
@@ -96,6 +98,33 @@ public class NotifyingExecutorService extends AbstractExecutorService {
                 .collect(Collectors.toList());
     }
 
+    // 是否有该名称的跟踪任务正在排队或执行（只遍历活动任务，开销很小）
+    public boolean isRunning(String taskName) {
+        for (TrackedTask<?> task : activeTasks.values()) {
+            if (task.getTaskInfo().taskName().equals(taskName)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 当前线程正在执行的跟踪任务ID，不在跟踪任务中时返回null
+     * 任务内部再开的线程需要先在任务线程中取得该ID
+     */
+    public static String currentTaskId() {
+        return CURRENT_TASK_ID.get();
+    }
+
+    // 上报任务进度，任务已结束或未被跟踪时忽略（可在任意线程调用）
+    public void reportProgress(String taskId, int progress, String text) {
+        if (taskId == null || !activeTasks.containsKey(taskId)) return;
+        taskListener.onTaskProgress(taskId, progress, text);
+    }
+
+    // 上报文件操作队列的汇总状态（可在任意线程调用）
+    public void reportQueueProgress(int running, int waiting, long bytesPerSecond) {
+        taskListener.onQueueProgress(running, waiting, bytesPerSecond);
+    }
+
     public List<TaskInfo> getCompletedTasks() {
         return completedTasks.stream()
                 .map(TrackedTask::getTaskInfo)
@@ -179,16 +208,23 @@ public class NotifyingExecutorService extends AbstractExecutorService {
                 this.taskInfo = current;
             }
 
+            CURRENT_TASK_ID.set(current.taskId());
             try {
                 V result = delegate.call();
                 completeTask(TaskStatus.COMPLETED, null);
                 return result;
+            } catch (CancellationException e) {
+                // 任务自身响应取消请求而提前结束
+                completeTask(TaskStatus.CANCELLED, null);
+                throw e;
             } catch (Exception e) {
                 completeTask(TaskStatus.FAILED, e);
                 throw e;
             } catch (Throwable t) {
                 completeTask(TaskStatus.FAILED, t);
                 throw new ExecutionException(t);
+            } finally {
+                CURRENT_TASK_ID.remove();
             }
         }
 
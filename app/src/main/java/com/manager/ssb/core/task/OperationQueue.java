@@ -0,0 +1,598 @@
+/*
+ * System Shell Box
+ * Copyright (C) 2025 kgultrt
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+// OperationQueue.java
+package com.manager.ssb.core.task;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.manager.ssb.core.config.Config;
+import com.manager.ssb.core.copy.MoveEngine;
+import com.manager.ssb.util.NativeFileOperation;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 全局文件操作队列
+ * 复制、移动、删除在这里排队，再交给 NotifyingExecutorService 执行（每次执行对应一个跟踪任务和通知）。
+ * 按操作涉及的物理存储设备（源和目标的 st_dev）调度，每个设备同时进行的操作数有上限，
+ * 默认为 1：操作内部已经多线程，多个操作同时读写同一张 SD 卡只会互相拖慢。
+ * 可调整优先级、暂停/继续、重试失败的操作；正在进行的操作的总吞吐量汇总在一条通知中。
+ * 多选的各项作为一个操作排队（sources），目标为它们共同的目标目录。
+ * 未完成的操作记录在应用私有目录，进程被杀后下次启动时可恢复（见 loadPending）
+ */
+public final class OperationQueue {
+
+    private static final String TAG = "OperationQueue";
+    private static final String STATE_FILE = "operation-queue.json";
+    // 启动时把上次的记录改名保存，供 loadPending 读取，不被本次运行覆盖
+    private static final String PENDING_FILE = "operation-queue.pending.json";
+
+    // 每个设备同时进行的操作数："queue.parallel.default"，单个设备："queue.parallel.dev<st_dev>"
+    private static final String KEY_PARALLEL = "queue.parallel.";
+    private static final int DEFAULT_PARALLEL = 1;
+
+    // 汇总通知的刷新间隔和吞吐量平滑系数
+    private static final long SAMPLE_INTERVAL_MS = 1000;
+    private static final double SPEED_SMOOTHING = 0.3;
+
+    private static final Gson gson = new Gson();
+    private static volatile OperationQueue instance;
+
+    /**
+     * 队列中执行的操作
+     */
+    public interface Operation {
+        /**
+         * 执行操作（阻塞，在队列的工作线程中调用）
+         * 暂停后继续时会再次调用，应从中断处继续
+         * @return NativeFileOperation.STATUS_*，被 cancel() 中止时返回 STATUS_CANCELLED
+         */
+        int run();
+
+        // 中止 run()，可在任意线程调用，也可能在 run() 开始之前调用
+        void cancel();
+
+        // 本次 run() 已处理的字节数，用于汇总吞吐量
+        long getBytesDone();
+
+        // 执行中能否暂停，不能时只能在开始前暂停
+        default boolean canPause() {
+            return true;
+        }
+    }
+
+    public interface Listener {
+        // 排队、开始、暂停（可在任意线程调用）
+        default void onStateChanged(Job job) {
+        }
+
+        // 结束（在后台线程调用）；status 为 run() 的返回值，开始前被取消时为 STATUS_CANCELLED
+        void onFinished(Job job, int status);
+    }
+
+    /**
+     * 上次未完成的操作
+     */
+    public static final class Pending {
+        public final String taskName;
+        public final File source; // 多选时为第一项
+        public final File[] sources; // 多选的各项，单项操作时为 null
+        public final File target; // 删除时为 null，多选时为目标目录
+
+        Pending(String taskName, File[] sources, boolean batch, File target) {
+            this.taskName = taskName;
+            this.source = sources[0];
+            this.sources = batch ? sources : null;
+            this.target = target;
+        }
+    }
+
+    public static final class Job {
+        private static final AtomicLong ID_GEN = new AtomicLong();
+
+        private final long id = ID_GEN.incrementAndGet();
+        private final String taskName;
+        private final File[] sources;
+        private final boolean batch;
+        private final File target;
+        private final Operation operation;
+        private final Listener listener;
+        // 涉及的设备号，在后台线程读取后才参与调度
+        private long[] devices;
+        private volatile TaskStatus status = TaskStatus.CREATED;
+        private int priority;
+        private int attempts;
+        private boolean pauseRequested;
+        private long lastBytes;
+
+        Job(String taskName, File[] sources, boolean batch, File target, Operation operation, Listener listener) {
+            this.taskName = taskName;
+            this.sources = sources;
+            this.batch = batch;
+            this.target = target;
+            this.operation = operation;
+            this.listener = listener;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        // TaskTypes 中的任务名称
+        public String getTaskName() {
+            return taskName;
+        }
+
+        // 多选时为第一项
+        public File getSource() {
+            return sources[0];
+        }
+
+        // 多选的各项，单项操作时为 null
+        public File[] getSources() {
+            return batch ? sources.clone() : null;
+        }
+
+        public File getTarget() {
+            return target;
+        }
+
+        // CREATED 表示排队中
+        public TaskStatus getStatus() {
+            return status;
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+
+        // 已执行的次数（含暂停后继续）
+        public int getAttempts() {
+            return attempts;
+        }
+
+        public boolean canPause() {
+            return status == TaskStatus.CREATED || (status == TaskStatus.RUNNING && operation.canPause());
+        }
+    }
+
+    // 主界面重建时更换
+    private volatile NotifyingExecutorService executor;
+    private final File stateFile;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // 按加入顺序，同优先级先进先出
+    private final List<Job> jobs = new ArrayList<>();
+    private final Map<Long, Integer> runningPerDevice = new HashMap<>();
+
+    private boolean sampling = false;
+    private long sampleTime;
+    private double smoothedSpeed;
+    private volatile long bytesPerSecond;
+    private final Runnable sampler = this::sample;
+
+    private OperationQueue(Context context, NotifyingExecutorService executor) {
+        this.executor = executor;
+        this.stateFile = new File(context.getFilesDir(), STATE_FILE);
+        File pending = new File(context.getFilesDir(), PENDING_FILE);
+        if (stateFile.exists() && !stateFile.renameTo(pending)) stateFile.delete();
+    }
+
+    /**
+     * 在主界面创建时调用，之后通过 get() 使用；界面重建时改用新的线程池
+     */
+    public static synchronized void initialize(Context context, NotifyingExecutorService executor) {
+        if (instance == null) {
+            instance = new OperationQueue(context.getApplicationContext(), executor);
+        } else {
+            instance.executor = executor;
+        }
+    }
+
+    public static OperationQueue get() {
+        OperationQueue queue = instance;
+        if (queue == null) throw new IllegalStateException("OperationQueue not initialized");
+        return queue;
+    }
+
+    /**
+     * 读取上次未完成的操作（在后台线程调用），只能读取一次
+     */
+    public static List<Pending> loadPending(Context context) {
+        List<Pending> result = new ArrayList<>();
+        File file = new File(context.getFilesDir(), PENDING_FILE);
+        if (!file.exists()) return result;
+        try (Reader in = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            JsonArray array = gson.fromJson(in, JsonArray.class);
+            if (array != null) {
+                for (JsonElement element : array) {
+                    JsonObject json = element.getAsJsonObject();
+                    File[] sources;
+                    if (json.has("sources")) {
+                        JsonArray paths = json.getAsJsonArray("sources");
+                        sources = new File[paths.size()];
+                        for (int i = 0; i < sources.length; i++) sources[i] = new File(paths.get(i).getAsString());
+                    } else {
+                        sources = new File[]{new File(json.get("source").getAsString())};
+                    }
+                    result.add(new Pending(json.get("task").getAsString(), sources, json.has("sources"),
+                            json.has("target") ? new File(json.get("target").getAsString()) : null));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Dropping unreadable operation queue", e);
+        }
+        file.delete();
+        return result;
+    }
+
+    /**
+     * 加入队列，设备空闲时立即开始（可在任意线程调用）
+     * @param taskName TaskTypes 中的任务名称，用于任务通知和恢复
+     * @param target 目标，删除时为 null
+     */
+    public Job enqueue(String taskName, File source, File target, Operation operation, Listener listener) {
+        return enqueue(taskName, new File[]{source}, false, target, operation, listener);
+    }
+
+    /**
+     * 多选的各项作为一个操作加入队列，涉及各项所在的全部设备
+     * @param target 目标目录，删除时为 null
+     */
+    public Job enqueueAll(String taskName, File[] sources, File target, Operation operation, Listener listener) {
+        return enqueue(taskName, sources.clone(), true, target, operation, listener);
+    }
+
+    private Job enqueue(String taskName, File[] sources, boolean batch, File target, Operation operation,
+                        Listener listener) {
+        Job job = new Job(taskName, sources, batch, target, operation, listener);
+        synchronized (this) {
+            jobs.add(job);
+        }
+        persist();
+        listener.onStateChanged(job);
+        startSampling();
+
+        // 读取设备号需要访问存储，不在调用线程中进行；源文件已不存在时取所在目录的设备
+        executor.execute(() -> {
+            List<Long> distinct = new ArrayList<>();
+            for (File source : sources) {
+                long device = MoveEngine.deviceOf(source, true);
+                if (!distinct.contains(device)) distinct.add(device);
+            }
+            if (target != null) {
+                long device = MoveEngine.deviceOf(batch ? target : target.getParentFile(), true);
+                if (!distinct.contains(device)) distinct.add(device);
+            }
+            long[] devices = new long[distinct.size()];
+            for (int i = 0; i < devices.length; i++) devices[i] = distinct.get(i);
+            synchronized (this) {
+                job.devices = devices;
+            }
+            schedule();
+        });
+        return job;
+    }
+
+    // 所有操作（含失败待重试的），按执行顺序
+    public synchronized List<Job> getJobs() {
+        List<Job> result = new ArrayList<>(jobs);
+        Collections.sort(result, OperationQueue::compare);
+        return result;
+    }
+
+    // 正在进行的操作的总吞吐量
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    // 正在进行的排在前面，其余按优先级从高到低、同优先级按加入顺序
+    private static int compare(Job a, Job b) {
+        boolean ra = a.status == TaskStatus.RUNNING, rb = b.status == TaskStatus.RUNNING;
+        if (ra != rb) return ra ? -1 : 1;
+        if (a.priority != b.priority) return a.priority > b.priority ? -1 : 1;
+        return Long.compare(a.id, b.id);
+    }
+
+    /**
+     * 下一个开始（同一设备上排在其他等待的操作之前）
+     */
+    public void moveToFront(Job job) {
+        synchronized (this) {
+            int max = job.priority;
+            for (Job other : jobs) {
+                if (other != job) max = Math.max(max, other.priority + 1);
+            }
+            job.priority = max;
+        }
+        persist();
+        schedule();
+    }
+
+    // 排到最后
+    public void moveToBack(Job job) {
+        synchronized (this) {
+            int min = job.priority;
+            for (Job other : jobs) {
+                if (other != job) min = Math.min(min, other.priority - 1);
+            }
+            job.priority = min;
+        }
+        persist();
+    }
+
+    /**
+     * 暂停：排队中的不再开始；进行中的中止，已完成的部分保留，继续时从中断处开始
+     * @return 操作不能暂停时返回 false
+     */
+    public boolean pause(Job job) {
+        boolean stop;
+        synchronized (this) {
+            if (!job.canPause()) return false;
+            stop = job.status == TaskStatus.RUNNING;
+            if (stop) {
+                job.pauseRequested = true;
+            } else {
+                job.status = TaskStatus.PAUSED;
+            }
+        }
+        if (stop) {
+            job.operation.cancel();
+        } else {
+            persist();
+            job.listener.onStateChanged(job);
+        }
+        return true;
+    }
+
+    // 继续暂停的操作，或重试失败的操作
+    public void resume(Job job) {
+        synchronized (this) {
+            if (job.status != TaskStatus.PAUSED && job.status != TaskStatus.FAILED) return;
+            job.status = TaskStatus.CREATED;
+        }
+        persist();
+        job.listener.onStateChanged(job);
+        startSampling();
+        schedule();
+    }
+
+    /**
+     * 取消：进行中的中止，排队或暂停中的直接结束（onFinished 收到 STATUS_CANCELLED）
+     */
+    public void cancel(Job job) {
+        boolean stop;
+        synchronized (this) {
+            stop = job.status == TaskStatus.RUNNING;
+            if (stop) {
+                job.pauseRequested = false;
+            } else if (job.status == TaskStatus.CREATED || job.status == TaskStatus.PAUSED) {
+                job.status = TaskStatus.CANCELLED;
+                jobs.remove(job);
+            } else {
+                return;
+            }
+        }
+        if (stop) {
+            job.operation.cancel();
+        } else {
+            persist();
+            executor.execute(() -> job.listener.onFinished(job, NativeFileOperation.STATUS_CANCELLED));
+        }
+    }
+
+    // 不再重试失败的操作
+    public synchronized void dismiss(Job job) {
+        if (job.status == TaskStatus.FAILED) jobs.remove(job);
+    }
+
+    // 依次开始设备有空闲的操作
+    private void schedule() {
+        List<Job> started = new ArrayList<>();
+        synchronized (this) {
+            List<Job> waiting = new ArrayList<>();
+            for (Job job : jobs) {
+                if (job.status == TaskStatus.CREATED && job.devices != null) waiting.add(job);
+            }
+            Collections.sort(waiting, OperationQueue::compare);
+            for (Job job : waiting) {
+                if (!hasCapacity(job.devices)) continue;
+                for (long device : job.devices) {
+                    Integer running = runningPerDevice.get(device);
+                    runningPerDevice.put(device, running == null ? 1 : running + 1);
+                }
+                job.status = TaskStatus.RUNNING;
+                job.attempts++;
+                job.lastBytes = 0;
+                started.add(job);
+            }
+        }
+        if (started.isEmpty()) return;
+
+        persist();
+        for (Job job : started) {
+            job.listener.onStateChanged(job);
+            executor.execute(() -> runJob(job), job.taskName);
+        }
+    }
+
+    private boolean hasCapacity(long[] devices) {
+        for (long device : devices) {
+            Integer running = runningPerDevice.get(device);
+            if (running != null && running >= parallelFor(device)) return false;
+        }
+        return true;
+    }
+
+    // 设备同时进行的操作数，读取不到设备号（-1）时使用默认值
+    private static int parallelFor(long device) {
+        int fallback = Config.get(KEY_PARALLEL + "default", DEFAULT_PARALLEL);
+        return Math.max(1, device < 0 ? fallback : Config.get(KEY_PARALLEL + "dev" + device, fallback));
+    }
+
+    private void runJob(Job job) {
+        int status;
+        try {
+            status = job.operation.run();
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Operation failed: " + job.taskName, e);
+            status = NativeFileOperation.STATUS_ERROR;
+        }
+
+        boolean paused;
+        synchronized (this) {
+            for (long device : job.devices) {
+                Integer running = runningPerDevice.get(device);
+                if (running != null && running > 1) {
+                    runningPerDevice.put(device, running - 1);
+                } else {
+                    runningPerDevice.remove(device);
+                }
+            }
+            paused = job.pauseRequested && status == NativeFileOperation.STATUS_CANCELLED;
+            job.pauseRequested = false;
+            if (paused) {
+                job.status = TaskStatus.PAUSED;
+            } else if (status == NativeFileOperation.STATUS_ERROR || status == NativeFileOperation.STATUS_VERIFY_FAILED) {
+                // 失败的操作留在队列中，可以重试，但不再记录到文件
+                job.status = TaskStatus.FAILED;
+            } else {
+                job.status = status == NativeFileOperation.STATUS_CANCELLED ? TaskStatus.CANCELLED : TaskStatus.COMPLETED;
+                jobs.remove(job);
+            }
+        }
+        persist();
+
+        if (paused) {
+            job.listener.onStateChanged(job);
+        } else {
+            job.listener.onFinished(job, status);
+        }
+        schedule();
+
+        // 暂停或取消的任务在任务通知中显示为已取消（只有跟踪任务会捕获该异常）
+        if ((paused || status == NativeFileOperation.STATUS_CANCELLED)
+                && NotifyingExecutorService.currentTaskId() != null) {
+            throw new CancellationException();
+        }
+    }
+
+    // 记录未结束的操作（失败的除外），下次启动时恢复
+    private void persist() {
+        JsonArray array = new JsonArray();
+        synchronized (this) {
+            for (Job job : jobs) {
+                if (job.status == TaskStatus.FAILED) continue;
+                JsonObject json = new JsonObject();
+                json.addProperty("task", job.taskName);
+                json.addProperty("source", job.sources[0].getAbsolutePath());
+                if (job.batch) {
+                    JsonArray sources = new JsonArray();
+                    for (File source : job.sources) sources.add(source.getAbsolutePath());
+                    json.add("sources", sources);
+                }
+                if (job.target != null) json.addProperty("target", job.target.getAbsolutePath());
+                array.add(json);
+            }
+        }
+
+        // 先写临时文件再改名，进程在写入中途被杀时保留上一次的记录
+        synchronized (stateFile) {
+            if (array.size() == 0) {
+                stateFile.delete();
+                return;
+            }
+            File temp = new File(stateFile.getPath() + ".tmp");
+            try (Writer out = new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8)) {
+                out.write(gson.toJson(array));
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to save operation queue", e);
+                return;
+            }
+            if (!temp.renameTo(stateFile)) Log.w(TAG, "Failed to save operation queue");
+        }
+    }
+
+    private void startSampling() {
+        mainHandler.post(() -> {
+            if (sampling) return;
+            sampling = true;
+            sampleTime = System.currentTimeMillis();
+            smoothedSpeed = 0;
+            sample();
+        });
+    }
+
+    // 在主线程定时汇总各操作的进度，只读取计数器；队列空后停止
+    private void sample() {
+        long now = System.currentTimeMillis();
+        int running = 0, waiting = 0;
+        long bytes = 0;
+        synchronized (this) {
+            for (Job job : jobs) {
+                if (job.status == TaskStatus.RUNNING) {
+                    running++;
+                    long done = job.operation.getBytesDone();
+                    // 继续执行时计数从 0 开始
+                    if (done < job.lastBytes) job.lastBytes = 0;
+                    bytes += done - job.lastBytes;
+                    job.lastBytes = done;
+                } else if (job.status == TaskStatus.CREATED || job.status == TaskStatus.PAUSED) {
+                    waiting++;
+                }
+            }
+        }
+
+        long window = now - sampleTime;
+        if (window > 0) {
+            double rate = bytes * 1000.0 / window;
+            smoothedSpeed = smoothedSpeed == 0 ? rate : smoothedSpeed + SPEED_SMOOTHING * (rate - smoothedSpeed);
+        }
+        sampleTime = now;
+        bytesPerSecond = running > 0 ? (long) smoothedSpeed : 0;
+        executor.reportQueueProgress(running, waiting, bytesPerSecond);
+
+        if (running + waiting > 0) {
+            mainHandler.postDelayed(sampler, SAMPLE_INTERVAL_MS);
+        } else {
+            sampling = false;
+        }
+    }
+}
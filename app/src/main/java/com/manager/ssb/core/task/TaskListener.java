@@ -61,4 +61,24 @@ public interface TaskListener {
             System.err.printf("Task %s failed: %s%n", taskId, exception.getMessage());
         }
     }
+
+    /**
+     * 任务进度通知（由任务自身通过 NotifyingExecutorService.reportProgress 上报）
+     * @param taskId 系统生成的唯一任务ID
+     * @param progress 0-100
+     * @param text 进度说明（可为null）
+     */
+    default void onTaskProgress(String taskId, int progress, String text) {
+        // 默认忽略
+    }
+
+    /**
+     * 文件操作队列汇总（见 OperationQueue），两者都为 0 时表示队列已空
+     * @param running 正在进行的操作数
+     * @param waiting 排队或暂停中的操作数
+     * @param bytesPerSecond 正在进行的操作的总吞吐量
+     */
+    default void onQueueProgress(int running, int waiting, long bytesPerSecond) {
+        // 默认忽略
+    }
 }
\ No newline at end of file
@@ -26,11 +26,13 @@ import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Build;
+import android.os.SystemClock;
 import androidx.core.app.NotificationCompat;
 
 import com.manager.ssb.R;
 import com.manager.ssb.MainActivity;
 import com.manager.ssb.Application;
+import com.manager.ssb.util.FileUtils;
 
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -38,10 +40,15 @@ import java.util.concurrent.atomic.AtomicInteger;
 public class TaskNotificationManager implements TaskListener {
     private static final String CHANNEL_ID = "task_channel";
     private static final int NOTIFICATION_ID_BASE = 1000;
+    // 系统会丢弃过于频繁的通知更新，每个任务的进度至多按该间隔更新
+    private static final long PROGRESS_UPDATE_INTERVAL_MS = 1000;
+    // 文件操作队列的汇总通知，任务通知的编号从 NOTIFICATION_ID_BASE + 1 开始
+    private static final int QUEUE_NOTIFICATION_ID = NOTIFICATION_ID_BASE;
     
     private final Context context;
     private final NotificationManager notificationManager;
     private final ConcurrentHashMap<String, Integer> taskNotificationIds = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Long> lastProgressTimes = new ConcurrentHashMap<>();
     private final AtomicInteger notificationCounter = new AtomicInteger(NOTIFICATION_ID_BASE);
 
     public TaskNotificationManager(Context context) {
@@ -76,15 +83,68 @@ public class TaskNotificationManager implements TaskListener {
 
     @Override
     public void onTaskFinished(String taskId, String taskName, TaskStatus status, Throwable exception) {
-        Integer notificationId = taskNotificationIds.remove(taskId);
-        if (notificationId == null) return;
+        lastProgressTimes.remove(taskId);
+        // 与进度更新互斥，避免迟到的进度覆盖结束状态
+        synchronized (taskNotificationIds) {
+            Integer notificationId = taskNotificationIds.remove(taskId);
+            if (notificationId == null) return;
 
-        String statusText = getStatusText(status, exception);
-        Notification notification = buildStatusNotification(taskName, statusText, status)
-            .setAutoCancel(true)
+            String statusText = getStatusText(status, exception);
+            Notification notification = buildStatusNotification(taskName, statusText, status)
+                .setAutoCancel(true)
+                .build();
+
+            notificationManager.notify(notificationId, notification);
+        }
+    }
+
+    @Override
+    public void onTaskProgress(String taskId, int progress, String text) {
+        long now = SystemClock.uptimeMillis();
+        Long last = lastProgressTimes.get(taskId);
+        if (last != null && now - last < PROGRESS_UPDATE_INTERVAL_MS) return;
+        lastProgressTimes.put(taskId, now);
+
+        synchronized (taskNotificationIds) {
+            Integer notificationId = taskNotificationIds.get(taskId);
+            if (notificationId == null) {
+                lastProgressTimes.remove(taskId);
+                return;
+            }
+
+            String title = Application.getAppContext().getString(R.string.notification_channel_proc);
+            String content = Application.getAppContext().getString(R.string.notification_channel_now) + progress + "%"
+                + (text != null ? "  " + text : "");
+            Notification notification = buildProgressNotification(title, content, progress)
+                .setOngoing(true)
+                .build();
+
+            notificationManager.notify(notificationId, notification);
+        }
+    }
+
+    @Override
+    public void onQueueProgress(int running, int waiting, long bytesPerSecond) {
+        if (running == 0 && waiting == 0) {
+            notificationManager.cancel(QUEUE_NOTIFICATION_ID);
+            return;
+        }
+
+        String content = Application.getAppContext().getString(R.string.queue_summary, running, waiting);
+        if (bytesPerSecond > 0) {
+            content += "  " + Application.getAppContext().getString(R.string.copy_speed,
+                FileUtils.formatFileSize(bytesPerSecond));
+        }
+        Notification notification = new NotificationCompat.Builder(context, CHANNEL_ID)
+            .setContentTitle(Application.getAppContext().getString(R.string.queue_title))
+            .setContentText(content)
+            .setSmallIcon(R.drawable.ic_task)
+            .setOngoing(true)
+            .setOnlyAlertOnce(true)
+            .setContentIntent(getDefaultPendingIntent())
             .build();
 
-        notificationManager.notify(notificationId, notification);
+        notificationManager.notify(QUEUE_NOTIFICATION_ID, notification);
     }
 
     private NotificationCompat.Builder buildProgressNotification(String title, String text, int progress) {
@@ -30,6 +30,11 @@ public enum TaskStatus {
      */
     RUNNING,
     
+    /**
+     * 任务已暂停，可继续执行（见 OperationQueue）
+     */
+    PAUSED,
+    
     /**
      * 任务正常完成
      */
@@ -0,0 +1,600 @@
+/*
+ * System Shell Box
+ * Copyright (C) 2025 kgultrt
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+// DirectorySnapshot.java
+package com.manager.ssb.model;
+
+import com.manager.ssb.core.FileType;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Set;
+
+/**
+ * 目录快照（不可变，列式存储）
+ * 所有名称共用一个字符池，其余属性各占一个基本类型数组，
+ * 不为每个条目分配对象；需要 FileItem 时再通过 getItem() 按需创建
+ * 排序键（大小写折叠后的名称、扩展名位置）在添加条目时一次算好，
+ * 排序和切换排序方式时只比较现成的键，不再创建 String 或访问文件系统
+ */
+public final class DirectorySnapshot {
+
+    private static final FileType[] FILE_TYPES = FileType.values();
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final File directory;
+    private final long directoryModified; // 开始读取前目录自身的修改时间，用于校验缓存
+    private final boolean hasParent; // 为 true 时第 0 行是 ".."
+    private final int count;
+    private final char[] namePool;
+    private final int[] nameOffsets; // 第 i 个名称为 [nameOffsets[i], nameOffsets[i + 1])
+    private final byte[] types;      // FileType 序号
+    private final long[] sizes;
+    private final long[] lastModified;
+    private final char[] keyPool;         // 大小写折叠后的名称，与 namePool 共用 nameOffsets
+    private final int[] extensionStarts;  // 扩展名在名称内的起始位置，没有扩展名时等于名称长度
+    private final SortOrder order;        // 排序方式，增量合并时沿用
+
+    private DirectorySnapshot(File directory, long directoryModified, boolean hasParent, int count, char[] namePool,
+                              int[] nameOffsets, byte[] types, long[] sizes, long[] lastModified,
+                              char[] keyPool, int[] extensionStarts, SortOrder order) {
+        this.directory = directory;
+        this.directoryModified = directoryModified;
+        this.hasParent = hasParent;
+        this.count = count;
+        this.namePool = namePool;
+        this.nameOffsets = nameOffsets;
+        this.types = types;
+        this.sizes = sizes;
+        this.lastModified = lastModified;
+        this.keyPool = keyPool;
+        this.extensionStarts = extensionStarts;
+        this.order = order;
+    }
+
+    public static DirectorySnapshot empty(File directory) {
+        return new DirectorySnapshot(directory, 0, false, 0, new char[0], new int[1],
+                new byte[0], new long[0], new long[0], new char[0], new int[0], SortOrder.DEFAULT);
+    }
+
+    public File getDirectory() { return directory; }
+    public long getDirectoryModified() { return directoryModified; }
+    public SortOrder getSortOrder() { return order; }
+    public int size() { return count; }
+
+    // 占用内存的粗略估计（字节），供缓存按内存上限淘汰
+    public long estimatedBytes() {
+        // 名称与排序键两个字符池等长
+        return 64L + namePool.length * 4L + nameOffsets.length * 4L + extensionStarts.length * 4L
+                + types.length + sizes.length * 8L + lastModified.length * 8L;
+    }
+
+    public boolean isParent(int index) { return hasParent && index == 0; }
+    public boolean isDirectory(int index) { return types[index] == FileType.DIRECTORY.ordinal(); }
+    public FileType getFileType(int index) { return FILE_TYPES[types[index]]; }
+    public long getSize(int index) { return sizes[index]; }
+    public long getLastModified(int index) { return lastModified[index]; }
+
+    // 名称直接以字符池区间的形式提供，绑定视图时可零分配使用
+    public char[] getNamePool() { return namePool; }
+    public int getNameStart(int index) { return nameOffsets[index]; }
+    public int getNameLength(int index) { return nameOffsets[index + 1] - nameOffsets[index]; }
+
+    public String getName(int index) {
+        return new String(namePool, nameOffsets[index], getNameLength(index));
+    }
+
+    public String getPath(int index) {
+        if (isParent(index)) return directory.getParent();
+        return new File(directory, getName(index)).getPath();
+    }
+
+    // 为点击、长按等操作按需创建完整的 FileItem
+    public FileItem getItem(int index) {
+        if (isParent(index)) return FileItem.parentOf(directory);
+        return new FileItem(new File(directory, getName(index)),
+                isDirectory(index), sizes[index], lastModified[index]);
+    }
+
+    /**
+     * 行对应路径的 64 位 FNV-1a 哈希，用作列表的稳定 ID
+     * 与 getPath 的取值一致，但普通行不创建 String
+     */
+    public long getPathHash(int index) {
+        if (isParent(index)) {
+            String parent = directory.getParent();
+            return parent == null ? FNV_OFFSET : hashChars(FNV_OFFSET, parent);
+        }
+        String dirPath = directory.getPath();
+        long hash = hashChars(FNV_OFFSET, dirPath);
+        if (!dirPath.endsWith(File.separator)) {
+            hash = (hash ^ File.separatorChar) * FNV_PRIME;
+        }
+        int start = nameOffsets[index];
+        int end = nameOffsets[index + 1];
+        for (int i = start; i < end; i++) {
+            hash = (hash ^ namePool[i]) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static long hashChars(long hash, String text) {
+        for (int i = 0, n = text.length(); i < n; i++) {
+            hash = (hash ^ text.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * 以另一路径（同一目录的别名，如符号链接）呈现相同的条目
+     * 各列数组不可变，直接共享
+     */
+    public DirectorySnapshot relocate(File otherDirectory) {
+        if (otherDirectory.equals(directory)) return this;
+        return new DirectorySnapshot(otherDirectory, directoryModified, hasParent, count, namePool,
+                nameOffsets, types, sizes, lastModified, keyPool, extensionStarts, order);
+    }
+
+    public boolean isSameDirectory(DirectorySnapshot other) {
+        return directory.equals(other.directory);
+    }
+
+    // 比较两个快照中的名称，不创建 String
+    public boolean nameEquals(int index, DirectorySnapshot other, int otherIndex) {
+        int length = getNameLength(index);
+        if (length != other.getNameLength(otherIndex)) return false;
+
+        int start = nameOffsets[index];
+        int otherStart = other.nameOffsets[otherIndex];
+        for (int i = 0; i < length; i++) {
+            if (namePool[start + i] != other.namePool[otherStart + i]) return false;
+        }
+        return true;
+    }
+
+    public boolean contentEquals(int index, DirectorySnapshot other, int otherIndex) {
+        return types[index] == other.types[otherIndex]
+                && sizes[index] == other.sizes[otherIndex]
+                && lastModified[index] == other.lastModified[otherIndex]
+                && nameEquals(index, other, otherIndex);
+    }
+
+    // 排序规则：".." 最前，目录优先，其余按本快照的排序方式
+    int compareRows(SortOrder order, int a, int b) {
+        return compareRows(order, this, a, this, b);
+    }
+
+    // 跨快照比较两行，增量合并时使用
+    static int compareRows(SortOrder order, DirectorySnapshot x, int a, DirectorySnapshot y, int b) {
+        if (x.isParent(a)) return y.isParent(b) ? 0 : -1;
+        if (y.isParent(b)) return 1;
+
+        boolean aIsDir = x.isDirectory(a);
+        if (aIsDir != y.isDirectory(b)) return aIsDir ? -1 : 1;
+
+        int aStart = x.nameOffsets[a], aEnd = x.nameOffsets[a + 1];
+        int bStart = y.nameOffsets[b], bEnd = y.nameOffsets[b + 1];
+        int result;
+        switch (order.getMode()) {
+            case SIZE:
+                result = Long.compare(x.sizes[a], y.sizes[b]);
+                break;
+            case MODIFIED:
+                result = Long.compare(x.lastModified[a], y.lastModified[b]);
+                break;
+            case EXTENSION:
+                result = compareKeys(x.keyPool, aStart + x.extensionStarts[a], aEnd,
+                        y.keyPool, bStart + y.extensionStarts[b], bEnd);
+                break;
+            default:
+                result = 0;
+                break;
+        }
+        // 主键相同时按名称
+        if (result == 0) result = compareKeys(x.keyPool, aStart, aEnd, y.keyPool, bStart, bEnd);
+        // 仅大小写或前导零不同的名称再按原字符区分，保证顺序与读取顺序无关，增量合并与整体排序结果一致
+        if (result == 0) result = compareNames(x, a, y, b);
+        return order.isDescending() ? -result : result;
+    }
+
+    private static int compareNames(DirectorySnapshot x, int a, DirectorySnapshot y, int b) {
+        int aStart = x.nameOffsets[a], aLength = x.getNameLength(a);
+        int bStart = y.nameOffsets[b], bLength = y.getNameLength(b);
+        int limit = Math.min(aLength, bLength);
+
+        for (int i = 0; i < limit; i++) {
+            char c1 = x.namePool[aStart + i];
+            char c2 = y.namePool[bStart + i];
+            if (c1 != c2) return c1 - c2;
+        }
+        return aLength - bLength;
+    }
+
+    /**
+     * 自然顺序比较两段排序键（IMG_2 在 IMG_10 之前）
+     * 连续的数字按数值比较：跳过前导零后先比位数，位数相同再逐位比较，数字再长也不会溢出
+     */
+    private static int compareKeys(char[] p, int i, int pEnd, char[] q, int j, int qEnd) {
+        while (i < pEnd && j < qEnd) {
+            char c1 = p[i];
+            char c2 = q[j];
+            if (isDigit(c1) && isDigit(c2)) {
+                while (i < pEnd && p[i] == '0') i++;
+                while (j < qEnd && q[j] == '0') j++;
+                int pDigits = i, qDigits = j;
+                while (i < pEnd && isDigit(p[i])) i++;
+                while (j < qEnd && isDigit(q[j])) j++;
+
+                int length = i - pDigits;
+                if (length != j - qDigits) return length - (j - qDigits);
+                for (int k = 0; k < length; k++) {
+                    if (p[pDigits + k] != q[qDigits + k]) return p[pDigits + k] - q[qDigits + k];
+                }
+                continue;
+            }
+            if (c1 != c2) return c1 - c2;
+            i++;
+            j++;
+        }
+        return (pEnd - i) - (qEnd - j);
+    }
+
+    // 只把 ASCII 数字视为数值，其他数字字符按普通字符比较
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    // 与 String.compareToIgnoreCase 的折叠规则一致
+    private static char foldCase(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * 增量更新，不重新读取目录：先移除名称在 changedNames 中的行，再按本快照的排序方式插入 upserts 的各行
+     * @param upserts 同一目录下仍然存在的变化条目，须已按本快照的排序方式排序且不含 ".."
+     * @param changedNames 所有发生变化的名称（包括已删除的）
+     * @param directoryModified 读取变化条目之前目录自身的修改时间
+     * @param source 输出，长度至少为 size() + upserts.size()：结果第 i 行来自本快照时为其行号，来自 upserts 第 j 行时为 -(j + 1)
+     */
+    public DirectorySnapshot merge(DirectorySnapshot upserts, Set<String> changedNames,
+                                   long directoryModified, int[] source) {
+        // 先按哈希筛选，命中时再比较字符串，不为每行创建 String
+        HashMap<Integer, String> changedByHash = new HashMap<>();
+        for (String name : changedNames) changedByHash.put(name.hashCode(), name);
+        boolean[] removed = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            if (isParent(i)) continue;
+            String candidate = changedByHash.get(nameHash(i));
+            removed[i] = candidate != null && nameEquals(i, candidate);
+        }
+        // 哈希冲突时 HashMap 只保留了一个名称，逐个补查
+        if (changedByHash.size() < changedNames.size()) {
+            for (int i = 0; i < count; i++) {
+                if (!removed[i] && !isParent(i) && changedNames.contains(getName(i))) removed[i] = true;
+            }
+        }
+
+        int capacity = count + upserts.count;
+        char[] newPool = new char[nameOffsets[count] + upserts.nameOffsets[upserts.count]];
+        int[] newOffsets = new int[capacity + 1];
+        byte[] newTypes = new byte[capacity];
+        long[] newSizes = new long[capacity];
+        long[] newLastModified = new long[capacity];
+        char[] newKeyPool = new char[newPool.length];
+        int[] newExtensionStarts = new int[capacity];
+
+        int out = 0, poolLength = 0;
+        int i = 0, j = 0;
+        while (true) {
+            while (i < count && removed[i]) i++;
+            boolean takeOld;
+            if (i < count && j < upserts.count) {
+                takeOld = compareRows(order, this, i, upserts, j) <= 0;
+            } else if (i < count || j < upserts.count) {
+                takeOld = i < count;
+            } else {
+                break;
+            }
+
+            DirectorySnapshot from = takeOld ? this : upserts;
+            int row = takeOld ? i++ : j++;
+            int length = from.getNameLength(row);
+            System.arraycopy(from.namePool, from.nameOffsets[row], newPool, poolLength, length);
+            System.arraycopy(from.keyPool, from.nameOffsets[row], newKeyPool, poolLength, length);
+            newOffsets[out] = poolLength;
+            poolLength += length;
+            newTypes[out] = from.types[row];
+            newSizes[out] = from.sizes[row];
+            newLastModified[out] = from.lastModified[row];
+            newExtensionStarts[out] = from.extensionStarts[row];
+            source[out] = takeOld ? row : -row - 1;
+            out++;
+        }
+        newOffsets[out] = poolLength;
+
+        return new DirectorySnapshot(directory, directoryModified, hasParent, out, newPool, newOffsets,
+                newTypes, newSizes, newLastModified, newKeyPool, newExtensionStarts, order);
+    }
+
+    // 与 String.hashCode 一致
+    private int nameHash(int index) {
+        int hash = 0;
+        for (int k = nameOffsets[index], end = nameOffsets[index + 1]; k < end; k++) {
+            hash = 31 * hash + namePool[k];
+        }
+        return hash;
+    }
+
+    private boolean nameEquals(int index, String name) {
+        int length = getNameLength(index);
+        if (length != name.length()) return false;
+        int start = nameOffsets[index];
+        for (int k = 0; k < length; k++) {
+            if (namePool[start + k] != name.charAt(k)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * 返回按本快照的排序方式整体排序后的新快照
+     */
+    public DirectorySnapshot sorted() {
+        return sorted(order, null);
+    }
+
+    /**
+     * 按指定排序方式重新排序，直接使用已有的排序键，不重新读取目录
+     * @param source 输出，可为 null，长度至少为 size()：结果第 i 行在本快照中的行号（与 merge 的 source 含义一致）
+     */
+    public DirectorySnapshot sorted(SortOrder newOrder, int[] source) {
+        int[] rows = source != null ? source : new int[count];
+        for (int i = 0; i < count; i++) rows[i] = i;
+        sortRange(newOrder, rows, 0, count);
+        return permute(rows, newOrder);
+    }
+
+    // 对 [from, to) 区间内的行序号做稳定归并排序
+    void sortRange(SortOrder order, int[] rows, int from, int to) {
+        if (to - from < 2) return;
+        int[] buffer = new int[to - from];
+        mergeSort(order, rows, buffer, from, to);
+    }
+
+    private void mergeSort(SortOrder order, int[] rows, int[] buffer, int from, int to) {
+        int length = to - from;
+        if (length < 16) {
+            // 小区间直接插入排序
+            for (int i = from + 1; i < to; i++) {
+                int row = rows[i];
+                int j = i - 1;
+                while (j >= from && compareRows(order, rows[j], row) > 0) {
+                    rows[j + 1] = rows[j];
+                    j--;
+                }
+                rows[j + 1] = row;
+            }
+            return;
+        }
+
+        int mid = (from + to) >>> 1;
+        mergeSort(order, rows, buffer, from, mid);
+        mergeSort(order, rows, buffer, mid, to);
+        if (compareRows(order, rows[mid - 1], rows[mid]) <= 0) return;
+
+        System.arraycopy(rows, from, buffer, 0, length);
+        int left = 0, leftEnd = mid - from, right = leftEnd, out = from;
+        while (left < leftEnd && right < length) {
+            rows[out++] = compareRows(order, buffer[right], buffer[left]) < 0 ? buffer[right++] : buffer[left++];
+        }
+        while (left < leftEnd) rows[out++] = buffer[left++];
+        while (right < length) rows[out++] = buffer[right++];
+    }
+
+    private DirectorySnapshot permute(int[] rows, SortOrder newOrder) {
+        char[] newPool = new char[nameOffsets[count]];
+        char[] newKeyPool = new char[newPool.length];
+        int[] newOffsets = new int[count + 1];
+        byte[] newTypes = new byte[count];
+        long[] newSizes = new long[count];
+        long[] newLastModified = new long[count];
+        int[] newExtensionStarts = new int[count];
+
+        int poolLength = 0;
+        for (int i = 0; i < count; i++) {
+            int row = rows[i];
+            int length = getNameLength(row);
+            System.arraycopy(namePool, nameOffsets[row], newPool, poolLength, length);
+            System.arraycopy(keyPool, nameOffsets[row], newKeyPool, poolLength, length);
+            newOffsets[i] = poolLength;
+            poolLength += length;
+            newTypes[i] = types[row];
+            newSizes[i] = sizes[row];
+            newLastModified[i] = lastModified[row];
+            newExtensionStarts[i] = extensionStarts[row];
+        }
+        newOffsets[count] = poolLength;
+
+        return new DirectorySnapshot(directory, directoryModified, hasParent, count, newPool, newOffsets,
+                newTypes, newSizes, newLastModified, newKeyPool, newExtensionStarts, newOrder);
+    }
+
+    /**
+     * 快照构建器（单线程使用）
+     * 已提交的行只追加不修改，因此 build() 可直接共享数组返回前缀快照，
+     * 流式加载时每页的发布成本与页大小成正比，而不是与已加载总数成正比
+     */
+    public static final class Builder {
+        private final File directory;
+        private final long directoryModified;
+        private final boolean hasParent;
+        private int count;
+        private char[] namePool;
+        private int poolLength;
+        private int[] nameOffsets;
+        private byte[] types;
+        private long[] sizes;
+        private long[] lastModified;
+        private char[] keyPool;
+        private int[] extensionStarts;
+        private final SortOrder order;
+
+        /**
+         * @param order build() 得到的快照所采用的排序方式，sortFrom() 也按此排序
+         */
+        public Builder(File directory, boolean hasParent, int expectedCount, SortOrder order) {
+            int capacity = Math.max(16, expectedCount + (hasParent ? 1 : 0));
+            this.directory = directory;
+            this.order = order;
+            // 在读取任何条目之前记录，读取期间发生的修改会使缓存校验失败
+            this.directoryModified = directory.lastModified();
+            this.hasParent = hasParent;
+            this.namePool = new char[capacity * 16];
+            this.nameOffsets = new int[capacity + 1];
+            this.types = new byte[capacity];
+            this.sizes = new long[capacity];
+            this.lastModified = new long[capacity];
+            this.keyPool = new char[namePool.length];
+            this.extensionStarts = new int[capacity];
+
+            if (hasParent) {
+                File parent = directory.getParentFile();
+                addRow("..", FileType.DIRECTORY, 0, parent != null ? parent.lastModified() : 0);
+            }
+        }
+
+        public int size() {
+            return count;
+        }
+
+        public Builder add(String name, boolean isDirectory, long size, long lastModified) {
+            return addRow(name, FileItem.classify(name, isDirectory), isDirectory ? 0 : size, lastModified);
+        }
+
+        private Builder addRow(String name, FileType fileType, long size, long modified) {
+            ensureCapacity(count + 1, poolLength + name.length());
+
+            // nameOffsets[count] 已等于 poolLength，只需写入新的结束位置
+            int length = name.length();
+            name.getChars(0, length, namePool, poolLength);
+            // 排序键只在这里计算一次
+            int extension = length;
+            for (int i = 0; i < length; i++) {
+                char c = namePool[poolLength + i];
+                keyPool[poolLength + i] = foldCase(c);
+                // 最后一个 '.' 之后为扩展名，以 '.' 开头的隐藏文件不算
+                if (c == '.' && i > 0) extension = i + 1;
+            }
+            poolLength += length;
+            nameOffsets[count + 1] = poolLength;
+            types[count] = (byte) fileType.ordinal();
+            sizes[count] = size;
+            lastModified[count] = modified;
+            extensionStarts[count] = fileType == FileType.DIRECTORY ? length : extension;
+            count++;
+            return this;
+        }
+
+        // 扩容时换成新数组，已发布的快照仍持有旧数组，互不影响
+        private void ensureCapacity(int rows, int chars) {
+            if (rows + 1 > nameOffsets.length) {
+                int capacity = Math.max(rows + 1, nameOffsets.length * 2);
+                nameOffsets = copyOf(nameOffsets, capacity);
+                types = copyOf(types, capacity - 1);
+                sizes = copyOf(sizes, capacity - 1);
+                lastModified = copyOf(lastModified, capacity - 1);
+                extensionStarts = copyOf(extensionStarts, capacity - 1);
+            }
+            if (chars > namePool.length) {
+                int length = Math.max(chars, namePool.length * 2);
+                namePool = copyOf(namePool, poolLength, length);
+                keyPool = copyOf(keyPool, poolLength, length);
+            }
+        }
+
+        /**
+         * 对 [from, size()) 区间内尚未发布的行就地排序
+         * 调用方需保证该区间还没有通过 build() 发布出去
+         */
+        public void sortFrom(int from) {
+            int length = count - from;
+            if (length < 2) return;
+
+            int[] rows = new int[length];
+            for (int i = 0; i < length; i++) rows[i] = from + i;
+            build().sortRange(order, rows, 0, length);
+
+            int poolStart = nameOffsets[from];
+            char[] pool = Arrays.copyOfRange(namePool, poolStart, poolLength);
+            char[] keys = Arrays.copyOfRange(keyPool, poolStart, poolLength);
+            int[] offsets = Arrays.copyOfRange(nameOffsets, from, count + 1);
+            byte[] oldTypes = Arrays.copyOfRange(types, from, count);
+            long[] oldSizes = Arrays.copyOfRange(sizes, from, count);
+            long[] oldModified = Arrays.copyOfRange(lastModified, from, count);
+            int[] oldExtensions = Arrays.copyOfRange(extensionStarts, from, count);
+
+            int out = poolStart;
+            for (int i = 0; i < length; i++) {
+                int row = rows[i] - from;
+                int nameLength = offsets[row + 1] - offsets[row];
+                System.arraycopy(pool, offsets[row] - poolStart, namePool, out, nameLength);
+                System.arraycopy(keys, offsets[row] - poolStart, keyPool, out, nameLength);
+                nameOffsets[from + i] = out;
+                out += nameLength;
+                types[from + i] = oldTypes[row];
+                sizes[from + i] = oldSizes[row];
+                lastModified[from + i] = oldModified[row];
+                extensionStarts[from + i] = oldExtensions[row];
+            }
+        }
+
+        /**
+         * 返回当前已添加行的快照（保持添加顺序）
+         */
+        public DirectorySnapshot build() {
+            return new DirectorySnapshot(directory, directoryModified, hasParent, count, namePool, nameOffsets,
+                    types, sizes, lastModified, keyPool, extensionStarts, order);
+        }
+
+        private static char[] copyOf(char[] array, int used, int length) {
+            char[] copy = new char[length];
+            System.arraycopy(array, 0, copy, 0, used);
+            return copy;
+        }
+
+        private static int[] copyOf(int[] array, int length) {
+            int[] copy = new int[length];
+            System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+            return copy;
+        }
+
+        private static byte[] copyOf(byte[] array, int length) {
+            byte[] copy = new byte[length];
+            System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+            return copy;
+        }
+
+        private static long[] copyOf(long[] array, int length) {
+            long[] copy = new long[length];
+            System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+            return copy;
+        }
+    }
+}
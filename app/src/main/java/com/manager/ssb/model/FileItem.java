@@ -19,25 +19,18 @@
 package com.manager.ssb.model;
 
 import java.io.File;
-import java.util.Arrays;
-import java.util.HashSet;
 import java.util.Set;
 
 import com.manager.ssb.core.FileType;
 
 public class FileItem {
     private final File file;
-    private long cachedSize = -1;
-    private long cachedLastModified = -1;
+    private final String name;
+    private long cachedSize;
+    private long cachedLastModified;
 
     private final boolean isDirectory;
-    private final String fileExtension; // 预存储小写扩展名
-    
-    // 使用volatile保证多线程可见性，采用延迟初始化
-    private volatile Boolean isAudioFile = null;
-    private volatile Boolean isTextFile = null;
-    private volatile Boolean isZipFile = null;
-    private volatile Boolean isHtmlFile = null;
+    private final FileType fileType; // 构造时一次性确定，不再为每种类型单独缓存
 
     // 扩展名集合定义为不可变静态集合
     private static final Set<String> AUDIO_EXTENSIONS = Set.of(
@@ -58,45 +51,52 @@ public class FileItem {
     );
 
     public FileItem(File file) {
+        this(file, file.getName(), file.isDirectory(), -1, -1);
+    }
+
+    // 由目录批量扫描结果构造，元数据已知，无需再次 stat
+    public FileItem(File file, boolean isDirectory, long size, long lastModified) {
+        this(file, file.getName(), isDirectory, size, lastModified);
+    }
+
+    private FileItem(File file, String name, boolean isDirectory, long size, long lastModified) {
         this.file = file;
-        this.isDirectory = file.isDirectory();
-        this.fileExtension = initExtension();
+        this.name = name;
+        this.isDirectory = isDirectory;
+        this.cachedSize = isDirectory ? 0 : size;
+        this.cachedLastModified = lastModified;
+        this.fileType = classify(name, isDirectory);
     }
 
-    // 一次性计算扩展名（目录返回null）
-    private String initExtension() {
-        if (isDirectory) return null;
-        String name = file.getName();
+    // 返回上级目录的 ".." 条目
+    public static FileItem parentOf(File currentDir) {
+        return new FileItem(currentDir.getParentFile(), "..", true, 0, -1);
+    }
+
+    // 根据名称判断文件类型，目录扫描构建快照时也复用此方法
+    public static FileType classify(String name, boolean isDirectory) {
+        if (isDirectory) return FileType.DIRECTORY;
+
         int dotIndex = name.lastIndexOf('.');
-        return (dotIndex > 0 && dotIndex < name.length() - 1) ? 
-            name.substring(dotIndex + 1).toLowerCase() : null;
+        if (dotIndex <= 0 || dotIndex >= name.length() - 1) return FileType.UNKNOWN;
+
+        String extension = name.substring(dotIndex + 1).toLowerCase();
+        if (AUDIO_EXTENSIONS.contains(extension)) return FileType.AUDIO;
+        if (TEXT_EXTENSIONS.contains(extension)) return FileType.TEXT;
+        if (ZIP_EXTENSIONS.contains(extension)) return FileType.COMPRESS;
+        if (HTML_EXTENSIONS.contains(extension)) return FileType.HTML;
+        return FileType.UNKNOWN;
     }
 
-    public String getName() { return file.getName(); }
+    public String getName() { return name; }
     public String getPath() { return file.getPath(); }
     public boolean isDirectory() { return isDirectory; }
     public File getFile() { return file; }
 
-    // 类型判断改为直接使用预存扩展名
-    public boolean isAudioFile() {
-        if (isAudioFile == null) isAudioFile = fileExtension != null && AUDIO_EXTENSIONS.contains(fileExtension);
-        return isAudioFile;
-    }
-    
-    public boolean isTextFile() {
-        if (isTextFile == null) isTextFile = fileExtension != null && TEXT_EXTENSIONS.contains(fileExtension);
-        return isTextFile;
-    }
-    
-    public boolean isZipFile() {
-        if (isZipFile == null) isZipFile = fileExtension != null && ZIP_EXTENSIONS.contains(fileExtension);
-        return isZipFile;
-    }
-    
-    public boolean isHtmlFile() {
-        if (isHtmlFile == null) isHtmlFile = fileExtension != null && HTML_EXTENSIONS.contains(fileExtension);
-        return isHtmlFile;
-    }
+    public boolean isAudioFile() { return fileType == FileType.AUDIO; }
+    public boolean isTextFile() { return fileType == FileType.TEXT; }
+    public boolean isZipFile() { return fileType == FileType.COMPRESS; }
+    public boolean isHtmlFile() { return fileType == FileType.HTML; }
 
     // 尺寸和修改时间保持原有延迟加载
     public long getSize() {
@@ -110,12 +110,7 @@ public class FileItem {
     }
     
     public FileType resolveFileType() {
-        if (isDirectory()) return FileType.DIRECTORY;
-        if (isAudioFile()) return FileType.AUDIO;
-        if (isTextFile()) return FileType.TEXT;
-        if (isZipFile()) return FileType.COMPRESS;
-        if (isHtmlFile()) return FileType.HTML;
-        return FileType.UNKNOWN;
+        return fileType;
     }
 
 }
\ No newline at end of file
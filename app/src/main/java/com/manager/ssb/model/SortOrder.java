@@ -0,0 +1,70 @@
+/*
+ * System Shell Box
+ * Copyright (C) 2025 kgultrt
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+// SortOrder.java
+package com.manager.ssb.model;
+
+import com.manager.ssb.enums.SortMode;
+
+/**
+ * 排序方式：排序依据 + 升序/降序
+ * 所有组合预先创建，可以直接用 == 比较
+ */
+public final class SortOrder {
+
+    private static final SortMode[] MODES = SortMode.values();
+    private static final SortOrder[] ORDERS = new SortOrder[MODES.length * 2];
+
+    static {
+        for (int i = 0; i < MODES.length; i++) {
+            ORDERS[i * 2] = new SortOrder(MODES[i], false);
+            ORDERS[i * 2 + 1] = new SortOrder(MODES[i], true);
+        }
+    }
+
+    // 按名称升序
+    public static final SortOrder DEFAULT = of(SortMode.NAME, false);
+
+    private final SortMode mode;
+    private final boolean descending;
+
+    private SortOrder(SortMode mode, boolean descending) {
+        this.mode = mode;
+        this.descending = descending;
+    }
+
+    public static SortOrder of(SortMode mode, boolean descending) {
+        return ORDERS[mode.ordinal() * 2 + (descending ? 1 : 0)];
+    }
+
+    // 所有排序方式，顺序与 ordinal() 一致
+    public static SortOrder[] values() {
+        return ORDERS.clone();
+    }
+
+    public SortMode getMode() { return mode; }
+    public boolean isDescending() { return descending; }
+
+    public int ordinal() {
+        return mode.ordinal() * 2 + (descending ? 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+        return mode + (descending ? " DESC" : " ASC");
+    }
+}
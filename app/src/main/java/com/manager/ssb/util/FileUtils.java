@@ -1,10 +1,21 @@
 package com.manager.ssb.util;
 
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.StructStat;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 import java.io.File;
+import java.io.IOException;
 
 import com.manager.ssb.Application;
 import com.manager.ssb.R;
+import com.manager.ssb.core.copy.DeleteEngine;
 
 public class FileUtils {
 
@@ -81,18 +92,50 @@ public class FileUtils {
         return newFile;
     }
     
-    public static boolean deleteRecursive(File fileOrDirectory) {
-        if (fileOrDirectory == null) return false;
-        
-        if (fileOrDirectory.isDirectory()) {
-            File[] files = fileOrDirectory.listFiles();
-            if (files != null) {
-                for (File child : files) {
-                    deleteRecursive(child);
-                }
+    // 去掉多选中已被其他选中目录包含的路径（避免重复处理），其余保持原顺序
+    public static List<File> removeNested(Collection<String> paths) {
+        Set<String> selected = new HashSet<>();
+        for (String path : paths) selected.add(new File(path).getAbsolutePath());
+
+        Set<String> added = new HashSet<>();
+        List<File> result = new ArrayList<>();
+        for (String path : paths) {
+            File file = new File(path).getAbsoluteFile();
+            boolean nested = false;
+            for (String parent = file.getParent(); parent != null && !nested; parent = new File(parent).getParent()) {
+                nested = selected.contains(parent);
             }
+            if (!nested && added.add(file.getPath())) result.add(file);
         }
-        
-        return fileOrDirectory.delete();
+        return result;
+    }
+    
+    // target 是否就是 dir 或在 dir 之下（按规范路径比较，解析失败时返回 false）
+    public static boolean isSameOrInside(File target, File dir) {
+        try {
+            String dirPath = dir.getCanonicalPath();
+            String targetPath = target.getCanonicalPath();
+            return targetPath.equals(dirPath) || targetPath.startsWith(dirPath + File.separator);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+    
+    // a 和 b 是否为同一个文件（同一设备号和 inode，不跟随最后一级的符号链接）；任一方不存在时返回 false
+    public static boolean isSameFile(File a, File b) {
+        try {
+            StructStat first = Os.lstat(a.getAbsolutePath());
+            StructStat second = Os.lstat(b.getAbsolutePath());
+            return first.st_dev == second.st_dev && first.st_ino == second.st_ino;
+        } catch (ErrnoException e) {
+            return false;
+        }
+    }
+    
+    // 在 native 层并行删除，不显示进度；需要进度或取消时使用 DeleteEngine
+    public static boolean deleteRecursive(File fileOrDirectory) {
+        if (fileOrDirectory == null) return false;
+        return NativeFileOperation.deleteTree(fileOrDirectory.getAbsolutePath(), null,
+                DeleteEngine.threadCount()) == NativeFileOperation.STATUS_SUCCESS;
     }
 }
\ No newline at end of file
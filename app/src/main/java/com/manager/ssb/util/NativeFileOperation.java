@@ -1,6 +1,8 @@
 package com.manager.ssb.util;
 
 import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 public class NativeFileOperation {
     
@@ -9,34 +11,156 @@ public class NativeFileOperation {
     public static final int STATUS_CONFLICT = -100;
     public static final int STATUS_SKIPPED = -101;
     public static final int STATUS_RETRYING = -102;
+    public static final int STATUS_CANCELLED = -103; // 通过共享计数器请求取消，未完成的目标文件已删除
+    public static final int STATUS_CROSS_DEVICE = -104; // 源和目标不在同一文件系统，不能 rename
+    public static final int STATUS_VERIFY_FAILED = -105; // 回读目标的校验和与源文件不一致，目标已删除
+    
+    // 校验模式（copyFileVerified）
+    public static final int VERIFY_NONE = 0;
+    public static final int VERIFY_CACHED = 1; // 回读目标，通常命中页缓存，只验证写入路径
+    public static final int VERIFY_DEVICE = 2; // fdatasync 后丢弃页缓存再回读，验证存储上的数据
+    
+    // 复制后保留的源文件属性（按位或），在仍打开的目标 fd 上设置
+    public static final int PRESERVE_TIMES = 0x1;  // 访问和修改时间（纳秒精度）
+    public static final int PRESERVE_MODE = 0x2;   // 权限位，不保留时按 umask 创建
+    public static final int PRESERVE_OWNER = 0x4;  // 所有者和组，需要 CAP_CHOWN，普通应用通常不生效
+    public static final int PRESERVE_ALL = PRESERVE_TIMES | PRESERVE_MODE | PRESERVE_OWNER;
+    
+    // native 层实际使用的复制方式（按位或），见 CopyCounters.getMethods()
+    public static final int COPY_METHOD_CLONE = 0x1;       // FICLONE（reflink）
+    public static final int COPY_METHOD_RANGE = 0x2;       // copy_file_range
+    public static final int COPY_METHOD_SENDFILE = 0x4;
+    public static final int COPY_METHOD_READ_WRITE = 0x8;
+    public static final int COPY_METHOD_SPARSE = 0x10;     // 保留了稀疏文件的空洞
+    public static final int COPY_METHOD_URING = 0x20;      // io_uring 批量复制小文件
+    
+    // io_uring 批量复制的文件大小上限和每批文件数，与 main.c 一致
+    public static final long URING_MAX_FILE_SIZE = 64 << 10;
+    public static final int URING_MAX_BATCH = 32;
     
     // 冲突处理选项
     public interface ConflictAction {
         int OVERWRITE = 0;
         int SKIP = 1;
         int KEEP_BOTH = 2;
+        int NEWER_WINS = 3; // 源文件较新时覆盖，否则跳过
     }
     
-    // 修改后的回调接口
+    // 冲突、重试等状态回调（复制进度不再回调，见 copy / copyFile 的 counters 参数）
     public interface ProgressCallback {
         void onProgress(String currentFile, long copied, long total, int status);
     }
     
+    // 目录批量扫描结果：所有条目的元数据以列式基本类型数组保存
+    public static final class ScanResult {
+        public static final int TYPE_FILE = 0;
+        public static final int TYPE_DIRECTORY = 1;
+        public static final int TYPE_OTHER = 2;
+        public static final int FLAG_SYMLINK = 0x10;
+        
+        public final int count;
+        public final byte[] names;       // UTF-8 名称池
+        public final int[] nameOffsets;  // 第 i 个名称为 [nameOffsets[i], nameOffsets[i + 1])
+        public final byte[] types;
+        public final long[] sizes;
+        public final long[] lastModified; // 毫秒，与 File.lastModified() 一致
+        public final int[] modes;
+        
+        // 由 native 层构造
+        ScanResult(int count, byte[] names, int[] nameOffsets, byte[] types,
+                   long[] sizes, long[] lastModified, int[] modes) {
+            this.count = count;
+            this.names = names;
+            this.nameOffsets = nameOffsets;
+            this.types = types;
+            this.sizes = sizes;
+            this.lastModified = lastModified;
+            this.modes = modes;
+        }
+        
+        public String getName(int index) {
+            int start = nameOffsets[index];
+            return new String(names, start, nameOffsets[index + 1] - start, StandardCharsets.UTF_8);
+        }
+        
+        public boolean isDirectory(int index) {
+            return (types[index] & 0x0F) == TYPE_DIRECTORY;
+        }
+        
+        public boolean isSymlink(int index) {
+            return (types[index] & FLAG_SYMLINK) != 0;
+        }
+    }
+    
     static {
         System.loadLibrary("ssb_daemon");
     }
     
-    // 修改后的JNI方法签名
-    private native static int nativeCopy(String src, String dest, ProgressCallback callback);
+    private native static int nativeCopy(String src, String dest, ByteBuffer counters);
+    
+    /**
+     * 递归复制文件或目录
+     * @param counters 共享进度计数器（CopyCounters 的直接缓冲区），可为 null
+     */
+    public static int copy(String src, String dest, ByteBuffer counters) {
+        return nativeCopy(src, dest, counters);
+    }
     
-    public static int copy(String src, String dest, ProgressCallback callback) {
-        return nativeCopy(src, dest, callback);
+    /**
+     * 复制单个文件或符号链接（不递归），可在多个线程中同时调用
+     * 依次尝试 FICLONE、copy_file_range、sendfile、read/write，稀疏文件保留空洞
+     * @param counters 共享进度计数器（CopyCounters 的直接缓冲区），native 层逐块原子累加，可为 null
+     * @return STATUS_SUCCESS、STATUS_CONFLICT（目标已存在）或 STATUS_ERROR
+     */
+    public static int copyFile(String src, String dest, ByteBuffer counters) {
+        return nativeCopyFile(src, dest, -1, counters, VERIFY_NONE, PRESERVE_ALL, null);
+    }
+    
+    /**
+     * 续传上次未完成的文件：保留目标的前 offset 字节，只复制之后的部分
+     * 调用方需确认目标是本应用写入的不完整文件，且源文件自那以后未被修改
+     * @param offset 为 0 时删除目标后重新复制
+     */
+    public static int copyFileFrom(String src, String dest, long offset, ByteBuffer counters) {
+        return nativeCopyFile(src, dest, offset, counters, VERIFY_NONE, PRESERVE_ALL, null);
+    }
+    
+    /**
+     * 复制并校验：读取源文件时计算 xxHash64，写完后按 verify 指定的方式回读目标比较
+     * 不使用 FICLONE / copy_file_range / sendfile，源文件的数据需经过用户态
+     * @param resumeFrom 续传位置，-1 表示新文件（含义同 copyFileFrom）
+     * @param checksum 长度至少为 1，成功时 checksum[0] 为源文件的 xxHash64（seed 0）；符号链接不写入
+     * @return 同 copyFile，校验不一致时返回 STATUS_VERIFY_FAILED
+     */
+    public static int copyFileVerified(String src, String dest, long resumeFrom, ByteBuffer counters,
+                                       int verify, long[] checksum) {
+        return nativeCopyFile(src, dest, resumeFrom, counters, verify, PRESERVE_ALL, checksum);
+    }
+    
+    /**
+     * 以上几种复制的完整形式
+     * @param verify VERIFY_NONE 时不校验，checksum 可为 null
+     * @param preserve 要保留的属性（PRESERVE_*），0 表示全部不保留
+     */
+    public static int copyFile(String src, String dest, long resumeFrom, ByteBuffer counters,
+                               int verify, int preserve, long[] checksum) {
+        return nativeCopyFile(src, dest, resumeFrom, counters, verify, preserve, checksum);
     }
     
     public static boolean delete(String path) {
         return nativeDelete(path);
     }
     
+    /**
+     * 并行删除文件或整个目录（不跟随符号链接），基于目录 fd 的 openat/unlinkat
+     * @param counters 共享计数器（DeleteEngine 的直接缓冲区），用于读取进度和请求取消，可为 null
+     * @param threads 删除线程数（含调用线程）
+     * @return STATUS_SUCCESS、STATUS_CANCELLED 或 STATUS_ERROR（部分条目无法删除，其余照常删除）
+     */
+    public static int deleteTree(String path, ByteBuffer counters, int threads) {
+        return nativeDeleteTree(path, counters, threads);
+    }
+    
     public static boolean move(String src, String dest) {
         return nativeMove(src, dest);
     }
@@ -45,6 +169,88 @@ public class NativeFileOperation {
         return nativeMove(src, newName);
     }
     
+    /**
+     * 一次 JNI 调用批量 rename，目标已存在时不覆盖，不做跨设备复制
+     * @return 每一项的结果：STATUS_SUCCESS、STATUS_CONFLICT、STATUS_CROSS_DEVICE 或 STATUS_ERROR
+     */
+    public static int[] renameBatch(String[] sources, String[] targets) {
+        return nativeRenameBatch(sources, targets);
+    }
+    
+    /**
+     * 一次 JNI 调用扫描整个目录
+     * @return 扫描结果，目录无法打开时返回 null
+     */
+    public static ScanResult scanDirectory(String path) {
+        return nativeScanDirectory(path);
+    }
+    
+    /**
+     * 打开目录用于分批扫描，配合 scanNext / scanClose 使用
+     * @return 扫描句柄，失败时返回 0
+     */
+    public static long scanOpen(String path) {
+        return nativeScanOpen(path);
+    }
+    
+    /**
+     * 读取下一批最多 maxEntries 个条目
+     * @return 本批结果，目录已读完时返回 null
+     */
+    public static ScanResult scanNext(long handle, int maxEntries) {
+        return nativeScanNext(handle, maxEntries);
+    }
+    
+    public static void scanClose(long handle) {
+        nativeScanClose(handle);
+    }
+    
+    /**
+     * 打开 io_uring 批量复制句柄，每个线程使用自己的句柄，用完后调用 uringClose
+     * @return 内核不支持或被系统策略禁止时返回 0，此时只能逐个文件复制
+     */
+    public static long uringOpen() {
+        return nativeUringOpen();
+    }
+    
+    /**
+     * 一次提交一批新的小文件（每个不超过 URING_MAX_FILE_SIZE，最多 URING_MAX_BATCH 个）
+     * 目标以 O_EXCL 创建，按 preserve 设置属性（PRESERVE_*）；不校验，不处理冲突
+     * @return 每个文件的结果：STATUS_SUCCESS，或 STATUS_CONFLICT / STATUS_ERROR / STATUS_CANCELLED
+     *         （目标未创建或已删除，调用方可改用 copyFile 处理）；
+     *         参数无效或句柄已停用（io_uring_enter 出错）时返回 null，此后应关闭句柄逐个复制
+     */
+    public static int[] uringCopy(long handle, String[] sources, String[] targets, ByteBuffer counters,
+                                  int preserve) {
+        return nativeUringCopy(handle, sources, targets, counters, preserve);
+    }
+    
+    public static void uringClose(long handle) {
+        nativeUringClose(handle);
+    }
+    
+    /**
+     * 递归统计文件数和总字节数（阻塞），不进入符号链接指向的目录
+     * 统计结果边扫描边累加到 counters 中，槽位布局见 CopyTotals
+     * @param counters 本机字节序的直接缓冲区
+     */
+    public static void measure(String path, ByteBuffer counters) {
+        nativeMeasure(path, counters);
+    }
+    
+    private native static int nativeCopyFile(String src, String dest, long resumeFrom, ByteBuffer counters,
+                                             int verify, int preserve, long[] checksum);
     private native static boolean nativeDelete(String path);
+    private native static int nativeDeleteTree(String path, ByteBuffer counters, int threads);
     private native static boolean nativeMove(String src, String dest);
+    private native static int[] nativeRenameBatch(String[] sources, String[] targets);
+    private native static ScanResult nativeScanDirectory(String path);
+    private native static long nativeScanOpen(String path);
+    private native static ScanResult nativeScanNext(long handle, int maxEntries);
+    private native static void nativeScanClose(long handle);
+    private native static void nativeMeasure(String path, ByteBuffer counters);
+    private native static long nativeUringOpen();
+    private native static int[] nativeUringCopy(long handle, String[] sources, String[] targets,
+                                                ByteBuffer counters, int preserve);
+    private native static void nativeUringClose(long handle);
 }
\ No newline at end of file
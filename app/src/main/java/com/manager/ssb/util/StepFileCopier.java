@@ -6,6 +6,7 @@ import com.manager.ssb.dialog.FileConflictDialog;
 import com.manager.ssb.dialog.CopyProgressDialog;
 import com.manager.ssb.dialog.CopyDialog;
 import java.io.File;
+import java.nio.ByteBuffer;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
@@ -14,56 +15,66 @@ public class StepFileCopier {
     public static int copyFileWithRetry(String src, String dest,
                                         CopyDialog.ConflictPolicy policy,
                                         NativeFileOperation.ProgressCallback callback) {
+        return copyFileWithRetry(src, dest, policy, callback, null);
+    }
+
+    /**
+     * 复制单个文件，目标已存在时按冲突策略处理（可在多个线程中同时调用）
+     * @param callback 冲突、重试等状态通知
+     * @param counters 共享进度计数器，可为 null
+     */
+    public static int copyFileWithRetry(String src, String dest,
+                                        CopyDialog.ConflictPolicy policy,
+                                        NativeFileOperation.ProgressCallback callback,
+                                        ByteBuffer counters) {
+        return copyFileWithRetry(src, dest, policy, callback, counters, NativeFileOperation.VERIFY_NONE, null);
+    }
+
+    /**
+     * 同上，verify 不为 VERIFY_NONE 时复制并校验（见 NativeFileOperation.copyFileVerified）
+     * @param checksum 校验时接收源文件的校验和，可为 null
+     */
+    public static int copyFileWithRetry(String src, String dest,
+                                        CopyDialog.ConflictPolicy policy,
+                                        NativeFileOperation.ProgressCallback callback,
+                                        ByteBuffer counters, int verify, long[] checksum) {
+        return copyFileWithRetry(src, dest, policy, callback, counters, verify,
+                NativeFileOperation.PRESERVE_ALL, checksum);
+    }
+
+    /**
+     * 同上，只保留 preserve 指定的属性（NativeFileOperation.PRESERVE_*）
+     */
+    public static int copyFileWithRetry(String src, String dest,
+                                        CopyDialog.ConflictPolicy policy,
+                                        NativeFileOperation.ProgressCallback callback,
+                                        ByteBuffer counters, int verify, int preserve, long[] checksum) {
         int result;
         File currentDest = new File(dest);
         int retryCount = 0;
         
         do {
-            result = NativeFileOperation.copy(src, currentDest.getAbsolutePath(), callback);
+            result = NativeFileOperation.copyFile(src, currentDest.getAbsolutePath(), -1, counters, verify,
+                    preserve, checksum != null ? checksum : new long[1]);
             
             if (result == NativeFileOperation.STATUS_CONFLICT) {
                 // 通知UI显示冲突状态
                 callback.onProgress(src, 0, 0, NativeFileOperation.STATUS_CONFLICT);
                 
-                // 在UI线程显示冲突对话框
-                final int[] userChoice = new int[]{NativeFileOperation.ConflictAction.SKIP};
-                final boolean[] applyToAll = new boolean[]{false};
-                final CountDownLatch latch = new CountDownLatch(1);
-                
-                new Handler(Looper.getMainLooper()).post(() -> {
-                    if (!policy.applyToAll) {
-                        FileConflictDialog.show(
-                            CopyProgressDialog.getLastContext(),
-                            new File(src).getName(),
-                            (action, apply) -> {
-                                userChoice[0] = action;
-                                applyToAll[0] = apply;
-                                latch.countDown();
-                            }
-                        );
-                    } else {
-                         userChoice[0] = policy.action;
-                         latch.countDown();
-                    }
-                });
-                
-                // 非阻塞等待用户响应
-                try {
-                    latch.await(10, TimeUnit.MINUTES); // 最多等待10分钟
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    return NativeFileOperation.STATUS_ERROR;
-                }
-                
-                // 记录用户选择（如果应用到全部）
-                if (applyToAll[0]) {
-                    policy.action = userChoice[0];
-                    policy.applyToAll = true;
+                int action = resolveConflict(src, policy);
+                if (action == NativeFileOperation.ConflictAction.NEWER_WINS) {
+                    action = new File(src).lastModified() > currentDest.lastModified()
+                            ? NativeFileOperation.ConflictAction.OVERWRITE
+                            : NativeFileOperation.ConflictAction.SKIP;
                 }
                 
                 // 根据用户选择执行操作
-                switch (userChoice[0]) {
+                switch (action) {
                     case NativeFileOperation.ConflictAction.OVERWRITE:
+                        // 目标就是源文件本身时删除目标等于删除源文件，按跳过处理
+                        if (FileUtils.isSameFile(new File(src), currentDest)) {
+                            return NativeFileOperation.STATUS_SKIPPED;
+                        }
                         NativeFileOperation.delete(currentDest.getAbsolutePath());
                         // 通知UI重新开始
                         callback.onProgress(src, 0, 0, NativeFileOperation.STATUS_RETRYING);
@@ -87,4 +98,43 @@ public class StepFileCopier {
         
         return result;
     }
-}
\ No newline at end of file
+    
+    // 多个线程同时遇到冲突时逐个询问，前一个选择了“应用到全部”后其余直接沿用
+    private static int resolveConflict(String src, CopyDialog.ConflictPolicy policy) {
+        synchronized (policy) {
+            if (policy.applyToAll) return policy.action;
+            
+            // 在UI线程显示冲突对话框
+            final int[] userChoice = new int[]{NativeFileOperation.ConflictAction.SKIP};
+            final boolean[] applyToAll = new boolean[]{false};
+            final CountDownLatch latch = new CountDownLatch(1);
+            
+            new Handler(Looper.getMainLooper()).post(() -> FileConflictDialog.show(
+                CopyProgressDialog.getLastContext(),
+                new File(src).getName(),
+                (action, apply) -> {
+                    userChoice[0] = action;
+                    applyToAll[0] = apply;
+                    latch.countDown();
+                }
+            ));
+            
+            // 非阻塞等待用户响应
+            try {
+                if (!latch.await(10, TimeUnit.MINUTES)) { // 最多等待10分钟
+                    return NativeFileOperation.ConflictAction.SKIP;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return -1; // 按用户取消处理
+            }
+            
+            // 记录用户选择（如果应用到全部）
+            if (applyToAll[0]) {
+                policy.action = userChoice[0];
+                policy.applyToAll = true;
+            }
+            return userChoice[0];
+        }
+    }
+}
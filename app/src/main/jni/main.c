@@ -9,12 +9,30 @@
 #include <string.h>
 #include <android/log.h>
 #include <sys/sendfile.h>
-#include <utime.h>
 #include <sys/statvfs.h>
+#include <sys/syscall.h>
+#include <stdint.h>
+#include <sys/ioctl.h>
+#include <pthread.h>
+#include <sys/mman.h>
+#include <sys/resource.h>
+#include <linux/io_uring.h>
+#ifdef __ANDROID__
+#include <sys/system_properties.h>
+#endif
 
 
 #define TAG "SSB_UTILS"
 #define BUFFER_SIZE (256 * 1024)
+// 每次 copy_file_range / sendfile / read-write 的最大字节数，块之间检查取消请求
+// 编译时可覆盖，benchmark/run.sh 用来比较不同块大小
+#ifndef COPY_CHUNK_SIZE
+#define COPY_CHUNK_SIZE (1024 * 1024)
+#endif
+// 仅供基准测试：不尝试 FICLONE，直接从指定的复制方式（COPY_METHOD_*）开始，0 表示按默认顺序选择
+#ifndef COPY_FORCE_METHOD
+#define COPY_FORCE_METHOD 0
+#endif
 #define MAX_PATH_LEN 4096
 #define MAX_RECURSION_DEPTH 50
 
@@ -22,22 +40,16 @@
 #define STATUS_SUCCESS 0
 #define STATUS_ERROR -1
 #define STATUS_CONFLICT -100
+#define STATUS_CANCELLED -103
+#define STATUS_VERIFY_FAILED -105
 
-// 错误处理宏
-#define KISS_FAIL(env, code, msg) do { \
-    char full_msg[256]; \
-    const char *err_str = strerror(errno); \
-    snprintf(full_msg, sizeof(full_msg), "%s (errno: %d [%s]) at line %d", \
-            msg, errno, err_str ? err_str : "unknown", __LINE__); \
-    __android_log_print(ANDROID_LOG_ERROR, TAG, "%s", full_msg); \
-    if (code) { \
-        jclass ex = (*env)->FindClass(env, "java/io/IOException"); \
-        if (ex) { \
-            (*env)->ThrowNew(env, ex, full_msg); \
-        } \
-    } \
-    return JNI_FALSE; \
-} while(0)
+// 目录扫描条目类型（与 NativeFileOperation.ScanResult 保持一致）
+#define SCAN_TYPE_FILE 0
+#define SCAN_TYPE_DIRECTORY 1
+#define SCAN_TYPE_OTHER 2
+#define SCAN_FLAG_SYMLINK 0x10
+#define SCAN_DENTS_BUF_SIZE (64 * 1024)
+#define SCAN_RESULT_CLASS "com/manager/ssb/util/NativeFileOperation$ScanResult"
 
 // 安全路径拼接
 static void safe_path_join(char *dest, const char *base, const char *append) {
@@ -91,71 +103,632 @@ static int mkdir_p(const char *path) {
     return 0;
 }
 
-// 递归删除函数
+static int delete_tree(const char *path, int64_t *slots, int threads);
+
+// 递归删除函数（单线程，实现见“并行删除”）
 static int delete_recursive(const char *path) {
-    struct stat statbuf;
-    if (lstat(path, &statbuf) != 0) {
-        if (errno == ENOENT) {
-            __android_log_print(ANDROID_LOG_WARN, TAG, "Path does not exist: %s", path);
-            return 1;
-        }
-        __android_log_print(ANDROID_LOG_ERROR, TAG, "Failed to lstat: %s (errno %d)", path, errno);
-        return 0;
+    return delete_tree(path, NULL, 1) == STATUS_SUCCESS;
+}
+
+// 共享进度计数器：Java 传入的直接缓冲区（可为空），多个线程同时复制时原子累加，
+// Java 层按固定频率读取，复制过程中不回调 Java。槽位布局与 CopyCounters 一致
+// COPY_SLOT_CANCEL 由 Java 层置位，native 层在块之间和目录项之间检查
+#define COPY_SLOT_BYTES 0
+#define COPY_SLOT_FILES 1
+#define COPY_SLOT_CANCEL 2
+#define COPY_SLOT_METHODS 3 // 用过的复制方式（COPY_METHOD_* 按位或）
+#define COPY_SLOT_COUNT 4
+
+// 复制方式，按优先级从高到低，与 NativeFileOperation.COPY_METHOD_* 一致
+#define COPY_METHOD_CLONE 0x1       // FICLONE 共享数据块（btrfs/xfs 等支持 reflink 的文件系统）
+#define COPY_METHOD_RANGE 0x2       // copy_file_range，在内核中复制，部分文件系统可在存储端完成
+#define COPY_METHOD_SENDFILE 0x4
+#define COPY_METHOD_READ_WRITE 0x8
+#define COPY_METHOD_SPARSE 0x10     // 按 SEEK_DATA/SEEK_HOLE 跳过了空洞
+#define COPY_METHOD_URING 0x20      // io_uring 批量复制小文件
+
+#ifndef FICLONE
+#define FICLONE _IOW(0x94, 9, int)
+#endif
+
+typedef struct {
+    int64_t *slots;
+} progress_sink;
+
+static void progress_init(progress_sink *sink, JNIEnv *env, jobject counters) {
+    sink->slots = NULL;
+    if (!counters) return;
+    int64_t *slots = (*env)->GetDirectBufferAddress(env, counters);
+    if (slots && (*env)->GetDirectBufferCapacity(env, counters) >= COPY_SLOT_COUNT * (jlong) sizeof(int64_t)) {
+        sink->slots = slots;
+    } else {
+        __android_log_print(ANDROID_LOG_ERROR, TAG, "Invalid progress counters, progress disabled");
     }
-    
-    // 文件或链接
-    if (S_ISREG(statbuf.st_mode) || S_ISLNK(statbuf.st_mode)) {
-        __android_log_print(ANDROID_LOG_DEBUG, TAG, "Deleting file/link: %s", path);
-        if (unlink(path) != 0) {
-            __android_log_print(ANDROID_LOG_ERROR, TAG, "Failed to unlink: %s (errno %d)", path, errno);
-            return 0;
-        }
+}
+
+static void progress_add(const progress_sink *sink, int slot, int64_t value) {
+    if (sink->slots) __atomic_fetch_add(&sink->slots[slot], value, __ATOMIC_RELAXED);
+}
+
+static int progress_cancelled(const progress_sink *sink) {
+    return sink->slots && __atomic_load_n(&sink->slots[COPY_SLOT_CANCEL], __ATOMIC_RELAXED) != 0;
+}
+
+static void progress_method(const progress_sink *sink, int method) {
+    if (sink->slots) __atomic_fetch_or(&sink->slots[COPY_SLOT_METHODS], (int64_t) method, __ATOMIC_RELAXED);
+}
+
+#ifdef __ANDROID__
+// 系统 API 级别，只读取一次
+static int android_sdk_level(void) {
+    static int level = -1;
+    int value = __atomic_load_n(&level, __ATOMIC_RELAXED);
+    if (value < 0) {
+        char sdk[PROP_VALUE_MAX] = "";
+        __system_property_get("ro.build.version.sdk", sdk);
+        value = atoi(sdk);
+        __atomic_store_n(&level, value, __ATOMIC_RELAXED);
+    }
+    return value;
+}
+#endif
+
+// Android 14 之前应用的 seccomp 策略不放行 copy_file_range，调用会被 SIGSYS 直接终止
+static int copy_file_range_allowed(void) {
+#if defined(__ANDROID__) && defined(__NR_copy_file_range)
+    return android_sdk_level() >= 34;
+#elif defined(__NR_copy_file_range)
+    return 1;
+#else
+    return 0;
+#endif
+}
+
+static ssize_t pwrite_all(int fd, const char *buffer, size_t len, off_t offset) {
+    size_t written = 0;
+    while (written < len) {
+        ssize_t n = pwrite(fd, buffer + written, len - written, offset + (off_t) written);
+        if (n < 0 && errno == EINTR) continue;
+        if (n <= 0) return -1;
+        written += (size_t) n;
     }
-    // 目录
-    else if (S_ISDIR(statbuf.st_mode)) {
-        DIR *dir = opendir(path);
-        if (!dir) {
-            __android_log_print(ANDROID_LOG_ERROR, TAG, "Failed to open dir: %s (errno %d)", path, errno);
-            return 0;
+    return (ssize_t) written;
+}
+
+// 复制 [offset, end) 区间，按块进行并在块之间检查取消请求；
+// 当前方式不被文件系统或内核支持时降级到下一种（method 在同一文件的各区间之间保持）
+// 目标始终按绝对偏移写入，未写入的区间保持为空洞
+static int copy_range(const progress_sink *sink, int src_fd, int dest_fd,
+                      off_t offset, off_t end, int *method, int64_t *counted) {
+    char *buffer = NULL;
+    int status = STATUS_SUCCESS;
+    while (offset < end) {
+        if (progress_cancelled(sink)) {
+            status = STATUS_CANCELLED;
+            break;
         }
-        
-        int success = 1;
-        struct dirent *entry;
-        while ((entry = readdir(dir)) != NULL) {
-            if (strcmp(entry->d_name, ".") == 0 || strcmp(entry->d_name, "..") == 0)
+        size_t len = end - offset < COPY_CHUNK_SIZE ? (size_t) (end - offset) : COPY_CHUNK_SIZE;
+        ssize_t n;
+        if (*method == COPY_METHOD_RANGE) {
+#ifdef __NR_copy_file_range
+            loff_t in = offset;
+            loff_t out = offset;
+            n = syscall(__NR_copy_file_range, src_fd, &in, dest_fd, &out, len, 0);
+#else
+            n = -1;
+            errno = ENOSYS;
+#endif
+            // 跨文件系统、旧内核或特殊文件系统（部分会返回 0）时降级
+            if (n == 0 || (n < 0 && errno != EINTR && errno != EAGAIN && errno != EIO && errno != ENOSPC)) {
+                *method = COPY_METHOD_SENDFILE;
+                continue;
+            }
+        } else if (*method == COPY_METHOD_SENDFILE) {
+            off_t in = offset;
+            if (lseek(dest_fd, offset, SEEK_SET) != offset) {
+                status = STATUS_ERROR;
+                break;
+            }
+            n = sendfile(dest_fd, src_fd, &in, len);
+            if (n < 0 && (errno == EINVAL || errno == ENOSYS)) {
+                *method = COPY_METHOD_READ_WRITE;
                 continue;
-                
-            char child_path[MAX_PATH_LEN];
-            safe_path_join(child_path, path, entry->d_name);
-            
-            if (!delete_recursive(child_path)) {
-                success = 0;
+            }
+        } else {
+            if (!buffer && !(buffer = malloc(COPY_CHUNK_SIZE))) {
+                status = STATUS_ERROR;
                 break;
             }
+            n = pread(src_fd, buffer, len, offset);
+            if (n > 0 && pwrite_all(dest_fd, buffer, (size_t) n, offset) < 0) n = -1;
+        }
+
+        if (n < 0 && (errno == EAGAIN || errno == EINTR)) continue;
+        if (n <= 0) {
+            // n == 0 表示源文件在复制过程中变短
+            __android_log_print(ANDROID_LOG_ERROR, TAG, "Copy failed at offset %lld (errno %d)", (long long) offset, errno);
+            status = STATUS_ERROR;
+            break;
+        }
+        offset += n;
+        *counted += n;
+        progress_add(sink, COPY_SLOT_BYTES, n);
+    }
+    progress_method(sink, *method);
+    free(buffer);
+    return status;
+}
+
+// 复制普通文件 start 之后的数据：从头复制时先尝试 FICLONE 整体共享数据块，否则逐个数据区间复制，
+// 稀疏文件（已分配块少于文件大小）按 SEEK_DATA/SEEK_HOLE 跳过空洞
+static int copy_data(const progress_sink *sink, int src_fd, int dest_fd, const struct stat *src_stat,
+                     off_t start, int64_t *counted) {
+    off_t size = src_stat->st_size;
+    if (size == 0) return ftruncate(dest_fd, 0) == 0 ? STATUS_SUCCESS : STATUS_ERROR;
+
+    if (COPY_FORCE_METHOD == 0 && start == 0 && ioctl(dest_fd, FICLONE, src_fd) == 0) {
+        *counted += size;
+        progress_add(sink, COPY_SLOT_BYTES, size);
+        progress_method(sink, COPY_METHOD_CLONE);
+        return STATUS_SUCCESS;
+    }
+
+    int method = COPY_FORCE_METHOD ? COPY_FORCE_METHOD
+                                   : copy_file_range_allowed() ? COPY_METHOD_RANGE : COPY_METHOD_SENDFILE;
+    int sparse = (off_t) src_stat->st_blocks * 512 < size;
+    off_t pos = start;
+    while (pos < size) {
+        off_t data = pos;
+        off_t hole = size;
+        if (sparse) {
+            data = lseek(src_fd, pos, SEEK_DATA);
+            if (data < 0) {
+                // ENXIO：其后全是空洞；其他错误说明文件系统不支持，按普通文件复制
+                if (errno == ENXIO) {
+                    data = size;
+                } else {
+                    sparse = 0;
+                    data = pos;
+                }
+            }
+            if (sparse && data < size) {
+                hole = lseek(src_fd, data, SEEK_HOLE);
+                if (hole < 0 || hole > size) hole = size;
+            }
+            if (data > pos) {
+                // 空洞不写入目标，但计入进度
+                *counted += data - pos;
+                progress_add(sink, COPY_SLOT_BYTES, data - pos);
+                progress_method(sink, COPY_METHOD_SPARSE);
+            }
+        }
+        if (data >= size) break;
+
+        int status = copy_range(sink, src_fd, dest_fd, data, hole, &method, counted);
+        if (status != STATUS_SUCCESS) return status;
+        pos = hole;
+    }
+
+    // 设置最终大小，末尾的空洞由此产生
+    if (ftruncate(dest_fd, size) != 0) {
+        __android_log_print(ANDROID_LOG_ERROR, TAG, "ftruncate failed (errno %d)", errno);
+        return STATUS_ERROR;
+    }
+    return STATUS_SUCCESS;
+}
+
+// ==================== 校验复制 ====================
+// 校验模式下按块 pread 源文件，边写入边计算 xxHash64，写完后回读目标计算同一校验和并比较
+// 源文件只读一次；VERIFY_CACHED 回读通常命中页缓存，只能发现写入路径上的错误，
+// VERIFY_DEVICE 先 fdatasync 再丢弃目标的页缓存，回读的是存储上的实际数据
+
+#define VERIFY_NONE 0
+#define VERIFY_CACHED 1
+#define VERIFY_DEVICE 2
+
+// 复制后保留的源文件属性（按位或），与 NativeFileOperation.PRESERVE_* 一致
+#define PRESERVE_TIMES 0x1
+#define PRESERVE_MODE 0x2
+#define PRESERVE_OWNER 0x4
+#define PRESERVE_ALL (PRESERVE_TIMES | PRESERVE_MODE | PRESERVE_OWNER)
+
+// 单个文件的复制选项，NULL 表示默认（不校验，保留全部属性）
+typedef struct {
+    int verify;
+    int preserve;
+    uint64_t checksum; // 输出：源文件的 xxHash64（seed 0）
+    int has_checksum;
+} copy_options;
+
+// 在仍打开的目标 fd 上设置属性：不再按路径查找，时间戳保留纳秒，目标被并发重命名也不会改错文件
+// 先 fchown 再 fchmod，因为 chown 会清除 setuid/setgid 位；失败（例如没有 CAP_CHOWN 或 FUSE 存储）时忽略
+static void preserve_attrs(int fd, int preserve, mode_t mode, uid_t uid, gid_t gid,
+                           const struct timespec *atime, const struct timespec *mtime) {
+    // 新文件的所有者本来就是当前用户时不必调用
+    if ((preserve & PRESERVE_OWNER) && (uid != geteuid() || gid != getegid())) {
+        fchown(fd, uid, gid);
+    }
+    if (preserve & PRESERVE_MODE) fchmod(fd, mode & 07777);
+    if (preserve & PRESERVE_TIMES) {
+        struct timespec times[2] = { *atime, *mtime };
+        futimens(fd, times);
+    }
+}
+
+#define XXH_PRIME64_1 0x9E3779B185EBCA87ULL
+#define XXH_PRIME64_2 0xC2B2AE3D27D4EB4FULL
+#define XXH_PRIME64_3 0x165667B19E3779F9ULL
+#define XXH_PRIME64_4 0x85EBCA77C2B2AE63ULL
+#define XXH_PRIME64_5 0x27D4EB2F165667C5ULL
+
+typedef struct {
+    uint64_t total_len;
+    uint64_t v[4];
+    uint8_t mem[32];
+    uint32_t mem_size;
+} xxh64_state;
+
+static uint64_t xxh_rotl64(uint64_t x, int r) {
+    return (x << r) | (x >> (64 - r));
+}
+
+// 按小端读取，与参考实现的输出一致
+static uint64_t xxh_read64(const uint8_t *p) {
+    uint64_t v;
+    memcpy(&v, p, sizeof(v));
+#if __BYTE_ORDER__ == __ORDER_BIG_ENDIAN__
+    v = __builtin_bswap64(v);
+#endif
+    return v;
+}
+
+static uint32_t xxh_read32(const uint8_t *p) {
+    uint32_t v;
+    memcpy(&v, p, sizeof(v));
+#if __BYTE_ORDER__ == __ORDER_BIG_ENDIAN__
+    v = __builtin_bswap32(v);
+#endif
+    return v;
+}
+
+static uint64_t xxh64_round(uint64_t acc, uint64_t input) {
+    acc += input * XXH_PRIME64_2;
+    acc = xxh_rotl64(acc, 31);
+    return acc * XXH_PRIME64_1;
+}
+
+static uint64_t xxh64_merge_round(uint64_t acc, uint64_t val) {
+    acc ^= xxh64_round(0, val);
+    return acc * XXH_PRIME64_1 + XXH_PRIME64_4;
+}
+
+static void xxh64_reset(xxh64_state *state) {
+    memset(state, 0, sizeof(*state));
+    state->v[0] = XXH_PRIME64_1 + XXH_PRIME64_2;
+    state->v[1] = XXH_PRIME64_2;
+    state->v[2] = 0;
+    state->v[3] = 0 - XXH_PRIME64_1;
+}
+
+static void xxh64_update(xxh64_state *state, const void *input, size_t len) {
+    const uint8_t *p = input;
+    const uint8_t *end = p + len;
+    state->total_len += len;
+
+    if (state->mem_size + len < 32) {
+        memcpy(state->mem + state->mem_size, p, len);
+        state->mem_size += (uint32_t) len;
+        return;
+    }
+    if (state->mem_size) {
+        size_t fill = 32 - state->mem_size;
+        memcpy(state->mem + state->mem_size, p, fill);
+        for (int i = 0; i < 4; i++) state->v[i] = xxh64_round(state->v[i], xxh_read64(state->mem + i * 8));
+        p += fill;
+        state->mem_size = 0;
+    }
+    while (p + 32 <= end) {
+        for (int i = 0; i < 4; i++) state->v[i] = xxh64_round(state->v[i], xxh_read64(p + i * 8));
+        p += 32;
+    }
+    if (p < end) {
+        memcpy(state->mem, p, (size_t) (end - p));
+        state->mem_size = (uint32_t) (end - p);
+    }
+}
+
+static uint64_t xxh64_digest(const xxh64_state *state) {
+    uint64_t h;
+    if (state->total_len >= 32) {
+        h = xxh_rotl64(state->v[0], 1) + xxh_rotl64(state->v[1], 7)
+            + xxh_rotl64(state->v[2], 12) + xxh_rotl64(state->v[3], 18);
+        for (int i = 0; i < 4; i++) h = xxh64_merge_round(h, state->v[i]);
+    } else {
+        h = state->v[2] + XXH_PRIME64_5;
+    }
+    h += state->total_len;
+
+    const uint8_t *p = state->mem;
+    const uint8_t *end = p + state->mem_size;
+    while (p + 8 <= end) {
+        h ^= xxh64_round(0, xxh_read64(p));
+        h = xxh_rotl64(h, 27) * XXH_PRIME64_1 + XXH_PRIME64_4;
+        p += 8;
+    }
+    if (p + 4 <= end) {
+        h ^= (uint64_t) xxh_read32(p) * XXH_PRIME64_1;
+        h = xxh_rotl64(h, 23) * XXH_PRIME64_2 + XXH_PRIME64_3;
+        p += 4;
+    }
+    while (p < end) {
+        h ^= (*p) * XXH_PRIME64_5;
+        h = xxh_rotl64(h, 11) * XXH_PRIME64_1;
+        p++;
+    }
+    h ^= h >> 33;
+    h *= XXH_PRIME64_2;
+    h ^= h >> 29;
+    h *= XXH_PRIME64_3;
+    h ^= h >> 32;
+    return h;
+}
+
+// 从 offset 起读取 fd 直到文件末尾并累加校验和，返回读取的字节数，出错时返回 -1
+static off_t hash_fd(int fd, char *buffer, off_t offset, off_t limit, xxh64_state *state) {
+    off_t pos = offset;
+    while (pos < limit) {
+        size_t want = limit - pos < COPY_CHUNK_SIZE ? (size_t) (limit - pos) : COPY_CHUNK_SIZE;
+        ssize_t n = pread(fd, buffer, want, pos);
+        if (n < 0 && errno == EINTR) continue;
+        if (n < 0) return -1;
+        if (n == 0) break;
+        xxh64_update(state, buffer, (size_t) n);
+        pos += n;
+    }
+    return pos - offset;
+}
+
+// 复制并校验：源文件按块读取一次，同时计算校验和；写完后回读目标比较
+static int copy_verified(const progress_sink *sink, int src_fd, int dest_fd, const struct stat *src_stat,
+                         off_t start, int64_t *counted, copy_options *options) {
+    off_t size = src_stat->st_size;
+    char *buffer = malloc(COPY_CHUNK_SIZE);
+    if (!buffer) return STATUS_ERROR;
+
+    int status = STATUS_ERROR;
+    xxh64_state source_hash;
+    xxh64_reset(&source_hash);
+
+    // 续传时目标中已有的部分不再复制，但校验和需要覆盖整个源文件
+    if (start > 0 && hash_fd(src_fd, buffer, 0, start, &source_hash) != start) {
+        __android_log_print(ANDROID_LOG_ERROR, TAG, "Failed to hash source prefix (errno %d)", errno);
+        goto out;
+    }
+
+    off_t pos = start;
+    while (pos < size) {
+        if (progress_cancelled(sink)) {
+            status = STATUS_CANCELLED;
+            goto out;
         }
-        closedir(dir);
-        
-        if (!success) {
-            __android_log_print(ANDROID_LOG_ERROR, TAG, "Partial delete failed: %s", path);
-            return 0;
+        size_t want = size - pos < COPY_CHUNK_SIZE ? (size_t) (size - pos) : COPY_CHUNK_SIZE;
+        ssize_t n = pread(src_fd, buffer, want, pos);
+        if (n < 0 && errno == EINTR) continue;
+        if (n <= 0) {
+            __android_log_print(ANDROID_LOG_ERROR, TAG, "Source read failed at %lld (errno %d)",
+                                (long long) pos, n < 0 ? errno : 0);
+            goto out;
         }
-        
-        __android_log_print(ANDROID_LOG_DEBUG, TAG, "Deleting directory: %s", path);
-        if (rmdir(path) != 0) {
-            __android_log_print(ANDROID_LOG_ERROR, TAG, "Failed to rmdir: %s (errno %d)", path, errno);
-            return 0;
+        xxh64_update(&source_hash, buffer, (size_t) n);
+        if (pwrite_all(dest_fd, buffer, (size_t) n, pos) < 0) {
+            __android_log_print(ANDROID_LOG_ERROR, TAG, "Write failed (errno %d)", errno);
+            goto out;
         }
+        pos += n;
+        *counted += n;
+        progress_add(sink, COPY_SLOT_BYTES, n);
     }
-    // 其他类型 (FIFO, socket等)
-    else {
-        __android_log_print(ANDROID_LOG_DEBUG, TAG, "Deleting special file: %s", path);
-        if (unlink(path) != 0) {
-            __android_log_print(ANDROID_LOG_ERROR, TAG, "Failed to unlink special: %s (errno %d)", path, errno);
-            return 0;
+    progress_method(sink, COPY_METHOD_READ_WRITE);
+    if (ftruncate(dest_fd, size) != 0) goto out;
+
+    if (options->verify == VERIFY_DEVICE) {
+        // 写入存储后丢弃页缓存，回读时从存储读取
+        if (fdatasync(dest_fd) != 0) {
+            __android_log_print(ANDROID_LOG_ERROR, TAG, "fdatasync failed (errno %d)", errno);
+            goto out;
         }
+        posix_fadvise(dest_fd, 0, 0, POSIX_FADV_DONTNEED);
     }
-    
-    return 1;
+
+    xxh64_state dest_hash;
+    xxh64_reset(&dest_hash);
+    if (hash_fd(dest_fd, buffer, 0, size, &dest_hash) != size) {
+        __android_log_print(ANDROID_LOG_ERROR, TAG, "Failed to read back destination (errno %d)", errno);
+        goto out;
+    }
+
+    options->checksum = xxh64_digest(&source_hash);
+    options->has_checksum = 1;
+    if (xxh64_digest(&dest_hash) != options->checksum) {
+        __android_log_print(ANDROID_LOG_ERROR, TAG, "Checksum mismatch: %016llx != %016llx",
+                            (unsigned long long) xxh64_digest(&dest_hash), (unsigned long long) options->checksum);
+        status = STATUS_VERIFY_FAILED;
+        goto out;
+    }
+    status = STATUS_SUCCESS;
+
+out:
+    free(buffer);
+    return status;
+}
+
+// 复制单个普通文件或符号链接（不递归），目标已存在时返回 STATUS_CONFLICT
+// resume_from >= 0 时续传：目标是上次未完成的文件，保留其前 resume_from 字节，之后的部分重新复制
+// options 可为 NULL；校验模式下把源文件的校验和写回 options
+// 可被多个线程同时调用，不使用任何全局状态
+static int copy_file(const progress_sink *sink, const char *src, const char *dest, const struct stat *src_stat,
+                     off_t resume_from, copy_options *options) {
+    int verify = options ? options->verify : VERIFY_NONE;
+    int preserve = options ? options->preserve : PRESERVE_ALL;
+    if (resume_from > src_stat->st_size) resume_from = 0;
+    if (resume_from >= 0 && (S_ISLNK(src_stat->st_mode) || resume_from == 0)) {
+        // 无可保留的数据，删除后按新文件复制
+        if (unlink(dest) != 0 && errno != ENOENT) {
+            __android_log_print(ANDROID_LOG_ERROR, TAG, "Failed to replace partial file: %s (errno %d)", dest, errno);
+            return STATUS_ERROR;
+        }
+        resume_from = -1;
+    }
+
+    if (S_ISLNK(src_stat->st_mode)) {
+        char link_target[MAX_PATH_LEN];
+        ssize_t len = readlink(src, link_target, MAX_PATH_LEN - 1);
+        if (len == -1) {
+            __android_log_print(ANDROID_LOG_ERROR, TAG, "Failed to read symlink: %s (errno %d)", src, errno);
+            return STATUS_ERROR;
+        }
+        link_target[len] = '\0';
+        if (symlink(link_target, dest) != 0) {
+            if (errno == EEXIST) return STATUS_CONFLICT;
+            __android_log_print(ANDROID_LOG_ERROR, TAG, "Failed to create symlink: %s -> %s (errno %d)", dest, link_target, errno);
+            return STATUS_ERROR;
+        }
+        progress_add(sink, COPY_SLOT_FILES, 1);
+        return STATUS_SUCCESS;
+    }
+
+    if (!S_ISREG(src_stat->st_mode)) {
+        __android_log_print(ANDROID_LOG_WARN, TAG, "Unsupported file type: %s (mode: %o)", src, src_stat->st_mode);
+        return STATUS_ERROR;
+    }
+
+    int src_fd = open(src, O_RDONLY | O_CLOEXEC);
+    if (src_fd == -1) {
+        __android_log_print(ANDROID_LOG_ERROR, TAG, "Failed to open source file: %s (errno %d)", src, errno);
+        return STATUS_ERROR;
+    }
+
+    // O_EXCL 保证检测冲突与创建文件是同一个原子操作；续传时打开已有文件
+    // 校验时需要回读目标；不保留权限时按 umask 创建
+    int create_flags = (resume_from > 0 ? 0 : O_CREAT | O_EXCL) | (verify ? O_RDWR : O_WRONLY);
+    mode_t create_mode = (preserve & PRESERVE_MODE) ? src_stat->st_mode & 0777 : 0666;
+    int dest_fd = open(dest, O_CLOEXEC | create_flags, create_mode);
+    if (dest_fd == -1 && errno == ENOENT) {
+        // 确保目标目录存在
+        char dest_dir[MAX_PATH_LEN];
+        snprintf(dest_dir, sizeof(dest_dir), "%s", dest);
+        char *last_slash = strrchr(dest_dir, '/');
+        if (last_slash && last_slash != dest_dir) {
+            *last_slash = '\0';
+            if (mkdir_p(dest_dir) == 0) {
+                dest_fd = open(dest, O_CLOEXEC | create_flags, create_mode);
+            }
+        }
+    }
+    if (dest_fd == -1) {
+        int err = errno;
+        close(src_fd);
+        if (err == EEXIST) {
+            __android_log_print(ANDROID_LOG_WARN, TAG, "File conflict detected: %s", dest);
+            return STATUS_CONFLICT;
+        }
+        __android_log_print(ANDROID_LOG_ERROR, TAG, "Failed to create destination file: %s (errno %d)", dest, err);
+        return STATUS_ERROR;
+    }
+
+    // 每块完成后累加共享计数器并检查取消请求
+    int64_t counted = 0;
+    off_t start = resume_from > 0 ? resume_from : 0;
+    int status = verify ? copy_verified(sink, src_fd, dest_fd, src_stat, start, &counted, options)
+                        : copy_data(sink, src_fd, dest_fd, src_stat, start, &counted);
+
+    // 数据（包括校验回读）全部完成后再设置属性，之后不再写入，mtime 不会被改变
+    if (status == STATUS_SUCCESS) {
+        preserve_attrs(dest_fd, preserve, src_stat->st_mode, src_stat->st_uid, src_stat->st_gid,
+                       &src_stat->st_atim, &src_stat->st_mtim);
+    }
+    close(src_fd);
+    close(dest_fd);
+
+    if (status != STATUS_SUCCESS) {
+        if (status == STATUS_CANCELLED) {
+            __android_log_print(ANDROID_LOG_INFO, TAG, "Copy cancelled: %s", dest);
+        } else {
+            __android_log_print(ANDROID_LOG_ERROR, TAG,
+                "Incomplete copy: %lld of %lld bytes copied to %s",
+                (long long) counted, (long long) src_stat->st_size, dest);
+        }
+        unlink(dest); // 删除不完整的文件
+        progress_add(sink, COPY_SLOT_BYTES, -counted); // 撤销已计入的部分
+        return status;
+    }
+    progress_add(sink, COPY_SLOT_FILES, 1);
+    return STATUS_SUCCESS;
+}
+
+// 递归复制，深度随参数传递，可在多个线程中同时使用
+static int copy_tree(const progress_sink *sink, const char *src, const char *dest, int depth) {
+    if (depth > MAX_RECURSION_DEPTH) {
+        __android_log_print(ANDROID_LOG_ERROR, TAG, "Recursion too deep! Max depth reached: %s", src);
+        return STATUS_ERROR;
+    }
+
+    struct stat src_stat;
+    if (lstat(src, &src_stat) != 0) {
+        __android_log_print(ANDROID_LOG_ERROR, TAG, "Failed to access source: %s (errno %d)", src, errno);
+        return STATUS_ERROR;
+    }
+
+    if (!S_ISDIR(src_stat.st_mode)) {
+        return copy_file(sink, src, dest, &src_stat, -1, NULL);
+    }
+
+    __android_log_print(ANDROID_LOG_DEBUG, TAG, "Creating directory: %s", dest);
+    if (mkdir_p(dest) != 0) return STATUS_ERROR;
+
+    // 设置目录权限
+    if (chmod(dest, src_stat.st_mode) != 0) {
+        __android_log_print(ANDROID_LOG_WARN, TAG, "Failed to set dir permissions: %s", dest);
+    }
+
+    DIR *dir = opendir(src);
+    if (!dir) {
+        __android_log_print(ANDROID_LOG_ERROR, TAG, "Failed to open source dir: %s (errno %d)", src, errno);
+        return STATUS_ERROR;
+    }
+
+    int status = STATUS_SUCCESS;
+    struct dirent *entry;
+    while ((entry = readdir(dir)) != NULL) {
+        if (progress_cancelled(sink)) {
+            status = STATUS_CANCELLED;
+            break;
+        }
+        if (strcmp(entry->d_name, ".") == 0 || strcmp(entry->d_name, "..") == 0)
+            continue;
+
+        char src_path[MAX_PATH_LEN];
+        char dest_path[MAX_PATH_LEN];
+        safe_path_join(src_path, src, entry->d_name);
+        safe_path_join(dest_path, dest, entry->d_name);
+
+        // 检查访问权限
+        if (access(src_path, R_OK) != 0) {
+            __android_log_print(ANDROID_LOG_WARN, TAG, "Skipping inaccessible: %s", src_path);
+            continue;
+        }
+
+        int result = copy_tree(sink, src_path, dest_path, depth + 1);
+        if (result == STATUS_ERROR || result == STATUS_CANCELLED) {
+            if (result == STATUS_ERROR) {
+                __android_log_print(ANDROID_LOG_ERROR, TAG, "Failed to copy: %s to %s", src_path, dest_path);
+            }
+            status = result;
+            break;
+        }
+    }
+    closedir(dir);
+    return status;
 }
 
 JNIEXPORT jint JNICALL
@@ -164,15 +737,9 @@ Java_com_manager_ssb_util_NativeFileOperation_nativeCopy(
     jobject thiz,
     jstring jSrc,
     jstring jDest,
-    jobject jCallback
+    jobject jCounters
 ) {
-    // 递归深度检查
-    static jint recursion_depth = 0;
-    if (recursion_depth > MAX_RECURSION_DEPTH) {
-        __android_log_print(ANDROID_LOG_ERROR, TAG, "Recursion too deep! Max depth reached");
-        KISS_FAIL(env, 1, "Directory structure too deep");
-    }
-    recursion_depth++;
+    (void)thiz;
 
     const char* src = (*env)->GetStringUTFChars(env, jSrc, NULL);
     const char* dest = (*env)->GetStringUTFChars(env, jDest, NULL);
@@ -180,231 +747,64 @@ Java_com_manager_ssb_util_NativeFileOperation_nativeCopy(
     if (!src || !dest) {
         if (src) (*env)->ReleaseStringUTFChars(env, jSrc, src);
         if (dest) (*env)->ReleaseStringUTFChars(env, jDest, dest);
-        recursion_depth--;
-        return JNI_FALSE;
+        return STATUS_ERROR;
     }
     
     // 记录正在处理的项目
     __android_log_print(ANDROID_LOG_INFO, TAG, "Copying: '%s' -> '%s'", src, dest);
-    
-    // 获取进度回调方法
-    jmethodID progressMethod = NULL;
-    if (jCallback) {
-        jclass callbackClass = (*env)->GetObjectClass(env, jCallback);
-        progressMethod = (*env)->GetMethodID(env, callbackClass, "onProgress", "(Ljava/lang/String;JJI)V");
-    }
-    
-    // 检测源类型
-    struct stat src_stat;
-    if (lstat(src, &src_stat) != 0) 
-        KISS_FAIL(env, 1, "Failed to access source");
-        
-    const char* filename = strrchr(src, '/');
-        if (filename) filename++;
-        else filename = src;
-        
-    // 在文件复制前检查目标是否存在
-    if (access(dest, F_OK) == 0 && S_ISREG(src_stat.st_mode)) {
-        __android_log_print(ANDROID_LOG_WARN, TAG, "File conflict detected: %s", dest);
-        
-        // 如果文件存在，返回冲突状态码
-        if (jCallback && progressMethod) {
-            jstring jFilename = (*env)->NewStringUTF(env, filename);
-            (*env)->CallVoidMethod(
-                env, 
-                jCallback, 
-                progressMethod, 
-                jFilename,
-                0L,
-                src_stat.st_size,
-                (jint)STATUS_CONFLICT
-            );
-            (*env)->DeleteLocalRef(env, jFilename);
-        }
-        
-        recursion_depth--;
-        return STATUS_CONFLICT;
+
+    progress_sink sink;
+    progress_init(&sink, env, jCounters);
+    int status = copy_tree(&sink, src, dest, 0);
+
+    if (status == STATUS_SUCCESS) {
+        __android_log_print(ANDROID_LOG_INFO, TAG, "Successfully copied: %s", src);
     }
-    
-    // 文件复制
-    if (S_ISREG(src_stat.st_mode)) {
-        int src_fd = open(src, O_RDONLY | O_CLOEXEC);
-        if (src_fd == -1) {
-            __android_log_print(ANDROID_LOG_ERROR, TAG, "Failed to open source file: %s", src);
-            KISS_FAIL(env, 1, "Failed to open source file");
-        }
-        
-        // 确保目标目录存在
-        char dest_dir[MAX_PATH_LEN];
-        strncpy(dest_dir, dest, MAX_PATH_LEN);
-        char* last_slash = strrchr(dest_dir, '/');
-        if (last_slash) {
-            *last_slash = '\0';
-            if (access(dest_dir, F_OK) != 0) {
-                __android_log_print(ANDROID_LOG_DEBUG, TAG, "Creating parent dir: %s", dest_dir);
-                if (mkdir_p(dest_dir) != 0) {
-                    close(src_fd);
-                    KISS_FAIL(env, 1, "Failed to create parent directory");
-                }
-            }
-        }
-        
-        int dest_fd = open(dest, O_WRONLY | O_CREAT | O_EXCL | O_CLOEXEC, 
-                          src_stat.st_mode & 0777);
-        if (dest_fd == -1) {
-            close(src_fd);
-            KISS_FAIL(env, 1, "Failed to create destination file");
-        }
-        
-        // 获取文件名（不含路径）
-        const char* filename = strrchr(src, '/');
-        if (filename) filename++;
-        else filename = src;
-        
-        // 使用sendfile进行高效复制
-        off_t offset = 0;
-        ssize_t result;
-        while (offset < src_stat.st_size) {
-            result = sendfile(dest_fd, src_fd, &offset, src_stat.st_size - offset);
-            
-            if (result <= 0) {
-                if (errno == EAGAIN || errno == EINTR) continue;
-                break;
-            }
-            
-            // 进度更新（添加文件名参数）
-            if (jCallback && progressMethod) {
-                jstring jFilename = (*env)->NewStringUTF(env, filename);
-                (*env)->CallVoidMethod(
-                    env, 
-                    jCallback, 
-                    progressMethod, 
-                    jFilename,
-                    (jlong)offset, 
-                    (jlong)src_stat.st_size,
-                    (jint)STATUS_SUCCESS
-                );
-                (*env)->DeleteLocalRef(env, jFilename);
-            }
-        }
-        
-        close(src_fd);
-        close(dest_fd);
-        
-        if (offset != (off_t)src_stat.st_size) {
-            __android_log_print(ANDROID_LOG_ERROR, TAG, 
-                "Incomplete copy: %lld of %lld bytes copied to %s", 
-                (long long)offset, (long long)src_stat.st_size, dest);
-                
-            unlink(dest); // 删除不完整的文件
-            KISS_FAIL(env, 1, "Failed to complete file copy");
-        }
-        
-        // 复制文件属性
-        struct utimbuf times;
-        times.actime = src_stat.st_atime;
-        times.modtime = src_stat.st_mtime;
-        utime(dest, &times);
-        
-        chmod(dest, src_stat.st_mode);
-        chown(dest, src_stat.st_uid, src_stat.st_gid);
-    }
-    // 目录复制
-    else if (S_ISDIR(src_stat.st_mode)) {
-        __android_log_print(ANDROID_LOG_DEBUG, TAG, "Creating directory: %s", dest);
-        if (mkdir_p(dest) != 0) {
-            KISS_FAIL(env, 1, "Failed to create directory");
-        }
-        
-        // 设置目录权限
-        if (chmod(dest, src_stat.st_mode) != 0) {
-            __android_log_print(ANDROID_LOG_WARN, TAG, "Failed to set dir permissions: %s", dest);
-        }
-        
-        DIR *dir = opendir(src);
-        if (!dir) {
-            __android_log_print(ANDROID_LOG_ERROR, TAG, "Failed to open source dir: %s", src);
-            KISS_FAIL(env, 1, "Failed to open directory");
-        }
-        
-        struct dirent *entry;
-        int success = 1;
-        while ((entry = readdir(dir)) != NULL) {
-            if (strcmp(entry->d_name, ".") == 0 || strcmp(entry->d_name, "..") == 0)
-                continue;
-                
-            char src_path[MAX_PATH_LEN];
-            char dest_path[MAX_PATH_LEN];
-            safe_path_join(src_path, src, entry->d_name);
-            safe_path_join(dest_path, dest, entry->d_name);
-            
-            // 检查访问权限
-            if (access(src_path, R_OK) != 0) {
-                __android_log_print(ANDROID_LOG_WARN, TAG, "Skipping inaccessible: %s", src_path);
-                continue;
-            }
-            
-            // 创建Java字符串
-            jstring jSrcPath = (*env)->NewStringUTF(env, src_path);
-            jstring jDestPath = (*env)->NewStringUTF(env, dest_path);
-            
-            if (!jSrcPath || !jDestPath) {
-                __android_log_print(ANDROID_LOG_ERROR, TAG, "Failed to create JNI strings");
-                success = 0;
-                if (jSrcPath) (*env)->DeleteLocalRef(env, jSrcPath);
-                if (jDestPath) (*env)->DeleteLocalRef(env, jDestPath);
-                break;
-            }
-            
-            // 递归复制
-            jboolean result = Java_com_manager_ssb_util_NativeFileOperation_nativeCopy(
-                env, thiz, jSrcPath, jDestPath, jCallback);
-            
-            // 释放JNI引用
-            (*env)->DeleteLocalRef(env, jSrcPath);
-            (*env)->DeleteLocalRef(env, jDestPath);
-            
-            if (result == STATUS_ERROR) {
-                __android_log_print(ANDROID_LOG_ERROR, TAG, "Failed to copy: %s to %s", src_path, dest_path);
-                success = 0;
-                break;
+    (*env)->ReleaseStringUTFChars(env, jSrc, src);
+    (*env)->ReleaseStringUTFChars(env, jDest, dest);
+    return status;
+}
+
+// 只复制单个文件或符号链接，供 Java 层的并行复制引擎调用；resumeFrom 为 -1 时按新文件复制
+JNIEXPORT jint JNICALL
+Java_com_manager_ssb_util_NativeFileOperation_nativeCopyFile(
+    JNIEnv* env,
+    jobject thiz,
+    jstring jSrc,
+    jstring jDest,
+    jlong resumeFrom,
+    jobject jCounters,
+    jint verify,
+    jint preserve,
+    jlongArray jChecksum
+) {
+    (void)thiz;
+
+    const char* src = (*env)->GetStringUTFChars(env, jSrc, NULL);
+    const char* dest = (*env)->GetStringUTFChars(env, jDest, NULL);
+
+    int status = STATUS_ERROR;
+    if (src && dest) {
+        struct stat src_stat;
+        if (lstat(src, &src_stat) != 0) {
+            __android_log_print(ANDROID_LOG_ERROR, TAG, "Failed to access source: %s (errno %d)", src, errno);
+        } else if (S_ISDIR(src_stat.st_mode)) {
+            __android_log_print(ANDROID_LOG_ERROR, TAG, "Not a file: %s", src);
+        } else {
+            progress_sink sink;
+            progress_init(&sink, env, jCounters);
+            copy_options options = { .verify = verify, .preserve = preserve };
+            status = copy_file(&sink, src, dest, &src_stat, (off_t) resumeFrom, &options);
+            if (options.has_checksum && jChecksum && (*env)->GetArrayLength(env, jChecksum) > 0) {
+                jlong checksum = (jlong) options.checksum;
+                (*env)->SetLongArrayRegion(env, jChecksum, 0, 1, &checksum);
             }
         }
-        closedir(dir);
-        
-        if (!success) {
-            KISS_FAIL(env, 0, "Partial directory copy failed");
-        }
-    }
-    // 符号链接处理
-    else if (S_ISLNK(src_stat.st_mode)) {
-        char link_target[MAX_PATH_LEN];
-        ssize_t len = readlink(src, link_target, MAX_PATH_LEN - 1);
-        if (len == -1) {
-            __android_log_print(ANDROID_LOG_ERROR, TAG, "Failed to read symlink: %s", src);
-            KISS_FAIL(env, 1, "Failed to read symlink");
-        }
-        
-        link_target[len] = '\0';
-        if (symlink(link_target, dest) != 0) {
-            __android_log_print(ANDROID_LOG_ERROR, TAG, "Failed to create symlink: %s -> %s", dest, link_target);
-            KISS_FAIL(env, 1, "Failed to create symlink");
-        }
     }
-    // 特殊文件处理
-    else {
-        __android_log_print(ANDROID_LOG_WARN, TAG, "Unsupported file type: %s (mode: %o)", src, src_stat.st_mode);
-        KISS_FAIL(env, 0, "Unsupported file type");
-    }
-    
-    // 成功完成
-    __android_log_print(ANDROID_LOG_INFO, TAG, "Successfully copied: %s", src);
-    (*env)->ReleaseStringUTFChars(env, jSrc, src);
-    (*env)->ReleaseStringUTFChars(env, jDest, dest);
-    
-    // 正常返回改为0表示成功
-    recursion_depth--;
-    return STATUS_SUCCESS;
+
+    if (src) (*env)->ReleaseStringUTFChars(env, jSrc, src);
+    if (dest) (*env)->ReleaseStringUTFChars(env, jDest, dest);
+    return status;
 }
 
 JNIEXPORT jboolean JNICALL
@@ -457,7 +857,9 @@ Java_com_manager_ssb_util_NativeFileOperation_nativeMove(
     __android_log_print(ANDROID_LOG_WARN, TAG, "Rename failed (errno %d), using copy-delete", errno);
     
     // 跨设备回退到复制+删除
-    if (Java_com_manager_ssb_util_NativeFileOperation_nativeCopy(env, thiz, jSrc, jDest, NULL)) {
+    progress_sink sink;
+    progress_init(&sink, env, NULL);
+    if (copy_tree(&sink, src, dest, 0) == STATUS_SUCCESS) {
         if (Java_com_manager_ssb_util_NativeFileOperation_nativeDelete(env, thiz, jSrc)) {
             __android_log_print(ANDROID_LOG_INFO, TAG, "Move successful (copy-delete)");
             (*env)->ReleaseStringUTFChars(env, jSrc, src);
@@ -475,4 +877,1207 @@ Java_com_manager_ssb_util_NativeFileOperation_nativeMove(
     (*env)->ReleaseStringUTFChars(env, jSrc, src);
     (*env)->ReleaseStringUTFChars(env, jDest, dest);
     return JNI_FALSE;
-}
\ No newline at end of file
+}
+
+// ==================== 批量重命名 ====================
+// 同一设备上的移动只需 rename，一次 JNI 调用处理整批，目标已存在时不覆盖
+
+#define STATUS_CROSS_DEVICE -104
+
+#ifndef RENAME_NOREPLACE
+#define RENAME_NOREPLACE (1 << 0)
+#endif
+
+// renameat2 在 Android 11 才加入 seccomp 白名单，之前调用会被 SIGSYS 终止
+static int renameat2_allowed(void) {
+#if defined(__ANDROID__) && defined(__NR_renameat2)
+    return android_sdk_level() >= 30;
+#elif defined(__NR_renameat2)
+    return 1;
+#else
+    return 0;
+#endif
+}
+
+// 目标已存在时失败（errno 为 EEXIST）；文件系统不支持 RENAME_NOREPLACE 时先检查再 rename
+static int rename_noreplace(const char *src, const char *dest) {
+#ifdef __NR_renameat2
+    if (renameat2_allowed()) {
+        if (syscall(__NR_renameat2, AT_FDCWD, src, AT_FDCWD, dest, RENAME_NOREPLACE) == 0) return 0;
+        if (errno != ENOSYS && errno != EINVAL) return -1;
+    }
+#endif
+    struct stat st;
+    if (lstat(dest, &st) == 0) {
+        errno = EEXIST;
+        return -1;
+    }
+    return rename(src, dest);
+}
+
+JNIEXPORT jintArray JNICALL
+Java_com_manager_ssb_util_NativeFileOperation_nativeRenameBatch(
+    JNIEnv* env,
+    jobject thiz,
+    jobjectArray jSrcs,
+    jobjectArray jDests
+) {
+    (void)thiz;
+
+    jsize count = (*env)->GetArrayLength(env, jSrcs);
+    if ((*env)->GetArrayLength(env, jDests) != count) return NULL;
+    jintArray jResults = (*env)->NewIntArray(env, count);
+    if (!jResults) return NULL;
+    jint *results = (*env)->GetIntArrayElements(env, jResults, NULL);
+    if (!results) return NULL;
+
+    for (jsize i = 0; i < count; i++) {
+        jstring jSrc = (jstring) (*env)->GetObjectArrayElement(env, jSrcs, i);
+        jstring jDest = (jstring) (*env)->GetObjectArrayElement(env, jDests, i);
+        const char *src = jSrc ? (*env)->GetStringUTFChars(env, jSrc, NULL) : NULL;
+        const char *dest = jDest ? (*env)->GetStringUTFChars(env, jDest, NULL) : NULL;
+
+        if (!src || !dest) {
+            results[i] = STATUS_ERROR;
+        } else if (rename_noreplace(src, dest) == 0) {
+            results[i] = STATUS_SUCCESS;
+        } else if (errno == EXDEV) {
+            results[i] = STATUS_CROSS_DEVICE;
+        } else if (errno == EEXIST || errno == ENOTEMPTY) {
+            results[i] = STATUS_CONFLICT;
+        } else {
+            __android_log_print(ANDROID_LOG_WARN, TAG, "Rename failed: '%s' -> '%s' (%s)",
+                                src, dest, strerror(errno));
+            results[i] = STATUS_ERROR;
+        }
+
+        if (src) (*env)->ReleaseStringUTFChars(env, jSrc, src);
+        if (dest) (*env)->ReleaseStringUTFChars(env, jDest, dest);
+        if (jSrc) (*env)->DeleteLocalRef(env, jSrc);
+        if (jDest) (*env)->DeleteLocalRef(env, jDest);
+    }
+
+    (*env)->ReleaseIntArrayElements(env, jResults, results, 0);
+    return jResults;
+}
+
+// ==================== io_uring 批量复制小文件 ====================
+// 大量小文件时，逐个文件的 open/fstat/复制/close/utime 系统调用占了主要时间。
+// 内核支持且策略允许时，一批小文件分三轮提交，每轮一次 io_uring_enter：
+// 第一轮 statx + 打开源文件 + 创建目标（O_EXCL），第二轮链接的 read→write→探测读，
+// 第三轮在 fd 上设置属性后批量 close。
+// 批量路径只处理最简单的情况，任一文件失败（目标已存在、不是普通文件、复制期间变大等）时
+// 删除其不完整的目标并返回非成功状态，由 Java 层对该文件改走普通复制路径。
+// io_uring_enter 本身出错时无法确定哪些请求已完成，句柄随即停用，之后的批次直接返回 NULL
+
+#define URING_MAX_FILE_SIZE (64 * 1024)
+#define URING_MAX_BATCH 32
+#define URING_ENTRIES 128 // 每个文件每轮最多 3 个请求
+
+// user_data 为 文件序号 << 2 | 请求类型
+#define URING_REQ_STAT 0
+#define URING_REQ_SRC 1
+#define URING_REQ_DEST 2
+#define URING_REQ_PROBE 3
+
+// 未收到完成事件的请求在 res 中保持此值
+#define URING_RES_NONE INT32_MIN
+
+#ifndef STATX_BASIC_STATS
+#include <linux/stat.h>
+#endif
+
+typedef struct {
+    int fd;
+    void *sq_ring;
+    size_t sq_ring_len;
+    void *cq_ring; // 内核支持 IORING_FEAT_SINGLE_MMAP 时与 sq_ring 相同
+    size_t cq_ring_len;
+    struct io_uring_sqe *sqes;
+    size_t sqes_len;
+    unsigned *sq_tail, *sq_mask, *sq_array;
+    unsigned *cq_head, *cq_tail, *cq_mask;
+    struct io_uring_cqe *cqes;
+    unsigned sq_pending; // 已准备但尚未提交的请求数
+    char *buffer; // URING_MAX_BATCH 个 URING_MAX_FILE_SIZE 大小的区域
+    char probes[URING_MAX_BATCH]; // 探测源文件是否在 statx 之后变大
+    struct statx stats[URING_MAX_BATCH];
+    int broken; // io_uring_enter 出错，环的状态不可信
+} uring_copier;
+
+// 创建失败（ENOSYS、被 SELinux 拒绝等）后不再尝试
+static int uring_unavailable = 0;
+
+// Android 12 之前 io_uring 不在应用的 seccomp 白名单中，调用会被 SIGSYS 直接终止；
+// 之后的版本可能被 SELinux 拒绝，io_uring_setup 返回错误，由 uring_open 记住
+static int uring_allowed(void) {
+    if (__atomic_load_n(&uring_unavailable, __ATOMIC_RELAXED)) return 0;
+#if defined(__ANDROID__) && defined(__NR_io_uring_setup)
+    return android_sdk_level() >= 31;
+#elif defined(__NR_io_uring_setup)
+    return 1;
+#else
+    return 0;
+#endif
+}
+
+#ifdef __NR_io_uring_setup
+// 批量复制用到的请求类型都需要内核支持（openat/statx/close 等在 5.6 加入）
+static int uring_ops_supported(int fd) {
+    static const int ops[] = {IORING_OP_STATX, IORING_OP_OPENAT, IORING_OP_READ, IORING_OP_WRITE, IORING_OP_CLOSE};
+    size_t len = sizeof(struct io_uring_probe) + IORING_OP_LAST * sizeof(struct io_uring_probe_op);
+    struct io_uring_probe *probe = calloc(1, len);
+    if (!probe) return 0;
+    int supported = syscall(__NR_io_uring_register, fd, IORING_REGISTER_PROBE, probe, IORING_OP_LAST) == 0;
+    for (size_t i = 0; supported && i < sizeof(ops) / sizeof(ops[0]); i++) {
+        supported = ops[i] <= probe->last_op && (probe->ops[ops[i]].flags & IO_URING_OP_SUPPORTED);
+    }
+    free(probe);
+    return supported;
+}
+#endif
+
+static void uring_close(uring_copier *ring) {
+    if (!ring) return;
+    if (ring->sqes) munmap(ring->sqes, ring->sqes_len);
+    if (ring->cq_ring && ring->cq_ring != ring->sq_ring) munmap(ring->cq_ring, ring->cq_ring_len);
+    if (ring->sq_ring) munmap(ring->sq_ring, ring->sq_ring_len);
+    if (ring->fd >= 0) close(ring->fd);
+    free(ring->buffer);
+    free(ring);
+}
+
+// 不可用时返回 NULL，调用方使用普通复制路径
+static uring_copier *uring_open(void) {
+#ifdef __NR_io_uring_setup
+    if (!uring_allowed()) return NULL;
+
+    struct io_uring_params params;
+    memset(&params, 0, sizeof(params));
+    int fd = (int) syscall(__NR_io_uring_setup, URING_ENTRIES, &params);
+    if (fd < 0 || !uring_ops_supported(fd) || !(params.features & IORING_FEAT_SINGLE_MMAP)) {
+        __android_log_print(ANDROID_LOG_INFO, TAG, "io_uring unavailable (errno %d), using per-file copy",
+                            fd < 0 ? errno : 0);
+        if (fd >= 0) close(fd);
+        __atomic_store_n(&uring_unavailable, 1, __ATOMIC_RELAXED);
+        return NULL;
+    }
+
+    uring_copier *ring = calloc(1, sizeof(uring_copier));
+    if (!ring) {
+        close(fd);
+        return NULL;
+    }
+    ring->fd = fd;
+    ring->buffer = malloc((size_t) URING_MAX_BATCH * URING_MAX_FILE_SIZE);
+
+    size_t sq_len = params.sq_off.array + params.sq_entries * sizeof(unsigned);
+    size_t cq_len = params.cq_off.cqes + params.cq_entries * sizeof(struct io_uring_cqe);
+    ring->sq_ring_len = ring->cq_ring_len = sq_len > cq_len ? sq_len : cq_len;
+    ring->sq_ring = mmap(NULL, ring->sq_ring_len, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE,
+                         fd, IORING_OFF_SQ_RING);
+    ring->sqes_len = params.sq_entries * sizeof(struct io_uring_sqe);
+    ring->sqes = mmap(NULL, ring->sqes_len, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE,
+                      fd, IORING_OFF_SQES);
+    if (ring->sq_ring == MAP_FAILED) ring->sq_ring = NULL;
+    if (ring->sqes == MAP_FAILED) ring->sqes = NULL;
+    if (!ring->buffer || !ring->sq_ring || !ring->sqes) {
+        __android_log_print(ANDROID_LOG_WARN, TAG, "Failed to map io_uring (errno %d)", errno);
+        uring_close(ring);
+        return NULL;
+    }
+    ring->cq_ring = ring->sq_ring;
+
+    char *sq = ring->sq_ring;
+    ring->sq_tail = (unsigned *) (sq + params.sq_off.tail);
+    ring->sq_mask = (unsigned *) (sq + params.sq_off.ring_mask);
+    ring->sq_array = (unsigned *) (sq + params.sq_off.array);
+    char *cq = ring->cq_ring;
+    ring->cq_head = (unsigned *) (cq + params.cq_off.head);
+    ring->cq_tail = (unsigned *) (cq + params.cq_off.tail);
+    ring->cq_mask = (unsigned *) (cq + params.cq_off.ring_mask);
+    ring->cqes = (struct io_uring_cqe *) (cq + params.cq_off.cqes);
+    return ring;
+#else
+    return NULL;
+#endif
+}
+
+// 准备一个请求，调用 uring_run 时一起提交
+static struct io_uring_sqe *uring_sqe(uring_copier *ring, int opcode, int fd, int file, int type) {
+    unsigned index = (*ring->sq_tail + ring->sq_pending) & *ring->sq_mask;
+    struct io_uring_sqe *sqe = &ring->sqes[index];
+    memset(sqe, 0, sizeof(*sqe));
+    sqe->opcode = (__u8) opcode;
+    sqe->fd = fd;
+    sqe->user_data = (__u64) file << 2 | (__u64) type;
+    ring->sq_array[index] = index;
+    ring->sq_pending++;
+    return sqe;
+}
+
+// 提交已准备的请求并等待全部完成，结果按 user_data 写入 res（res_len 项先置为 URING_RES_NONE）
+// 出错时停用该环：已提交的请求可能仍在执行，之后的完成事件无法再对应到文件
+static int uring_run(uring_copier *ring, int *res, int res_len) {
+    for (int i = 0; i < res_len; i++) res[i] = URING_RES_NONE;
+    unsigned count = ring->sq_pending;
+    if (count == 0) return 0;
+    if (ring->broken) {
+        ring->sq_pending = 0;
+        return -1;
+    }
+    ring->sq_pending = 0;
+    __atomic_store_n(ring->sq_tail, *ring->sq_tail + count, __ATOMIC_RELEASE);
+
+    unsigned submitted = 0;
+    unsigned completed = 0;
+    while (completed < count) {
+        int n = (int) syscall(__NR_io_uring_enter, ring->fd, count - submitted, count - completed,
+                              IORING_ENTER_GETEVENTS, NULL, 0);
+        if (n < 0 && errno != EINTR && errno != EAGAIN && errno != EBUSY) {
+            __android_log_print(ANDROID_LOG_ERROR, TAG, "io_uring_enter failed (errno %d)", errno);
+            ring->broken = 1;
+            return -1;
+        }
+        if (n > 0) submitted += (unsigned) n;
+
+        unsigned head = *ring->cq_head;
+        unsigned tail = __atomic_load_n(ring->cq_tail, __ATOMIC_ACQUIRE);
+        for (; head != tail; head++) {
+            struct io_uring_cqe *cqe = &ring->cqes[head & *ring->cq_mask];
+            res[cqe->user_data] = cqe->res;
+            completed++;
+        }
+        __atomic_store_n(ring->cq_head, head, __ATOMIC_RELEASE);
+    }
+    return 0;
+}
+
+// 复制一批（最多 URING_MAX_BATCH 个）小文件，每个文件的结果写入 statuses
+static void uring_copy_batch(uring_copier *ring, const progress_sink *sink, int count, int preserve,
+                             const char **srcs, const char **dests, jint *statuses) {
+    int res[URING_MAX_BATCH << 2];
+    int res_len = count << 2;
+    int src_fds[URING_MAX_BATCH];
+    int dest_fds[URING_MAX_BATCH];
+    int ok[URING_MAX_BATCH];
+    for (int i = 0; i < count; i++) {
+        statuses[i] = STATUS_ERROR;
+        src_fds[i] = dest_fds[i] = -1;
+        ok[i] = 0;
+    }
+    if (progress_cancelled(sink)) {
+        for (int i = 0; i < count; i++) statuses[i] = STATUS_CANCELLED;
+        return;
+    }
+
+    // 第一轮：目标用 O_EXCL 创建，与普通路径一样原子地检测冲突；属性在复制完成后按源文件设置
+    for (int i = 0; i < count; i++) {
+        struct io_uring_sqe *sqe = uring_sqe(ring, IORING_OP_STATX, AT_FDCWD, i, URING_REQ_STAT);
+        sqe->addr = (__u64) (uintptr_t) srcs[i];
+        sqe->len = STATX_BASIC_STATS;
+        sqe->statx_flags = AT_SYMLINK_NOFOLLOW;
+        sqe->off = (__u64) (uintptr_t) &ring->stats[i];
+
+        sqe = uring_sqe(ring, IORING_OP_OPENAT, AT_FDCWD, i, URING_REQ_SRC);
+        sqe->addr = (__u64) (uintptr_t) srcs[i];
+        sqe->open_flags = O_RDONLY | O_CLOEXEC;
+
+        sqe = uring_sqe(ring, IORING_OP_OPENAT, AT_FDCWD, i, URING_REQ_DEST);
+        sqe->addr = (__u64) (uintptr_t) dests[i];
+        sqe->open_flags = O_WRONLY | O_CREAT | O_EXCL | O_CLOEXEC;
+        sqe->len = (preserve & PRESERVE_MODE) ? 0600 : 0666;
+    }
+    // 出错时仍按已收到的结果处理：已打开的 fd 在第三轮关闭，本次创建的目标被删除
+    uring_run(ring, res, res_len);
+
+    for (int i = 0; i < count; i++) {
+        int stat_res = res[i << 2 | URING_REQ_STAT];
+        int src_res = res[i << 2 | URING_REQ_SRC];
+        int dest_res = res[i << 2 | URING_REQ_DEST];
+        if (src_res >= 0) src_fds[i] = src_res;
+        if (dest_res >= 0) dest_fds[i] = dest_res;
+        if (dest_res == -EEXIST) statuses[i] = STATUS_CONFLICT;
+        const struct statx *st = &ring->stats[i];
+        ok[i] = stat_res == 0 && src_fds[i] >= 0 && dest_fds[i] >= 0
+                && S_ISREG(st->stx_mode) && st->stx_size <= URING_MAX_FILE_SIZE;
+    }
+
+    // 第二轮：read→write→探测读 依次链接，前一个不完整（读到的比 statx 少）时后面的被取消；
+    // 探测读在写完之后从 stx_size 处再读 1 字节，读到数据说明源文件变大了
+    if (progress_cancelled(sink)) {
+        for (int i = 0; i < count; i++) statuses[i] = STATUS_CANCELLED;
+        memset(ok, 0, sizeof(ok));
+    }
+    for (int i = 0; i < count; i++) {
+        if (!ok[i]) continue;
+        char *buffer = ring->buffer + (size_t) i * URING_MAX_FILE_SIZE;
+        unsigned len = (unsigned) ring->stats[i].stx_size;
+        struct io_uring_sqe *sqe;
+        if (len > 0) {
+            sqe = uring_sqe(ring, IORING_OP_READ, src_fds[i], i, URING_REQ_SRC);
+            sqe->addr = (__u64) (uintptr_t) buffer;
+            sqe->len = len;
+            sqe->flags = IOSQE_IO_LINK;
+            sqe = uring_sqe(ring, IORING_OP_WRITE, dest_fds[i], i, URING_REQ_DEST);
+            sqe->addr = (__u64) (uintptr_t) buffer;
+            sqe->len = len;
+            sqe->flags = IOSQE_IO_LINK;
+        }
+        sqe = uring_sqe(ring, IORING_OP_READ, src_fds[i], i, URING_REQ_PROBE);
+        sqe->addr = (__u64) (uintptr_t) &ring->probes[i];
+        sqe->len = 1;
+        sqe->off = len;
+    }
+    if (uring_run(ring, res, res_len) != 0) memset(ok, 0, sizeof(ok));
+
+    // 第三轮：在 fd 上复制属性（不需要再按路径查找），然后批量关闭
+    for (int i = 0; i < count; i++) {
+        const struct statx *st = &ring->stats[i];
+        if (ok[i]) {
+            ok[i] = res[i << 2 | URING_REQ_PROBE] == 0
+                    && (st->stx_size == 0 || (res[i << 2 | URING_REQ_SRC] == (int) st->stx_size
+                                              && res[i << 2 | URING_REQ_DEST] == (int) st->stx_size));
+        }
+        if (ok[i]) {
+            struct timespec atime = { .tv_sec = st->stx_atime.tv_sec, .tv_nsec = st->stx_atime.tv_nsec };
+            struct timespec mtime = { .tv_sec = st->stx_mtime.tv_sec, .tv_nsec = st->stx_mtime.tv_nsec };
+            preserve_attrs(dest_fds[i], preserve, st->stx_mode, st->stx_uid, st->stx_gid, &atime, &mtime);
+            statuses[i] = STATUS_SUCCESS;
+            progress_add(sink, COPY_SLOT_BYTES, (int64_t) st->stx_size);
+            progress_add(sink, COPY_SLOT_FILES, 1);
+        } else if (dest_fds[i] >= 0) {
+            unlink(dests[i]); // 删除本次创建的不完整目标
+        }
+        if (src_fds[i] >= 0) uring_sqe(ring, IORING_OP_CLOSE, src_fds[i], i, URING_REQ_SRC);
+        if (dest_fds[i] >= 0) uring_sqe(ring, IORING_OP_CLOSE, dest_fds[i], i, URING_REQ_DEST);
+    }
+    uring_run(ring, res, res_len);
+    for (int i = 0; i < count; i++) {
+        // 批量关闭未能执行的 fd 改为直接关闭
+        int src_res = res[i << 2 | URING_REQ_SRC];
+        int dest_res = res[i << 2 | URING_REQ_DEST];
+        if (src_fds[i] >= 0 && src_res == URING_RES_NONE) close(src_fds[i]);
+        if (dest_fds[i] >= 0 && dest_res == URING_RES_NONE) dest_res = close(dest_fds[i]) == 0 ? 0 : -errno;
+        // 写回失败（例如配额或网络文件系统）只在 close 时报告
+        if (statuses[i] == STATUS_SUCCESS && dest_fds[i] >= 0 && dest_res < 0) {
+            statuses[i] = STATUS_ERROR;
+            progress_add(sink, COPY_SLOT_BYTES, -(int64_t) ring->stats[i].stx_size);
+            progress_add(sink, COPY_SLOT_FILES, -1);
+            unlink(dests[i]);
+        }
+    }
+    progress_method(sink, COPY_METHOD_URING);
+}
+
+JNIEXPORT jlong JNICALL
+Java_com_manager_ssb_util_NativeFileOperation_nativeUringOpen(
+    JNIEnv* env,
+    jobject thiz
+) {
+    (void)env;
+    (void)thiz;
+    return (jlong) (intptr_t) uring_open();
+}
+
+JNIEXPORT jintArray JNICALL
+Java_com_manager_ssb_util_NativeFileOperation_nativeUringCopy(
+    JNIEnv* env,
+    jobject thiz,
+    jlong handle,
+    jobjectArray jSrcs,
+    jobjectArray jDests,
+    jobject jCounters,
+    jint preserve
+) {
+    (void)thiz;
+
+    uring_copier *ring = (uring_copier *) (intptr_t) handle;
+    jsize count = (*env)->GetArrayLength(env, jSrcs);
+    if (!ring || ring->broken || count > URING_MAX_BATCH || (*env)->GetArrayLength(env, jDests) != count) {
+        return NULL;
+    }
+
+    jstring strings[URING_MAX_BATCH << 1];
+    const char *paths[URING_MAX_BATCH << 1];
+    int ready = 1;
+    for (jsize i = 0; i < count; i++) {
+        strings[i] = (*env)->GetObjectArrayElement(env, jSrcs, i);
+        strings[count + i] = (*env)->GetObjectArrayElement(env, jDests, i);
+    }
+    for (jsize i = 0; i < count << 1; i++) {
+        paths[i] = strings[i] ? (*env)->GetStringUTFChars(env, strings[i], NULL) : NULL;
+        if (!paths[i]) ready = 0;
+    }
+
+    jint statuses[URING_MAX_BATCH];
+    for (jsize i = 0; i < count; i++) statuses[i] = STATUS_ERROR;
+    if (ready) {
+        progress_sink sink;
+        progress_init(&sink, env, jCounters);
+        uring_copy_batch(ring, &sink, count, preserve, paths, paths + count, statuses);
+    }
+
+    for (jsize i = 0; i < count << 1; i++) {
+        if (paths[i]) (*env)->ReleaseStringUTFChars(env, strings[i], paths[i]);
+        if (strings[i]) (*env)->DeleteLocalRef(env, strings[i]);
+    }
+    jintArray jResults = (*env)->NewIntArray(env, count);
+    if (jResults) (*env)->SetIntArrayRegion(env, jResults, 0, count, statuses);
+    return jResults;
+}
+
+JNIEXPORT void JNICALL
+Java_com_manager_ssb_util_NativeFileOperation_nativeUringClose(
+    JNIEnv* env,
+    jobject thiz,
+    jlong handle
+) {
+    (void)env;
+    (void)thiz;
+    uring_close((uring_copier *) (intptr_t) handle);
+}
+
+// ==================== 目录批量扫描 ====================
+// 使用 getdents64 + fstatat 一次性取得整个目录（或一批）条目的元数据，
+// 以列式基本类型数组返回给 Java，避免逐条目的 JNI 调用和重复 stat
+
+// 与内核 linux_dirent64 布局一致，不依赖 libc 是否导出 getdents64
+struct scan_dirent64 {
+    uint64_t d_ino;
+    int64_t d_off;
+    unsigned short d_reclen;
+    unsigned char d_type;
+    char d_name[];
+};
+
+typedef struct {
+    int fd;
+    char *dents;
+    long dents_len;
+    long dents_pos;
+    int eof;
+} dir_scanner;
+
+typedef struct {
+    jint count;
+    jint capacity;
+    char *names;
+    size_t names_len;
+    size_t names_cap;
+    jint *name_offsets; // count + 1 项，第 i 个名称为 [off[i], off[i + 1])
+    jbyte *types;
+    jlong *sizes;
+    jlong *mtimes;
+    jint *modes;
+} scan_batch;
+
+// 相对 dirfd 打开目录（dirfd 为 AT_FDCWD 时即普通路径）
+static dir_scanner *scanner_open_at(int dirfd, const char *path, int flags) {
+    int fd = openat(dirfd, path, O_RDONLY | O_DIRECTORY | O_CLOEXEC | flags);
+    if (fd == -1) {
+        __android_log_print(ANDROID_LOG_ERROR, TAG, "Failed to open dir for scan: %s (errno %d)", path, errno);
+        return NULL;
+    }
+
+    dir_scanner *scanner = calloc(1, sizeof(dir_scanner));
+    if (scanner) scanner->dents = malloc(SCAN_DENTS_BUF_SIZE);
+    if (!scanner || !scanner->dents) {
+        if (scanner) free(scanner);
+        close(fd);
+        return NULL;
+    }
+
+    scanner->fd = fd;
+    return scanner;
+}
+
+static dir_scanner *scanner_open(const char *path) {
+    return scanner_open_at(AT_FDCWD, path, 0);
+}
+
+static void scanner_close(dir_scanner *scanner) {
+    if (!scanner) return;
+    close(scanner->fd);
+    free(scanner->dents);
+    free(scanner);
+}
+
+// 取下一个目录项，目录读完或出错时返回 NULL
+static struct scan_dirent64 *scanner_next(dir_scanner *scanner) {
+    while (!scanner->eof) {
+        if (scanner->dents_pos < scanner->dents_len) {
+            struct scan_dirent64 *entry = (struct scan_dirent64 *) (scanner->dents + scanner->dents_pos);
+            scanner->dents_pos += entry->d_reclen;
+            return entry;
+        }
+
+        long n = syscall(SYS_getdents64, scanner->fd, scanner->dents, SCAN_DENTS_BUF_SIZE);
+        if (n < 0 && errno == EINTR) continue;
+        if (n <= 0) {
+            if (n < 0) {
+                __android_log_print(ANDROID_LOG_ERROR, TAG, "getdents64 failed (errno %d)", errno);
+            }
+            scanner->eof = 1;
+            break;
+        }
+
+        scanner->dents_len = n;
+        scanner->dents_pos = 0;
+    }
+    return NULL;
+}
+
+static void batch_free(scan_batch *batch) {
+    free(batch->names);
+    free(batch->name_offsets);
+    free(batch->types);
+    free(batch->sizes);
+    free(batch->mtimes);
+    free(batch->modes);
+    memset(batch, 0, sizeof(scan_batch));
+}
+
+static int batch_reserve(scan_batch *batch, size_t name_len) {
+    if (batch->count + 1 >= batch->capacity) {
+        jint capacity = batch->capacity ? batch->capacity * 2 : 256;
+        jint *offsets = realloc(batch->name_offsets, sizeof(jint) * (capacity + 1));
+        if (!offsets) return -1;
+        batch->name_offsets = offsets;
+        jbyte *types = realloc(batch->types, sizeof(jbyte) * capacity);
+        if (!types) return -1;
+        batch->types = types;
+        jlong *sizes = realloc(batch->sizes, sizeof(jlong) * capacity);
+        if (!sizes) return -1;
+        batch->sizes = sizes;
+        jlong *mtimes = realloc(batch->mtimes, sizeof(jlong) * capacity);
+        if (!mtimes) return -1;
+        batch->mtimes = mtimes;
+        jint *modes = realloc(batch->modes, sizeof(jint) * capacity);
+        if (!modes) return -1;
+        batch->modes = modes;
+        batch->capacity = capacity;
+    }
+
+    if (batch->names_len + name_len > batch->names_cap) {
+        size_t cap = batch->names_cap ? batch->names_cap : 4096;
+        while (cap < batch->names_len + name_len) cap *= 2;
+        char *names = realloc(batch->names, cap);
+        if (!names) return -1;
+        batch->names = names;
+        batch->names_cap = cap;
+    }
+    return 0;
+}
+
+// 读取最多 max_entries 个条目追加到 batch，返回 0 成功，-1 内存不足
+static int scanner_fill(dir_scanner *scanner, scan_batch *batch, jint max_entries) {
+    struct scan_dirent64 *entry;
+    while (batch->count < max_entries && (entry = scanner_next(scanner)) != NULL) {
+        const char *name = entry->d_name;
+        if (strcmp(name, ".") == 0 || strcmp(name, "..") == 0)
+            continue;
+
+        // 与 java.io.File 一致：跟随符号链接取目标属性，悬空链接退回链接自身
+        struct stat st;
+        int is_link = entry->d_type == DT_LNK;
+        if (entry->d_type == DT_UNKNOWN && fstatat(scanner->fd, name, &st, AT_SYMLINK_NOFOLLOW) == 0) {
+            is_link = S_ISLNK(st.st_mode);
+        }
+        if (fstatat(scanner->fd, name, &st, 0) != 0
+                && fstatat(scanner->fd, name, &st, AT_SYMLINK_NOFOLLOW) != 0) {
+            memset(&st, 0, sizeof(st));
+        }
+
+        size_t name_len = strlen(name);
+        if (batch_reserve(batch, name_len) != 0) {
+            __android_log_print(ANDROID_LOG_ERROR, TAG, "Out of memory while scanning directory");
+            return -1;
+        }
+
+        jint i = batch->count;
+        batch->name_offsets[i] = (jint) batch->names_len;
+        memcpy(batch->names + batch->names_len, name, name_len);
+        batch->names_len += name_len;
+
+        jbyte type = S_ISDIR(st.st_mode) ? SCAN_TYPE_DIRECTORY :
+                     (S_ISREG(st.st_mode) ? SCAN_TYPE_FILE : SCAN_TYPE_OTHER);
+        batch->types[i] = (jbyte) (is_link ? (type | SCAN_FLAG_SYMLINK) : type);
+        batch->sizes[i] = (jlong) st.st_size;
+        batch->mtimes[i] = (jlong) st.st_mtim.tv_sec * 1000 + st.st_mtim.tv_nsec / 1000000;
+        batch->modes[i] = (jint) st.st_mode;
+        batch->count++;
+    }
+
+    if (batch->name_offsets) {
+        batch->name_offsets[batch->count] = (jint) batch->names_len;
+    }
+    return 0;
+}
+
+// 把列式结果打包为 NativeFileOperation.ScanResult
+static jobject batch_to_java(JNIEnv *env, const scan_batch *batch) {
+    jclass resultClass = (*env)->FindClass(env, SCAN_RESULT_CLASS);
+    if (!resultClass) return NULL;
+    jmethodID ctor = (*env)->GetMethodID(env, resultClass, "<init>", "(I[B[I[B[J[J[I)V");
+    if (!ctor) return NULL;
+
+    jint count = batch->count;
+    jbyteArray names = (*env)->NewByteArray(env, (jsize) batch->names_len);
+    jintArray offsets = (*env)->NewIntArray(env, count + 1);
+    jbyteArray types = (*env)->NewByteArray(env, count);
+    jlongArray sizes = (*env)->NewLongArray(env, count);
+    jlongArray mtimes = (*env)->NewLongArray(env, count);
+    jintArray modes = (*env)->NewIntArray(env, count);
+    if (!names || !offsets || !types || !sizes || !mtimes || !modes) return NULL;
+
+    if (count > 0) {
+        (*env)->SetByteArrayRegion(env, names, 0, (jsize) batch->names_len, (const jbyte *) batch->names);
+        (*env)->SetIntArrayRegion(env, offsets, 0, count + 1, batch->name_offsets);
+        (*env)->SetByteArrayRegion(env, types, 0, count, batch->types);
+        (*env)->SetLongArrayRegion(env, sizes, 0, count, batch->sizes);
+        (*env)->SetLongArrayRegion(env, mtimes, 0, count, batch->mtimes);
+        (*env)->SetIntArrayRegion(env, modes, 0, count, batch->modes);
+    } else {
+        jint zero = 0;
+        (*env)->SetIntArrayRegion(env, offsets, 0, 1, &zero);
+    }
+
+    return (*env)->NewObject(env, resultClass, ctor, count, names, offsets, types, sizes, mtimes, modes);
+}
+
+JNIEXPORT jlong JNICALL
+Java_com_manager_ssb_util_NativeFileOperation_nativeScanOpen(
+    JNIEnv* env,
+    jobject thiz,
+    jstring jPath
+) {
+    (void)thiz;
+
+    const char* path = (*env)->GetStringUTFChars(env, jPath, NULL);
+    if (!path) return 0;
+
+    dir_scanner *scanner = scanner_open(path);
+    (*env)->ReleaseStringUTFChars(env, jPath, path);
+    return (jlong) (intptr_t) scanner;
+}
+
+JNIEXPORT jobject JNICALL
+Java_com_manager_ssb_util_NativeFileOperation_nativeScanNext(
+    JNIEnv* env,
+    jobject thiz,
+    jlong handle,
+    jint maxEntries
+) {
+    (void)thiz;
+
+    dir_scanner *scanner = (dir_scanner *) (intptr_t) handle;
+    if (!scanner || maxEntries <= 0) return NULL;
+
+    scan_batch batch;
+    memset(&batch, 0, sizeof(batch));
+
+    jobject result = NULL;
+    if (scanner_fill(scanner, &batch, maxEntries) == 0 && batch.count > 0) {
+        result = batch_to_java(env, &batch);
+    }
+    batch_free(&batch);
+    return result;
+}
+
+JNIEXPORT void JNICALL
+Java_com_manager_ssb_util_NativeFileOperation_nativeScanClose(
+    JNIEnv* env,
+    jobject thiz,
+    jlong handle
+) {
+    (void)env;
+    (void)thiz;
+    scanner_close((dir_scanner *) (intptr_t) handle);
+}
+
+JNIEXPORT jobject JNICALL
+Java_com_manager_ssb_util_NativeFileOperation_nativeScanDirectory(
+    JNIEnv* env,
+    jobject thiz,
+    jstring jPath
+) {
+    (void)thiz;
+
+    const char* path = (*env)->GetStringUTFChars(env, jPath, NULL);
+    if (!path) return NULL;
+
+    dir_scanner *scanner = scanner_open(path);
+    (*env)->ReleaseStringUTFChars(env, jPath, path);
+    if (!scanner) return NULL;
+
+    scan_batch batch;
+    memset(&batch, 0, sizeof(batch));
+
+    jobject result = NULL;
+    if (scanner_fill(scanner, &batch, INT32_MAX) == 0) {
+        result = batch_to_java(env, &batch);
+    }
+    batch_free(&batch);
+    scanner_close(scanner);
+    return result;
+}
+
+// ==================== 复制前统计 ====================
+// 递归统计文件数和总字节数，结果边统计边写入 Java 传入的直接缓冲区，
+// 复制线程和界面可随时读取，不需要任何 JNI 回调。槽位布局与 CopyTotals 一致
+#define MEASURE_SLOT_FILES 0
+#define MEASURE_SLOT_BYTES 1
+#define MEASURE_SLOT_DIRS 2
+#define MEASURE_SLOT_CANCEL 3
+#define MEASURE_SLOT_COUNT 4
+
+static int measure_cancelled(const int64_t *slots) {
+    return __atomic_load_n(&slots[MEASURE_SLOT_CANCEL], __ATOMIC_RELAXED) != 0;
+}
+
+static void measure_add(int64_t *slots, int slot, int64_t value) {
+    __atomic_fetch_add(&slots[slot], value, __ATOMIC_RELAXED);
+}
+
+// 与 CopyEngine 的扫描规则一致：不跟随符号链接，链接按大小 0 的文件计数
+static void measure_tree(int dirfd, const char *path, int64_t *slots, int depth) {
+    if (depth > MAX_RECURSION_DEPTH || measure_cancelled(slots)) return;
+
+    // 起点与 File.isDirectory() 一致跟随链接，其下的链接不进入
+    dir_scanner *scanner = scanner_open_at(dirfd, path, depth > 0 ? O_NOFOLLOW : 0);
+    if (!scanner) return;
+    measure_add(slots, MEASURE_SLOT_DIRS, 1);
+
+    // 本目录的文件累计后一次写入，减少共享计数器上的原子操作
+    int64_t files = 0;
+    int64_t bytes = 0;
+    struct scan_dirent64 *entry;
+    while ((entry = scanner_next(scanner)) != NULL && !measure_cancelled(slots)) {
+        const char *name = entry->d_name;
+        if (strcmp(name, ".") == 0 || strcmp(name, "..") == 0)
+            continue;
+
+        if (entry->d_type == DT_DIR) {
+            measure_tree(scanner->fd, name, slots, depth + 1);
+            continue;
+        }
+        if (entry->d_type == DT_LNK) {
+            files++;
+            continue;
+        }
+
+        struct stat st;
+        if (fstatat(scanner->fd, name, &st, AT_SYMLINK_NOFOLLOW) != 0) continue;
+        if (S_ISDIR(st.st_mode)) {
+            measure_tree(scanner->fd, name, slots, depth + 1);
+        } else {
+            files++;
+            if (S_ISREG(st.st_mode)) bytes += st.st_size;
+        }
+    }
+    scanner_close(scanner);
+
+    measure_add(slots, MEASURE_SLOT_FILES, files);
+    measure_add(slots, MEASURE_SLOT_BYTES, bytes);
+}
+
+JNIEXPORT void JNICALL
+Java_com_manager_ssb_util_NativeFileOperation_nativeMeasure(
+    JNIEnv* env,
+    jobject thiz,
+    jstring jPath,
+    jobject counters
+) {
+    (void)thiz;
+
+    int64_t *slots = (*env)->GetDirectBufferAddress(env, counters);
+    if (!slots || (*env)->GetDirectBufferCapacity(env, counters) < MEASURE_SLOT_COUNT * (jlong) sizeof(int64_t)) {
+        __android_log_print(ANDROID_LOG_ERROR, TAG, "Invalid measure counters");
+        return;
+    }
+
+    const char* path = (*env)->GetStringUTFChars(env, jPath, NULL);
+    if (!path) return;
+
+    struct stat st;
+    if (stat(path, &st) == 0) {
+        if (S_ISDIR(st.st_mode)) {
+            measure_tree(AT_FDCWD, path, slots, 0);
+        } else {
+            measure_add(slots, MEASURE_SLOT_FILES, 1);
+            if (S_ISREG(st.st_mode)) measure_add(slots, MEASURE_SLOT_BYTES, st.st_size);
+        }
+    }
+    (*env)->ReleaseStringUTFChars(env, jPath, path);
+}
+
+// ==================== 并行删除 ====================
+// 全程基于目录 fd 调用 openat/unlinkat，不拼接路径，不受路径长度和递归深度限制
+// 多个线程从共享栈中取目录：删除其中的非目录项，子目录入栈；
+// 目录自身扫描完且子目录都已删除后，由最后完成的线程删除该目录
+// 栈为后进先出，遍历接近深度优先。目录的 fd 保留到该目录删除，供子目录 openat/unlinkat 使用；
+// 保留的 fd 数达到上限（按 RLIMIT_NOFILE 计算）后，新扫描的目录不再保留 fd，目录再深也不会耗尽 fd：
+// 扫描它的线程持有其 fd 直到扫描下一个目录（接下来通常就是它的子目录），
+// 删除时经子目录 fd 的 ".." 取得父目录（核对 inode），都不行时才从最近的保留 fd 的祖先逐级打开
+
+#define DELETE_SLOT_FILES 0
+#define DELETE_SLOT_DIRS 1
+#define DELETE_SLOT_CANCEL 2
+#define DELETE_SLOT_ERRORS 3
+#define DELETE_SLOT_COUNT 4
+#define DELETE_MAX_THREADS 16
+// 每删除这么多文件写一次共享计数器
+#define DELETE_FLUSH_INTERVAL 64
+// 保留的目录 fd 最多占 RLIMIT_NOFILE 的 1/DELETE_FD_SHARE，且不超过 DELETE_MAX_OPEN_FDS
+#define DELETE_FD_SHARE 4
+#define DELETE_MAX_OPEN_FDS 1024
+
+typedef struct delete_node {
+    struct delete_node *parent;
+    uint64_t serial; // 节点序号，节点释放后地址可能被复用，线程持有的 fd 按序号对应
+    uint64_t ino;    // 经 ".." 打开本目录时核对
+    int fd;          // 扫描时打开并保留，删除本目录前关闭；超出 fd 上限时始终为 -1
+    int refs;        // 1（自身扫描）+ 尚未结束的子目录数，归零时删除本目录
+    char name[];     // 相对 parent 的名称，根目录为完整路径
+} delete_node;
+
+// 工作线程最近扫描的、未保留 fd 的目录，fd 由该线程持有
+typedef struct {
+    const delete_node *node;
+    uint64_t serial;
+    int fd;
+} delete_cursor;
+
+typedef struct {
+    pthread_mutex_t lock;
+    pthread_cond_t cond;
+    delete_node **stack;
+    size_t size;
+    size_t capacity;
+    int busy;                          // 正在处理目录的线程数
+    int open_fds;                      // 节点保留的目录 fd 数
+    int max_open_fds;
+    uint64_t next_serial;
+    int64_t *slots;                    // 共享计数器，槽位与 DeleteEngine 一致
+    int64_t local[DELETE_SLOT_COUNT];  // Java 未传入计数器时使用
+} delete_job;
+
+static int delete_cancelled(delete_job *job) {
+    return __atomic_load_n(&job->slots[DELETE_SLOT_CANCEL], __ATOMIC_RELAXED) != 0;
+}
+
+static void delete_add(delete_job *job, int slot, int64_t value) {
+    if (value) __atomic_fetch_add(&job->slots[slot], value, __ATOMIC_RELAXED);
+}
+
+static delete_node *delete_node_new(delete_job *job, delete_node *parent, const char *name, uint64_t ino) {
+    size_t len = strlen(name);
+    delete_node *node = malloc(sizeof(delete_node) + len + 1);
+    if (!node) return NULL;
+    node->parent = parent;
+    node->serial = __atomic_add_fetch(&job->next_serial, 1, __ATOMIC_RELAXED);
+    node->ino = ino;
+    node->fd = -1;
+    node->refs = 1;
+    memcpy(node->name, name, len + 1);
+    return node;
+}
+
+// 调用方保证 node 仍然有效
+static int cursor_holds(const delete_cursor *cursor, const delete_node *node) {
+    return cursor->fd >= 0 && cursor->node == node && cursor->serial == node->serial;
+}
+
+static void cursor_set(delete_cursor *cursor, const delete_node *node, int fd) {
+    if (cursor->fd >= 0) close(cursor->fd);
+    cursor->node = node;
+    cursor->serial = node ? node->serial : 0;
+    cursor->fd = fd;
+}
+
+// 已有的本目录 fd：自身保留的，或本线程持有的
+static int delete_own_fd(const delete_cursor *cursor, const delete_node *node) {
+    if (node->fd >= 0) return node->fd;
+    return cursor_holds(cursor, node) ? cursor->fd : -1;
+}
+
+// 取得 node 所在目录（父目录）的 fd 用于 *at 调用，*owned 为 1 时由调用方关闭
+// self_fd 为 node 自身的 fd（可为 -1），可经其 ".." 打开父目录；父目录仍被 node 引用，已有的 fd 一定有效
+static int delete_parent_fd(const delete_cursor *cursor, delete_node *node, int self_fd, int *owned) {
+    *owned = 0;
+    delete_node *parent = node->parent;
+    if (!parent) return AT_FDCWD;
+    int fd = delete_own_fd(cursor, parent);
+    if (fd >= 0) return fd;
+
+    if (self_fd >= 0) {
+        // ".." 总是实际的父目录；inode 不一致（挂载点等）时改为逐级打开
+        fd = openat(self_fd, "..", O_RDONLY | O_DIRECTORY | O_CLOEXEC);
+        struct stat st;
+        if (fd >= 0 && fstat(fd, &st) == 0 && (uint64_t) st.st_ino == parent->ino) {
+            *owned = 1;
+            return fd;
+        }
+        if (fd >= 0) close(fd);
+    }
+
+    int count = 0;
+    for (delete_node *p = parent; p && delete_own_fd(cursor, p) < 0; p = p->parent) count++;
+    delete_node **chain = count > 0 ? malloc(count * sizeof(delete_node *)) : NULL;
+    if (!chain) {
+        errno = ENOMEM;
+        return -1;
+    }
+    int i = count;
+    for (delete_node *p = parent; i > 0; p = p->parent) chain[--i] = p;
+
+    // chain[0] 的父目录有可用的 fd（或 chain[0] 为根目录）
+    fd = chain[0]->parent ? delete_own_fd(cursor, chain[0]->parent) : AT_FDCWD;
+    int fd_owned = 0;
+    for (i = 0; i < count && fd != -1; i++) {
+        int next = openat(fd, chain[i]->name, O_RDONLY | O_DIRECTORY | O_NOFOLLOW | O_CLOEXEC);
+        if (fd_owned) close(fd);
+        fd = next;
+        fd_owned = 1;
+    }
+    free(chain);
+    *owned = fd >= 0;
+    return fd;
+}
+
+// 释放一个引用；目录的扫描和所有子目录都结束后删除它（已取消时保留），再释放父目录的引用
+static void delete_node_release(delete_job *job, const delete_cursor *cursor, delete_node *node) {
+    int self_fd = -1; // 上一轮为删除子目录而打开的本目录 fd，由本函数关闭
+    while (node && __atomic_sub_fetch(&node->refs, 1, __ATOMIC_ACQ_REL) == 0) {
+        delete_node *parent = node->parent;
+        int owned = 0;
+        int dirfd = -1;
+        if (!delete_cancelled(job)) {
+            int own = delete_own_fd(cursor, node);
+            dirfd = delete_parent_fd(cursor, node, own >= 0 ? own : self_fd, &owned);
+            if (dirfd != -1 && unlinkat(dirfd, node->name, AT_REMOVEDIR) == 0) {
+                delete_add(job, DELETE_SLOT_DIRS, 1);
+            } else if (errno != ENOENT) {
+                __android_log_print(ANDROID_LOG_ERROR, TAG, "Failed to rmdir: %s (errno %d)", node->name, errno);
+                delete_add(job, DELETE_SLOT_ERRORS, 1);
+            }
+        }
+        if (node->fd >= 0) {
+            close(node->fd);
+            __atomic_sub_fetch(&job->open_fds, 1, __ATOMIC_RELAXED);
+        }
+        if (self_fd >= 0) close(self_fd);
+        // 打开的父目录 fd 留给下一轮，经其 ".." 找到祖父目录
+        self_fd = owned ? dirfd : -1;
+        free(node);
+        node = parent;
+    }
+    if (self_fd >= 0) close(self_fd);
+}
+
+static int delete_push(delete_job *job, delete_node *node) {
+    pthread_mutex_lock(&job->lock);
+    if (job->size == job->capacity) {
+        size_t capacity = job->capacity ? job->capacity * 2 : 64;
+        delete_node **stack = realloc(job->stack, capacity * sizeof(delete_node *));
+        if (!stack) {
+            pthread_mutex_unlock(&job->lock);
+            return -1;
+        }
+        job->stack = stack;
+        job->capacity = capacity;
+    }
+    job->stack[job->size++] = node;
+    pthread_cond_signal(&job->cond);
+    pthread_mutex_unlock(&job->lock);
+    return 0;
+}
+
+// 删除目录中的非目录项，子目录入栈，buffer 为本线程的 getdents64 缓冲区
+static void delete_scan(delete_job *job, delete_cursor *cursor, delete_node *node, char *buffer) {
+    int owned;
+    int dirfd = delete_parent_fd(cursor, node, -1, &owned);
+    int fd = dirfd == -1 ? -1 : openat(dirfd, node->name, O_RDONLY | O_DIRECTORY | O_NOFOLLOW | O_CLOEXEC);
+    if (owned) close(dirfd);
+    if (fd < 0) {
+        // 无法读取时仍尝试 rmdir（空目录可以删除），失败在 release 中计数
+        __android_log_print(ANDROID_LOG_ERROR, TAG, "Failed to open dir for delete: %s (errno %d)", node->name, errno);
+        delete_node_release(job, cursor, node);
+        return;
+    }
+    // 子目录尚未入栈，此时设置 fd 不会与其他线程竞争；超出上限时由本线程持有
+    if (__atomic_add_fetch(&job->open_fds, 1, __ATOMIC_RELAXED) <= job->max_open_fds) {
+        node->fd = fd;
+    } else {
+        __atomic_sub_fetch(&job->open_fds, 1, __ATOMIC_RELAXED);
+    }
+
+    dir_scanner scanner;
+    memset(&scanner, 0, sizeof(scanner));
+    scanner.fd = fd;
+    scanner.dents = buffer;
+
+    int64_t files = 0;
+    int64_t errors = 0;
+    struct scan_dirent64 *entry;
+    while (!delete_cancelled(job) && (entry = scanner_next(&scanner)) != NULL) {
+        const char *name = entry->d_name;
+        if (strcmp(name, ".") == 0 || strcmp(name, "..") == 0)
+            continue;
+
+        int is_dir = entry->d_type == DT_DIR;
+        if (entry->d_type == DT_UNKNOWN) {
+            struct stat st;
+            is_dir = fstatat(fd, name, &st, AT_SYMLINK_NOFOLLOW) == 0 && S_ISDIR(st.st_mode);
+        }
+        if (!is_dir) {
+            if (unlinkat(fd, name, 0) == 0) {
+                if (++files >= DELETE_FLUSH_INTERVAL) {
+                    delete_add(job, DELETE_SLOT_FILES, files);
+                    files = 0;
+                }
+            } else if (errno == EISDIR) {
+                is_dir = 1; // 部分文件系统的 d_type 不可靠
+            } else if (errno != ENOENT) {
+                __android_log_print(ANDROID_LOG_ERROR, TAG, "Failed to unlink: %s (errno %d)", name, errno);
+                errors++;
+            }
+        }
+        if (is_dir) {
+            delete_node *child = delete_node_new(job, node, name, entry->d_ino);
+            __atomic_add_fetch(&node->refs, 1, __ATOMIC_RELAXED);
+            if (!child || delete_push(job, child) != 0) {
+                free(child);
+                __atomic_sub_fetch(&node->refs, 1, __ATOMIC_RELAXED);
+                errors++;
+            }
+        }
+    }
+    delete_add(job, DELETE_SLOT_FILES, files);
+    delete_add(job, DELETE_SLOT_ERRORS, errors);
+    // 本线程接下来通常扫描刚入栈的子目录，可直接使用该 fd
+    if (node->fd != fd) cursor_set(cursor, node, fd);
+    delete_node_release(job, cursor, node);
+}
+
+static void *delete_worker(void *arg) {
+    delete_job *job = arg;
+    char *buffer = malloc(SCAN_DENTS_BUF_SIZE);
+    delete_cursor cursor = { NULL, 0, -1 };
+
+    pthread_mutex_lock(&job->lock);
+    while (1) {
+        // 栈空但还有线程在处理时，可能还会有子目录入栈
+        while (job->size == 0 && job->busy > 0) pthread_cond_wait(&job->cond, &job->lock);
+        if (job->size == 0) break;
+        delete_node *node = job->stack[--job->size];
+        job->busy++;
+        pthread_mutex_unlock(&job->lock);
+
+        // 取消后只释放不扫描，保证所有目录 fd 都被关闭
+        if (buffer && !delete_cancelled(job)) {
+            delete_scan(job, &cursor, node, buffer);
+        } else {
+            delete_node_release(job, &cursor, node);
+        }
+
+        pthread_mutex_lock(&job->lock);
+        job->busy--;
+        if (job->size == 0 && job->busy == 0) pthread_cond_broadcast(&job->cond);
+    }
+    pthread_mutex_unlock(&job->lock);
+
+    cursor_set(&cursor, NULL, -1);
+    free(buffer);
+    return NULL;
+}
+
+// 删除文件或整个目录（不跟随符号链接），slots 可为 NULL
+static int delete_tree(const char *path, int64_t *slots, int threads) {
+    delete_job job;
+    memset(&job, 0, sizeof(job));
+    job.slots = slots ? slots : job.local;
+    job.max_open_fds = DELETE_MAX_OPEN_FDS;
+    struct rlimit limit;
+    if (getrlimit(RLIMIT_NOFILE, &limit) == 0 && limit.rlim_cur != RLIM_INFINITY
+            && limit.rlim_cur / DELETE_FD_SHARE < DELETE_MAX_OPEN_FDS) {
+        job.max_open_fds = (int) (limit.rlim_cur / DELETE_FD_SHARE);
+    }
+    int64_t errors_before = __atomic_load_n(&job.slots[DELETE_SLOT_ERRORS], __ATOMIC_RELAXED);
+
+    struct stat st;
+    if (lstat(path, &st) != 0) {
+        if (errno == ENOENT) return STATUS_SUCCESS;
+        __android_log_print(ANDROID_LOG_ERROR, TAG, "Failed to lstat: %s (errno %d)", path, errno);
+        return STATUS_ERROR;
+    }
+    if (!S_ISDIR(st.st_mode)) {
+        if (unlink(path) != 0 && errno != ENOENT) {
+            __android_log_print(ANDROID_LOG_ERROR, TAG, "Failed to unlink: %s (errno %d)", path, errno);
+            return STATUS_ERROR;
+        }
+        delete_add(&job, DELETE_SLOT_FILES, 1);
+        return STATUS_SUCCESS;
+    }
+
+    delete_node *root = delete_node_new(&job, NULL, path, (uint64_t) st.st_ino);
+    if (!root) return STATUS_ERROR;
+    pthread_mutex_init(&job.lock, NULL);
+    pthread_cond_init(&job.cond, NULL);
+    if (delete_push(&job, root) != 0) {
+        free(root);
+        pthread_mutex_destroy(&job.lock);
+        pthread_cond_destroy(&job.cond);
+        return STATUS_ERROR;
+    }
+
+    if (threads < 1) threads = 1;
+    if (threads > DELETE_MAX_THREADS) threads = DELETE_MAX_THREADS;
+    pthread_t workers[DELETE_MAX_THREADS];
+    int started = 0;
+    for (int i = 1; i < threads; i++) {
+        if (pthread_create(&workers[started], NULL, delete_worker, &job) == 0) started++;
+    }
+    // 调用线程也作为工作线程
+    delete_worker(&job);
+    for (int i = 0; i < started; i++) pthread_join(workers[i], NULL);
+
+    free(job.stack);
+    pthread_mutex_destroy(&job.lock);
+    pthread_cond_destroy(&job.cond);
+
+    if (delete_cancelled(&job)) return STATUS_CANCELLED;
+    return __atomic_load_n(&job.slots[DELETE_SLOT_ERRORS], __ATOMIC_RELAXED) == errors_before
+        ? STATUS_SUCCESS : STATUS_ERROR;
+}
+
+JNIEXPORT jint JNICALL
+Java_com_manager_ssb_util_NativeFileOperation_nativeDeleteTree(
+    JNIEnv* env,
+    jobject thiz,
+    jstring jPath,
+    jobject counters,
+    jint threads
+) {
+    (void)thiz;
+
+    int64_t *slots = NULL;
+    if (counters) {
+        slots = (*env)->GetDirectBufferAddress(env, counters);
+        if (!slots || (*env)->GetDirectBufferCapacity(env, counters) < DELETE_SLOT_COUNT * (jlong) sizeof(int64_t)) {
+            __android_log_print(ANDROID_LOG_ERROR, TAG, "Invalid delete counters");
+            return STATUS_ERROR;
+        }
+    }
+
+    const char* path = (*env)->GetStringUTFChars(env, jPath, NULL);
+    if (!path) return STATUS_ERROR;
+
+    __android_log_print(ANDROID_LOG_INFO, TAG, "Deleting with %d threads: %s", threads, path);
+    int result = delete_tree(path, slots, threads);
+    __android_log_print(ANDROID_LOG_INFO, TAG, "Delete result: %d for %s", result, path);
+
+    (*env)->ReleaseStringUTFChars(env, jPath, path);
+    return result;
+}
@@ -0,0 +1,16 @@
+// 主机编译 libssb_daemon 用的替身：基准测试时不输出日志
+#pragma once
+
+enum {
+    ANDROID_LOG_DEBUG = 3,
+    ANDROID_LOG_INFO,
+    ANDROID_LOG_WARN,
+    ANDROID_LOG_ERROR
+};
+
+static inline int __android_log_print(int priority, const char *tag, const char *fmt, ...) {
+    (void) priority;
+    (void) tag;
+    (void) fmt;
+    return 0;
+}
@@ -0,0 +1,99 @@
+#!/bin/bash
+# 文件操作基准测试：在主机上编译 libssb_daemon 的几个变体，用普通 JVM 逐个运行 FileOpsBenchmark
+#
+# 用法：benchmark/run.sh [选项] [-- 传给 FileOpsBenchmark 的参数]
+#   -q, --quick      缩小夹具（--scale 0.05），用于快速检查
+#   -f, --full       包括 1×10 GiB 的 huge 夹具
+#   -v, --variants   只运行指定的变体，逗号分隔（默认全部）
+# 需要 JAVA_HOME（JNI 头文件）和 cc；结果追加到 benchmark/build/results.csv
+set -e
+
+cd "$(dirname "$0")"
+ROOT="$(pwd)/.."
+APP="$ROOT/app/src/main"
+BUILD="$(pwd)/build"
+
+# 变体名:编译选项，第一个变体运行全部测试，其余只比较 native 复制
+VARIANTS=(
+    "default:"
+    "sendfile-64k:-DCOPY_FORCE_METHOD=COPY_METHOD_SENDFILE -DCOPY_CHUNK_SIZE=65536"
+    "sendfile-256k:-DCOPY_FORCE_METHOD=COPY_METHOD_SENDFILE -DCOPY_CHUNK_SIZE=262144"
+    "sendfile-1m:-DCOPY_FORCE_METHOD=COPY_METHOD_SENDFILE"
+    "sendfile-4m:-DCOPY_FORCE_METHOD=COPY_METHOD_SENDFILE -DCOPY_CHUNK_SIZE=4194304"
+    "range-8m:-DCOPY_FORCE_METHOD=COPY_METHOD_RANGE -DCOPY_CHUNK_SIZE=8388608"
+    "rw-64k:-DCOPY_FORCE_METHOD=COPY_METHOD_READ_WRITE -DCOPY_CHUNK_SIZE=65536"
+    "rw-1m:-DCOPY_FORCE_METHOD=COPY_METHOD_READ_WRITE"
+)
+
+ARGS=()
+ONLY=""
+while [[ $# -gt 0 ]]; do
+    case "$1" in
+        -q|--quick)
+            ARGS+=(--scale 0.05)
+            shift
+            ;;
+        -f|--full)
+            ARGS+=(--fixtures huge,large,small,deep)
+            shift
+            ;;
+        -v|--variants)
+            ONLY=",$2,"
+            shift 2
+            ;;
+        --)
+            shift
+            ARGS+=("$@")
+            break
+            ;;
+        *)
+            echo "错误：未知选项 $1"
+            exit 1
+            ;;
+    esac
+done
+
+if [[ -z "$JAVA_HOME" ]]; then
+    JAVA_HOME="$(dirname "$(dirname "$(readlink -f "$(command -v javac)")")")"
+fi
+
+# 编译 Java：基准测试本身、被测的应用类，以及替代 Android 依赖的主机替身
+echo "正在编译 Java..."
+rm -rf "$BUILD/classes"
+mkdir -p "$BUILD/classes"
+"$JAVA_HOME/bin/javac" -nowarn -encoding UTF-8 -d "$BUILD/classes" \
+    $(find src stubs -name '*.java') \
+    "$APP/java/com/manager/ssb/util/NativeFileOperation.java" \
+    "$APP/java/com/manager/ssb/util/FileUtils.java" \
+    "$APP/java/com/manager/ssb/core/copy/CopyCounters.java" \
+    "$APP/java/com/manager/ssb/core/copy/CopyTotals.java" \
+    "$APP/java/com/manager/ssb/core/copy/DeleteEngine.java" \
+    "$APP/java/com/manager/ssb/core/loader/DirectoryLoader.java" \
+    "$APP/java/com/manager/ssb/core/FileType.java" \
+    "$APP/java/com/manager/ssb/model/DirectorySnapshot.java" \
+    "$APP/java/com/manager/ssb/model/FileItem.java" \
+    "$APP/java/com/manager/ssb/model/SortOrder.java" \
+    "$APP/java/com/manager/ssb/enums/SortMode.java"
+
+for entry in "${VARIANTS[@]}"; do
+    name="${entry%%:*}"
+    flags="${entry#*:}"
+    if [[ -n "$ONLY" && "$ONLY" != *",$name,"* ]]; then
+        continue
+    fi
+
+    # 与 Android.mk 相同的优化级别
+    echo "正在编译 native 变体 $name..."
+    mkdir -p "$BUILD/lib/$name"
+    cc -std=c11 -O2 -Wall -shared -fPIC -pthread -D_FILE_OFFSET_BITS=64 -D_GNU_SOURCE $flags \
+        -I"$(pwd)/host" -I"$JAVA_HOME/include" -I"$JAVA_HOME/include/linux" \
+        -o "$BUILD/lib/$name/libssb_daemon.so" "$APP/jni/main.c"
+
+    suites=(--suites copy)
+    if [[ "$name" == "default" ]]; then
+        suites=()
+    fi
+    "$JAVA_HOME/bin/java" -Djava.library.path="$BUILD/lib/$name" -cp "$BUILD/classes" \
+        com.manager.ssb.benchmark.FileOpsBenchmark --variant "$name" --csv "$BUILD/results.csv" \
+        "${suites[@]}" "${ARGS[@]}"
+done
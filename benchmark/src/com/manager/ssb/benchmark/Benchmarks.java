@@ -0,0 +1,423 @@
+/*
+ * System Shell Box
+ * Copyright (C) 2025 kgultrt
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+// Benchmarks.java
+package com.manager.ssb.benchmark;
+
+import com.manager.ssb.core.copy.CopyCounters;
+import com.manager.ssb.core.copy.DeleteEngine;
+import com.manager.ssb.core.loader.DirectoryLoader;
+import com.manager.ssb.model.DirectorySnapshot;
+import com.manager.ssb.model.SortOrder;
+import com.manager.ssb.util.FileUtils;
+import com.manager.ssb.util.NativeFileOperation;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 各项测试：
+ * copy   NativeFileOperation.copy（单线程递归，使用当前加载的 native 库变体），
+ *        以及逐个文件 copyFile 不校验、回读校验（VERIFY_CACHED）、落盘后校验（VERIFY_DEVICE），
+ *        和不保留属性（PRESERVE_NONE 即 0）、只保留时间、保留全部属性（默认）
+ * java   纯 Java 的几种缓冲方式复制同一棵树，作为 native 路径的对照
+ * uring  io_uring 批量复制（uringCopy）对照逐个文件 copyFile，只用于全是小文件的夹具
+ * list   DirectoryLoader 分批扫描（应用实际的列目录路径），对照 File.listFiles 加逐个取属性
+ * delete NativeFileOperation.delete（逐个递归）、单线程 deleteTree、FileUtils.deleteRecursive（并行）
+ */
+final class Benchmarks {
+
+    private final String variant;
+    private final int reps;
+    private final File workDir;
+    private final boolean dropCaches;
+    private final String csv;
+
+    Benchmarks(String variant, int reps, File workDir, boolean dropCaches, String csv) {
+        this.variant = variant;
+        this.reps = reps;
+        this.workDir = workDir;
+        this.dropCaches = dropCaches;
+        this.csv = csv;
+    }
+
+    void run(String suite, Fixture fixture) throws Exception {
+        switch (suite) {
+            case "copy":
+                copy(fixture);
+                copyFiles(fixture, "copy", "copyFile", NativeFileOperation.VERIFY_NONE,
+                        NativeFileOperation.PRESERVE_ALL);
+                copyFiles(fixture, "copy", "copyFile verify=cached", NativeFileOperation.VERIFY_CACHED,
+                        NativeFileOperation.PRESERVE_ALL);
+                copyFiles(fixture, "copy", "copyFile verify=device", NativeFileOperation.VERIFY_DEVICE,
+                        NativeFileOperation.PRESERVE_ALL);
+                copyFiles(fixture, "copy", "copyFile preserve=none", NativeFileOperation.VERIFY_NONE, 0);
+                copyFiles(fixture, "copy", "copyFile preserve=times", NativeFileOperation.VERIFY_NONE,
+                        NativeFileOperation.PRESERVE_TIMES);
+                break;
+            case "java":
+                javaCopy(fixture, "transferTo", JavaCopy.TRANSFER_TO);
+                javaCopy(fixture, "stream-64k", JavaCopy.STREAM);
+                javaCopy(fixture, "direct-1m", JavaCopy.DIRECT);
+                break;
+            case "uring":
+                uring(fixture);
+                break;
+            case "list":
+                list(fixture);
+                break;
+            case "delete":
+                delete(fixture);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown suite: " + suite);
+        }
+    }
+
+    private void copy(Fixture fixture) throws Exception {
+        Result result = new Result("copy", variant, fixture.name, "NativeFileOperation.copy",
+                fixture.files, fixture.bytes);
+        File dest = new File(workDir, fixture.name);
+        int methods = 0;
+        for (int i = 0; i < reps; i++) {
+            deleteTree(dest);
+            settle();
+            CopyCounters counters = new CopyCounters();
+            result.measure(() -> check(NativeFileOperation.copy(fixture.root.getPath(), dest.getPath(),
+                    counters.buffer()), "copy"));
+            if (counters.getBytes() != fixture.bytes) {
+                throw new IllegalStateException("Copied " + counters.getBytes() + " of " + fixture.bytes + " bytes");
+            }
+            methods |= counters.getMethods();
+        }
+        deleteTree(dest);
+        result.methods = describeMethods(methods);
+        report(result);
+    }
+
+    // 夹具中的文件，源和目标路径一一对应；目录结构由 createDirectories 预先建好
+    private static final class FileList {
+        final String[] sources;
+        final String[] targets;
+        final long largest;
+
+        FileList(Fixture fixture, File dest) {
+            List<String> sourceList = new ArrayList<>();
+            List<String> targetList = new ArrayList<>();
+            long max = 0;
+            int prefix = fixture.root.getPath().length();
+            for (File dir : fixture.directories) {
+                File[] children = dir.listFiles();
+                if (children == null) continue;
+                for (File child : children) {
+                    if (child.isDirectory()) continue;
+                    sourceList.add(child.getPath());
+                    targetList.add(dest.getPath() + child.getPath().substring(prefix));
+                    max = Math.max(max, child.length());
+                }
+            }
+            sources = sourceList.toArray(new String[0]);
+            targets = targetList.toArray(new String[0]);
+            largest = max;
+        }
+    }
+
+    // 按夹具的目录结构建好目标目录（不计时），之后只比较文件复制本身
+    private static void createDirectories(Fixture fixture, File dest) throws IOException {
+        int prefix = fixture.root.getPath().length();
+        for (File dir : fixture.directories) {
+            File target = new File(dest.getPath() + dir.getPath().substring(prefix));
+            if (!target.mkdirs() && !target.isDirectory()) throw new IOException("Cannot create " + target);
+        }
+    }
+
+    // 逐个文件调用 copyFile，与 CopyEngine 单个工作线程的做法相同
+    private void copyFiles(Fixture fixture, String suite, String name, int verify, int preserve) throws Exception {
+        Result result = new Result(suite, variant, fixture.name, name, fixture.files, fixture.bytes);
+        File dest = new File(workDir, fixture.name);
+        FileList list = new FileList(fixture, dest);
+        long[] checksum = new long[1];
+        int methods = 0;
+        for (int i = 0; i < reps; i++) {
+            deleteTree(dest);
+            createDirectories(fixture, dest);
+            settle();
+            CopyCounters counters = new CopyCounters();
+            result.measure(() -> {
+                for (int f = 0; f < list.sources.length; f++) {
+                    check(NativeFileOperation.copyFile(list.sources[f], list.targets[f], -1, counters.buffer(),
+                            verify, preserve, checksum), "copyFile");
+                }
+            });
+            if (counters.getBytes() != fixture.bytes) {
+                throw new IllegalStateException("Copied " + counters.getBytes() + " of " + fixture.bytes + " bytes");
+            }
+            methods |= counters.getMethods();
+        }
+        deleteTree(dest);
+        result.methods = describeMethods(methods);
+        report(result);
+    }
+
+    private void uring(Fixture fixture) throws Exception {
+        File dest = new File(workDir, fixture.name);
+        FileList list = new FileList(fixture, dest);
+        if (list.largest > NativeFileOperation.URING_MAX_FILE_SIZE) return; // 批量路径只处理小文件
+        long probe = NativeFileOperation.uringOpen();
+        if (probe == 0) {
+            System.out.println("io_uring unavailable, skipping uring suite");
+            return;
+        }
+        NativeFileOperation.uringClose(probe);
+
+        copyFiles(fixture, "uring", "copyFile", NativeFileOperation.VERIFY_NONE, NativeFileOperation.PRESERVE_ALL);
+
+        // 与 CopyEngine 相同：每批 URING_MAX_BATCH 个文件，每个任务打开一次句柄
+        List<String[]> sourceBatches = new ArrayList<>();
+        List<String[]> targetBatches = new ArrayList<>();
+        for (int start = 0; start < list.sources.length; start += NativeFileOperation.URING_MAX_BATCH) {
+            int end = Math.min(list.sources.length, start + NativeFileOperation.URING_MAX_BATCH);
+            sourceBatches.add(Arrays.copyOfRange(list.sources, start, end));
+            targetBatches.add(Arrays.copyOfRange(list.targets, start, end));
+        }
+        Result result = new Result("uring", variant, fixture.name, "uringCopy(" + NativeFileOperation.URING_MAX_BATCH
+                + ")", fixture.files, fixture.bytes);
+        int methods = 0;
+        for (int i = 0; i < reps; i++) {
+            deleteTree(dest);
+            createDirectories(fixture, dest);
+            settle();
+            CopyCounters counters = new CopyCounters();
+            result.measure(() -> {
+                long handle = NativeFileOperation.uringOpen();
+                try {
+                    for (int b = 0; b < sourceBatches.size(); b++) {
+                        int[] results = NativeFileOperation.uringCopy(handle, sourceBatches.get(b),
+                                targetBatches.get(b), counters.buffer(), NativeFileOperation.PRESERVE_ALL);
+                        if (results == null) throw new IllegalStateException("uringCopy failed");
+                        for (int status : results) check(status, "uringCopy");
+                    }
+                } finally {
+                    NativeFileOperation.uringClose(handle);
+                }
+            });
+            if (counters.getBytes() != fixture.bytes) {
+                throw new IllegalStateException("Copied " + counters.getBytes() + " of " + fixture.bytes + " bytes");
+            }
+            methods |= counters.getMethods();
+        }
+        deleteTree(dest);
+        result.methods = describeMethods(methods);
+        report(result);
+    }
+
+    private enum JavaCopy { TRANSFER_TO, STREAM, DIRECT }
+
+    private void javaCopy(Fixture fixture, String name, JavaCopy strategy) throws Exception {
+        Result result = new Result("java", variant, fixture.name, name, fixture.files, fixture.bytes);
+        File dest = new File(workDir, fixture.name);
+        for (int i = 0; i < reps; i++) {
+            deleteTree(dest);
+            settle();
+            result.measure(() -> copyTree(fixture.root, dest, strategy));
+        }
+        deleteTree(dest);
+        report(result);
+    }
+
+    // 与 native 递归复制做同样的事：逐个目录创建，逐个文件复制
+    private static void copyTree(File src, File dest, JavaCopy strategy) throws IOException {
+        if (!dest.mkdirs() && !dest.isDirectory()) throw new IOException("Cannot create " + dest);
+        ByteBuffer direct = strategy == JavaCopy.DIRECT ? ByteBuffer.allocateDirect(1 << 20) : null;
+        byte[] heap = strategy == JavaCopy.STREAM ? new byte[64 << 10] : null;
+        File[] children = src.listFiles();
+        if (children == null) throw new IOException("Cannot list " + src);
+        for (File child : children) {
+            File target = new File(dest, child.getName());
+            if (child.isDirectory()) {
+                copyTree(child, target, strategy);
+                continue;
+            }
+            switch (strategy) {
+                case TRANSFER_TO:
+                    try (FileChannel in = new FileInputStream(child).getChannel();
+                         FileChannel out = new FileOutputStream(target).getChannel()) {
+                        long size = in.size();
+                        for (long pos = 0; pos < size; ) pos += in.transferTo(pos, size - pos, out);
+                    }
+                    break;
+                case STREAM:
+                    try (InputStream in = new FileInputStream(child);
+                         OutputStream out = new FileOutputStream(target)) {
+                        int n;
+                        while ((n = in.read(heap)) > 0) out.write(heap, 0, n);
+                    }
+                    break;
+                default:
+                    try (FileChannel in = new FileInputStream(child).getChannel();
+                         FileChannel out = new FileOutputStream(target).getChannel()) {
+                        while (in.read(direct) > 0) {
+                            direct.flip();
+                            while (direct.hasRemaining()) out.write(direct);
+                            direct.clear();
+                        }
+                    }
+                    break;
+            }
+            target.setLastModified(child.lastModified());
+        }
+    }
+
+    private void list(Fixture fixture) throws Exception {
+        // 条目数包括子目录
+        long entries = 0;
+        for (File dir : fixture.directories) {
+            String[] names = dir.list();
+            if (names != null) entries += names.length;
+        }
+
+        Result loader = new Result("list", variant, fixture.name, "DirectoryLoader", entries, 0);
+        Result listFiles = new Result("list", variant, fixture.name, "File.listFiles", entries, 0);
+        long[] seen = new long[1];
+        // 列目录很快，先不计时运行一次，避免结果被 JIT 编译前的解释执行拖慢
+        for (int i = -1; i < reps; i++) {
+            if (i == 0) {
+                loader.reset();
+                listFiles.reset();
+            }
+            settle();
+            seen[0] = 0;
+            loader.measure(() -> {
+                for (File dir : fixture.directories) {
+                    new DirectoryLoader(dir, SortOrder.DEFAULT, new DirectoryLoader.PageListener() {
+                        @Override
+                        public void onPage(DirectorySnapshot snapshot, int pageStart) {
+                        }
+
+                        @Override
+                        public void onComplete(DirectorySnapshot snapshot, boolean paged) {
+                            seen[0] += snapshot.size();
+                        }
+                    }).load(false);
+                }
+            });
+            if (seen[0] != entries) throw new IllegalStateException("Listed " + seen[0] + " of " + entries);
+
+            settle();
+            listFiles.measure(() -> {
+                long sum = 0;
+                for (File dir : fixture.directories) {
+                    File[] children = dir.listFiles();
+                    if (children == null) continue;
+                    for (File child : children) {
+                        sum += child.isDirectory() ? 1 : child.length() + child.lastModified();
+                    }
+                }
+                if (sum == 0) throw new IllegalStateException("Nothing listed");
+            });
+        }
+        report(loader);
+        report(listFiles);
+    }
+
+    private interface Deleter {
+        boolean delete(File root);
+    }
+
+    private void delete(Fixture fixture) throws Exception {
+        // 删除的文件数包括目录
+        long entries = fixture.files + fixture.directories.size();
+        deleteWith(fixture, entries, "NativeFileOperation.delete",
+                root -> NativeFileOperation.delete(root.getPath()));
+        deleteWith(fixture, entries, "deleteTree(1 thread)",
+                root -> NativeFileOperation.deleteTree(root.getPath(), null, 1)
+                        == NativeFileOperation.STATUS_SUCCESS);
+        deleteWith(fixture, entries, "FileUtils.deleteRecursive(" + DeleteEngine.threadCount() + ")",
+                FileUtils::deleteRecursive);
+    }
+
+    // 每次先复制出一棵树（不计时）再删除
+    private void deleteWith(Fixture fixture, long entries, String name, Deleter deleter) throws Exception {
+        Result result = new Result("delete", variant, fixture.name, name, entries, 0);
+        File target = new File(workDir, fixture.name);
+        for (int i = 0; i < reps; i++) {
+            deleteTree(target);
+            check(NativeFileOperation.copy(fixture.root.getPath(), target.getPath(), null), "copy");
+            settle();
+            result.measure(() -> {
+                if (!deleter.delete(target)) throw new IllegalStateException(name + " failed");
+            });
+            if (target.exists()) throw new IllegalStateException(name + " left " + target);
+        }
+        report(result);
+    }
+
+    private void report(Result result) throws IOException {
+        result.print();
+        if (csv != null) result.appendCsv(csv);
+    }
+
+    // 两次运行之间写回脏页，--drop-caches 时再丢弃页缓存（需要 root），使每次从存储读取
+    private void settle() {
+        try {
+            new ProcessBuilder("sync").inheritIO().start().waitFor();
+            if (dropCaches) {
+                try (PrintWriter writer = new PrintWriter("/proc/sys/vm/drop_caches")) {
+                    writer.println("3");
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Cannot drop caches: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void check(int status, String what) {
+        if (status != NativeFileOperation.STATUS_SUCCESS) {
+            throw new IllegalStateException(what + " failed with status " + status);
+        }
+    }
+
+    // 清理用，不计时
+    static void deleteTree(File root) {
+        if (root.exists()) NativeFileOperation.deleteTree(root.getPath(), null, 4);
+    }
+
+    // 与 CopyEngine 日志中的写法一致，例如 "copy_file_range+sparse"
+    private static String describeMethods(int methods) {
+        StringBuilder sb = new StringBuilder();
+        if ((methods & NativeFileOperation.COPY_METHOD_CLONE) != 0) sb.append("+clone");
+        if ((methods & NativeFileOperation.COPY_METHOD_RANGE) != 0) sb.append("+copy_file_range");
+        if ((methods & NativeFileOperation.COPY_METHOD_SENDFILE) != 0) sb.append("+sendfile");
+        if ((methods & NativeFileOperation.COPY_METHOD_READ_WRITE) != 0) sb.append("+read/write");
+        if ((methods & NativeFileOperation.COPY_METHOD_SPARSE) != 0) sb.append("+sparse");
+        if ((methods & NativeFileOperation.COPY_METHOD_URING) != 0) sb.append("+io_uring");
+        return sb.length() > 0 ? sb.substring(1) : "none";
+    }
+}
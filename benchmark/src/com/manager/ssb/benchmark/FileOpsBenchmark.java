@@ -0,0 +1,102 @@
+/*
+ * System Shell Box
+ * Copyright (C) 2025 kgultrt
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+// FileOpsBenchmark.java
+package com.manager.ssb.benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 文件操作热点路径的基准测试，在普通 Linux JVM 上加载主机编译的 libssb_daemon 运行
+ * 通常由 benchmark/run.sh 调用：每个 native 库变体（不同的块大小和复制方式）各运行一次 JVM
+ *
+ * 参数：
+ *   --dir DIR          夹具和工作目录（默认 ${java.io.tmpdir}/ssb-bench），应与要测的存储在同一文件系统
+ *   --fixtures LIST    huge,large,small,deep 中的若干项（默认 large,small,deep）
+ *   --scale X          缩小夹具（默认 1）
+ *   --suites LIST      copy,java,uring,list,delete 中的若干项（默认全部）
+ *   --reps N           每项运行次数，报告中位数（默认 3）
+ *   --variant NAME     结果中标注的 native 库变体名
+ *   --csv FILE         把结果追加到 CSV
+ *   --drop-caches      每次运行前丢弃页缓存（需要 root）
+ */
+public final class FileOpsBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        File dir = new File(System.getProperty("java.io.tmpdir"), "ssb-bench");
+        String[] fixtures = {"large", "small", "deep"};
+        String[] suites = {"copy", "java", "uring", "list", "delete"};
+        double scale = 1;
+        int reps = 3;
+        String variant = "default";
+        String csv = null;
+        boolean dropCaches = false;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--dir":
+                    dir = new File(args[++i]);
+                    break;
+                case "--fixtures":
+                    fixtures = args[++i].split(",");
+                    break;
+                case "--scale":
+                    scale = Double.parseDouble(args[++i]);
+                    break;
+                case "--suites":
+                    suites = args[++i].split(",");
+                    break;
+                case "--reps":
+                    reps = Math.max(1, Integer.parseInt(args[++i]));
+                    break;
+                case "--variant":
+                    variant = args[++i];
+                    break;
+                case "--csv":
+                    csv = args[++i];
+                    break;
+                case "--drop-caches":
+                    dropCaches = true;
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        File fixtureDir = new File(dir, "fixtures");
+        File workDir = new File(dir, "work");
+        if (!fixtureDir.isDirectory() && !fixtureDir.mkdirs()) throw new IllegalStateException("Cannot create " + dir);
+        if (!workDir.isDirectory() && !workDir.mkdirs()) throw new IllegalStateException("Cannot create " + dir);
+
+        List<Fixture> prepared = new ArrayList<>();
+        for (String name : fixtures) {
+            Fixture fixture = Fixture.of(name, fixtureDir, scale);
+            fixture.prepare();
+            prepared.add(fixture);
+        }
+
+        Benchmarks benchmarks = new Benchmarks(variant, reps, workDir, dropCaches, csv);
+        Result.printHeader();
+        for (Fixture fixture : prepared) {
+            for (String suite : suites) benchmarks.run(suite, fixture);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * System Shell Box
+ * Copyright (C) 2025 kgultrt
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+// Fixture.java
+package com.manager.ssb.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 基准测试用的目录树：生成一次后在多次运行（以及不同的 native 库变体）之间复用
+ * 文件内容为伪随机数据，避免被文件系统压缩或按稀疏文件处理
+ */
+final class Fixture {
+
+    // 深层嵌套的层数：native 递归复制最多 50 层（MAX_RECURSION_DEPTH），留出余量
+    private static final int DEEP_LEVELS = 40;
+    private static final int WRITE_BLOCK = 1 << 20;
+
+    final String name;
+    final File root;
+    private final int dirs;          // 顶层目录数（huge 为 0，文件直接放在根目录）
+    private final int filesPerDir;
+    private final long fileSize;
+    private final int levels;        // 每个顶层目录下的嵌套层数，每层都有 filesPerDir 个文件
+
+    // 生成后统计
+    long files;
+    long bytes;
+    final List<File> directories = new ArrayList<>();
+
+    private Fixture(String name, File base, int dirs, int filesPerDir, long fileSize, int levels) {
+        this.name = name;
+        this.root = new File(base, name);
+        this.dirs = dirs;
+        this.filesPerDir = filesPerDir;
+        this.fileSize = fileSize;
+        this.levels = levels;
+    }
+
+    /**
+     * 按名称创建：huge（1×10 GiB）、large（1000×10 MiB）、small（100k×4 KiB）、
+     * deep（64 条 40 层的目录链，每层 8×1 KiB）
+     * @param scale huge 按比例缩小文件大小，其余按比例缩小文件数
+     */
+    static Fixture of(String name, File base, double scale) {
+        switch (name) {
+            case "huge":
+                return new Fixture(name, base, 0, 1, Math.max(WRITE_BLOCK, (long) ((10L << 30) * scale)), 1);
+            case "large":
+                return new Fixture(name, base, Math.max(1, (int) (10 * scale)), 100, 10L << 20, 1);
+            case "small":
+                return new Fixture(name, base, Math.max(1, (int) (100 * scale)), 1000, 4L << 10, 1);
+            case "deep":
+                return new Fixture(name, base, Math.max(1, (int) (64 * scale)), 8, 1L << 10, DEEP_LEVELS);
+            default:
+                throw new IllegalArgumentException("Unknown fixture: " + name);
+        }
+    }
+
+    // 已有同样参数生成的树时直接复用
+    void prepare() throws IOException {
+        File marker = new File(root.getParentFile(), name + ".done");
+        String spec = dirs + " " + filesPerDir + " " + fileSize + " " + levels;
+        if (marker.isFile() && spec.equals(new String(Files.readAllBytes(marker.toPath()),
+                StandardCharsets.UTF_8).trim()) && root.isDirectory()) {
+            count(root);
+            return;
+        }
+
+        System.out.printf("Generating fixture %s in %s ...%n", name, root);
+        marker.delete();
+        Benchmarks.deleteTree(root);
+        if (!root.mkdirs()) throw new IOException("Cannot create " + root);
+
+        byte[] data = new byte[WRITE_BLOCK + (int) Math.min(fileSize, WRITE_BLOCK)];
+        new Random(42).nextBytes(data);
+        int serial = 0;
+        if (dirs == 0) {
+            for (int i = 0; i < filesPerDir; i++) write(new File(root, "f" + i), data, serial++);
+        } else {
+            for (int d = 0; d < dirs; d++) {
+                File dir = new File(root, "d" + d);
+                for (int level = 0; level < levels; level++) {
+                    if (!dir.mkdirs()) throw new IOException("Cannot create " + dir);
+                    for (int i = 0; i < filesPerDir; i++) write(new File(dir, "f" + i), data, serial++);
+                    dir = new File(dir, "n" + level);
+                }
+            }
+        }
+
+        try (PrintWriter writer = new PrintWriter(marker, "UTF-8")) {
+            writer.println(spec);
+        }
+        count(root);
+    }
+
+    // 每个文件从数据块的不同位置开始，内容互不相同
+    private void write(File file, byte[] data, int serial) throws IOException {
+        int offset = (int) ((serial * 4099L) % WRITE_BLOCK);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            long left = fileSize;
+            while (left > 0) {
+                int len = (int) Math.min(left, WRITE_BLOCK);
+                out.write(data, offset, len);
+                left -= len;
+            }
+        }
+    }
+
+    private void count(File root) {
+        files = 0;
+        bytes = 0;
+        directories.clear();
+        List<File> pending = new ArrayList<>();
+        pending.add(root);
+        while (!pending.isEmpty()) {
+            File dir = pending.remove(pending.size() - 1);
+            directories.add(dir);
+            File[] children = dir.listFiles();
+            if (children == null) continue;
+            for (File child : children) {
+                if (child.isDirectory()) {
+                    pending.add(child);
+                } else {
+                    files++;
+                    bytes += child.length();
+                }
+            }
+        }
+    }
+}
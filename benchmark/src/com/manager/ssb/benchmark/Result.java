@@ -0,0 +1,136 @@
+/*
+ * System Shell Box
+ * Copyright (C) 2025 kgultrt
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+// Result.java
+package com.manager.ssb.benchmark;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 一项测试（同一夹具上的同一种操作）的多次运行结果，报告中位数
+ * 分配量只统计调用线程（native 层线程不分配 Java 对象）
+ */
+final class Result {
+
+    interface Task {
+        void run() throws Exception;
+    }
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    final String suite;
+    final String variant;
+    final String fixture;
+    final String operation;
+    final long files;   // 每次运行处理的文件数（列目录时为条目数）
+    final long bytes;   // 每次运行处理的字节数，不涉及数据时为 0
+    String methods = ""; // native 复制实际使用的方式
+
+    private final List<Long> times = new ArrayList<>();
+    private final List<Long> allocations = new ArrayList<>();
+    private long gcCount;
+
+    Result(String suite, String variant, String fixture, String operation, long files, long bytes) {
+        this.suite = suite;
+        this.variant = variant;
+        this.fixture = fixture;
+        this.operation = operation;
+        this.files = files;
+        this.bytes = bytes;
+    }
+
+    // 计时运行一次，task 之外的准备和清理不计入
+    void measure(Task task) throws Exception {
+        long threadId = Thread.currentThread().getId();
+        long allocated = THREADS.getThreadAllocatedBytes(threadId);
+        long gc = gcCount();
+        long start = System.nanoTime();
+        task.run();
+        times.add(System.nanoTime() - start);
+        allocations.add(THREADS.getThreadAllocatedBytes(threadId) - allocated);
+        gcCount += gcCount() - gc;
+    }
+
+    // 丢弃预热运行的结果
+    void reset() {
+        times.clear();
+        allocations.clear();
+        gcCount = 0;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, bean.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long median(List<Long> values) {
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return sorted.get(sorted.size() / 2);
+    }
+
+    static void printHeader() {
+        System.out.printf(Locale.US, "%-7s %-14s %-6s %-28s %9s %10s %10s %10s %11s %11s %10s %4s  %s%n",
+                "suite", "variant", "fix", "operation", "files", "MB", "median ms", "MB/s", "files/s",
+                "alloc/op", "alloc MB/s", "gc", "methods");
+    }
+
+    void print() {
+        if (times.isEmpty()) return;
+        double seconds = median(times) / 1e9;
+        long allocated = median(allocations);
+        System.out.printf(Locale.US,
+                "%-7s %-14s %-6s %-28s %9d %10.1f %10.1f %10.1f %11.0f %11s %10.1f %4d  %s%n",
+                suite, variant, fixture, operation, files, bytes / 1e6, seconds * 1e3, bytes / 1e6 / seconds,
+                files / seconds, formatBytes(allocated), allocated / 1e6 / seconds, gcCount, methods);
+    }
+
+    // 追加到 CSV，便于与之前的结果比较
+    void appendCsv(String path) throws IOException {
+        if (times.isEmpty()) return;
+        boolean header = !new File(path).exists();
+        try (PrintWriter writer = new PrintWriter(new FileWriter(path, true))) {
+            if (header) {
+                writer.println("suite,variant,fixture,operation,files,bytes,runs,median_ns,min_ns,max_ns,"
+                        + "alloc_bytes,gc,methods");
+            }
+            writer.printf(Locale.US, "%s,%s,%s,%s,%d,%d,%d,%d,%d,%d,%d,%d,%s%n",
+                    suite, variant, fixture, operation, files, bytes, times.size(), median(times),
+                    Collections.min(times), Collections.max(times), median(allocations), gcCount, methods);
+        }
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 10L << 10) return bytes + " B";
+        if (bytes < 10L << 20) return (bytes >> 10) + " KB";
+        return (bytes >> 20) + " MB";
+    }
+}
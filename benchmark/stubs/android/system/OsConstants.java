@@ -0,0 +1,31 @@
+/*
+ * System Shell Box
+ * Copyright (C) 2025 kgultrt
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+// OsConstants.java
+package android.system;
+
+// 基准测试用的主机替身
+public final class OsConstants {
+
+    public static final int S_IFMT = 0170000;
+    public static final int S_IFDIR = 0040000;
+
+    public static boolean S_ISDIR(int mode) {
+        return (mode & S_IFMT) == S_IFDIR;
+    }
+}
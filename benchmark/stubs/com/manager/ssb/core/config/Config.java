@@ -0,0 +1,40 @@
+/*
+ * System Shell Box
+ * Copyright (C) 2025 kgultrt
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+// Config.java
+package com.manager.ssb.core.config;
+
+/**
+ * 基准测试用的主机替身：配置项从系统属性 ssb.<key> 读取，例如 -Dssb.delete.threads=8
+ */
+public class Config {
+
+    @SuppressWarnings("unchecked")
+    public static <T> T get(String key, T defaultValue) {
+        String value = System.getProperty("ssb." + key);
+        if (value == null || defaultValue == null) return defaultValue;
+        if (defaultValue instanceof Integer) return (T) Integer.valueOf(value);
+        if (defaultValue instanceof Long) return (T) Long.valueOf(value);
+        if (defaultValue instanceof Boolean) return (T) Boolean.valueOf(value);
+        return (T) value;
+    }
+
+    public static void set(String key, Object value) {
+        System.setProperty("ssb." + key, String.valueOf(value));
+    }
+}